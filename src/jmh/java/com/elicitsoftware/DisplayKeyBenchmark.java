@@ -0,0 +1,122 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link DisplayKey} parsing, formatting and sorting with the previous implementation,
+ * which split the key and formatted every part with {@code String.format}.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="DisplayKeyBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayKeyBenchmark {
+
+    private static final String KEY = "0001-0003-0002-0004-0001-0012-0003";
+
+    /**
+     * The display keys of a section with a few hundred answers, as sorted by navigation.
+     */
+    private String[] sectionKeys;
+
+    @Setup
+    public void setUp() {
+        sectionKeys = new String[300];
+        for (int i = 0; i < sectionKeys.length; i++) {
+            int n = sectionKeys.length - i;
+            sectionKeys[i] = String.format("0001-0003-%04d-0004-0001-%04d-%04d", n % 4, n % 30, n % 5);
+        }
+    }
+
+    @Benchmark
+    public String parseAndFormatLegacy() {
+        return LegacyKey.format(LegacyKey.parse(KEY));
+    }
+
+    @Benchmark
+    public String parseAndFormat() {
+        return new DisplayKey(KEY).getValue();
+    }
+
+    @Benchmark
+    public String sectionQueryLegacy() {
+        int[] parts = LegacyKey.parse(KEY);
+        return LegacyKey.pad(parts[0]) + "-" + LegacyKey.pad(parts[1]) + "-" + LegacyKey.pad(parts[2]) + "-"
+                + LegacyKey.pad(parts[3]) + "-%";
+    }
+
+    @Benchmark
+    public String sectionQuery() {
+        return new DisplayKey(KEY).getSectionQueryString();
+    }
+
+    @Benchmark
+    public Object sortLegacy() {
+        // The previous compareTo formatted both keys on every comparison.
+        TreeMap<int[], String> sorted = new TreeMap<>((x, y) -> LegacyKey.format(x).compareTo(LegacyKey.format(y)));
+        for (String key : sectionKeys) {
+            sorted.put(LegacyKey.parse(key), key);
+        }
+        return sorted;
+    }
+
+    @Benchmark
+    public Object sort() {
+        TreeMap<DisplayKey, String> sorted = new TreeMap<>();
+        for (String key : sectionKeys) {
+            sorted.put(new DisplayKey(key), key);
+        }
+        return sorted;
+    }
+
+    /**
+     * The previous parsing and formatting, which also ran for every comparison.
+     */
+    private static final class LegacyKey {
+
+        static int[] parse(String key) {
+            String[] keyStrings = key.split("-");
+            int[] parts = new int[7];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = Integer.parseInt(keyStrings[i]);
+            }
+            return parts;
+        }
+
+        static String format(int[] parts) {
+            return pad(parts[0]) + "-" + pad(parts[1]) + "-" + pad(parts[2]) + "-" + pad(parts[3]) + "-"
+                    + pad(parts[4]) + "-" + pad(parts[5]) + "-" + pad(parts[6]);
+        }
+
+        static String pad(int n) {
+            return String.format("%04d", n);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Answer;
+import com.elicitsoftware.model.OperatorType;
+import com.elicitsoftware.model.Question;
+import com.elicitsoftware.model.QuestionType;
+import com.elicitsoftware.model.Relationship;
+import com.elicitsoftware.model.SectionsQuestion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Relationship#evaluateOperator(Answer)} with the previous string switch, which
+ * parsed the reference value on every call.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="RelationshipBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelationshipBenchmark {
+
+    /**
+     * Operator, question type, reference value and answer, as in the library test survey.
+     */
+    @Param({
+            "BOOLEAN|BOOLEAN||true",
+            "GREATER THAN|INTEGER|1|12",
+            "LESS THAN|DATE|2000-01-01|1987-06-15",
+            "EQUAL|TEXT|Yes|yes",
+            "CONTAINS|CHECKBOX|dvd|book,audiobook,dvd"})
+    public String operation;
+
+    private Relationship relationship;
+    private Answer answer;
+
+    @Setup
+    public void setUp() {
+        String[] parts = operation.split("\\|", -1);
+        relationship = new Relationship();
+        relationship.operatorType = new OperatorType();
+        relationship.operatorType.name = parts[0];
+        relationship.upstreamQuestion = new SectionsQuestion();
+        relationship.upstreamQuestion.question = new Question();
+        relationship.upstreamQuestion.question.questionType = new QuestionType();
+        relationship.upstreamQuestion.question.questionType.name = parts[1];
+        relationship.referenceValue = parts[2].isEmpty() ? null : parts[2];
+        answer = new Answer();
+        answer.setTextValue(parts[3]);
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        return LegacyOperator.evaluate(relationship, answer);
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return relationship.evaluateOperator(answer);
+    }
+
+    /**
+     * The previous implementation of {@link Relationship#evaluateOperator(Answer)}.
+     */
+    private static final class LegacyOperator {
+
+        private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT =
+                ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyy-MM-dd"));
+
+        static boolean evaluate(Relationship r, Answer answer) {
+            boolean returnValue = false;
+            SimpleDateFormat sdf = DATE_FORMAT.get();
+            try {
+                switch (r.operatorType.name) {
+                    case "BOOLEAN":
+                        returnValue = Boolean.parseBoolean(answer.getTextValue());
+                        break;
+                    case "LESS THAN":
+                        if (r.upstreamQuestion.question.questionType.name.equals("DATE")) {
+                            Date dateValue = sdf.parse(answer.getTextValue());
+                            Date dateRef;
+                            try {
+                                dateRef = sdf.parse(r.referenceValue);
+                            } catch (Exception e) {
+                                dateRef = new Date();
+                            }
+                            returnValue = dateValue.compareTo(dateRef) < 0;
+                        } else {
+                            Double dValue = Double.valueOf(answer.getTextValue());
+                            if (r.referenceValue != null) {
+                                returnValue = dValue >= Double.valueOf(r.referenceValue);
+                            }
+                        }
+                        break;
+                    case "GREATER THAN":
+                        if (r.upstreamQuestion.question.questionType.name.equals("DATE")) {
+                            Date dateValue = sdf.parse(answer.getTextValue());
+                            Date dateRef;
+                            try {
+                                dateRef = sdf.parse(r.referenceValue);
+                            } catch (Exception e) {
+                                dateRef = new Date();
+                            }
+                            returnValue = dateValue.compareTo(dateRef) > -1;
+                        } else {
+                            double dValue = Double.parseDouble(answer.getTextValue());
+                            if (r.referenceValue != null) {
+                                returnValue = dValue >= Double.parseDouble(r.referenceValue);
+                            }
+                        }
+                        break;
+                    case "EQUAL":
+                        if (r.referenceValue != null) {
+                            returnValue = answer.getTextValue().equalsIgnoreCase(r.referenceValue);
+                        }
+                        break;
+                    case "NOT_EQUAL":
+                        if (answer.getTextValue() != null) {
+                            returnValue = !answer.getTextValue().equalsIgnoreCase(r.referenceValue);
+                        }
+                        break;
+                    case "FIELD_EXIST":
+                        returnValue = true;
+                        break;
+                    case "CONTAINS":
+                        returnValue = Arrays.asList(answer.getTextValue().split(",")).contains(r.referenceValue);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                // return default value
+            }
+            return returnValue;
+        }
+    }
+}
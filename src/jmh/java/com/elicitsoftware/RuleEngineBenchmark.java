@@ -0,0 +1,156 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Answer;
+import com.elicitsoftware.model.Respondent;
+import com.elicitsoftware.model.Survey;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ArcContainer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving an answer end to end: deleting what is downstream of it and building the
+ * questions it shows, against the library survey of the test database.
+ * <p>
+ * Every invocation starts a transaction, creates a fresh respondent and rolls everything back
+ * afterwards, so the database is left as Flyway seeded it. The beans come from the running
+ * Quarkus application, so this benchmark cannot fork and is started by
+ * {@link RuleEngineBenchmarkRunner} instead of the JMH command line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(0)
+public class RuleEngineBenchmark {
+
+    static final int SURVEY_ID = 1;
+    static final String WELCOME_SECTION = "0001-0001-0000-0001-0000-0000-0000";
+    static final String COLLPREFS_SECTION = "0001-0003-0000-0004-0000-0000-0000";
+    static final String TERMS_DK = "0001-0001-0000-0001-0000-0002-0000";
+    static final String CHECKOUT_QTY_DK = "0001-0003-0000-0004-0000-0001-0000";
+
+    @State(Scope.Thread)
+    public static class Engine {
+        QuestionManager questionManager;
+        EntityManager entityManager;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            ArcContainer container = Arc.container();
+            if (container == null) {
+                throw new IllegalStateException("RuleEngineBenchmark needs a running application, use RuleEngineBenchmarkRunner");
+            }
+            questionManager = container.instance(QuestionManager.class).get();
+            entityManager = container.instance(EntityManager.class).get();
+        }
+
+        /**
+         * Creates a respondent and initializes the first section, like a new login does.
+         */
+        int newRespondent() {
+            Respondent respondent = new Respondent();
+            respondent.survey = Survey.findById(SURVEY_ID);
+            respondent.token = "benchmark_" + System.nanoTime();
+            respondent.active = true;
+            respondent.logins = 0;
+            respondent.persist();
+            questionManager.init(respondent.id, WELCOME_SECTION);
+            return respondent.id;
+        }
+
+        /**
+         * Saves an answer the way the survey page does.
+         */
+        void save(Answer answer, String value) {
+            answer.setTextValue(value);
+            entityManager.flush();
+            questionManager.deleteDownstreamAnswers(answer.respondentId, answer, answer.id);
+            questionManager.buildDownstreamQuestions(answer);
+        }
+    }
+
+    /**
+     * A new respondent about to accept the terms, which shows the next step.
+     */
+    @State(Scope.Thread)
+    public static class Terms {
+        Answer terms;
+
+        @Setup(Level.Invocation)
+        public void setUp(Engine engine) {
+            QuarkusTransaction.begin();
+            int respondentId = engine.newRespondent();
+            terms = Answer.findByDisplayKeyActive(respondentId, TERMS_DK);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            QuarkusTransaction.rollback();
+        }
+    }
+
+    /**
+     * A respondent on the collection preferences section about to set the checkout quantity,
+     * which repeats the checkout step that many times.
+     */
+    @State(Scope.Thread)
+    public static class Checkouts {
+        @Param({"1", "12"})
+        public String quantity;
+
+        Answer checkoutQuantity;
+
+        @Setup(Level.Invocation)
+        public void setUp(Engine engine) {
+            QuarkusTransaction.begin();
+            int respondentId = engine.newRespondent();
+            engine.save(Answer.findByDisplayKeyActive(respondentId, TERMS_DK), "TRUE");
+            engine.questionManager.navigate(respondentId, COLLPREFS_SECTION);
+            checkoutQuantity = Answer.findByDisplayKeyActive(respondentId, CHECKOUT_QTY_DK);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            QuarkusTransaction.rollback();
+        }
+    }
+
+    @Benchmark
+    public Answer showStep(Engine engine, Terms state) {
+        engine.save(state.terms, "TRUE");
+        return state.terms;
+    }
+
+    @Benchmark
+    public Answer repeatStep(Engine engine, Checkouts state) {
+        engine.save(state.checkoutQuantity, state.quantity);
+        return state.checkoutQuantity;
+    }
+}
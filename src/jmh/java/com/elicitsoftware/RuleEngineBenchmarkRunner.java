@@ -0,0 +1,48 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs {@link RuleEngineBenchmark} inside the test application, which connects to the test
+ * database and seeds it with Flyway, and writes the results to
+ * {@code target/jmh-rule-engine.json}.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test -Dtest=RuleEngineBenchmarkRunner}. The name does not
+ * match the test patterns, so the regular test run skips it.
+ */
+@QuarkusTest
+class RuleEngineBenchmarkRunner {
+
+    @Test
+    void run() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(RuleEngineBenchmark.class.getName())
+                .forks(0)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("jmh.result", "target/jmh-rule-engine.json"))
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        assertFalse(results.isEmpty(), "No benchmark ran");
+    }
+}
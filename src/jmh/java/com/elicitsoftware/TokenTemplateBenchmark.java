@@ -0,0 +1,74 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the parsed {@link TokenTemplate} with the legacy regex based token replacement.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="TokenTemplateBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenTemplateBenchmark {
+
+    @Param({
+            "Is {NAME|this person} still living?",
+            "How old was {NAME|this person} when {PRONOUN|they} were diagnosed with {CANCER|cancer}?",
+            "Family history"})
+    public String text;
+
+    /**
+     * Number of token values available, as for an answer with several upstream dependents.
+     */
+    @Param({"0", "3"})
+    public int valueCount;
+
+    private TreeMap<String, String> values;
+
+    @Setup
+    public void setUp() {
+        values = new TreeMap<>();
+        String[][] all = {{"NAME", "Dennis"}, {"PRONOUN", "he"}, {"CANCER", "colon cancer"}};
+        for (int i = 0; i < valueCount; i++) {
+            values.put(all[i][0], all[i][1]);
+        }
+    }
+
+    @Benchmark
+    public String legacy() {
+        return TokenTemplate.renderLegacy(text, values);
+    }
+
+    @Benchmark
+    public String template() {
+        return TokenTemplate.of(text).render(values);
+    }
+}
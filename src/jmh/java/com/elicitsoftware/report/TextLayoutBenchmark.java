@@ -0,0 +1,145 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TextMetrics} with the previous text layout, which measured every line again
+ * with {@link PDFont#getStringWidth} each time a word was added, on the text blocks and the
+ * person column of a large family history table.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="TextLayoutBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextLayoutBenchmark {
+
+    private static final PDFont FONT = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    private static final float FONT_SIZE = 10f;
+    private static final float WIDTH = 532f;
+    private static final String[] WORDS = {"mother", "father", "maternal", "paternal", "grandmother",
+            "aunt", "cousin", "breast", "colon", "ovarian", "cancer", "diagnosed", "at", "age", "deceased",
+            "polyps", "endometrial", "the", "and", "of", "with", "history"};
+
+    /**
+     * The text of the report blocks, a few hundred words each.
+     */
+    private String[] paragraphs;
+
+    /**
+     * The person column of a family history table of a large family.
+     */
+    private String[] people;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        paragraphs = new String[20];
+        for (int i = 0; i < paragraphs.length; i++) {
+            StringBuilder paragraph = new StringBuilder();
+            for (int w = 0; w < 300; w++) {
+                paragraph.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            paragraphs[i] = paragraph.toString();
+        }
+        people = new String[500];
+        for (int i = 0; i < people.length; i++) {
+            people[i] = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + (i + 1);
+        }
+    }
+
+    @Benchmark
+    public int wrapLegacy() throws IOException {
+        int lines = 0;
+        for (String paragraph : paragraphs) {
+            lines += LegacyLayout.wrapText(paragraph, FONT, FONT_SIZE, WIDTH).size();
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public int wrap() throws IOException {
+        int lines = 0;
+        for (String paragraph : paragraphs) {
+            lines += PDFService.wrapText(paragraph, FONT, FONT_SIZE, WIDTH).size();
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public float columnWidthLegacy() throws IOException {
+        float maxWidth = 0;
+        for (String person : people) {
+            maxWidth = Math.max(maxWidth, FONT.getStringWidth(person) / 1000 * FONT_SIZE);
+        }
+        return maxWidth;
+    }
+
+    @Benchmark
+    public float columnWidth() throws IOException {
+        TextMetrics metrics = TextMetrics.of(FONT);
+        float maxWidth = 0;
+        for (String person : people) {
+            maxWidth = Math.max(maxWidth, metrics.width(person, FONT_SIZE));
+        }
+        return maxWidth;
+    }
+
+    /**
+     * The previous wrapping, which measured the whole line for every word.
+     */
+    private static final class LegacyLayout {
+
+        static List<String> wrapText(String text, PDFont font, float fontSize, float maxWidth) throws IOException {
+            List<String> lines = new ArrayList<>();
+            String[] words = text.split(" ");
+            StringBuilder currentLine = new StringBuilder();
+            for (String word : words) {
+                String lineWithWord = currentLine.length() == 0 ? word : currentLine + " " + word;
+                float size = font.getStringWidth(lineWithWord) / 1000 * fontSize;
+                if (size <= maxWidth) {
+                    currentLine.append(currentLine.length() == 0 ? word : " " + word);
+                } else {
+                    lines.add(currentLine.toString());
+                    currentLine = new StringBuilder(word);
+                }
+            }
+            if (currentLine.length() > 0) {
+                lines.add(currentLine.toString());
+            }
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Answer;
+import com.elicitsoftware.model.Dependent;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes answers and dependents that were fully computed in memory with JDBC batch inserts.
+ * <p>
+ * Used when a REPEAT relationship materializes many rows at once. The ids of every row are
+ * reserved up front with one sequence query per table, so answers and the dependents that
+ * point at them are inserted in a single pass, on the connection of the current transaction.
+ * The rows are not attached to the persistence context; callers that keep working with them
+ * should reload them.
+ * <p>
+ * Ids are reserved the way Hibernate's pooled-lo optimizer does: every {@code nextval} hands
+ * out a block of {@code increment_by} ids starting at the returned value. Blocks reserved here
+ * therefore never overlap with the ones the entity mappings reserve.
+ */
+@ApplicationScoped
+public class AnswerBatchWriter {
+
+    static final String SCHEMA = "survey";
+    static final String ANSWERS_SEQUENCE = "answers_seq";
+    static final String DEPENDENTS_SEQUENCE = "dependents_seq";
+
+    static final String INCREMENT_SQL = "SELECT increment_by FROM pg_sequences WHERE schemaname = ? AND sequencename = ?";
+    static final String NEXT_IDS_SQL = "SELECT nextval(?::regclass) FROM generate_series(1, ?)";
+
+    static final String INSERT_ANSWER_SQL = "INSERT INTO survey.answers (id, survey_id, respondent_id, step, step_instance, "
+            + "section, section_instance, question_instance, section_question_id, question_id, display_key, display_text, "
+            + "text_value, deleted, created_dt, saved_dt) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    static final String INSERT_DEPENDENT_SQL = "INSERT INTO survey.dependents (id, respondent_id, upstream_id, downstream_id, "
+            + "relationship_id, deleted) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Inject
+    EntityManager entityManager;
+
+    /**
+     * Sequence increments, read once like Hibernate does at startup.
+     */
+    private final ConcurrentHashMap<String, Integer> increments = new ConcurrentHashMap<>();
+
+    /**
+     * Inserts the given answers and dependents. Answers without an id get one from the answers
+     * sequence before the dependents are written, so a dependent may reference an answer of the
+     * same batch.
+     *
+     * @param answers    the new answers
+     * @param dependents the new dependents, whose upstream and downstream answers are either in
+     *                   the database already or part of {@code answers}
+     */
+    public void write(List<Answer> answers, List<Dependent> dependents) {
+        if (answers.isEmpty() && dependents.isEmpty()) {
+            return;
+        }
+        // Pending entity changes must reach the database first, dependents reference them.
+        entityManager.flush();
+        // Not retried here: a failed statement aborts the caller's transaction, so the exception
+        // has to roll it back.
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            assignIds(connection, answers, dependents);
+            insertAnswers(connection, answers);
+            insertDependents(connection, dependents);
+        });
+        Log.debug("Batch inserted " + answers.size() + " answers and " + dependents.size() + " dependents");
+    }
+
+    /**
+     * Gives every answer and dependent without an id the next value of its sequence.
+     */
+    private void assignIds(Connection connection, List<Answer> answers, List<Dependent> dependents) throws SQLException {
+        List<Answer> newAnswers = new ArrayList<>();
+        for (Answer answer : answers) {
+            if (answer.id == null) {
+                newAnswers.add(answer);
+            }
+        }
+        List<Dependent> newDependents = new ArrayList<>();
+        for (Dependent dependent : dependents) {
+            if (dependent.id == null) {
+                newDependents.add(dependent);
+            }
+        }
+
+        List<Integer> answerIds = nextIds(connection, ANSWERS_SEQUENCE, newAnswers.size());
+        for (int i = 0; i < newAnswers.size(); i++) {
+            newAnswers.get(i).id = answerIds.get(i);
+        }
+        List<Integer> dependentIds = nextIds(connection, DEPENDENTS_SEQUENCE, newDependents.size());
+        for (int i = 0; i < newDependents.size(); i++) {
+            newDependents.get(i).id = dependentIds.get(i);
+        }
+    }
+
+    /**
+     * Reserves {@code count} ids of a sequence with a single round trip, taking as many blocks
+     * of the sequence increment as needed.
+     */
+    private List<Integer> nextIds(Connection connection, String sequence, int count) throws SQLException {
+        List<Integer> ids = new ArrayList<>(count);
+        if (count == 0) {
+            return ids;
+        }
+        int increment = getIncrement(connection, sequence);
+        int blocks = (count + increment - 1) / increment;
+        try (PreparedStatement ps = connection.prepareStatement(NEXT_IDS_SQL)) {
+            ps.setString(1, SCHEMA + "." + sequence);
+            ps.setInt(2, blocks);
+            StatementCounter.add(1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int lo = rs.getInt(1);
+                    for (int i = 0; i < increment && ids.size() < count; i++) {
+                        ids.add(lo + i);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the increment of a sequence, 1 when it cannot be read.
+     */
+    private int getIncrement(Connection connection, String sequence) throws SQLException {
+        Integer increment = increments.get(sequence);
+        if (increment != null) {
+            return increment;
+        }
+        increment = 1;
+        try (PreparedStatement ps = connection.prepareStatement(INCREMENT_SQL)) {
+            ps.setString(1, SCHEMA);
+            ps.setString(2, sequence);
+            StatementCounter.add(1);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getLong(1) > 0) {
+                    increment = (int) rs.getLong(1);
+                }
+            }
+        }
+        increments.put(sequence, increment);
+        return increment;
+    }
+
+    private void insertAnswers(Connection connection, List<Answer> answers) throws SQLException {
+        if (answers.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_ANSWER_SQL)) {
+            for (Answer answer : answers) {
+                ps.setInt(1, answer.id);
+                ps.setInt(2, answer.surveyId);
+                ps.setInt(3, answer.respondentId);
+                ps.setInt(4, answer.stepId);
+                ps.setInt(5, answer.stepInstance);
+                setInteger(ps, 6, answer.sectionId);
+                ps.setInt(7, answer.sectionInstance);
+                ps.setInt(8, answer.question_instance);
+                setInteger(ps, 9, answer.section_question_id);
+                setInteger(ps, 10, answer.question == null ? null : answer.question.id);
+                ps.setString(11, answer.getDisplayKey());
+                ps.setString(12, answer.displayText);
+                ps.setString(13, answer.getTextValue());
+                ps.setBoolean(14, Boolean.TRUE.equals(answer.deleted));
+                ps.setTimestamp(15, new Timestamp(answer.createdDt.getTime()));
+                ps.setTimestamp(16, answer.savedDt == null ? null : new Timestamp(answer.savedDt.getTime()));
+                ps.addBatch();
+            }
+            StatementCounter.add(1);
+            ps.executeBatch();
+        }
+    }
+
+    private void insertDependents(Connection connection, List<Dependent> dependents) throws SQLException {
+        if (dependents.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_DEPENDENT_SQL)) {
+            for (Dependent dependent : dependents) {
+                ps.setInt(1, dependent.id);
+                ps.setInt(2, dependent.respondentId);
+                ps.setInt(3, dependent.upstream.id);
+                ps.setInt(4, dependent.downstream.id);
+                ps.setInt(5, dependent.relationship.id);
+                ps.setBoolean(6, Boolean.TRUE.equals(dependent.deleted));
+                ps.addBatch();
+            }
+            StatementCounter.add(1);
+            ps.executeBatch();
+        }
+    }
+
+    private static void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Answer;
+import com.elicitsoftware.model.Dependent;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Soft-deletes answers together with everything downstream of them using a fixed number of
+ * statements, whatever the size of the dependent tree.
+ * <p>
+ * The answers to delete are found with one recursive query over {@code survey.dependents},
+ * following the same rules the recursive delete of {@link QuestionManager} applied one answer
+ * at a time:
+ * <ul>
+ *     <li>the downstream answer of every SHOW, EXISTS or REPEAT dependent of a deleted answer is
+ *     deleted, with everything downstream of it;</li>
+ *     <li>a deleted section header also deletes what is downstream of every active answer of the
+ *     section, in every section instance, and a deleted step header does the same for the step;
+ *     those answers themselves are only deleted when they are downstream of something deleted;</li>
+ *     <li>TEXT dependents of those answers are marked deleted, their downstream answers are kept.</li>
+ * </ul>
+ * The answers and dependents are then marked deleted with two bulk updates. Deciding which
+ * answers the changed answer itself removes, including the partial delete of a REPEAT count
+ * decrease, stays with the caller.
+ */
+@ApplicationScoped
+public class AnswerDeleter {
+
+    static final String CLOSURE_SQL = "WITH RECURSIVE closure(id, expand_only) AS ("
+            + " SELECT s.id, false FROM unnest(CAST(:seeds AS integer[])) AS s(id)"
+            + " UNION"
+            + " SELECT n.id, n.expand_only"
+            + " FROM closure c"
+            + " JOIN survey.answers h ON h.id = c.id"
+            + " CROSS JOIN LATERAL ("
+            + "   SELECT d.downstream_id AS id, false AS expand_only"
+            + "   FROM survey.dependents d"
+            + "   JOIN survey.relationships r ON r.id = d.relationship_id"
+            + "   JOIN survey.action_types t ON t.id = r.action_id"
+            + "   WHERE d.upstream_id = c.id AND d.respondent_id = :respondentId"
+            + "   AND t.name IN ('SHOW', 'EXISTS', 'REPEAT')"
+            + "   UNION ALL"
+            + "   SELECT e.id, true"
+            + "   FROM survey.answers e"
+            + "   WHERE NOT c.expand_only AND h.section_question_id IS NULL AND (h.section <> 0 OR h.step <> 0)"
+            + "   AND e.respondent_id = :respondentId AND e.deleted = false"
+            + "   AND e.display_key LIKE split_part(h.display_key, '-', 1) || '-' || split_part(h.display_key, '-', 2)"
+            + "   || CASE WHEN h.section <> 0"
+            + "      THEN '-' || split_part(h.display_key, '-', 3) || '-' || split_part(h.display_key, '-', 4)"
+            + "      ELSE '' END || '-%'"
+            + " ) n"
+            + ")"
+            + " SELECT c.id, NOT bool_and(c.expand_only), bool_or(a.section_question_id IS NULL)"
+            + " FROM closure c JOIN survey.answers a ON a.id = c.id"
+            + " GROUP BY c.id";
+
+    static final String DELETE_ANSWERS_SQL = "UPDATE survey.answers SET deleted = true"
+            + " WHERE respondent_id = :respondentId AND id = ANY(CAST(:ids AS integer[])) AND deleted = false";
+
+    static final String DELETE_DEPENDENTS_SQL = "UPDATE survey.dependents d SET deleted = true"
+            + " WHERE d.respondent_id = :respondentId AND d.deleted = false"
+            + " AND (d.downstream_id = ANY(CAST(:deleted AS integer[]))"
+            + " OR (d.upstream_id = ANY(CAST(:visited AS integer[])) AND d.relationship_id IN ("
+            + "   SELECT r.id FROM survey.relationships r JOIN survey.action_types t ON t.id = r.action_id"
+            + "   WHERE t.name = 'TEXT')))";
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    AnswerUnitOfWork unitOfWork;
+
+    /**
+     * Soft-deletes the given answers and everything downstream of them.
+     *
+     * @param respondentId the respondent the answers belong to
+     * @param answerIds    the answers to delete
+     */
+    public void delete(int respondentId, Collection<Integer> answerIds) {
+        if (answerIds.isEmpty()) {
+            return;
+        }
+        // The closure has to see the answers and dependents of this transaction.
+        entityManager.flush();
+
+        Query closure = entityManager.createNativeQuery(CLOSURE_SQL);
+        closure.setParameter("seeds", toArray(answerIds));
+        closure.setParameter("respondentId", respondentId);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = closure.getResultList();
+
+        Set<Integer> visited = new HashSet<>();
+        Set<Integer> deleted = new HashSet<>();
+        List<Integer> headers = new ArrayList<>();
+        for (Object[] row : rows) {
+            Integer id = ((Number) row[0]).intValue();
+            visited.add(id);
+            if (Boolean.TRUE.equals(row[1])) {
+                deleted.add(id);
+                if (Boolean.TRUE.equals(row[2])) {
+                    headers.add(id);
+                }
+            }
+        }
+
+        int answers = entityManager.createNativeQuery(DELETE_ANSWERS_SQL)
+                .setParameter("respondentId", respondentId)
+                .setParameter("ids", toArray(deleted))
+                .executeUpdate();
+        int dependents = entityManager.createNativeQuery(DELETE_DEPENDENTS_SQL)
+                .setParameter("respondentId", respondentId)
+                .setParameter("deleted", toArray(deleted))
+                .setParameter("visited", toArray(visited))
+                .executeUpdate();
+        Log.debug("Deleted " + answers + " answers and " + dependents + " dependents downstream of " + answerIds);
+
+        markManaged(deleted, visited);
+
+        unitOfWork.written(respondentId);
+        if (!headers.isEmpty()) {
+            for (Answer header : Answer.<Answer>list("id in ?1", headers)) {
+                unitOfWork.changed(header);
+            }
+        }
+    }
+
+    /**
+     * The bulk updates bypass the persistence context. Loaded answers and dependents get the
+     * same change, so later lookups in the transaction see them as deleted and flushing them
+     * does not write the old flag back.
+     */
+    private void markManaged(Set<Integer> deleted, Set<Integer> visited) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Answer answer) {
+                if (deleted.contains(answer.id)) {
+                    answer.deleted = true;
+                }
+            } else if (entry.getKey() instanceof Dependent dependent) {
+                if (deleted.contains(dependent.downstream.id)
+                        || ("TEXT".equals(dependent.relationship.actionType.name) && visited.contains(dependent.upstream.id))) {
+                    dependent.deleted = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Formats ids as a PostgreSQL array literal.
+     */
+    private static String toArray(Collection<Integer> ids) {
+        StringBuilder sb = new StringBuilder(ids.size() * 8 + 2).append('{');
+        for (Integer id : ids) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(id);
+        }
+        return sb.append('}').toString();
+    }
+}
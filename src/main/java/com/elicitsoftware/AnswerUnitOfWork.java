@@ -0,0 +1,329 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Answer;
+import com.elicitsoftware.model.Dependent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionScoped;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Keeps track of the answers and dependents {@link QuestionManager} creates in one transaction.
+ * <p>
+ * New rows are only persisted, not flushed; Hibernate writes them in JDBC batches when the
+ * transaction commits, or earlier when a query needs them. Because the unit of work knows every
+ * row created so far, display text can be resolved in memory and lookups whose answer cannot
+ * depend on pending changes skip the automatic flush.
+ * <p>
+ * Every answer written in the transaction is reported to the {@link RespondentCache} when the
+ * transaction ends. When started with {@link #begin(String)} the unit of work also records the
+ * number of statements the transaction sent to the database in the
+ * {@code survey.unit.of.work.statements} summary.
+ */
+@TransactionScoped
+public class AnswerUnitOfWork {
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    TransactionSynchronizationRegistry synchronizationRegistry;
+
+    @Inject
+    RespondentCache respondentCache;
+
+    private final HashMap<String, Answer> newAnswers = new HashMap<>();
+    private final HashMap<Integer, List<Dependent>> dependentsByDownstream = new HashMap<>();
+    private Completion completion;
+
+    /**
+     * Runs when the transaction ends. It keeps what it needs in its own fields, since the
+     * transaction scoped bean may already be destroyed by then.
+     */
+    private final class Completion implements Synchronization {
+        private final HashMap<Integer, Set<Integer>> newSectionQuestions = new HashMap<>();
+        private final HashMap<Integer, LinkedHashMap<String, Answer>> headers = new HashMap<>();
+        private final Set<Integer> cached = new HashSet<>();
+        private final RespondentCache cache = respondentCache;
+        private String operation;
+        private int[] previousCount;
+
+        Collection<Answer> getHeaders(int respondentId) {
+            LinkedHashMap<String, Answer> changed = headers.get(respondentId);
+            return changed == null ? Collections.emptyList() : changed.values();
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (operation != null) {
+                int statements = StatementCounter.stop(previousCount);
+                DistributionSummary.builder("survey.unit.of.work.statements")
+                        .description("JDBC statements per survey transaction")
+                        .tag("operation", operation)
+                        .register(Metrics.globalRegistry)
+                        .record(statements);
+            }
+            if (status == Status.STATUS_COMMITTED) {
+                for (Entry<Integer, Set<Integer>> written : newSectionQuestions.entrySet()) {
+                    cache.committed(written.getKey(), written.getValue(), getHeaders(written.getKey()));
+                }
+            } else {
+                // What was loaded in this transaction may include rows that are now rolled back.
+                cached.addAll(newSectionQuestions.keySet());
+                for (Integer respondentId : cached) {
+                    cache.invalidate(respondentId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts counting the statements of the current transaction.
+     *
+     * @param operation the operation the transaction performs, used as the metric tag
+     */
+    public void begin(String operation) {
+        Completion c = completion();
+        if (c.operation != null) {
+            return;
+        }
+        c.operation = operation;
+        c.previousCount = StatementCounter.start();
+    }
+
+    private Completion completion() {
+        if (completion == null) {
+            completion = new Completion();
+            synchronizationRegistry.registerInterposedSynchronization(completion);
+        }
+        return completion;
+    }
+
+    /**
+     * Records that the {@link RespondentCache} entry of a respondent is used in this transaction,
+     * so it is evicted if the transaction rolls back.
+     *
+     * @param respondentId the respondent
+     */
+    public void usingCache(int respondentId) {
+        completion().cached.add(respondentId);
+    }
+
+    /**
+     * Records an answer persisted in this transaction.
+     *
+     * @param answer the new answer, with its id assigned
+     */
+    public void added(Answer answer) {
+        newAnswers.put(answer.respondentId + ":" + answer.getDisplayKey(), answer);
+        inserted(answer);
+    }
+
+    /**
+     * Records an answer inserted in this transaction without going through the persistence
+     * context, e.g. by the {@link AnswerBatchWriter}.
+     *
+     * @param answer the new answer
+     */
+    public void inserted(Answer answer) {
+        changed(answer);
+        if (answer.section_question_id != null) {
+            completion.newSectionQuestions.get(answer.respondentId).add(answer.section_question_id);
+        }
+    }
+
+    /**
+     * Records a change to an existing answer, such as a new value, display text or deleted flag,
+     * so the {@link RespondentCache} is updated when the transaction commits.
+     *
+     * @param answer the changed answer
+     */
+    public void changed(Answer answer) {
+        written(answer.respondentId);
+        if (answer.question == null) {
+            completion.headers.computeIfAbsent(answer.respondentId, id -> new LinkedHashMap<>())
+                    .put(answer.getDisplayKey(), answer);
+        }
+    }
+
+    /**
+     * Records that answers of a respondent were changed without loading them, e.g. by a bulk
+     * update of the {@link AnswerDeleter}. Changed headers must still be reported with
+     * {@link #changed(Answer)}.
+     *
+     * @param respondentId the respondent
+     */
+    public void written(int respondentId) {
+        completion().newSectionQuestions.computeIfAbsent(respondentId, id -> new HashSet<>());
+    }
+
+    /**
+     * @param respondentId the respondent
+     * @return the section questions that got a new answer in this transaction
+     */
+    public Set<Integer> getNewSectionQuestionIds(int respondentId) {
+        if (completion == null) {
+            return Collections.emptySet();
+        }
+        return completion.newSectionQuestions.getOrDefault(respondentId, Collections.emptySet());
+    }
+
+    /**
+     * Returns the section and step headers created, deleted or renamed in this transaction. The
+     * answers are the live entities, so their current state is what the transaction will commit.
+     *
+     * @param respondentId the respondent
+     * @return the changed header answers, in the order they were first changed
+     */
+    public Collection<Answer> getHeaders(int respondentId) {
+        if (completion == null) {
+            return Collections.emptyList();
+        }
+        return completion.getHeaders(respondentId);
+    }
+
+    /**
+     * @param respondentId the respondent
+     * @return true if an answer of the respondent was written in this transaction
+     */
+    public boolean answersChanged(int respondentId) {
+        return completion != null && completion.newSectionQuestions.containsKey(respondentId);
+    }
+
+    /**
+     * Records a dependent persisted in this transaction.
+     *
+     * @param dependent the new dependent, with its id assigned
+     */
+    public void added(Dependent dependent) {
+        dependentsByDownstream.computeIfAbsent(dependent.downstream.id, id -> new ArrayList<>()).add(dependent);
+    }
+
+    /**
+     * @param answer the answer to check
+     * @return true if the answer was created in this transaction
+     */
+    public boolean isNew(Answer answer) {
+        return answer.id != null && newAnswers.get(answer.respondentId + ":" + answer.getDisplayKey()) == answer;
+    }
+
+    /**
+     * Returns the answer created in this transaction with the given display key.
+     *
+     * @param respondentId the respondent
+     * @param displayKey   the display key
+     * @return the new answer, or null if none was created
+     */
+    public Answer getNewAnswer(int respondentId, String displayKey) {
+        return newAnswers.get(respondentId + ":" + displayKey);
+    }
+
+    /**
+     * Returns the dependents created in this transaction for a downstream answer.
+     *
+     * @param downstream the downstream answer
+     * @return the new dependents, in id order
+     */
+    public List<Dependent> getNewDependents(Answer downstream) {
+        return dependentsByDownstream.getOrDefault(downstream.id, Collections.emptyList());
+    }
+
+    /**
+     * Checks whether a dependent with the same upstream answer and relationship was already
+     * created in this transaction for the dependent's downstream answer.
+     *
+     * @param dependent the candidate dependent
+     * @return true if an equivalent dependent is pending
+     */
+    public boolean containsDependent(Dependent dependent) {
+        for (Dependent d : getNewDependents(dependent.downstream)) {
+            if (d.respondentId.equals(dependent.respondentId)
+                    && d.upstream.id.equals(dependent.upstream.id)
+                    && d.relationship.id.equals(dependent.relationship.id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the stored dependents of an answer together with the ones created in this
+     * transaction, in id order, without flushing.
+     *
+     * @param downstream the downstream answer
+     * @return all dependents of the answer
+     */
+    public List<Dependent> getDependents(Answer downstream) {
+        List<Dependent> pending = getNewDependents(downstream);
+        if (isNew(downstream)) {
+            // Nothing of a new answer is in the database yet.
+            return pending;
+        }
+        List<Dependent> all = new ArrayList<>(withoutFlush(
+                () -> Dependent.findByDownstream(downstream.respondentId, downstream.id)));
+        HashSet<Integer> ids = new HashSet<>();
+        for (Dependent dependent : all) {
+            ids.add(dependent.id);
+        }
+        for (Dependent dependent : pending) {
+            // Pending dependents are in the query result when something flushed them already.
+            if (ids.add(dependent.id)) {
+                all.add(dependent);
+            }
+        }
+        all.sort(Comparator.comparing(d -> d.id));
+        return all;
+    }
+
+    /**
+     * Runs a query without the automatic flush of pending changes. Only for queries whose
+     * result cannot depend on rows this unit of work has not written yet.
+     *
+     * @param query the query to run
+     * @param <T>   the result type
+     * @return the query result
+     */
+    public <T> T withoutFlush(Supplier<T> query) {
+        Session session = entityManager.unwrap(Session.class);
+        FlushMode mode = session.getHibernateFlushMode();
+        session.setHibernateFlushMode(FlushMode.COMMIT);
+        try {
+            return query.get();
+        } finally {
+            session.setHibernateFlushMode(mode);
+        }
+    }
+}
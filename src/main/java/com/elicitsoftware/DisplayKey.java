@@ -31,6 +31,10 @@ import jakarta.xml.bind.annotation.XmlRootElement;
  * - Question Instance
  * <p>
  * Each part is represented as an integer and formatted with zero-padding to four digits.
+ * <p>
+ * Keys are parsed and formatted by hand and the formatted value is cached until a part changes.
+ * Keys whose parts all fit in four digits, which is every key in practice, are compared part by
+ * part, which orders them exactly like their string values.
  */
 @XmlRootElement
 public class DisplayKey implements Comparable<DisplayKey> {
@@ -42,6 +46,15 @@ public class DisplayKey implements Comparable<DisplayKey> {
     private int question; //SectionQuestion Display order
     private int questionInstance;
 
+    /**
+     * The formatted value, null when a part changed since it was last formatted.
+     */
+    private transient String value;
+
+    private static final int PARTS = 7;
+    private static final int PART_LENGTH = 4;
+    private static final int MAX_PADDED = 9999;
+
     /**
      * Constructs a DisplayKey by parsing a key string.
      * The key string should be in the format: "survey-step-stepInstance-section-sectionInstance-question-questionInstance"
@@ -50,6 +63,9 @@ public class DisplayKey implements Comparable<DisplayKey> {
      */
     public DisplayKey(String key) {
         super();
+        if (parseCanonical(key)) {
+            return;
+        }
         String[] keyStrings = key.split("-");
         this.survey = Integer.parseInt(keyStrings[0]);
         this.step = Integer.parseInt(keyStrings[1]);
@@ -60,6 +76,59 @@ public class DisplayKey implements Comparable<DisplayKey> {
         this.questionInstance = Integer.parseInt(keyStrings[6]);
     }
 
+    /**
+     * Parses a key in the format written by {@link #getValue()} with every part four digits long,
+     * and keeps the key as the cached value.
+     *
+     * @param key the key to parse
+     * @return false if the key has another format and must be parsed the general way
+     */
+    private boolean parseCanonical(String key) {
+        if (key.length() != PARTS * (PART_LENGTH + 1) - 1) {
+            return false;
+        }
+        for (int p = 1; p < PARTS; p++) {
+            if (key.charAt(p * (PART_LENGTH + 1) - 1) != '-') {
+                return false;
+            }
+        }
+        int survey = parsePart(key, 0);
+        int step = parsePart(key, 1);
+        int stepInstance = parsePart(key, 2);
+        int section = parsePart(key, 3);
+        int sectionInstance = parsePart(key, 4);
+        int question = parsePart(key, 5);
+        int questionInstance = parsePart(key, 6);
+        if ((survey | step | stepInstance | section | sectionInstance | question | questionInstance) < 0) {
+            return false;
+        }
+        this.survey = survey;
+        this.step = step;
+        this.stepInstance = stepInstance;
+        this.section = section;
+        this.sectionInstance = sectionInstance;
+        this.question = question;
+        this.questionInstance = questionInstance;
+        this.value = key;
+        return true;
+    }
+
+    /**
+     * @return the four digit part at the given position, or -1 if it is not four digits
+     */
+    private static int parsePart(String key, int part) {
+        int start = part * (PART_LENGTH + 1);
+        int n = 0;
+        for (int i = start; i < start + PART_LENGTH; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
     /**
      * Gets the survey ID.
      *
@@ -76,6 +145,7 @@ public class DisplayKey implements Comparable<DisplayKey> {
      */
     public void setSurvey(int survey) {
         this.survey = survey;
+        this.value = null;
     }
 
     /**
@@ -94,6 +164,7 @@ public class DisplayKey implements Comparable<DisplayKey> {
      */
     public void setStep(int step) {
         this.step = step;
+        this.value = null;
     }
 
     /**
@@ -112,6 +183,7 @@ public class DisplayKey implements Comparable<DisplayKey> {
      */
     public void setStepInstance(int stepInstance) {
         this.stepInstance = stepInstance;
+        this.value = null;
     }
 
     /**
@@ -130,6 +202,7 @@ public class DisplayKey implements Comparable<DisplayKey> {
      */
     public void setSection(int section) {
         this.section = section;
+        this.value = null;
     }
 
     /**
@@ -148,6 +221,7 @@ public class DisplayKey implements Comparable<DisplayKey> {
      */
     public void setSectionInstance(int sectionInstance) {
         this.sectionInstance = sectionInstance;
+        this.value = null;
     }
 
     /**
@@ -166,6 +240,7 @@ public class DisplayKey implements Comparable<DisplayKey> {
      */
     public void setQuestion(int question) {
         this.question = question;
+        this.value = null;
     }
 
     /**
@@ -184,6 +259,7 @@ public class DisplayKey implements Comparable<DisplayKey> {
      */
     public void setQuestionInstance(int questionInstance) {
         this.questionInstance = questionInstance;
+        this.value = null;
     }
 
     /**
@@ -194,8 +270,18 @@ public class DisplayKey implements Comparable<DisplayKey> {
      * where each section is left-padded with zeros to ensure a width of 4 digits.
      */
     public String getValue() {
-        return leftPad(this.survey) + "-" + leftPad(this.step) + "-" + leftPad(this.stepInstance) + "-" + leftPad(this.section) + "-"
-                + leftPad(this.sectionInstance) + "-" + leftPad(this.question) + "-" + leftPad(this.questionInstance);
+        if (value == null) {
+            StringBuilder sb = new StringBuilder(PARTS * (PART_LENGTH + 1));
+            appendParts(sb, 4);
+            sb.append('-');
+            appendPadded(sb, this.sectionInstance);
+            sb.append('-');
+            appendPadded(sb, this.question);
+            sb.append('-');
+            appendPadded(sb, this.questionInstance);
+            value = sb.toString();
+        }
+        return value;
     }
 
     /**
@@ -210,8 +296,13 @@ public class DisplayKey implements Comparable<DisplayKey> {
      * where each numeric section is left-padded with zeros to ensure a width of 4 digits.
      */
     public String getAnswerQueryString() {
-        return leftPad(survey) + "-" + leftPad(step) + "-" + leftPad(stepInstance) + "-" + leftPad(section) + "-"
-                + leftPad(sectionInstance) + "-" + leftPad(question) + ".%";
+        StringBuilder sb = new StringBuilder(PARTS * (PART_LENGTH + 1));
+        appendParts(sb, 4);
+        sb.append('-');
+        appendPadded(sb, sectionInstance);
+        sb.append('-');
+        appendPadded(sb, question);
+        return sb.append(".%").toString();
     }
 
     /**
@@ -225,7 +316,9 @@ public class DisplayKey implements Comparable<DisplayKey> {
      * with zeros to ensure a width of 4 digits.
      */
     public String getSectionQueryString() {
-        return leftPad(this.survey) + "-" + leftPad(this.step) + "-" + leftPad(this.stepInstance) + "-" + leftPad(this.section) + "-%";
+        StringBuilder sb = new StringBuilder(4 * (PART_LENGTH + 1) + 1);
+        appendParts(sb, 4);
+        return sb.append("-%").toString();
     }
 
     /**
@@ -238,8 +331,9 @@ public class DisplayKey implements Comparable<DisplayKey> {
      * where each numeric field is left-padded with zeros to have a width of 4 digits.
      */
     public String getSectionString() {
-        return leftPad(this.survey) + "-" + leftPad(this.step) + "-" + leftPad(this.stepInstance) + "-" + leftPad(this.section)
-                + "-0000-0000-0000";
+        StringBuilder sb = new StringBuilder(PARTS * (PART_LENGTH + 1));
+        appendParts(sb, 4);
+        return sb.append("-0000-0000-0000").toString();
     }
 
     /**
@@ -252,7 +346,9 @@ public class DisplayKey implements Comparable<DisplayKey> {
      * where each numeric field is left-padded with zeros to have a width of 4 digits.
      */
     public String getStepString() {
-        return leftPad(this.survey) + "-" + leftPad(this.step) + "-" + leftPad(this.stepInstance) + "-0000-0000-0000-0000";
+        StringBuilder sb = new StringBuilder(PARTS * (PART_LENGTH + 1));
+        appendParts(sb, 3);
+        return sb.append("-0000-0000-0000-0000").toString();
     }
 
     /**
@@ -265,7 +361,9 @@ public class DisplayKey implements Comparable<DisplayKey> {
      * are left-padded with zeros to have a width of 4 digits.
      */
     public String getStepQueryString() {
-        return leftPad(this.survey) + "-" + leftPad(this.step) + "-%";
+        StringBuilder sb = new StringBuilder(2 * (PART_LENGTH + 1) + 1);
+        appendParts(sb, 2);
+        return sb.append("-%").toString();
     }
 
     /**
@@ -275,7 +373,49 @@ public class DisplayKey implements Comparable<DisplayKey> {
      * @return a string representation of the integer, padded with leading zeros if necessary, to ensure a width of 4 characters
      */
     public String leftPad(int n) {
-        return String.format("%04d", n);
+        if (n < 0 || n > MAX_PADDED) {
+            return String.format("%04d", n);
+        }
+        return appendPadded(new StringBuilder(PART_LENGTH), n).toString();
+    }
+
+    /**
+     * Appends the first {@code count} parts, from the survey on, separated by hyphens.
+     */
+    private void appendParts(StringBuilder sb, int count) {
+        appendPadded(sb, this.survey);
+        sb.append('-');
+        appendPadded(sb, this.step);
+        if (count > 2) {
+            sb.append('-');
+            appendPadded(sb, this.stepInstance);
+        }
+        if (count > 3) {
+            sb.append('-');
+            appendPadded(sb, this.section);
+        }
+    }
+
+    /**
+     * Appends a number the way {@code String.format("%04d", n)} formats it.
+     */
+    private static StringBuilder appendPadded(StringBuilder sb, int n) {
+        if (n < 0 || n > MAX_PADDED) {
+            return sb.append(String.format("%04d", n));
+        }
+        return sb.append((char) ('0' + n / 1000))
+                .append((char) ('0' + n / 100 % 10))
+                .append((char) ('0' + n / 10 % 10))
+                .append((char) ('0' + n % 10));
+    }
+
+    /**
+     * @return true if every part is formatted with exactly four digits
+     */
+    private boolean isPadded() {
+        return (survey | step | stepInstance | section | sectionInstance | question | questionInstance) >= 0
+                && survey <= MAX_PADDED && step <= MAX_PADDED && stepInstance <= MAX_PADDED && section <= MAX_PADDED
+                && sectionInstance <= MAX_PADDED && question <= MAX_PADDED && questionInstance <= MAX_PADDED;
     }
 
     @Override
@@ -285,7 +425,29 @@ public class DisplayKey implements Comparable<DisplayKey> {
 
     @Override
     public int compareTo(DisplayKey key) {
-        String value = this.getValue();
-        return value.compareTo(key.getValue());
+        if (!this.isPadded() || !key.isPadded()) {
+            // Longer or negative parts sort by their text.
+            return this.getValue().compareTo(key.getValue());
+        }
+        int c = Integer.compare(this.survey, key.survey);
+        if (c == 0) {
+            c = Integer.compare(this.step, key.step);
+        }
+        if (c == 0) {
+            c = Integer.compare(this.stepInstance, key.stepInstance);
+        }
+        if (c == 0) {
+            c = Integer.compare(this.section, key.section);
+        }
+        if (c == 0) {
+            c = Integer.compare(this.sectionInstance, key.sectionInstance);
+        }
+        if (c == 0) {
+            c = Integer.compare(this.question, key.question);
+        }
+        if (c == 0) {
+            c = Integer.compare(this.questionInstance, key.questionInstance);
+        }
+        return c;
     }
 }
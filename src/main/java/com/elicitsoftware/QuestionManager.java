@@ -11,10 +11,12 @@ package com.elicitsoftware;
  * ***LICENSE_END***
  */
 
+import com.elicitsoftware.graph.SurveyGraph;
+import com.elicitsoftware.graph.SurveyGraphService;
 import com.elicitsoftware.model.*;
 import com.elicitsoftware.response.NavResponse;
 import com.elicitsoftware.response.NavigationItem;
-import com.elicitsoftware.util.DatabaseRetryUtil;
+import com.elicitsoftware.response.NavigationList;
 import jakarta.enterprise.context.ApplicationScoped;
 import io.micrometer.core.annotation.Timed;
 import io.quarkus.logging.Log;
@@ -22,11 +24,15 @@ import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
+import org.hibernate.query.NativeQuery;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
 
 /**
@@ -38,17 +44,50 @@ import java.util.TreeMap;
  * The class primarily interacts with answers, survey sections, steps, and questions, maintaining
  * the relationships and hierarchical structure among them. It ensures the correct flow for both
  * repeated and dependent answers, along with creating navigation items for respondents.
+ * <p>
+ * The survey definition (relationships, steps, sections and questions) is read from the
+ * compiled {@link SurveyGraph}; only respondent answers and dependents are queried.
+ * <p>
+ * New answers and dependents are persisted without flushing and tracked by the
+ * {@link AnswerUnitOfWork} of the transaction, which writes them in JDBC batches at commit.
  */
 @ApplicationScoped
 public class QuestionManager {
+
+    /**
+     * The token the question instance of an answer is displayed with.
+     */
+    static final String QUESTION_INSTANCE_TOKEN = "Q#";
+
+    /**
+     * The token the step instance of an answer is displayed with.
+     */
+    static final String STEP_INSTANCE_TOKEN = "S#";
+
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    SurveyGraphService surveyGraphs;
+
+    @Inject
+    AnswerBatchWriter batchWriter;
+
+    @Inject
+    AnswerDeleter answerDeleter;
+
+    @Inject
+    AnswerUnitOfWork unitOfWork;
+
+    @Inject
+    RespondentCache respondentCache;
+
     /**
      * Replaces tokens in the given text with corresponding values from the provided map.
      * The tokens are identified by keys enclosed in curly braces and replaced with their associated values.
      * Any unmatched tokens are removed, leaving default text.
      * Additionally, certain specific text replacements and formatting adjustments are applied to the final result.
+     * The text is parsed once into a cached {@link TokenTemplate}.
      *
      * @param text   the input string containing tokens to be replaced
      * @param values a {@code TreeMap} containing key-value pairs, where keys correspond to tokens in the text,
@@ -56,57 +95,7 @@ public class QuestionManager {
      * @return the resulting string after replacing all specified tokens and applying formatting adjustments
      */
     static String replaceTokens(String text, TreeMap<String, String> values) {
-
-        // Split the string into parts
-        String[] displayText = text.split("}");
-
-        if (!values.isEmpty()) {
-            // Replace all the Token values
-            for (String key : values.keySet()) {
-                for (int i = 0; i < displayText.length; i++) {
-                    String string = displayText[i];
-                    if (string.contains(key)) {
-                        string = string.replaceFirst("\\{", "");
-                        string = string.replaceFirst("\\|.*", "");
-                        string = string.replaceFirst(key, values.get(key));
-                    }
-                    if (string.contains("}")) {
-                        string = replaceTokens(string, values);
-                    }
-                    displayText[i] = string;
-                }
-            }
-        }
-
-        for (int i = 0; i < displayText.length; i++) {
-            String string = displayText[i];
-
-            // Remove any tokens values that were not passed, leaving the
-            // default
-            // part
-            // of the text
-            string = string.replaceAll("\\{.*\\|", "");
-            displayText[i] = string;
-        }
-
-        // Rebuild the sting from its parts
-        StringBuilder textBuilder = new StringBuilder();
-        for (String s : displayText) {
-            textBuilder.append(s);
-        }
-        text = textBuilder.toString();
-
-        // Until I can come up with a better solution to this problem I'll
-        // force it here. I know this is a hack.
-        text = text.replace(" her's ", " her ");
-        text = text.replace(" his's ", " his ");
-        text = text.replace(" Your's ", " Your ");
-
-        // Lastly replace any s's with s' this if for names like Dennis as in
-        // what is Dennis'name
-        text = text.replaceAll("s's", "s'");
-
-        return text;
+        return TokenTemplate.of(text).render(values);
     }
 
     /**
@@ -121,8 +110,7 @@ public class QuestionManager {
 
         DisplayKey displaykey = new DisplayKey(key);
 
-        // Use optimized query with joins to avoid N+1 problem
-        List<StepsSections> steps = StepsSections.findBySurveyIdWithJoins(displaykey.getSurvey());
+        List<StepsSections> steps = surveyGraphs.get(displaykey.getSurvey()).getStepsSections();
         for (StepsSections step : steps) {
             buildInitialAnswers(respondentId, step.getKey());
         }
@@ -180,14 +168,12 @@ public class QuestionManager {
     private Section getSectionByDisplayKey(String key) {
         DisplayKey dkey = new DisplayKey(key);
         dkey.setStepInstance(0);
-        try {
-            // Use optimized query with joins to avoid N+1 problem
-            StepsSections stepsSections = StepsSections.findByDisplayKeyWithJoins(dkey);
-            return stepsSections.section;
-        } catch (Exception e) {
-            // There may not be one in the database. Return the null value;
+        StepsSections stepsSections = surveyGraphs.get(dkey.getSurvey()).getStepsSections(dkey.getValue());
+        if (stepsSections == null) {
+            // There may not be one in the survey. Return the null value;
             return null;
         }
+        return stepsSections.section;
     }
 
     /**
@@ -203,15 +189,11 @@ public class QuestionManager {
     private Step getStepByDisplayKey(DisplayKey key) {
 
         StepsSections stepsSections;
-        try {
-            if (key.getSection() != 0) {
-                stepsSections = StepsSections.findFirstByDisplayKeyQuery(key.getSectionQueryString());
-            } else {
-                stepsSections = StepsSections.findFirstByDisplayKeyQuery(key.getStepQueryString());
-            }
-        } catch (Exception e) {
-            // There may not be one in the database. Return the null value;
-            return null;
+        SurveyGraph graph = surveyGraphs.get(key.getSurvey());
+        if (key.getSection() != 0) {
+            stepsSections = graph.findFirstStepsSections(key.getSectionQueryString());
+        } else {
+            stepsSections = graph.findFirstStepsSections(key.getStepQueryString());
         }
 
         if (stepsSections == null || stepsSections.step == null) {
@@ -238,35 +220,13 @@ public class QuestionManager {
         DisplayKey key = new DisplayKey(sectionDisplaykey);
 
         List<Answer> answers = getAnswersBySection(respondentId, sectionDisplaykey);
-        ArrayList<NavigationItem> ls = buildNavItems(respondentId);
-        NavigationItem[] navItems = new NavigationItem[ls.size()];
-        navItems = ls.toArray(navItems);
-        NavigationItem curreNavItem = getCurrentNavItem(navItems, sectionDisplaykey);
+        List<NavigationList.Change> changes = new ArrayList<>();
+        NavigationList navigation = getNavigation(respondentId, changes);
+        NavigationItem curreNavItem = navigation.getItem(key.getSectionString());
 
         Step step = getStepByDisplayKey(key);
 
-        return new NavResponse(step, curreNavItem, answers, navItems);
-    }
-
-    /**
-     * Retrieves the current NavigationItem that matches the given key from the provided array of NavigationItems.
-     * This method iterates through the navItems array, comparing the path of each item to the section string
-     * derived from the given key, and returns the first matching NavigationItem.
-     *
-     * @param navItems an array of NavigationItem objects to be searched
-     * @param key      a string representing the key used to identify the current navigation item
-     * @return the NavigationItem that matches the provided key, or null if no match is found
-     */
-    private NavigationItem getCurrentNavItem(NavigationItem[] navItems, String key) {
-
-        DisplayKey dkey = new DisplayKey(key);
-
-        for (NavigationItem navigationItem : navItems) {
-            if (navigationItem.getPath().equals(dkey.getSectionString())) {
-                return navigationItem;
-            }
-        }
-        return null;
+        return new NavResponse(step, curreNavItem, answers, navigation, changes);
     }
 
     /**
@@ -316,49 +276,8 @@ public class QuestionManager {
         // relationship. i.e. they are not a downstream question, downstream
         // section
         // or downstream step.
-        ArrayList<SectionsQuestion> sectionsQuestions = new ArrayList<>();
-
-        String sqlStep = "SELECT SQ.ID, SQ.DISPLAY_ORDER FROM SURVEY.SECTIONS_QUESTIONS SQ "
-                + "JOIN SURVEY.STEPS_SECTIONS SS ON SQ.SECTION_ID = SS.SECTION_ID AND SQ.SURVEY_ID = SS.SURVEY_ID "
-                + "WHERE SS.SURVEY_ID = :surveyId AND SS.STEP_ID = :stepId AND SS.SECTION_DISPLAY_ORDER = :displayOrder "
-                + "AND SS.ID NOT IN (SELECT R.DOWNSTREAM_S_ID FROM SURVEY.RELATIONSHIPS R WHERE R.SURVEY_ID = SS.SURVEY_ID AND R.DOWNSTREAM_STEP_ID = SS.STEP_ID AND R.DOWNSTREAM_SQ_ID IS NULL AND R.DOWNSTREAM_S_ID IS NOT NULL AND R.ACTION_ID != 3) "
-                + "AND Sq.id NOT IN (SELECT R.DOWNSTREAM_SQ_ID FROM SURVEY.RELATIONSHIPS R WHERE R.SURVEY_ID = SS.SURVEY_ID AND R.UPSTREAM_STEP_ID = SS.STEP_ID AND R.ACTION_ID != 3 AND R.DOWNSTREAM_S_ID IS NOT NULL AND R.DOWNSTREAM_SQ_ID IS NOT NULL) "
-                + "order by SQ.DISPLAY_ORDER";
-
-        String sqlSection = "SELECT SQ.ID, SQ.DISPLAY_ORDER FROM SURVEY.SECTIONS_QUESTIONS SQ "
-                + "JOIN SURVEY.STEPS_SECTIONS SS ON SQ.SECTION_ID = SS.SECTION_ID AND SQ.SURVEY_ID = SS.SURVEY_ID "
-                + "WHERE SS.SURVEY_ID = :surveyId AND SS.STEP_ID = :stepId AND SS.SECTION_DISPLAY_ORDER = :displayOrder "
-                + "AND Sq.id NOT IN ( "
-                + "SELECT R.DOWNSTREAM_SQ_ID FROM SURVEY.RELATIONSHIPS R WHERE R.SURVEY_ID = SS.SURVEY_ID AND R.UPSTREAM_STEP_ID = SS.STEP_ID AND R.ACTION_ID != 3 AND R.DOWNSTREAM_S_ID IS NOT NULL AND R.DOWNSTREAM_SQ_ID IS NOT NULL "
-                + "UNION "
-                + "SELECT R.DOWNSTREAM_SQ_ID FROM SURVEY.RELATIONSHIPS R WHERE R.SURVEY_ID = SS.SURVEY_ID AND R.ACTION_ID != 3 AND R.DOWNSTREAM_S_ID IS NULL AND R.DOWNSTREAM_SQ_ID IS NOT NULL) "
-                + "order by SQ.DISPLAY_ORDER";
-
-        Query q;
-
-        if (loadStep) {
-            q = entityManager.createNativeQuery(sqlStep);
-        } else {
-            q = entityManager.createNativeQuery(sqlSection);
-        }
-
-        q.setParameter("surveyId", key.getSurvey());
-        q.setParameter("stepId", key.getStep());
-        q.setParameter("displayOrder", key.getSection());
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> rs = q.getResultList();
-
-        if (!rs.isEmpty()) {
-            SectionsQuestion sectionsQuestion;
-            Integer id;
-            for (Object[] record : rs) {
-                id = (Integer) record[0];
-                sectionsQuestion = SectionsQuestion.findById(id);
-                sectionsQuestions.add(sectionsQuestion);
-            }
-        }
-        return sectionsQuestions;
+        return new ArrayList<>(surveyGraphs.get(key.getSurvey())
+                .getInitialSectionQuestions(key.getStep(), key.getSection(), loadStep));
     }
 
     /**
@@ -380,46 +299,16 @@ public class QuestionManager {
         // section
         // or downstream step.
         ArrayList<SectionsQuestion> sectionsQuestions = new ArrayList<>();
-        String sql = "SELECT S.ID, S.DISPLAY_ORDER " + "FROM SURVEY.SECTIONS_QUESTIONS S "
-                + "Join SURVEY.STEPS_SECTIONS SS on S.SECTION_ID = SS.SECTION_ID AND S.SURVEY_ID = SS.SURVEY_ID "
-                + "WHERE SS.SURVEY_ID = :surveyId AND SS.STEP_DISPLAY_ORDER = :stepDisplayOrder "
-                + "AND S.ID NOT IN (SELECT R.DOWNSTREAM_SQ_ID FROM SURVEY.RELATIONSHIPS R WHERE R.DOWNSTREAM_SQ_ID IS NOT NULL) "
-                + "AND S.ID NOT IN (SELECT A.SECTION_QUESTION_ID FROM SURVEY.Answers A WHERE A.RESPONDENT_ID = :respondentId and A.SECTION_QUESTION_ID = S.ID ) "
-                + "AND S.ID NOT IN (SELECT SQ.ID from SURVEY.SECTIONS_QUESTIONS SQ JOIN SURVEY.STEPS_SECTIONS SS on SQ.SECTION_ID = SS.SECTION_ID JOIN SURVEY.RELATIONSHIPS R ON SS.ID = R.DOWNSTREAM_S_ID WHERE R.DOWNSTREAM_S_ID IS NOT NULL) "
-                + "AND S.ID NOT IN (SELECT T.ID FROM SURVEY.SECTIONS_QUESTIONS T JOIN SURVEY.STEPS_SECTIONS SS ON T.SECTION_ID = SS.SECTION_ID JOIN SURVEY.RELATIONSHIPS R ON SS.STEP_ID = R.DOWNSTREAM_STEP_ID) "
-                + "order by S.DISPLAY_ORDER";
-
-
-        //entityManager.joinTransaction();
-        Query q = entityManager.createNativeQuery(sql);
-        q.setParameter("surveyId", key.getSurvey());
-        q.setParameter("respondentId", respondentId);
-        q.setParameter("stepDisplayOrder", key.getStep());
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> rs = q.getResultList();
-        if (!rs.isEmpty()) {
-            // Extract all IDs first
-            List<Integer> ids = new ArrayList<>();
-            for (Object[] record : rs) {
-                ids.add((Integer) record[0]);
-            }
-            
-            // Batch load all SectionsQuestions in a single query (fixes N+1 problem)
-            List<SectionsQuestion> loadedQuestions = SectionsQuestion.find("id IN ?1", ids).list();
-            
-            // Create a map for quick lookup
-            java.util.Map<Integer, SectionsQuestion> questionMap = new java.util.HashMap<>();
-            for (SectionsQuestion sq : loadedQuestions) {
-                questionMap.put(sq.id, sq);
-            }
-            
-            // Add questions in the original order
-            for (Object[] record : rs) {
-                Integer id = (Integer) record[0];
-                SectionsQuestion sectionsQuestion = questionMap.get(id);
-                if (sectionsQuestion != null) {
-                    sectionsQuestions.add(sectionsQuestion);
+        List<SectionsQuestion> candidates = surveyGraphs.get(key.getSurvey()).getInitialStepQuestions(key.getStep());
+        if (!candidates.isEmpty()) {
+            // Questions the respondent already has an answer for (deleted or not) are not initial any more.
+            unitOfWork.usingCache(respondentId);
+            Set<Integer> answered = respondentCache.getAnsweredSectionQuestionIds(respondentId,
+                    () -> Answer.findAllAnsweredSectionQuestionIds(respondentId));
+            Set<Integer> answeredNow = unitOfWork.getNewSectionQuestionIds(respondentId);
+            for (SectionsQuestion sq : candidates) {
+                if (!answered.contains(sq.id) && !answeredNow.contains(sq.id)) {
+                    sectionsQuestions.add(sq);
                 }
             }
         }
@@ -496,7 +385,7 @@ public class QuestionManager {
         assert step != null;
         Answer answer = new Answer(dkey, null, step.name, upstream.respondentId);
         // Find upstream relationships by downstream section id
-        List<Relationship> relationships = Relationship.findRepeatByDownstreamStep(dkey.getSurvey(), dkey.getStep());
+        List<Relationship> relationships = surveyGraphs.get(dkey.getSurvey()).getStepRelationships(dkey.getStep());
         Answer a;
         Dependent dependent;
         for (Relationship r : relationships) {
@@ -659,28 +548,12 @@ public class QuestionManager {
      * and respondent.
      */
     private ArrayList<Answer> getDownstreamSectionAnswers(Relationship relationship, Integer respondentId) {
-        ArrayList<Answer> answers = new ArrayList<>();
-
-        String sql = "SELECT A.ID FROM survey.RELATIONSHIPS R " + " JOIN survey.STEPS_SECTIONS SS ON R.DOWNSTREAM_S_ID = SS.ID "
-                + " JOIN survey.ANSWERS A ON SS.STEP_ID = A.STEP AND SS.SECTION_DISPLAY_ORDER = A.SECTION "
-                + " WHERE A.DELETED = false AND R.SURVEY_ID = :surveyId" + " AND A.SURVEY_ID = :surveyId"
-                + " AND A.RESPONDENT_ID = :respondentId" + " AND R.ID = :rid"
-                + " ORDER BY A.DISPLAY_KEY";
-
-        //entityManager.joinTransaction();
-        Query q = entityManager.createNativeQuery(sql);
-        q.setParameter("surveyId", relationship.surveyId);
-        q.setParameter("respondentId", respondentId);
-        q.setParameter("rid", relationship.id);
-
-        @SuppressWarnings("unchecked")
-        List<Integer> rs = q.getResultList();
-
-        for (Integer id : rs) {
-            answers.add(Answer.findById(id));
+        if (relationship.downstreamSection == null) {
+            return new ArrayList<>();
         }
-        return answers;
-
+        // Answers in every instance of the downstream section.
+        return new ArrayList<>(Answer.findActiveByStepAndSection(respondentId, relationship.surveyId,
+                relationship.downstreamSection.step.id, relationship.downstreamSection.sectionDisplayOrder));
     }
 
     /**
@@ -696,26 +569,17 @@ public class QuestionManager {
      */
     private void replaceText(Relationship relationship, Answer upstreamAnswer) {
 
-        String sectionSQL = "SELECT A.ID,  A.SECTION, A.SECTION_QUESTION_ID FROM survey.RELATIONSHIPS R JOIN survey.STEPS_SECTIONS SS ON R.DOWNSTREAM_S_ID = SS.ID JOIN survey.ANSWERS A ON SS.STEP_ID = A.STEP AND SS.SECTION_DISPLAY_ORDER = A.SECTION WHERE A.DELETED = false AND R.ID = :rid AND A.RESPONDENT_ID = :respondentId ORDER BY A.DISPLAY_KEY";
-        String questionSQL = "SELECT A.ID,  A.SECTION, A.SECTION_QUESTION_ID FROM survey.RELATIONSHIPS R JOIN survey.SECTIONS_QUESTIONS SQ ON R.DOWNSTREAM_SQ_ID = SQ.ID JOIN survey.ANSWERS A ON SQ.ID = A.SECTION_QUESTION_ID WHERE A.DELETED = false AND R.ID = :rid AND A.RESPONDENT_ID = :respondentId ORDER BY A.DISPLAY_KEY";
-
-        Query q;
-        //entityManager.joinTransaction();
+        List<Answer> answers;
         if (relationship.downstreamQuestion != null) {
-            q = entityManager.createNativeQuery(questionSQL);
-
+            answers = Answer.findActiveBySectionQuestion(upstreamAnswer.respondentId, relationship.downstreamQuestion.id);
+        } else if (relationship.downstreamSection != null) {
+            answers = Answer.findActiveByStepAndSection(upstreamAnswer.respondentId, relationship.surveyId,
+                    relationship.downstreamSection.step.id, relationship.downstreamSection.sectionDisplayOrder);
         } else {
-            q = entityManager.createNativeQuery(sectionSQL);
+            return;
         }
 
-        q.setParameter("rid", relationship.id);
-        q.setParameter("respondentId", upstreamAnswer.respondentId);
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> rs = q.getResultList();
-        Answer answer;
-        for (Object[] record : rs) {
-            answer = Answer.findById(record[0]);
+        for (Answer answer : answers) {
             if (answer.question != null) {
                 answer.displayText = answer.question.text;
             } else {
@@ -724,7 +588,7 @@ public class QuestionManager {
                 answer.displayText = section.name;
             }
             buildDipslayText(answer);
-            answer.persistAndFlush();
+            unitOfWork.changed(answer);
         }
     }
 
@@ -777,17 +641,8 @@ public class QuestionManager {
      * @param stepId   the identifier of the step whose display order is to be retrieved
      * @return the step display order as an Integer, or -1 if an exception occurs
      */
-    private Integer getStepDisplayOrder(long surveyId, long stepId) {
-        try {
-            String sql = "select distinct ss.step_display_order from survey.steps_sections ss where ss.survey_id = :surveyId and ss.step_id = :stepId order by ss.step_display_order";
-            // entityManager.joinTransaction();
-            Query q = entityManager.createNativeQuery(sql);
-            q.setParameter("surveyId", surveyId);
-            q.setParameter("stepId", stepId);
-            return (Integer) q.getSingleResult();
-        } catch (Exception e) {
-            return -1;
-        }
+    private Integer getStepDisplayOrder(int surveyId, int stepId) {
+        return surveyGraphs.get(surveyId).getStepDisplayOrder(stepId);
     }
 
     /**
@@ -795,19 +650,10 @@ public class QuestionManager {
      *
      * @param surveyId  the identifier of the survey
      * @param sectionId the identifier of the section within the survey
-     * @return the display order of the section as an Integer or -1 in case of an exception
+     * @return the display order of the section as an Integer or -1 if it is not part of the survey
      */
-    private Integer getSectionDisplayOrder(long surveyId, long sectionId) {
-        try {
-            String sql = "select distinct ss.section_display_order from survey.steps_sections ss where ss.survey_id = :surveyId and ss.id = :sectionId order by ss.section_display_order";
-            // entityManager.joinTransaction();
-            Query q = entityManager.createNativeQuery(sql);
-            q.setParameter("surveyId", surveyId);
-            q.setParameter("sectionId", sectionId);
-            return (Integer) q.getSingleResult();
-        } catch (Exception e) {
-            return -1;
-        }
+    private Integer getSectionDisplayOrder(int surveyId, int sectionId) {
+        return surveyGraphs.get(surveyId).getSectionDisplayOrder(sectionId);
     }
 
     /**
@@ -819,21 +665,8 @@ public class QuestionManager {
      * @return An ArrayList of Relationship objects that match the upstream question criteria.
      */
     private ArrayList<Relationship> findRelationshipsByUpstreamQuestion(Answer upstreamAnswer) {
-        String sql = "SELECT r.ID FROM survey.RELATIONSHIPS r WHERE r.UPSTREAM_SQ_ID = :upstream_sq_id and r.SURVEY_ID = :surveyId and (r.UPSTREAM_STEP_ID = :upstream_step_id or r.UPSTREAM_STEP_ID is null) order by r.ID";
-        // entityManager.joinTransaction();
-        Query q = entityManager.createNativeQuery(sql);
-        q.setParameter("surveyId", upstreamAnswer.surveyId);
-        q.setParameter("upstream_sq_id", upstreamAnswer.section_question_id);
-        q.setParameter("upstream_step_id", upstreamAnswer.getKey().getStep());
-
-        @SuppressWarnings("unchecked")
-        List<Integer> rs = q.getResultList();
-
-        ArrayList<Relationship> relationships = new ArrayList<>();
-        for (Integer record : rs) {
-            relationships.add(Relationship.findById(record));
-        }
-        return relationships;
+        return new ArrayList<>(surveyGraphs.get(upstreamAnswer.surveyId)
+                .getRelationshipsByUpstreamQuestion(upstreamAnswer.section_question_id, upstreamAnswer.getKey().getStep()));
     }
 
     /**
@@ -860,10 +693,12 @@ public class QuestionManager {
                                          HashMap<Integer, Dependent> dependents) {
         // We want to build the initial section questions for all sections in
         // this step
-        List<StepsSections> sections = StepsSections.findByDisplayKeyQuery(sectionKey.getStepQueryString());
+        List<StepsSections> sections = surveyGraphs.get(sectionKey.getSurvey()).findStepsSections(sectionKey.getStepQueryString());
         for (StepsSections stepSection : sections) {
-            stepSection.getKey().setStepInstance(sectionKey.getStepInstance());
-            buildInitialSectionAnswers(r, upstreamAnswer, stepSection.getKey(), dependents, true);
+            // The graph is shared, so work on a copy of the section key.
+            DisplayKey key = new DisplayKey(stepSection.displaykey);
+            key.setStepInstance(sectionKey.getStepInstance());
+            buildInitialSectionAnswers(r, upstreamAnswer, key, dependents, true);
         }
     }
 
@@ -965,14 +800,25 @@ public class QuestionManager {
                 key.setQuestion(downstreamQuestion.displayOrder);
             }
             DisplayKey newKey;
+            AnswerBatch batch = new AnswerBatch(respondentId, key);
             for (int i = answers.size() + 1; i <= repeatValue; i++) {
                 newKey = new DisplayKey(key.getValue());
                 newKey.setQuestionInstance(i);
                 answer = new Answer(newKey, downstreamQuestion, downstreamQuestion.question.text,
                         respondentId, downstreamQuestion.question.defaultValue);
-                answer = saveAnswer(answer, dependents);
-                if (answer.getTextValue() != null) {
-                    buildDownstreamQuestions(answer);
+                if (batch.exists(answer.getDisplayKey())) {
+                    // It was built before and may be deleted, let saveAnswer bring it back.
+                    answer = saveAnswer(answer, dependents);
+                    if (answer.getTextValue() != null) {
+                        buildDownstreamQuestions(answer);
+                    }
+                } else {
+                    batch.add(answer, dependents);
+                }
+            }
+            for (Answer a : batch.write()) {
+                if (a.getTextValue() != null) {
+                    buildDownstreamQuestions(a);
                 }
             }
         }
@@ -995,7 +841,7 @@ public class QuestionManager {
 
         // There may be more than one relationship but only one with action type
         // REPEAT
-        Relationship r = Relationship.findById(relationshipId);
+        Relationship r = surveyGraphs.get(upstreamAnswer.surveyId).getRelationship(relationshipId);
         if (r.actionType.name.equals("REPEAT")) {
 
             DisplayKey answerKey = new DisplayKey(upstreamAnswer.getDisplayKey());
@@ -1009,12 +855,40 @@ public class QuestionManager {
             if (upstreamAnswer.getTextValue() != null) {
                 long count = Long.parseLong(upstreamAnswer.getTextValue());
                 if (count > answers.size()) {
-                    DisplayKey key;
+                    DisplayKey key = buildDisplayKey(upstreamAnswer, r);
+                    AnswerBatch batch = new AnswerBatch(upstreamAnswer.respondentId, key);
+                    // The initial questions are the same for every instance of the section.
+                    ArrayList<SectionsQuestion> initial = getInitialSectionSectionsQuestion(upstreamAnswer.respondentId,
+                            key, false);
                     for (int i = answers.size(); i < count; i++) {
                         key = buildDisplayKey(upstreamAnswer, r);
                         key.setSectionInstance(i + 1);
-                        saveAnswer(new Answer(key, null, downstreamSection.name, upstreamAnswer.respondentId), dependents);
-                        buildInitialSectionAnswers(r, upstreamAnswer, key, dependents, false);
+                        Answer sectionAnswer = new Answer(key, null, downstreamSection.name, upstreamAnswer.respondentId);
+                        List<Answer> instance = new ArrayList<>();
+                        instance.add(sectionAnswer);
+                        if (!initial.isEmpty()) {
+                            for (SectionsQuestion sectionsQuestion : initial) {
+                                DisplayKey dkey = new DisplayKey(key.getValue());
+                                dkey.setQuestion(sectionsQuestion.displayOrder);
+                                instance.add(new Answer(dkey, sectionsQuestion, sectionsQuestion.question.text,
+                                        upstreamAnswer.respondentId, sectionsQuestion.question.defaultValue));
+                            }
+                        }
+                        if (batch.existsAny(instance)) {
+                            // This instance was built before and may be deleted, rebuild it one answer at a time.
+                            saveAnswer(sectionAnswer, dependents);
+                            buildInitialSectionAnswers(r, upstreamAnswer, key, dependents, false);
+                        } else {
+                            for (Answer answer : instance) {
+                                batch.add(answer, dependents);
+                            }
+                        }
+                    }
+                    // Initial answers can trigger downstream questions, e.g. IF_EXISTS.
+                    for (Answer answer : batch.write()) {
+                        if (answer.question != null) {
+                            buildDownstreamQuestions(answer);
+                        }
                     }
                 }
             }
@@ -1052,6 +926,37 @@ public class QuestionManager {
             saveDependent(dep);
         }
 
+        TreeMap<String, String> values;
+
+        values = getValuesMap(answer);
+
+        answer.displayText = renderDisplayText(answer, values);
+    }
+
+    /**
+     * Renders the display text of an answer. The question and step instances fill the
+     * {@code {Q#}} and {@code {S#}} tokens like any other token value, so the template is the
+     * unchanged question text, section or step name, parsed once for every instance.
+     *
+     * @param answer The Answer object whose display text is being built.
+     * @param values the token values of the answer; the instance tokens are added to it
+     * @return the display text
+     */
+    private String renderDisplayText(Answer answer, TreeMap<String, String> values) {
+        DisplayKey key = answer.getKey();
+        values.put(QUESTION_INSTANCE_TOKEN, String.valueOf(key.getQuestionInstance()));
+        values.put(STEP_INSTANCE_TOKEN, String.valueOf(key.getStepInstance()));
+        return replaceTokens(getDisplayTemplate(answer), values);
+    }
+
+    /**
+     * Returns the text an answer is displayed with before its tokens are replaced: the question
+     * text, or the section or step name.
+     *
+     * @param answer The Answer object whose display text is being built.
+     * @return the display text with its tokens, including {@code {Q#}} and {@code {S#}}
+     */
+    private String getDisplayTemplate(Answer answer) {
         String text = answer.displayText;
         if (answer.question != null) {
             // use the answer text.
@@ -1069,16 +974,7 @@ public class QuestionManager {
                 text = s.name;
             }
         }
-
-        // Substitute the Question instances and Section Instances.
-        text = text.replaceAll("\\{Q#\\}", answer.getKey().getQuestionInstance() + "");
-        text = text.replaceAll("\\{S#\\}", answer.getKey().getStepInstance() + "");
-
-        TreeMap<String, String> values;
-
-        values = getValuesMap(answer);
-
-        answer.displayText = replaceTokens(text, values);
+        return text;
     }
 
 
@@ -1094,23 +990,18 @@ public class QuestionManager {
      */
     private Answer saveAnswer(Answer answer, HashMap<Integer, Dependent> dependents) {
 
-        Answer existing = getAnswerByDisplayKey(answer.respondentId, answer.getDisplayKey(), true);
+        Answer existing = findAnyAnswer(answer.respondentId, answer.getDisplayKey());
         final Answer finalAnswer;
         if (existing == null) {
-            // Save the answer so we have an id
-            DatabaseRetryUtil.executeWithRetry(
-                () -> answer.persistAndFlush(),
-                "saving new answer for respondent " + answer.respondentId
-            );
+            // Persist so we have an id, the insert is written when the unit of work flushes.
+            answer.persist();
+            unitOfWork.added(answer);
             finalAnswer = answer;
         } else {
             // They already have an ID so it must be an undelete
             finalAnswer = existing;
             finalAnswer.deleted = false;
-            DatabaseRetryUtil.executeWithRetry(
-                () -> finalAnswer.persistAndFlush(),
-                "updating existing answer for respondent " + finalAnswer.respondentId
-            );
+            unitOfWork.changed(finalAnswer);
 
             List<Dependent> deps = Dependent.findByDownstream(finalAnswer.id, finalAnswer.respondentId);
             for (Dependent dependent : deps) {
@@ -1134,25 +1025,29 @@ public class QuestionManager {
             }
         }
 
-        // make sure the dependents are in the database.
-        if (entityManager.isJoinedToTransaction()) {
-            DatabaseRetryUtil.executeWithRetry(
-                () -> entityManager.flush(),
-                "flushing dependents for respondent " + finalAnswer.respondentId
-            );
-        }
-        // The dependents need to be saved before we build the display text
-
+        // The dependents need to be saved before we build the display text, the unit of work
+        // hands them to the value lookups before they are flushed.
         buildDipslayText(finalAnswer);
-
-        // Save the answer again so we have the correct display text
-        DatabaseRetryUtil.executeWithRetry(
-            () -> finalAnswer.persistAndFlush(),
-            "saving answer with display text for respondent " + finalAnswer.respondentId
-        );
         return finalAnswer;
     }
 
+    /**
+     * Looks up the answer with a display key, deleted or not. Answers
+     * created in this transaction are found in the unit of work, everything else is in the
+     * database already, so the lookup does not need to flush pending inserts.
+     *
+     * @param respondentId The ID of the respondent.
+     * @param displayKey   The display key of the answer.
+     * @return the existing answer, or null if there is none
+     */
+    private Answer findAnyAnswer(int respondentId, String displayKey) {
+        Answer pending = unitOfWork.getNewAnswer(respondentId, displayKey);
+        if (pending != null) {
+            return pending;
+        }
+        return unitOfWork.withoutFlush(() -> getAnswerByDisplayKey(respondentId, displayKey, true));
+    }
+
     /**
      * Finds and evaluates relationships for a given downstream answer, identifying dependents
      * based on the relationships and their evaluation criteria.
@@ -1165,12 +1060,16 @@ public class QuestionManager {
     private ArrayList<Dependent> findRelationshipsByDownstreamAnswer(Answer answer) {
         ArrayList<Dependent> dependents = new ArrayList<>();
 
-        ArrayList<Relationship> relationships = new ArrayList<>(Relationship.findRelationshipsByDownstreamAnswer(answer.respondentId, answer.id));
+        // Only section and step headers pick up TEXT relationships aimed at their step.
+        if (answer.section_question_id != null) {
+            return dependents;
+        }
+        List<Relationship> relationships = surveyGraphs.get(answer.surveyId).getTextRelationshipsByDownstreamStep(answer.stepId);
 
         // Now find the upstream Answers and evaluate the relationship.
         Answer upstream;
         for (Relationship rel : relationships) {
-            upstream = getUpstreamAnswerByRelationshipId(rel.id, answer.respondentId);
+            upstream = getUpstreamAnswerByRelationshipId(rel, answer.respondentId);
             if (upstream != null) {
                 if (rel.evaluateOperator(upstream)) {
                     dependents.add(new Dependent(answer.respondentId, upstream, answer, rel));
@@ -1182,31 +1081,19 @@ public class QuestionManager {
     }
 
     /**
-     * Retrieves the upstream answer based on the provided relationship ID by querying the database.
+     * Retrieves the upstream answer of a relationship: the respondent's last answer, in display key
+     * order, to the relationship's upstream question in its upstream step.
      *
-     * @param answerId     The ID of the relationship used to locate the upstream answer.
+     * @param relationship The relationship used to locate the upstream answer.
      * @param respondentId The ID of the respondent whose answer is being searched.
      * @return The upstream answer matching the provided criteria, or null if no matching answer is found.
      */
-    private Answer getUpstreamAnswerByRelationshipId(int answerId, int respondentId) {
-
-        Answer answer = null;
-        String sql = "SELECT A.ID FROM survey.ANSWERS A JOIN survey.RELATIONSHIPS R ON A.STEP = R.UPSTREAM_STEP_ID AND A.SECTION_QUESTION_ID = R.UPSTREAM_SQ_ID WHERE A.RESPONDENT_ID = "
-                + respondentId + " AND R.id = " + answerId + " order by A.DISPLAY_KEY";
-
-        //  entityManager.joinTransaction();
-        Query q = entityManager.createNativeQuery(sql);
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> rs = q.getResultList();
-        for (Object record : rs) {
-            try {
-                answer = Answer.findById(record);
-            } catch (Exception e) {
-                // no value yet.
-            }
+    private Answer getUpstreamAnswerByRelationshipId(Relationship relationship, int respondentId) {
+        if (relationship.upstreamStep == null || relationship.upstreamQuestion == null) {
+            return null;
         }
-        return answer;
+        return Answer.findLastByStepAndSectionQuestion(respondentId, relationship.upstreamStep.id,
+                relationship.upstreamQuestion.id);
     }
 
     /**
@@ -1220,47 +1107,53 @@ public class QuestionManager {
      */
     private void saveDependent(Dependent dependent) {
 
-        // if this has an ID it came from the database.
+        // if this has an ID it came from the database and is managed, changes are flushed with the unit of work.
         if (dependent.id != null) {
-            DatabaseRetryUtil.executeWithRetry(
-                () -> dependent.persistAndFlush(),
-                "updating existing dependent with ID " + dependent.id
-            );
             return;
         }
 
-        Dependent existing = null;
-        try {
-            existing = Dependent.findUnique(dependent.respondentId, dependent.upstream.id, dependent.downstream.id, dependent.relationship.id);
-            // Found one so we do not need to create another.
-        } catch (Exception e) {
-            // most likely no result found.
+        boolean exists;
+        if (unitOfWork.isNew(dependent.downstream)) {
+            // A new downstream answer only has the dependents of this unit of work.
+            exists = unitOfWork.containsDependent(dependent);
+        } else {
+            exists = unitOfWork.containsDependent(dependent) || unitOfWork.withoutFlush(() -> {
+                try {
+                    return Dependent.findUnique(dependent.respondentId, dependent.upstream.id,
+                            dependent.downstream.id, dependent.relationship.id) != null;
+                } catch (Exception e) {
+                    // most likely no result found.
+                    return false;
+                }
+            });
         }
 
-        if (existing == null) {
+        if (!exists) {
             // Dependent passed in is not in the database and we didn't find an existing one.
             // Save the entity passed in.
-            DatabaseRetryUtil.executeWithRetry(
-                () -> dependent.persistAndFlush(),
-                "saving new dependent for respondent " + dependent.respondentId
-            );
+            dependent.persist();
+            unitOfWork.added(dependent);
         }
     }
 
     /**
      * Deletes downstream answers based on the evaluated conditions of a given upstream answer.
-     * The method recursively processes downstream relationships and determines the appropriate
-     * actions (deletion or updates) for each relationship type.
+     * The relationships of the upstream answer decide which of its downstream answers are
+     * deleted; everything downstream of those is then deleted by the {@link AnswerDeleter}
+     * in a fixed number of statements.
      *
      * @param respondentId   The identifier of the respondent for whom the downstream answers
      *                       are being evaluated and deleted.
      * @param upstreamAnswer The upstream answer whose relationships are evaluated to determine
      *                       the impact on downstream answers.
-     * @param rootAnswerId   The ID of the root answer that initiated the delete operation, used
-     *                       to distinguish between recursive and initial calls.
+     * @param rootAnswerId   The ID of the root answer that initiated the delete operation. When
+     *                       it is not the upstream answer, the upstream answer is being deleted
+     *                       and all of its downstream answers go with it.
      */
     public void deleteDownstreamAnswers(Integer respondentId, Answer upstreamAnswer, int rootAnswerId) {
 
+        Set<Integer> deletable = new LinkedHashSet<>();
+
         // Find all the downstream relationships
         List<Dependent> dependents = findDependentsByUpstreamAnswer(upstreamAnswer);
 
@@ -1274,12 +1167,11 @@ public class QuestionManager {
                         // evaluates to false then delete the answers.
                         if (!dependent.relationship.evaluateOperator(upstreamAnswer)) {
                             // Delete all downstream values;
-                            deleteAnswers(dependent.downstream, rootAnswerId);
+                            deletable.add(dependent.downstream.id);
                         }
                     } else {
-                        // This was passed as a recursive call
-                        // The root answer is causing the delete.
-                        deleteAnswers(dependent.downstream, rootAnswerId);
+                        // The upstream answer is being deleted.
+                        deletable.add(dependent.downstream.id);
                     }
                     break;
                 case "REPEAT":
@@ -1289,162 +1181,49 @@ public class QuestionManager {
                         if (dependent.relationship.downstreamQuestion != null
                                 && !dependent.upstream.getTextValue().isBlank()) {
                             if (Integer.parseInt(dependent.upstream.getTextValue()) < dependent.downstream.question_instance) {
-                                deleteAnswers(dependent.downstream, rootAnswerId);
+                                deletable.add(dependent.downstream.id);
                             }
                         } else {
                             // Section-based REPEAT: use sectionInstance comparison, not question_instance
                             if (!upstreamAnswer.getTextValue().isBlank()) {
-                                deleteSomeDownstreamSectionAnswers(respondentId, "",
+                                addSomeDownstreamSectionAnswers(respondentId,
                                         Integer.valueOf(upstreamAnswer.getTextValue()),
-                                        dependent.relationship.downstreamSection.getKey(), rootAnswerId);
+                                        dependent.relationship.downstreamSection.getKey(), deletable);
                             }
                         }
                     } else {
                         // If it is not the root answer it is being deleted upstream
                         // and we will have to remove all elements.
-                        deleteAnswers(dependent.downstream, rootAnswerId);
+                        deletable.add(dependent.downstream.id);
                     }
                     break;
                 case "TEXT":
                     dependent.deleted = true;
-                    dependent.persistAndFlush();
                     break;
             }
         }
+
+        answerDeleter.delete(respondentId, deletable);
     }
 
     /**
-     * Deletes specific downstream section answers based on the provided criteria.
+     * Collects the answers of the section instances beyond the given number of instances.
      *
      * @param respondentId  the unique identifier of the respondent
-     * @param upstreamKey   the key associated with the upstream section
-     * @param instances     the maximum number of section instances to retain
+     * @param instances     the number of section instances to retain
      * @param downstreamKey the key associated with the downstream section
-     * @param rootAnswerId  the identifier for the root answer to associate deletions
+     * @param deletable     receives the identifiers of the answers to delete
      */
-    private void deleteSomeDownstreamSectionAnswers(Integer respondentId, String upstreamKey, Integer instances,
-                                                    DisplayKey downstreamKey, int rootAnswerId) {
+    private void addSomeDownstreamSectionAnswers(Integer respondentId, Integer instances,
+                                                 DisplayKey downstreamKey, Set<Integer> deletable) {
         List<Answer> relationships = Answer.findByAnswerQueryString(respondentId, downstreamKey.getSectionQueryString());
         for (Answer answer : relationships) {
             if (answer.sectionInstance > instances - 1) {
-                deleteAnswers(answer, rootAnswerId);
+                deletable.add(answer.id);
             }
         }
     }
 
-    /**
-     * Deletes answers recursively, including downstream answers and handling
-     * specific types of answers (question, section, or step).
-     *
-     * @param deletableAnswer The answer object to be deleted, containing details required
-     *                        for identifying and processing the deletion.
-     * @param rootAnswerId    The identifier of the root answer associated with the
-     *                        hierarchical deletion process.
-     */
-    private void deleteAnswers(Answer deletableAnswer, int rootAnswerId) {
-        // Recursive function.
-        deleteDownstreamAnswers(deletableAnswer.respondentId, deletableAnswer, rootAnswerId);
-        // Is this a question, section or step?
-        if (deletableAnswer.getKey().getQuestion() != 0) {
-            // question we will remove it at the end of this section.
-        } else if (deletableAnswer.getKey().getSection() != 0) {
-            deleteSectionAnswers(deletableAnswer, rootAnswerId);
-        } else if (deletableAnswer.getKey().getStep() != 0) {
-            deleteStepAnswers(deletableAnswer, rootAnswerId);
-        }
-
-        markAnswerAndDependentsAsDeleted(deletableAnswer);
-    }
-
-    /**
-     * Marks the provided answer and all its dependent entities as deleted.
-     * Sets the `deleted` flag to true for the given answer and its dependents,
-     * and persists the changes to the database.
-     *
-     * @param answer the answer entity to be marked as deleted, along with its dependents
-     */
-    private void markAnswerAndDependentsAsDeleted(Answer answer) {
-
-        answer.deleted = true;
-        answer.persistAndFlush();
-
-        List<Dependent> deps = Dependent.findByDownstream(answer.respondentId, answer.id);
-        for (Dependent dependent : deps) {
-            dependent.deleted = true;
-            dependent.persistAndFlush();
-        }
-    }
-
-    /**
-     * Deletes all answers within a specific section based on the provided upstream answer
-     * and the root answer identifier. It fetches relevant answers by section query string
-     * and processes each to remove associated downstream answers.
-     *
-     * @param upstreamAnswer The upstream Answer object containing the respondent ID and section query string.
-     * @param rootAnswerId   The ID of the root answer associated with the answer section being deleted.
-     */
-    private void deleteSectionAnswers(Answer upstreamAnswer, int rootAnswerId) {
-        List<Answer> answers = Answer.findByAnswerQueryString(upstreamAnswer.respondentId, upstreamAnswer.getKey().getSectionQueryString());
-        for (Answer answer : answers) {
-            deleteDownstreamAnswers(answer.respondentId, answer, rootAnswerId);
-        }
-    }
-
-    /**
-     * Deletes all step answers associated with the given upstream answer and root answer ID.
-     * Iterates through the list of matching answers based on the keys derived from the upstream answer
-     * and performs recursive deletion of downstream answers.
-     *
-     * @param upstreamAnswer The Answer object representing the upstream answer.
-     * @param rootAnswerId   The ID of the root answer to maintain deletion context.
-     */
-    private void deleteStepAnswers(Answer upstreamAnswer, int rootAnswerId) {
-        List<Answer> answers = Answer.findByAnswerQueryString(upstreamAnswer.respondentId, upstreamAnswer.getKey().getStepQueryString());
-        for (Answer answer : answers) {
-            deleteDownstreamAnswers(answer.respondentId, answer, rootAnswerId);
-        }
-    }
-
-    /**
-     * Deletes downstream answers based on provided parameters and conditions.
-     *
-     * @param respondentId  the ID of the respondent whose answers are to be processed
-     * @param instances     the number of instances used to determine which answers to delete
-     * @param downstreamKey the key representing the downstream answers to be deleted
-     * @param rootAnswerId  the ID of the root answer associated with the downstream answers
-     */
-    private void deleteSomeDownstreamAnswers(Integer respondentId, Integer instances,
-                                             String downstreamKey, int rootAnswerId) {
-        DisplayKey key = new DisplayKey(downstreamKey);
-        List<Answer> relationships = Answer.findByAnswerQueryString(respondentId, key.getAnswerQueryString());
-        for (Answer answer : relationships) {
-            if (answer.question_instance > instances - 1) {
-                deleteAnswers(answer, rootAnswerId);
-            }
-        }
-    }
-
-    /**
-     * Deletes all downstream answers associated with the provided upstream answer
-     * recursively by marking them and their dependents as deleted.
-     *
-     * @param respondentId the identifier of the respondent whose answers are to be processed
-     * @param upstream     the upstream answer from which to determine downstream dependents
-     */
-    private void deleteAllDownstreamAnswers(Integer respondentId, Answer upstream) {
-
-        // This function needs to loop through all downstream dependents.
-        List<Dependent> dependents = findDependentsByUpstreamAnswer(upstream);
-
-        Answer deletableAnswer;
-        // Now loop through the dependents and delete their dependents.
-        for (Dependent dependent : dependents) {
-            deletableAnswer = dependent.downstream;
-
-            markAnswerAndDependentsAsDeleted(deletableAnswer);
-        }
-    }
-
     /**
      * Checks if all relationships associated with the given relationship object are satisfied
      * based on the provided answer and updates the dependents map with relevant dependency information.
@@ -1465,7 +1244,8 @@ public class QuestionManager {
         // Question or Section Step?
         if (relationship.downstreamQuestion != null) {
             // Questions
-            List<Relationship> relationships = Relationship.findByDownstream_SQ_ID(relationship.surveyId, relationship.downstreamQuestion.id);
+            List<Relationship> relationships = surveyGraphs.get(relationship.surveyId)
+                    .getConditionsByDownstreamQuestion(relationship.downstreamQuestion.id);
             for (Relationship r : relationships) {
                 // Find all upstreamAnswers for this relationship
                 Answer upstreamAnswer = getUpstreamAnswer(r, answer);
@@ -1483,7 +1263,8 @@ public class QuestionManager {
             } else {
                 stepId = relationship.upstreamStep.id;
             }
-            List<Relationship> relationships = Relationship.findByDownstream_S_ID(relationship.surveyId, relationship.downstreamSection.id, stepId);
+            List<Relationship> relationships = surveyGraphs.get(relationship.surveyId)
+                    .getConditionsByDownstreamSection(relationship.downstreamSection.id, stepId);
             for (Relationship r : relationships) {
                 Answer upstreamAnswer = getUpstreamAnswer(r, answer);
                 if (!r.evaluateOperator(upstreamAnswer)) {
@@ -1500,7 +1281,8 @@ public class QuestionManager {
             } else {
                 stepId = relationship.upstreamStep.id;
             }
-            List<Relationship> relationships = Relationship.findByDownstream_Step_ID(relationship.surveyId, relationship.downstreamStep.id, stepId);
+            List<Relationship> relationships = surveyGraphs.get(relationship.surveyId)
+                    .getConditionsByDownstreamStep(relationship.downstreamStep.id, stepId);
             for (Relationship r : relationships) {
                 // Answer upstreamAnswer = getUpstreamAnswer(r, answer);
                 if (!r.evaluateOperator(answer)) {
@@ -1522,34 +1304,10 @@ public class QuestionManager {
      * @return The upstream answer if found, or null if no answer is associated with the provided relationship and answer.
      */
     private Answer getUpstreamAnswer(Relationship r, Answer a) {
-
-        String sql = "SELECT a.ID FROM survey.RELATIONSHIPS r join survey.SECTIONS_QUESTIONS sq on r.UPSTREAM_SQ_ID = sq.id "
-                + "join survey.QUESTIONS q on sq.QUESTION_ID = q.ID left join survey.ANSWERS a on q.ID = a.QUESTION_ID  "
-                + "WHERE a.deleted = false and a.RESPONDENT_ID = :respondentId and r.id = :relationshioId "
-                + "and a.step = :stepId and a.STEP_INSTANCE = :stepInstance and a.section = :sectionId "
-                + "and a.SECTION_INSTANCE = :sectionInstance order by a.display_key";
-        //entityManager.joinTransaction();
-        Query q = entityManager.createNativeQuery(sql);
-        q.setParameter("relationshioId", r.id);
-        q.setParameter("respondentId", a.respondentId);
-        q.setParameter("stepId", a.stepId);
-        q.setParameter("stepInstance", a.stepInstance);
-        q.setParameter("sectionId", a.sectionId);
-        q.setParameter("sectionInstance", a.sectionInstance);
-
-        @SuppressWarnings("unchecked")
-        List<Object[]> rs = q.getResultList();
-        Integer id;
-        Answer answer = null;
-        for (Object record : rs) {
-            id = (Integer) record;
-            try {
-                answer = entityManager.find(Answer.class, id);
-            } catch (Exception e) {
-                // no value yet.
-            }
+        if (r.upstreamQuestion == null || r.upstreamQuestion.question == null) {
+            return null;
         }
-        return answer;
+        return Answer.findLastActiveByQuestionInSection(r.upstreamQuestion.question.id, a);
     }
 
 
@@ -1578,8 +1336,7 @@ public class QuestionManager {
     private TreeMap<String, String> getStepKeyValues(Answer answer) {
         DisplayKey key = new DisplayKey(answer.getKey().getStepString());
 
-        int stepID = getAnswerIdByDisplayKey(answer.respondentId, key.getValue());
-        return getKeyValues(answer.respondentId, stepID);
+        return getKeyValues(findAnyAnswer(answer.respondentId, key.getValue()));
     }
 
     /**
@@ -1593,8 +1350,7 @@ public class QuestionManager {
         DisplayKey key = new DisplayKey(answer.getDisplayKey());
         key.setQuestionInstance(0);
         key.setQuestion(0);
-        int sectionId = getAnswerIdByDisplayKey(answer.respondentId, key.getValue());
-        return getKeyValues(answer.respondentId, sectionId);
+        return getKeyValues(findAnyAnswer(answer.respondentId, key.getValue()));
     }
 
     /**
@@ -1607,129 +1363,118 @@ public class QuestionManager {
      * from the provided Answer object.
      */
     private TreeMap<String, String> getQuestionKeyValues(Answer answer) {
-        return getKeyValues(answer.respondentId, answer.id);
+        return getKeyValues(answer);
     }
 
     /**
-     * Retrieves the ID of an answer based on the given respondent ID and display key.
+     * Retrieves a mapping of key-value pairs for the dependents of a downstream answer,
+     * including the ones saved in this unit of work but not flushed yet. The method processes
+     * dependents to extract relationship tokens and values based on question types and
+     * upstream configurations.
      *
-     * @param respondentId the unique identifier of the respondent
-     * @param displaykey   the display key associated with the answer
-     * @return the ID of the answer if found, or 0 if no matching answer is found
+     * @param downstream The downstream answer, or null when there is none.
+     * @return A TreeMap containing key-value pairs where keys are relationship tokens and
+     * values are derived based on dependent configurations and upstream data.
      */
-    private int getAnswerIdByDisplayKey(int respondentId, String displaykey) {
-        Answer a = Answer.findByDisplayKeyAll(respondentId, displaykey);
-        if (a != null) {
-            return a.id;
-        } else {
-            return 0;
+    private TreeMap<String, String> getKeyValues(Answer downstream) {
+
+        TreeMap<String, String> values = new TreeMap<>();
+        if (downstream == null) {
+            return values;
+        }
+        try {
+            addKeyValues(values, unitOfWork.getDependents(downstream));
+        } catch (Exception e) {
+            Log.error("Error getting dependents with downstream id " + downstream.id);
         }
+        return values;
     }
 
     /**
-     * Retrieves a mapping of key-value pairs for dependents associated with a given
-     * respondent and downstream ID. The method processes dependents to extract
-     * relationship tokens and values based on question types and upstream configurations.
+     * Adds the relationship tokens and values of the given dependents to a map. Later dependents
+     * override earlier ones with the same token.
      *
-     * @param respondentId The ID of the respondent for whom the dependents are being retrieved.
-     * @param downstreamId The ID associated with the downstream to filter dependents.
-     * @return A TreeMap containing key-value pairs where keys are relationship tokens and
-     * values are derived based on dependent configurations and upstream data.
+     * @param values     the map to add the token values to
+     * @param dependents the dependents of one downstream answer, in id order
      */
-    private TreeMap<String, String> getKeyValues(int respondentId, int downstreamId) {
-
-        TreeMap<String, String> values = new TreeMap<>();
-        try {
-            List<Dependent> dependents = Dependent.findByDownstream(respondentId, downstreamId);
-            String key;
-            String value;
-            // TODO GET THE DEFAULT VALUES
-            for (Dependent dependent : dependents) {
-                value = null;
-                if (dependent.relationship.token != null
-                        && !dependent.relationship.token.isEmpty()) {
-                    key = dependent.relationship.token;
-                    switch (dependent.upstream.question.questionType.name) {
-                        case "CHECKBOX":
-                        case "DROPDOWN":
-                        case "HTML":
-                        case "NUMBER":
-                        case "RADIO":
-                            if (dependent.relationship.defaultUpstreamValue != null) {
-                                value = dependent.relationship.defaultUpstreamValue;
-                            } else if (dependent.upstream.getTextValue() != null) {
-                                value = dependent.upstream.getTextValue();
-                            }
-                            break;
-                        case "TEXT":
-                        case "DATE":
-                            if (dependent.upstream.getTextValue() != null) {
-                                value = dependent.upstream.getTextValue();
-                            }
-                            break;
-                    }
-                    if (value != null) {
-                        values.put(key, value);
-                    }
+    private void addKeyValues(TreeMap<String, String> values, List<Dependent> dependents) {
+        String key;
+        String value;
+        // TODO GET THE DEFAULT VALUES
+        for (Dependent dependent : dependents) {
+            value = null;
+            if (dependent.relationship.token != null
+                    && !dependent.relationship.token.isEmpty()) {
+                key = dependent.relationship.token;
+                switch (dependent.upstream.question.questionType.name) {
+                    case "CHECKBOX":
+                    case "DROPDOWN":
+                    case "HTML":
+                    case "NUMBER":
+                    case "RADIO":
+                        if (dependent.relationship.defaultUpstreamValue != null) {
+                            value = dependent.relationship.defaultUpstreamValue;
+                        } else if (dependent.upstream.getTextValue() != null) {
+                            value = dependent.upstream.getTextValue();
+                        }
+                        break;
+                    case "TEXT":
+                    case "DATE":
+                        if (dependent.upstream.getTextValue() != null) {
+                            value = dependent.upstream.getTextValue();
+                        }
+                        break;
+                }
+                if (value != null) {
+                    values.put(key, value);
                 }
             }
-        } catch (Exception e) {
-            Log.error("Error getting dependents with downstream id " + downstreamId);
         }
-        return values;
     }
 
     /**
-     * Builds and returns a list of navigation items based on answers retrieved
-     * for a given respondent from the database.
+     * Returns the navigation items of a respondent.
      * <p>
-     * The method queries the database to retrieve answers associated with
-     * a specific respondent ID and constructs navigation items. It sets up
-     * the references to the previous and next navigation paths for each item.
+     * The items of the last committed transaction come from the {@link RespondentCache}. Section
+     * and step headers created, deleted or renamed in the current transaction are spliced into
+     * them at their display key position, and reported in {@code changes}.
      *
      * @param respondentId The ID of the respondent whose navigation items
      *                     are to be built.
-     * @return A list of NavigationItem objects representing the navigation paths
-     * for the specified respondent.
+     * @param changes      receives the navigation items changed in the current transaction
+     * @return the navigation items of the respondent, in display key order
+     */
+    private NavigationList getNavigation(int respondentId, List<NavigationList.Change> changes) {
+        unitOfWork.usingCache(respondentId);
+        NavigationList navigation = respondentCache.getNavigation(respondentId, () -> findNavigation(respondentId));
+        return navigation.apply(unitOfWork.getHeaders(respondentId), changes);
+    }
+
+    /**
+     * Reads the respondent's active section and step headers, in display key order.
+     *
+     * @param respondentId The ID of the respondent.
+     * @return the display text and display key of every header
      */
-    private ArrayList<NavigationItem> buildNavItems(int respondentId) {
+    private NavigationList findNavigation(int respondentId) {
 
         String pathSQL = "SELECT a.display_text, a.display_key" + " FROM survey.answers a" + " WHERE a.deleted = false"
                 + " AND a.respondent_id = :respondentId" + " AND a.question_id is null" + " AND a.section != 0"
                 + " ORDER BY a.display_key";
 
-        ArrayList<NavigationItem> paths = new ArrayList<>();
-
-        //entityManager.joinTransaction();
         Query q = entityManager.createNativeQuery(pathSQL);
+        // Native queries only flush pending changes of the entities they are synchronized with.
+        q.unwrap(NativeQuery.class).addSynchronizedEntityClass(Answer.class);
         q.setParameter("respondentId", respondentId);
 
         @SuppressWarnings("unchecked")
         List<Object[]> rs = q.getResultList();
 
-        NavigationItem navItem;
-        String name;
-        String path;
-        String next;
-        String previous = null;
+        List<NavigationList.Entry> entries = new ArrayList<>(rs.size());
         for (Object[] record : rs) {
-            name = (String) record[0];
-            path = (String) record[1];
-
-            navItem = new NavigationItem(name, false, path, null, previous);
-            paths.add(navItem);
-            previous = path;
+            entries.add(new NavigationList.Entry((String) record[0], (String) record[1]));
         }
-
-        // Set the next paths
-        next = null;
-        for (int i = paths.size() - 1; i > -1; i--) {
-            navItem = paths.get(i);
-            navItem.setNext(next);
-            next = navItem.getPath();
-        }
-        return paths;
-
+        return NavigationList.of(entries);
     }
 
     /**
@@ -1742,6 +1487,7 @@ public class QuestionManager {
      */
     @Transactional
     public void removeDeleted(Integer respondentId) {
+        respondentCache.invalidate(respondentId);
         // this function will purge the deleted answers.
         Query purgeDeleted = entityManager.createNativeQuery("DELETE FROM survey.dependents d where d.deleted = true and d.respondent_id = :respondentId");
         purgeDeleted.setParameter("respondentId", respondentId);
@@ -1751,4 +1497,154 @@ public class QuestionManager {
         purgeDeleted.setParameter("respondentId", respondentId);
         purgeDeleted.executeUpdate();
     }
+
+    /**
+     * Collects the answers and dependents of a REPEAT expansion so they can be written by the
+     * {@link AnswerBatchWriter} in one pass instead of one {@link #saveAnswer} call per answer.
+     * <p>
+     * Dependents and display text are computed the same way {@link #saveAnswer} does, but in
+     * memory. Only answers that were never built before belong in a batch; answers that already
+     * exist, possibly deleted, still go through {@link #saveAnswer} so they are undeleted.
+     */
+    private final class AnswerBatch {
+        private final int respondentId;
+        private final Set<String> existingKeys;
+        private final List<Answer> answers = new ArrayList<>();
+        private final List<Dependent> dependents = new ArrayList<>();
+        private final HashMap<String, List<Dependent>> dependentsByKey = new HashMap<>();
+        private final HashMap<String, TreeMap<String, String>> storedValues = new HashMap<>();
+        private final HashMap<Integer, List<Dependent>> textDependentsByStep = new HashMap<>();
+
+        /**
+         * @param respondentId the respondent the answers are built for
+         * @param key          a display key in the section being expanded
+         */
+        AnswerBatch(int respondentId, DisplayKey key) {
+            this.respondentId = respondentId;
+            // One query for every answer ever built in this section, deleted or not.
+            this.existingKeys = Answer.findDisplayKeysByQueryString(respondentId, key.getSectionQueryString());
+        }
+
+        /**
+         * @param displayKey the display key to check
+         * @return true if an answer with this display key is in the database or in the batch
+         */
+        boolean exists(String displayKey) {
+            return existingKeys.contains(displayKey) || dependentsByKey.containsKey(displayKey);
+        }
+
+        /**
+         * @param candidates the answers to check
+         * @return true if any of the answers is in the database or in the batch
+         */
+        boolean existsAny(List<Answer> candidates) {
+            for (Answer candidate : candidates) {
+                if (exists(candidate.getDisplayKey())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Adds a new answer with its dependents and builds its display text.
+         *
+         * @param answer             the new answer
+         * @param upstreamDependents the dependents that triggered the answer, as passed to {@link #saveAnswer}
+         */
+        void add(Answer answer, HashMap<Integer, Dependent> upstreamDependents) {
+            List<Dependent> own = new ArrayList<>();
+            if (upstreamDependents != null) {
+                Dependent copy;
+                for (Dependent dependent : upstreamDependents.values()) {
+                    copy = dependent.shallowCopy();
+                    copy.downstream = answer;
+                    if (copy.isComplete() && copy.relationship.evaluateOperator(copy.upstream)) {
+                        addUnique(own, copy);
+                    }
+                }
+            }
+            // Section headers pick up the TEXT relationships of their step, see buildDipslayText.
+            if (answer.section_question_id == null) {
+                for (Dependent text : textDependentsByStep.computeIfAbsent(answer.stepId,
+                        stepId -> findRelationshipsByDownstreamAnswer(answer))) {
+                    addUnique(own, new Dependent(respondentId, text.upstream, answer, text.relationship));
+                }
+            }
+            answers.add(answer);
+            dependents.addAll(own);
+            dependentsByKey.put(answer.getDisplayKey(), own);
+
+            // Same lookups as getValuesMap: step, section, then the answer itself.
+            DisplayKey key = answer.getKey();
+            TreeMap<String, String> values = getValues(new DisplayKey(key.getStepString()).getValue());
+            key.setQuestionInstance(0);
+            key.setQuestion(0);
+            values.putAll(getValues(key.getValue()));
+            values.putAll(getValues(answer.getDisplayKey()));
+            answer.displayText = renderDisplayText(answer, values);
+        }
+
+        /**
+         * Writes the batch and returns the answers, reloaded into the persistence context, in the
+         * order they were added.
+         *
+         * @return the managed answers
+         */
+        List<Answer> write() {
+            List<Answer> written = new ArrayList<>();
+            if (answers.isEmpty()) {
+                return written;
+            }
+            batchWriter.write(answers, dependents);
+            for (Answer answer : answers) {
+                unitOfWork.inserted(answer);
+            }
+
+            List<Integer> ids = new ArrayList<>();
+            for (Answer answer : answers) {
+                ids.add(answer.id);
+            }
+            HashMap<Integer, Answer> managed = new HashMap<>();
+            List<Answer> loaded = Answer.list("id in ?1", ids);
+            for (Answer answer : loaded) {
+                managed.put(answer.id, answer);
+            }
+            for (Answer answer : answers) {
+                written.add(managed.get(answer.id));
+            }
+            return written;
+        }
+
+        /**
+         * Returns the token values of the answer with the given display key, from the batch when
+         * it is part of it and from the database otherwise.
+         */
+        private TreeMap<String, String> getValues(String displayKey) {
+            List<Dependent> own = dependentsByKey.get(displayKey);
+            if (own == null) {
+                return new TreeMap<>(storedValues.computeIfAbsent(displayKey,
+                        k -> getKeyValues(findAnyAnswer(respondentId, k))));
+            }
+            TreeMap<String, String> values = new TreeMap<>();
+            try {
+                addKeyValues(values, own);
+            } catch (Exception e) {
+                Log.error("Error getting dependents of new answer " + displayKey);
+            }
+            return values;
+        }
+
+        /**
+         * Adds a dependent unless one with the same upstream answer and relationship is already present.
+         */
+        private void addUnique(List<Dependent> own, Dependent dependent) {
+            for (Dependent d : own) {
+                if (d.upstream.id.equals(dependent.upstream.id) && d.relationship.id.equals(dependent.relationship.id)) {
+                    return;
+                }
+            }
+            own.add(dependent);
+        }
+    }
 }
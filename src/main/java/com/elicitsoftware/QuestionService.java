@@ -11,25 +11,25 @@ package com.elicitsoftware;
  * ***LICENSE_END***
  */
 
-import com.elicitsoftware.etl.ETLRespondentService;
+import com.elicitsoftware.etl.ETLQueue;
+import com.elicitsoftware.etl.ETLWorker;
 import com.elicitsoftware.model.Answer;
-import com.elicitsoftware.model.PostSurveyAction;
 import com.elicitsoftware.model.Respondent;
-import com.elicitsoftware.model.RespondentPSA;
+import com.elicitsoftware.psa.PostSurveyActionDispatcher;
+import com.elicitsoftware.psa.PostSurveyActionOutbox;
 import com.elicitsoftware.response.NavResponse;
 import com.elicitsoftware.response.ReviewItem;
 import com.elicitsoftware.response.ReviewResponse;
 import com.elicitsoftware.response.ReviewSection;
 import com.elicitsoftware.util.DatabaseRetryUtil;
-import com.vaadin.quarkus.annotation.NormalUIScoped;
 import io.micrometer.core.annotation.Timed;
 import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -51,10 +51,11 @@ import java.util.List;
  * - Saving and managing answers, including handling downstream questions.
  * - Finalizing the respondent's survey and managing data population for reporting.
  * <p>
- * This service relies on VaadinSession for maintaining session-specific attributes
- * like the current respondent.
+ * The service keeps no state of its own. Only {@link #init(String)} reads the current respondent
+ * from the UI-scoped {@link UISessionDataService}; every other method takes the respondent as an
+ * argument and can be called outside a Vaadin UI, for example by load tests.
  */
-@NormalUIScoped
+@ApplicationScoped
 public class QuestionService {
 
     /**
@@ -116,7 +117,10 @@ public class QuestionService {
     QuestionManager questionManager;
 
     @Inject
-    ETLRespondentService etlRespondentService;
+    ETLQueue etlQueue;
+
+    @Inject
+    ETLWorker etlWorker;
 
     @Inject
     UISessionDataService sessionDataService;
@@ -124,6 +128,18 @@ public class QuestionService {
     @Inject
     QuestionService self;
 
+    @Inject
+    AnswerUnitOfWork unitOfWork;
+
+    @Inject
+    RespondentCache respondentCache;
+
+    @Inject
+    PostSurveyActionOutbox postSurveyActionOutbox;
+
+    @Inject
+    PostSurveyActionDispatcher postSurveyActionDispatcher;
+
     /**
      * Initializes the respondent's survey by generating initial answers for all sections
      * and navigating to the step associated with the specified display key.
@@ -136,6 +152,7 @@ public class QuestionService {
     @Timed(value = "survey.init", description = "Time to initialize survey for respondent", histogram = true)
     @Transactional(Transactional.TxType.REQUIRES_NEW)
     public NavResponse init(int respondentId, String displaykey) {
+        unitOfWork.begin("init");
         questionManager.init(respondentId, displaykey);
         return questionManager.navigate(respondentId, displaykey);
     }
@@ -156,6 +173,7 @@ public class QuestionService {
     /**
      * Generates a review response containing sections and items based on the respondent's data.
      * Each section represents a logical grouping of items, and items include display labels and values.
+     * The response is kept in the {@link RespondentCache} until the respondent's answers change.
      *
      * @param respondent_id the unique identifier of the respondent for whom the review response is generated
      * @return an instance of {@code ReviewResponse} containing a list of sections with their associated items
@@ -163,6 +181,20 @@ public class QuestionService {
     @Timed(value = "survey.review", description = "Time to generate review response", histogram = true)
     @Transactional
     public ReviewResponse review(int respondent_id) {
+        if (unitOfWork.answersChanged(respondent_id)) {
+            return buildReview(respondent_id);
+        }
+        unitOfWork.usingCache(respondent_id);
+        return respondentCache.getReview(respondent_id, () -> buildReview(respondent_id));
+    }
+
+    /**
+     * Builds the review response of a respondent from the database.
+     *
+     * @param respondent_id the unique identifier of the respondent
+     * @return the review response
+     */
+    private ReviewResponse buildReview(int respondent_id) {
 
         List<ReviewItem> items = new ArrayList<>();
         List<ReviewSection> sections = new ArrayList<>();
@@ -210,20 +242,22 @@ public class QuestionService {
     }
 
     /**
-     * Finalizes the respondent's survey process by performing several operations, including
-     * marking the respondent as inactive, cleaning up deleted entries, populating fact and
-     * dimension tables, and logging the ETL execution time.
+     * Finalizes the respondent's survey process by marking the respondent as inactive, cleaning
+     * up deleted entries, queueing the respondent for the ETL and queueing the post-survey actions.
+     * The fact and dimension tables are populated in the background by the {@link ETLWorker}.
      *
      * @param respondentId the unique identifier of the respondent to be finalized
      */
     public void finalize(int respondentId) {
-        Date startDt = new Date();
         setActiveFalse(respondentId);
         questionManager.removeDeleted(respondentId);
-        String etl = etlRespondentService.populateFactSectionTable(respondentId);
-        Date endDt = new Date();
-        Duration duration = Duration.between(startDt.toInstant(), endDt.toInstant());
-        Log.debug(System.lineSeparator() + etl + " etl took " + duration.getSeconds() + " seconds" + System.lineSeparator());
+        // A respondent that fails to queue here is still finalized without facts, and is queued
+        // by the first poll of the ETLWorker after a restart (ETLQueue.enqueueBacklog).
+        DatabaseRetryUtil.executeWithRetry(
+                () -> etlQueue.enqueue(respondentId),
+                "queueing respondent " + respondentId + " for the ETL"
+        );
+        etlWorker.wakeUp();
         Log.debug("Post survey actions:");
         PostSurveyActions(respondentId);
     }
@@ -256,6 +290,7 @@ public class QuestionService {
     @Timed(value = "survey.save.answer", description = "Time to save answer and process dependencies", histogram = true)
     @Transactional
     public NavResponse saveAnswer(Answer answer) {
+        unitOfWork.begin("save");
         // Load the answer
         Answer a = Answer.findById(answer.id);
         // See if the answer has changed
@@ -264,6 +299,7 @@ public class QuestionService {
         } else {
             a.setTextValue(answer.getTextValue());
             a.savedDt = (new Date());
+            unitOfWork.changed(a);
 
             if (a.question != null
                     && "CHECKBOX".equals(a.question.questionType.name)
@@ -288,160 +324,22 @@ public class QuestionService {
         return questionManager.navigate(a.respondentId, a.getDisplayKey());
     }
 
-    @Timed(value = "survey.post.actions", description = "Time to execute post-survey actions", histogram = true)
-    @Transactional(Transactional.TxType.REQUIRES_NEW)
-    public void PostSurveyActions(int respondentId) {
-        Respondent respondent = Respondent.findById(respondentId);
-        if (respondent != null) {
-            if (respondent.survey.postSurveyActions != null && !respondent.survey.postSurveyActions.isEmpty()) {
-                for (PostSurveyAction psa : respondent.survey.postSurveyActions) {
-                    RespondentPSA respondentPSA = RespondentPSA.find("respondentId=?1 and psaId = ?2", respondentId, psa.id).firstResult();
-                    final RespondentPSA finalRespondentPSA;
-                    if (respondentPSA == null) {
-                        finalRespondentPSA = new RespondentPSA();
-                        finalRespondentPSA.psaId = psa.id;
-                        finalRespondentPSA.respondentId = respondentId;
-                        finalRespondentPSA.status = "PENDING";
-                    } else {
-                        finalRespondentPSA = respondentPSA;
-                        finalRespondentPSA.status = "RESENDING";
-                        finalRespondentPSA.error = "";
-                        finalRespondentPSA.uploadedDt = null;
-                    }
-                    try {
-                        CallPostSurveyAction(psa, respondentId);
-                        DatabaseRetryUtil.executeWithRetry(
-                            () -> finalRespondentPSA.persist(),
-                            "saving successful post-survey action for respondent " + respondentId
-                        );
-                        Log.debug("Post survey action " + psa.name + " completed successfully for respondent " + respondentId);
-                    }
-                    catch (Exception e) {
-                        finalRespondentPSA.status = "FAILED";
-                        finalRespondentPSA.error = e.getMessage();
-                        DatabaseRetryUtil.executeWithRetry(
-                            () -> finalRespondentPSA.persist(),
-                            "saving failed post-survey action for respondent " + respondentId
-                        );
-                        Log.error("Post survey action " + psa.name + " failed for respondent " + respondentId + ": " + e.getMessage(), e);
-                    }
-                }
-            }
-        }
-    }
-
     /**
-     * Executes a post-survey action by calling the specified URL with the respondent ID.
-     * <p>
-     * This method performs an HTTP POST request to the post-survey action URL with a JSON payload
-     * containing the respondent ID. It includes comprehensive error handling to provide meaningful
-     * error messages for various failure scenarios.
-     * <p>
-     * Error handling includes:
-     * - URL validation to ensure the action URL is properly configured
-     * - HTTP status code validation with specific error messages
-     * - Network and communication error handling
-     * - Detailed error message extraction from response bodies
-     * - License validation error detection for service-specific failures
+     * Queues the post-survey actions of the respondent's survey. The actions are called in the
+     * background by the {@link PostSurveyActionDispatcher}, which retries failed calls, so
+     * finalizing never waits for an action service.
      *
-     * @param psa the PostSurveyAction containing the URL and configuration
-     * @param respondentId the ID of the respondent for whom the action is being executed
-     * @return the response body from the post-survey action service
-     * @throws Exception if the action fails due to configuration, network, or service errors
+     * @param respondentId the finalized respondent
      */
-    private String CallPostSurveyAction(PostSurveyAction psa, int respondentId) throws Exception {
-        if (psa.url == null || psa.url.trim().isEmpty()) {
-            throw new Exception("Post Survey Action '" + psa.name + "' Error: URL is null or empty - please check the action configuration");
-        }
-
-        if (respondentId <= 0) {
-            throw new Exception("Post Survey Action '" + psa.name + "' Error: Invalid respondent ID (" + respondentId + ") - ID must be a positive number");
-        }
-
-        try {
-            // Create a simple HTTP client using Java 11+ HttpClient
-            java.net.http.HttpClient client = java.net.http.HttpClient.newHttpClient();
-            
-            // Create the JSON payload
-            String jsonPayload = "{\"id\":" + respondentId + "}";
-            
-            // Build the HTTP request
-            java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
-                    .uri(java.net.URI.create(psa.url))
-                    .header("Content-Type", "application/json")
-                    .POST(java.net.http.HttpRequest.BodyPublishers.ofString(jsonPayload))
-                    .build();
-            
-            // Send the request and get response
-            java.net.http.HttpResponse<String> response = client.send(request, 
-                    java.net.http.HttpResponse.BodyHandlers.ofString());
-            
-            // Check if the response was successful (2xx status codes)
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                return response.body();
-            } else {
-                // Handle different error status codes with appropriate messages
-                String errorMessage;
-                String responseBody = response.body();
-                
-                // Try to extract meaningful error message from response body
-                if (responseBody != null && !responseBody.trim().isEmpty()) {
-                    // Check for license-related errors
-                    if (response.statusCode() == 403 || responseBody.toLowerCase().contains("license")) {
-                        errorMessage = "Post Survey Action '" + psa.name + "' Error: License validation failed - " + responseBody;
-                        if (!errorMessage.toLowerCase().contains("premm5") && psa.url.toLowerCase().contains("premm5")) {
-                            errorMessage += " - Please ensure your PREMM5 license is valid and properly configured.";
-                        }
-                    } else {
-                        errorMessage = "Post Survey Action '" + psa.name + "' Error: HTTP " + response.statusCode() + " - " + responseBody;
-                    }
-                } else {
-                    // No response body, provide status-based error message
-                    switch (response.statusCode()) {
-                        case 400:
-                            errorMessage = "Post Survey Action '" + psa.name + "' Error: Bad Request (400) - Invalid request data for respondent ID " + respondentId;
-                            break;
-                        case 401:
-                            errorMessage = "Post Survey Action '" + psa.name + "' Error: Unauthorized (401) - Authentication required";
-                            break;
-                        case 403:
-                            errorMessage = "Post Survey Action '" + psa.name + "' Error: Forbidden (403) - License validation may have failed. Please check your license configuration.";
-                            break;
-                        case 404:
-                            errorMessage = "Post Survey Action '" + psa.name + "' Error: Not Found (404) - Service endpoint not available at " + psa.url;
-                            break;
-                        case 500:
-                            errorMessage = "Post Survey Action '" + psa.name + "' Error: Internal Server Error (500) - The service encountered an internal error";
-                            break;
-                        case 502:
-                            errorMessage = "Post Survey Action '" + psa.name + "' Error: Bad Gateway (502) - Service is temporarily unavailable";
-                            break;
-                        case 503:
-                            errorMessage = "Post Survey Action '" + psa.name + "' Error: Service Unavailable (503) - Service is temporarily down for maintenance";
-                            break;
-                        default:
-                            errorMessage = "Post Survey Action '" + psa.name + "' Error: HTTP " + response.statusCode() + " - Service returned an error status";
-                            break;
-                    }
-                }
-                
-                throw new Exception(errorMessage);
-            }
-            
-        } catch (java.net.URISyntaxException e) {
-            throw new Exception("Post Survey Action '" + psa.name + "' Error: Invalid URL format '" + psa.url + "' - " + e.getMessage(), e);
-        } catch (java.io.IOException e) {
-            throw new Exception("Post Survey Action '" + psa.name + "' Error: Network communication failed when calling " + psa.url + " - " + e.getMessage(), e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt(); // Restore interrupted status
-            throw new Exception("Post Survey Action '" + psa.name + "' Error: Request was interrupted - " + e.getMessage(), e);
-        } catch (Exception e) {
-            // Re-throw our own exceptions, wrap others
-            if (e.getMessage() != null && e.getMessage().startsWith("Post Survey Action")) {
-                throw e;
-            } else {
-                throw new Exception("Post Survey Action '" + psa.name + "' Error: Unexpected error - " + e.getMessage(), e);
-            }
+    @Timed(value = "survey.post.actions", description = "Time to queue post-survey actions", histogram = true)
+    public void PostSurveyActions(int respondentId) {
+        int queued = DatabaseRetryUtil.executeWithRetry(
+                () -> postSurveyActionOutbox.enqueue(respondentId),
+                "queueing post-survey actions for respondent " + respondentId
+        );
+        if (queued > 0) {
+            Log.debug("Queued " + queued + " post survey actions for respondent " + respondentId);
+            postSurveyActionDispatcher.wakeUp();
         }
     }
 }
@@ -0,0 +1,248 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Answer;
+import com.elicitsoftware.response.NavigationList;
+import com.elicitsoftware.response.ReviewResponse;
+import com.elicitsoftware.response.ReviewSection;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Keeps, per respondent, the data every page turn needs: the section questions the respondent
+ * already has an answer for, the navigation items and the review.
+ * <p>
+ * Entries are loaded lazily, in practice by the {@code init} that follows the login, and kept
+ * consistent by the {@link AnswerUnitOfWork}: when a transaction that wrote answers commits, new
+ * section questions are added, the section and step headers it changed are spliced into the
+ * navigation items, and the review is dropped. A transaction that rolls back after writing answers
+ * evicts the respondent, because what it loaded may include its own uncommitted rows.
+ * <p>
+ * Entries expire after {@code survey.respondent-cache.idle-timeout} without use, and the cache
+ * evicts the least used respondents when the estimated size of all entries exceeds
+ * {@code survey.respondent-cache.max-bytes}. Hits, misses and evictions of entries are published
+ * as {@code survey.respondent.cache} metrics, and loads of the parts of an entry as
+ * {@code survey.respondent.cache.loads}.
+ */
+@ApplicationScoped
+public class RespondentCache {
+
+    @ConfigProperty(name = "survey.respondent-cache.idle-timeout", defaultValue = "30m")
+    Duration idleTimeout;
+
+    @ConfigProperty(name = "survey.respondent-cache.max-bytes", defaultValue = "67108864")
+    long maxBytes;
+
+    private Cache<Integer, Entry> cache;
+
+    /**
+     * The cached data of one respondent. A null field has not been loaded yet. Every change
+     * increments the version, so a value loaded while a change committed is not stored.
+     */
+    private static final class Entry {
+        Set<Integer> answered;
+        NavigationList navigation;
+        ReviewResponse review;
+        long version;
+
+        /**
+         * A rough size in bytes, used to bound the heap used by the cache.
+         */
+        synchronized int weight() {
+            long bytes = 128;
+            if (answered != null) {
+                bytes += 32L * answered.size();
+            }
+            if (navigation != null) {
+                for (NavigationList.Entry entry : navigation.getEntries()) {
+                    bytes += 64 + 2L * (length(entry.name()) + length(entry.path()));
+                }
+            }
+            if (review != null) {
+                for (ReviewSection section : review.getSections()) {
+                    bytes += 64 + 2L * (length(section.getTitle()) + 64L * section.getItems().size());
+                }
+            }
+            return (int) Math.min(Integer.MAX_VALUE, bytes);
+        }
+
+        private static int length(String s) {
+            return s == null ? 0 : s.length();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumWeight(maxBytes)
+                .weigher((Integer respondentId, Entry entry) -> entry.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, "survey.respondent.cache");
+    }
+
+    /**
+     * Returns the section questions the respondent has an answer for, deleted or not, as of the
+     * last committed transaction.
+     *
+     * @param respondentId the respondent
+     * @param loader       loads the identifiers from the database
+     * @return an unmodifiable set of section question identifiers
+     */
+    public Set<Integer> getAnsweredSectionQuestionIds(int respondentId, Supplier<Set<Integer>> loader) {
+        Entry entry = entry(respondentId);
+        long version;
+        synchronized (entry) {
+            if (entry.answered != null) {
+                return entry.answered;
+            }
+            version = entry.version;
+        }
+        loaded("answered");
+        Set<Integer> answered = Collections.unmodifiableSet(new HashSet<>(loader.get()));
+        synchronized (entry) {
+            if (entry.version == version) {
+                entry.answered = answered;
+            }
+        }
+        reweigh(respondentId);
+        return answered;
+    }
+
+    /**
+     * Returns the respondent's navigation items as of the last committed transaction.
+     *
+     * @param respondentId the respondent
+     * @param loader       loads the items from the database
+     * @return the navigation items
+     */
+    public NavigationList getNavigation(int respondentId, Supplier<NavigationList> loader) {
+        Entry entry = entry(respondentId);
+        long version;
+        synchronized (entry) {
+            if (entry.navigation != null) {
+                return entry.navigation;
+            }
+            version = entry.version;
+        }
+        loaded("navigation");
+        NavigationList navigation = loader.get();
+        synchronized (entry) {
+            if (entry.version == version) {
+                entry.navigation = navigation;
+            }
+        }
+        reweigh(respondentId);
+        return navigation;
+    }
+
+    /**
+     * Returns the respondent's review as of the last committed transaction.
+     *
+     * @param respondentId the respondent
+     * @param loader       builds the review from the database
+     * @return the review
+     */
+    public ReviewResponse getReview(int respondentId, Supplier<ReviewResponse> loader) {
+        Entry entry = entry(respondentId);
+        long version;
+        synchronized (entry) {
+            if (entry.review != null) {
+                return entry.review;
+            }
+            version = entry.version;
+        }
+        loaded("review");
+        ReviewResponse review = loader.get();
+        synchronized (entry) {
+            if (entry.version == version) {
+                entry.review = review;
+            }
+        }
+        reweigh(respondentId);
+        return review;
+    }
+
+    /**
+     * Applies the answers a committed transaction wrote for a respondent.
+     *
+     * @param respondentId         the respondent
+     * @param sectionQuestionIds   the section questions that got a new answer
+     * @param headers              the section and step headers that were created, deleted or renamed
+     */
+    public void committed(int respondentId, Set<Integer> sectionQuestionIds, Collection<Answer> headers) {
+        Entry entry = cache.getIfPresent(respondentId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.version++;
+            if (entry.answered != null && !entry.answered.containsAll(sectionQuestionIds)) {
+                Set<Integer> answered = new HashSet<>(entry.answered);
+                answered.addAll(sectionQuestionIds);
+                entry.answered = Collections.unmodifiableSet(answered);
+            }
+            if (entry.navigation != null && !headers.isEmpty()) {
+                entry.navigation = entry.navigation.apply(headers, null);
+            }
+            entry.review = null;
+        }
+        reweigh(respondentId);
+    }
+
+    /**
+     * Drops everything cached for a respondent.
+     *
+     * @param respondentId the respondent
+     */
+    public void invalidate(int respondentId) {
+        Entry entry = cache.getIfPresent(respondentId);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.version++;
+            }
+        }
+        cache.invalidate(respondentId);
+    }
+
+    /**
+     * Counts a load of one part of an entry; the cache statistics count whole entries.
+     */
+    private void loaded(String data) {
+        Metrics.globalRegistry.counter("survey.respondent.cache.loads", "data", data).increment();
+    }
+
+    private Entry entry(int respondentId) {
+        return cache.get(respondentId, id -> new Entry());
+    }
+
+    /**
+     * Puts the entry back so the cache weighs it again after it grew.
+     */
+    private void reweigh(int respondentId) {
+        cache.asMap().computeIfPresent(respondentId, (id, entry) -> entry);
+    }
+}
@@ -0,0 +1,79 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the JDBC statements Hibernate prepares on the current thread while a count is running.
+ * <p>
+ * A batched insert is prepared once, so the count approximates database round trips rather
+ * than rows. Code that talks to JDBC directly, like {@link AnswerBatchWriter}, adds its own
+ * statements with {@link #add(int)}.
+ * <p>
+ * Counts nest: the statements of a count are also added to the count it interrupted, so a
+ * caller measuring a whole service call, like the load driver in the tests, sees the statements
+ * of the transactions inside it.
+ */
+@PersistenceUnitExtension
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    /**
+     * Starts a new count on this thread.
+     *
+     * @return the count that was running before, to hand back to {@link #stop(int[])}
+     */
+    public static int[] start() {
+        int[] previous = COUNT.get();
+        COUNT.set(new int[1]);
+        return previous;
+    }
+
+    /**
+     * Ends the current count and resumes the previous one, if any, adding the statements to it.
+     *
+     * @param previous the value returned by {@link #start()}
+     * @return the number of statements counted
+     */
+    public static int stop(int[] previous) {
+        int[] count = COUNT.get();
+        int statements = count == null ? 0 : count[0];
+        if (previous == null) {
+            COUNT.remove();
+        } else {
+            previous[0] += statements;
+            COUNT.set(previous);
+        }
+        return statements;
+    }
+
+    /**
+     * Adds statements that did not go through Hibernate to the running count.
+     *
+     * @param statements the number of statements executed
+     */
+    public static void add(int statements) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0] += statements;
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        add(1);
+        return sql;
+    }
+}
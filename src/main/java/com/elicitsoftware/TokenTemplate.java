@@ -0,0 +1,383 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A display text with {@code {TOKEN|default}} placeholders, parsed once and rendered many times.
+ * <p>
+ * The output is exactly what the original regex based implementation, kept as
+ * {@link #renderLegacy(String, TreeMap)}, produces. That implementation has a few surprising
+ * rules: a token without a default that has no value is left in the text without its closing brace,
+ * a default containing {@code |} keeps only the part after the last one, and every value key is
+ * searched as a substring of the whole text, not only of token names. The parsed form renders
+ * directly when the text and the values cannot trigger any of the substring rules, which is the
+ * case for virtually every survey text, and falls back to the legacy implementation otherwise.
+ * <p>
+ * Templates are cached by text, so each question text or section name is parsed once. The
+ * question and step instances are token values like any other, so every instance of a question
+ * shares one template.
+ */
+final class TokenTemplate {
+
+    /**
+     * Parsed templates by text. Texts come from survey definitions, so the cache only outgrows
+     * this bound when many surveys are in use; it is then simply started over.
+     */
+    private static final int CACHE_LIMIT = 10_000;
+    private static final ConcurrentHashMap<String, TokenTemplate> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Render buffer, reused by every render on a thread.
+     */
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private static final int BUFFER_LIMIT = 8192;
+
+    private final String text;
+
+    /**
+     * False when the text itself needs the legacy implementation.
+     */
+    private final boolean direct;
+
+    /**
+     * {@code literals[i]} is the text before token i; the last entry is the text after the last token.
+     */
+    private final String[] literals;
+
+    /**
+     * {@code prefixes[i]} is the text between the previous closing brace and token i.
+     */
+    private final String[] prefixes;
+
+    /**
+     * Index into {@link #names} of every token, in text order.
+     */
+    private final int[] tokens;
+
+    /**
+     * What every token renders as when it has no value.
+     */
+    private final String[] unmatched;
+
+    /**
+     * The distinct token names, the lookup table of the template.
+     */
+    private final String[] names;
+
+    /**
+     * Every literal and default, separated by a character no token key can contain.
+     */
+    private final String haystack;
+
+    /**
+     * Returns the template for a text, parsing it on first use.
+     *
+     * @param text the display text
+     * @return the parsed template
+     */
+    static TokenTemplate of(String text) {
+        TokenTemplate template = CACHE.get(text);
+        if (template == null) {
+            if (CACHE.size() >= CACHE_LIMIT) {
+                CACHE.clear();
+            }
+            template = new TokenTemplate(text);
+            CACHE.put(text, template);
+        }
+        return template;
+    }
+
+    private TokenTemplate(String text) {
+        this.text = text;
+
+        List<String> literalList = new ArrayList<>();
+        List<String> prefixList = new ArrayList<>();
+        List<Integer> tokenList = new ArrayList<>();
+        List<String> unmatchedList = new ArrayList<>();
+        Map<String, Integer> nameIndex = new LinkedHashMap<>();
+        StringBuilder hay = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        boolean ok = !hasLineTerminator(text);
+
+        // The legacy implementation works on the fragments between closing braces.
+        int start = 0;
+        while (ok && start <= text.length()) {
+            int end = text.indexOf('}', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            String fragment = text.substring(start, end);
+            start = end + 1;
+
+            int brace = fragment.indexOf('{');
+            if (brace < 0) {
+                literal.append(fragment);
+                hay.append(fragment).append('\0');
+                continue;
+            }
+            String prefix = fragment.substring(0, brace);
+            String rest = fragment.substring(brace + 1);
+            int bar = rest.indexOf('|');
+            String name = bar < 0 ? rest : rest.substring(0, bar);
+            // A second brace, a bar before the brace, or a name that would be found in its prefix
+            // first all change what the legacy replacements do.
+            if (rest.indexOf('{') >= 0 || prefix.indexOf('|') >= 0
+                    || (isKey(name) && (prefix + name).indexOf(name) != prefix.length())) {
+                ok = false;
+                break;
+            }
+            literal.append(prefix);
+            literalList.add(literal.toString());
+            literal.setLength(0);
+            prefixList.add(prefix);
+            tokenList.add(nameIndex.computeIfAbsent(name, n -> nameIndex.size()));
+            unmatchedList.add(bar < 0 ? "{" + name : rest.substring(rest.lastIndexOf('|') + 1));
+            hay.append(prefix).append('\0');
+            if (bar >= 0) {
+                hay.append(rest, bar + 1, rest.length()).append('\0');
+            }
+        }
+        literalList.add(literal.toString());
+
+        this.direct = ok;
+        this.literals = literalList.toArray(new String[0]);
+        this.prefixes = prefixList.toArray(new String[0]);
+        this.tokens = tokenList.stream().mapToInt(Integer::intValue).toArray();
+        this.unmatched = unmatchedList.toArray(new String[0]);
+        this.names = nameIndex.keySet().toArray(new String[0]);
+        this.haystack = hay.toString();
+    }
+
+    /**
+     * Renders the template with the given token values.
+     *
+     * @param values the token values by token name
+     * @return the display text
+     */
+    String render(TreeMap<String, String> values) {
+        if (!direct || !canRenderDirectly(values)) {
+            return renderLegacy(text, values);
+        }
+        StringBuilder sb = BUFFER.get();
+        if (sb.capacity() > BUFFER_LIMIT) {
+            sb = new StringBuilder(256);
+            BUFFER.set(sb);
+        }
+        sb.setLength(0);
+        for (int i = 0; i < tokens.length; i++) {
+            sb.append(literals[i]);
+            String value = values.get(names[tokens[i]]);
+            sb.append(value != null ? value : unmatched[i]);
+        }
+        sb.append(literals[tokens.length]);
+
+        // Every possessive fix below involves 's.
+        if (sb.indexOf("'s") < 0) {
+            return sb.toString();
+        }
+        return fixPossessives(sb.toString());
+    }
+
+    /**
+     * Checks that every value key found in the text is a plain token name that only occurs as
+     * a whole token name, and that the values used contain nothing the legacy implementation
+     * would process again.
+     */
+    private boolean canRenderDirectly(TreeMap<String, String> values) {
+        if (values.isEmpty()) {
+            return true;
+        }
+        for (String key : values.keySet()) {
+            if (key.isEmpty()) {
+                return false;
+            }
+            if (text.indexOf(key) < 0) {
+                continue;
+            }
+            if (!isKey(key) || haystack.contains(key) || !onlyWholeName(key)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < tokens.length; i++) {
+            String name = names[tokens[i]];
+            String value = values.get(name);
+            if (value == null) {
+                if (values.containsKey(name)) {
+                    return false;
+                }
+                continue;
+            }
+            if (!isPlainValue(value)) {
+                return false;
+            }
+            // After the substitution the legacy implementation searches the other keys in prefix + value.
+            for (String key : values.keySet()) {
+                if (value.contains(key) || spans(prefixes[i], value, key)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the key starts in {@code head} and ends in {@code tail}
+     */
+    private static boolean spans(String head, String tail, String key) {
+        for (int split = 1; split < key.length(); split++) {
+            if (split <= head.length() && key.length() - split <= tail.length()
+                    && head.regionMatches(head.length() - split, key, 0, split)
+                    && tail.regionMatches(0, key, split, key.length() - split)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the key occurs in token names only as a whole name
+     */
+    private boolean onlyWholeName(String key) {
+        for (String name : names) {
+            if (!name.equals(key) && name.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keys the legacy implementation uses as a regular expression must be literal. {@code #} is
+     * literal too, for the {@code Q#} and {@code S#} instance tokens.
+     */
+    private static boolean isKey(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '#')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Values the legacy implementation uses as a regex replacement or parses again must not be
+     * rendered directly.
+     */
+    private static boolean isPlainValue(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            switch (s.charAt(i)) {
+                case '{', '}', '|', '$', '\\', '\n', '\r', '\u0085', '\u2028', '\u2029':
+                    return false;
+                default:
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The characters a regex {@code .} does not match.
+     */
+    private static boolean hasLineTerminator(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            switch (s.charAt(i)) {
+                case '\n', '\r', '\u0085', '\u2028', '\u2029':
+                    return true;
+                default:
+            }
+        }
+        return false;
+    }
+
+    private static String fixPossessives(String text) {
+        // Until I can come up with a better solution to this problem I'll
+        // force it here. I know this is a hack.
+        text = text.replace(" her's ", " her ");
+        text = text.replace(" his's ", " his ");
+        text = text.replace(" Your's ", " Your ");
+
+        // Lastly replace any s's with s' this if for names like Dennis as in
+        // what is Dennis'name
+        return text.replace("s's", "s'");
+    }
+
+    /**
+     * The original token replacement, used for texts and values the parsed form does not cover.
+     *
+     * @param text   the input string containing tokens to be replaced
+     * @param values the token values by token name
+     * @return the resulting string after replacing all specified tokens and applying formatting adjustments
+     */
+    static String renderLegacy(String text, TreeMap<String, String> values) {
+
+        // Split the string into parts
+        String[] displayText = text.split("}");
+
+        if (!values.isEmpty()) {
+            // Replace all the Token values
+            for (String key : values.keySet()) {
+                for (int i = 0; i < displayText.length; i++) {
+                    String string = displayText[i];
+                    if (string.contains(key)) {
+                        string = string.replaceFirst("\\{", "");
+                        string = string.replaceFirst("\\|.*", "");
+                        string = string.replaceFirst(key, values.get(key));
+                    }
+                    if (string.contains("}")) {
+                        string = renderLegacy(string, values);
+                    }
+                    displayText[i] = string;
+                }
+            }
+        }
+
+        for (int i = 0; i < displayText.length; i++) {
+            String string = displayText[i];
+
+            // Remove any tokens values that were not passed, leaving the
+            // default
+            // part
+            // of the text
+            string = string.replaceAll("\\{.*\\|", "");
+            displayText[i] = string;
+        }
+
+        // Rebuild the sting from its parts
+        StringBuilder textBuilder = new StringBuilder();
+        for (String s : displayText) {
+            textBuilder.append(s);
+        }
+        text = textBuilder.toString();
+
+        // Until I can come up with a better solution to this problem I'll
+        // force it here. I know this is a hack.
+        text = text.replace(" her's ", " her ");
+        text = text.replace(" his's ", " his ");
+        text = text.replace(" Your's ", " Your ");
+
+        // Lastly replace any s's with s' this if for names like Dennis as in
+        // what is Dennis'name
+        text = text.replaceAll("s's", "s'");
+
+        return text;
+    }
+}
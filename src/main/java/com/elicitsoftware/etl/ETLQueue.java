@@ -0,0 +1,234 @@
+package com.elicitsoftware.etl;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code survey.etl_queue} table of finalized respondents waiting to be loaded into the
+ * reporting tables by the {@link ETLWorker}.
+ * <p>
+ * Claims use {@code FOR UPDATE SKIP LOCKED} and push the claimed rows out by a lease in a short
+ * transaction of their own, so several nodes can drain the queue without loading the same
+ * respondent twice, and the load itself runs without holding the row locks. Rows are PENDING
+ * until they are loaded and deleted, or FAILED once the {@link ETLWorker} gives up on them.
+ */
+@ApplicationScoped
+public class ETLQueue {
+
+    /**
+     * The length of {@code etl_queue.error_msg}.
+     */
+    static final int MAX_ERROR_LENGTH = 255;
+
+    static final String ENQUEUE_SQL = """
+            INSERT INTO survey.etl_queue (respondent_id)
+            VALUES (:respondentId)
+            ON CONFLICT (respondent_id) DO UPDATE
+            SET queued_dt = CURRENT_TIMESTAMP, next_attempt_dt = CURRENT_TIMESTAMP, tries = 0, error_msg = NULL,
+                status = 'PENDING'
+            """;
+
+    static final String ENQUEUE_BACKLOG_SQL = "INSERT INTO survey.etl_queue (respondent_id) "
+            + Sql.FIND_MISSING_FACT_SECTION_RESPONDENTS + " ON CONFLICT (respondent_id) DO NOTHING";
+
+    static final String CLAIM_SQL = """
+            UPDATE survey.etl_queue q
+            SET tries = q.tries + 1, next_attempt_dt = CURRENT_TIMESTAMP + make_interval(secs => :leaseSeconds)
+            WHERE q.respondent_id IN (SELECT d.respondent_id FROM survey.etl_queue d
+                                      WHERE d.status = 'PENDING' AND d.next_attempt_dt <= CURRENT_TIMESTAMP
+                                      ORDER BY d.queued_dt
+                                      LIMIT :limit
+                                      FOR UPDATE SKIP LOCKED)
+            RETURNING q.respondent_id, q.queued_dt, q.tries
+            """;
+
+    /**
+     * Only removes the row if the respondent was not queued again during the load.
+     */
+    static final String COMPLETE_SQL = """
+            DELETE FROM survey.etl_queue
+            WHERE respondent_id = :respondentId AND queued_dt = :queuedDt
+            """;
+
+    static final String RETRY_SQL = """
+            UPDATE survey.etl_queue
+            SET error_msg = :error, next_attempt_dt = CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds)
+            WHERE respondent_id = :respondentId AND queued_dt = :queuedDt
+            """;
+
+    static final String FAIL_SQL = """
+            UPDATE survey.etl_queue
+            SET status = 'FAILED', error_msg = :error
+            WHERE respondent_id = :respondentId AND queued_dt = :queuedDt
+            """;
+
+    static final String STATUS_SQL = """
+            SELECT count(*) FILTER (WHERE status = 'PENDING'),
+                   EXTRACT(EPOCH FROM CURRENT_TIMESTAMP - min(queued_dt) FILTER (WHERE status = 'PENDING')),
+                   count(*) FILTER (WHERE status = 'FAILED')
+            FROM survey.etl_queue
+            """;
+
+    @PersistenceContext(unitName = "owner")
+    EntityManager entityManager;
+
+    /**
+     * A claimed respondent.
+     *
+     * @param respondentId the respondent to load
+     * @param queuedDt     when the respondent was queued, to recognize a newer finalize
+     * @param tries        the tries including this one
+     */
+    public record Claim(int respondentId, OffsetDateTime queuedDt, int tries) {
+    }
+
+    /**
+     * The size of the queue.
+     *
+     * @param size       the respondents waiting
+     * @param lagSeconds the age of the oldest one, 0 when the queue is empty
+     * @param failed     the respondents that failed every try
+     */
+    public record Status(long size, double lagSeconds, long failed) {
+    }
+
+    /**
+     * Queues a finalized respondent, or queues it again if it is already waiting.
+     *
+     * @param respondentId the finalized respondent
+     */
+    @Transactional
+    public void enqueue(int respondentId) {
+        entityManager.createNativeQuery(ENQUEUE_SQL)
+                .setParameter("respondentId", respondentId)
+                .executeUpdate();
+    }
+
+    /**
+     * Queues every finalized respondent that has no facts yet, e.g. after the reporting tables
+     * were rebuilt.
+     *
+     * @return the number of respondents queued
+     */
+    @Transactional
+    public int enqueueBacklog() {
+        return entityManager.createNativeQuery(ENQUEUE_BACKLOG_SQL).executeUpdate();
+    }
+
+    /**
+     * Claims due respondents in a transaction of its own, oldest first.
+     *
+     * @param limit the most respondents to claim
+     * @param lease how long claimed respondents stay hidden from other workers
+     * @return the claimed respondents
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public List<Claim> claim(int limit, Duration lease) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(CLAIM_SQL)
+                .setParameter("leaseSeconds", (double) lease.toSeconds())
+                .setParameter("limit", limit)
+                .getResultList();
+        List<Claim> claims = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            claims.add(new Claim(((Number) row[0]).intValue(), toOffsetDateTime(row[1]),
+                    ((Number) row[2]).intValue()));
+        }
+        return claims;
+    }
+
+    /**
+     * Removes loaded respondents from the queue.
+     *
+     * @param claims the respondents
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void complete(List<Claim> claims) {
+        for (Claim claim : claims) {
+            entityManager.createNativeQuery(COMPLETE_SQL)
+                    .setParameter("respondentId", claim.respondentId())
+                    .setParameter("queuedDt", claim.queuedDt())
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Records a failed load, which is tried again after the delay.
+     *
+     * @param claim the respondent
+     * @param error the failure
+     * @param delay the time until the next try
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void retry(Claim claim, String error, Duration delay) {
+        entityManager.createNativeQuery(RETRY_SQL)
+                .setParameter("respondentId", claim.respondentId())
+                .setParameter("queuedDt", claim.queuedDt())
+                .setParameter("error", truncate(error))
+                .setParameter("delaySeconds", delay.toMillis() / 1000.0)
+                .executeUpdate();
+    }
+
+    /**
+     * Records a failed load that is not tried again until the respondent is finalized again.
+     *
+     * @param claim the respondent
+     * @param error the failure
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void fail(Claim claim, String error) {
+        entityManager.createNativeQuery(FAIL_SQL)
+                .setParameter("respondentId", claim.respondentId())
+                .setParameter("queuedDt", claim.queuedDt())
+                .setParameter("error", truncate(error))
+                .executeUpdate();
+    }
+
+    /**
+     * @return the size of the queue, the age of its oldest waiting respondent and the failed ones
+     */
+    @Transactional
+    public Status status() {
+        Object[] row = (Object[]) entityManager.createNativeQuery(STATUS_SQL).getSingleResult();
+        return new Status(((Number) row[0]).longValue(), row[1] == null ? 0 : ((Number) row[1]).doubleValue(),
+                ((Number) row[2]).longValue());
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Object value) {
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime;
+        }
+        if (value instanceof Instant instant) {
+            return instant.atOffset(ZoneOffset.UTC);
+        }
+        return ((Timestamp) value).toInstant().atOffset(ZoneOffset.UTC);
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -11,14 +11,26 @@ package com.elicitsoftware.etl;
  * ***LICENSE_END***
  */
 
-import com.vaadin.quarkus.annotation.NormalUIScoped;
+import com.elicitsoftware.StatementCounter;
+import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
-
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * The ETLService class is responsible for performing Extract, Transform, and Load (ETL) operations
@@ -39,8 +51,11 @@ import java.util.List;
  * <p>
  * Many methods utilize native SQL queries for database interactions and are designed to maintain
  * transactional consistency.
+ * <p>
+ * Respondents are loaded by the {@link ETLWorker}, several at a time, so the service keeps no
+ * state between calls.
  */
-@NormalUIScoped
+@ApplicationScoped
 public class ETLRespondentService {
 
     @PersistenceContext(unitName = "owner")
@@ -64,13 +79,28 @@ public class ETLRespondentService {
         return facts + System.lineSeparator() + dim + System.lineSeparator();
     }
 
+    /**
+     * Populates the fact section table for several respondents in one transaction.
+     *
+     * @param respondentIds the respondents to load
+     * @return the combined summaries of {@link #populateFactSectionTable(Integer)}
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public String populateFactSectionTables(List<Integer> respondentIds) {
+        StringBuilder summary = new StringBuilder();
+        for (Integer respondentId : respondentIds) {
+            summary.append(populateFactSectionTable(respondentId));
+        }
+        return summary.toString();
+    }
+
     /**
      * Populates the dimension tables with values associated with the specified respondent ID.
-     * Queries for dimension values using the provided respondent ID, processes the results,
-     * and inserts them into the appropriate dimension tables.
+     * Queries for dimension values using the provided respondent ID, groups them by dimension
+     * table and inserts the new values of each table with a single statement.
      *
      * @param respondentId the ID of the respondent whose dimension values are to be populated
-     * @return a message indicating the number of dimension tables populated
+     * @return a message indicating the number of dimension values populated
      */
     @SuppressWarnings("unchecked")
     @Transactional
@@ -78,12 +108,22 @@ public class ETLRespondentService {
         Query query = entityManager.createNativeQuery(Sql.FIND_DIMENSTION_VALUES_SQL);
         query.setParameter("respondentId", respondentId);
         List<Object[]> results = query.getResultList();
+        // Sorted, so concurrent loads insert overlapping values in the same order and do not
+        // deadlock on the unique index.
+        Map<String, SortedSet<String>> valuesByDimension = new TreeMap<>();
         for (Object[] result : results) {
             String dimension = (String) result[0];
             String value = (String) result[1];
-            insertDimensionValue(dimension, value);
+            if (value != null) {
+                valuesByDimension.computeIfAbsent(dimension, d -> new TreeSet<>()).add(value);
+            }
         }
-        return "Populated Dimesions tables = " + results.size();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            for (Map.Entry<String, SortedSet<String>> entry : valuesByDimension.entrySet()) {
+                insertDimensionValues(connection, entry.getKey(), entry.getValue());
+            }
+        });
+        return "Populated Dimesions tables = " + valuesByDimension.size() + " with " + results.size() + " values";
     }
 
     /**
@@ -101,24 +141,26 @@ public class ETLRespondentService {
     }
 
     /**
-     * Inserts a value into a specified dimension table in the database.
-     * Constructs a SQL statement using the provided dimension and value,
-     * executes the query, and returns the number of records updated.
+     * Inserts the values into a dimension table that does not have them yet, binding the values
+     * as one array parameter.
      *
-     * @param dim   the name of the dimension table where the value will be inserted
-     * @param value the value to be inserted into the dimension table
-     * @return the number of rows affected by the insert operation
+     * @param connection the connection of the current transaction
+     * @param dim        the name of the dimension table where the values will be inserted
+     * @param values     the values to be inserted into the dimension table
+     * @return the number of rows inserted
      */
-    private int insertDimensionValue(String dim, String value) {
-        String sql = Sql.INSERT_INTO_DIMENSION.replaceAll("<DIM>", dim).replaceAll("<VAL>", value.replaceAll("'", "''"));
-        Query query = entityManager.createNativeQuery(sql);
-        return query.executeUpdate();
+    private int insertDimensionValues(Connection connection, String dim, Collection<String> values) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(Sql.INSERT_INTO_DIMENSION.replace("<DIM>", dim))) {
+            ps.setArray(1, connection.createArrayOf("varchar", values.toArray()));
+            StatementCounter.add(1);
+            return ps.executeUpdate();
+        }
     }
 
-
     /**
      * Adds fact sections for the specified respondent, initializing them with missing fact section data
-     * and updating their dimensions and values based on predefined SQL queries.
+     * and updating their dimensions and values based on predefined SQL queries. Every dimension
+     * column is set for all of the respondent's fact sections with a single statement.
      *
      * @param respondent_id the unique identifier of the respondent for whom fact sections are being added
      * @return the total count of fact section updates made as a String
@@ -136,28 +178,51 @@ public class ETLRespondentService {
         query.setParameter("respondent_id", respondent_id);
         List<Object[]> queryResults = query.getResultList();
 
-        Query updateFactQuery;
-        int item = 1;
-        String key;
-        String dim;
-        String val;
-        Integer fact_id;
+        Map<FactColumn, FactValues> valuesByColumn = new TreeMap<>(
+                Comparator.comparing(FactColumn::key).thenComparing(FactColumn::dim));
         for (Object[] result : queryResults) {
-            key = (String) result[0];
-            dim = (String) result[1];
-            val = (String) result[2];
-            fact_id = (Integer) result[3];
-
-            String sql = Sql.UPDATE_FACT_SECTION_DIMENSION_VALUE_SQL;
-            sql = sql.replace("<KEY>", key);
-            sql = sql.replaceAll("<DIM>", dim);
-            sql = sql.replaceAll("<VAL>", val);
-            sql = sql.replaceAll("<FACT_ID>", String.valueOf(fact_id));
-            sql = sql.replaceAll("<RESPONDENT_ID>", String.valueOf(respondent_id));
-            updateFactQuery = entityManager.createNativeQuery(sql);
-            updateFactQuery.executeUpdate();
-            item++;
+            FactColumn column = new FactColumn((String) result[0], (String) result[1]);
+            FactValues values = valuesByColumn.computeIfAbsent(column, c -> new FactValues());
+            values.factIds.add((Integer) result[3]);
+            values.values.add((String) result[2]);
+        }
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            for (Map.Entry<FactColumn, FactValues> entry : valuesByColumn.entrySet()) {
+                updateFactColumn(connection, respondent_id, entry.getKey(), entry.getValue());
+            }
+        });
+        return String.valueOf(queryResults.size() + 1);
+    }
+
+    /**
+     * Sets one dimension column of the respondent's fact sections to the ids of the matching
+     * dimension values, binding the fact ids and values as two array parameters.
+     */
+    private int updateFactColumn(Connection connection, Integer respondentId, FactColumn column, FactValues values) throws SQLException {
+        String sql = Sql.UPDATE_FACT_SECTION_DIMENSION_VALUE_SQL
+                .replace("<KEY>", column.key())
+                .replace("<DIM>", column.dim());
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setArray(1, connection.createArrayOf("integer", values.factIds.toArray()));
+            ps.setArray(2, connection.createArrayOf("varchar", values.values.toArray()));
+            ps.setInt(3, respondentId);
+            StatementCounter.add(1);
+            return ps.executeUpdate();
         }
-        return String.valueOf(item);
+    }
+
+    /**
+     * A dimension column of fact_sections and the dimension table its ids come from.
+     */
+    private record FactColumn(String key, String dim) {
+    }
+
+    /**
+     * The fact sections of a respondent and the dimension value each of them gets.
+     */
+    private static final class FactValues {
+        final List<Integer> factIds = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
     }
 }
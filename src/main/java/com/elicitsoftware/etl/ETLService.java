@@ -15,6 +15,7 @@ import com.elicitsoftware.util.DatabaseRetryUtil;
 import io.quarkus.logging.Log;
 import io.quarkus.runtime.Startup;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
@@ -35,7 +36,8 @@ import java.util.List;
  * - REPORT_USER: Specifies the database user performing ETL tasks, often used in SQL scripts.
  * <p>
  * Methods include:
- * - Initialization of the ETL process during application startup.
+ * - Initialization of the ETL process during application startup, which starts the
+ *   {@link ETLWorker} that backfills the finalized respondents missing from the fact tables.
  * - Updating and building dimension tables and fact sections in the database.
  * - Managing new respondents and their associated data.
  * - Building and updating database views for reporting purposes.
@@ -49,9 +51,15 @@ public class ETLService {
     @PersistenceContext(unitName = "owner")
     EntityManager entityManager;
 
+    @Inject
+    ETLWorker etlWorker;
+
     @ConfigProperty(name = "quarkus.flyway.owner.placeholders.surveyreport_user", defaultValue = "surveyreport_user")
     String REPORT_USER;
 
+    @ConfigProperty(name = "survey.etl.materialized-view", defaultValue = "false")
+    boolean materializedView;
+
     @ConfigProperty(name = "quarkus.flyway.owner.placeholders.survey_user", defaultValue = "survey_user")
     String SURVEY_USER;
 
@@ -78,8 +86,12 @@ public class ETLService {
             Log.info("Build Dimension Tables: " + buildFactSectionView());
         } else {
             Log.info("ETL Service Init found records in surveyreport.dim_section, No initialization needed.");
+            if (isFactSectionViewMaterialized() != materializedView) {
+                Log.info("Rebuild Fact Sections View: " + buildFactSectionView());
+            }
         }
-        populateAllFactSectionsTable();
+        // The worker backfills the finalized respondents missing from fact_sections in the background.
+        etlWorker.start();
     }
 
     /**
@@ -149,151 +161,6 @@ public class ETLService {
         }, "building dimension table for " + dimensionName);
     }
 
-    /**
-     * Populates the "Fact Sections" table for all missing respondents.
-     * <p>
-     * This method retrieves a list of respondents with missing fact section data using
-     * a predefined SQL query. It iterates over the list of respondent IDs, processes
-     * each respondent by populating their fact section data, and logs progress and
-     * results for each operation.
-     * <p>
-     * The SQL query to find the missing fact section respondents is defined in the
-     * Sql.FIND_MISSING_FACT_SECTION_RESPONDENTS constant.
-     * <p>
-     * For each respondent ID in the result list, the method:
-     * 1. Logs the progress of the operation, indicating the current step and total respondents to process.
-     * 2. Invokes the populateFactSectionTable method to populate the fact section data for the given respondent ID.
-     * 3. Logs the result of the population operation for each respondent.
-     */
-    private void populateAllFactSectionsTable() {
-
-        Query respondentsQuery = entityManager.createNativeQuery(Sql.FIND_MISSING_FACT_SECTION_RESPONDENTS);
-        @SuppressWarnings("unchecked")
-        List<Object> respondents = respondentsQuery.getResultList();
-        int r = 1;
-        Integer id;
-        for (Object respondent_id : respondents) {
-            id = (Integer) respondent_id;
-            Log.info("progress " + r + " of " + respondents.size());
-            Log.info(populateFactSectionTable(id));
-            r++;
-        }
-    }
-
-    /**
-     * Populates the fact section table for a given respondent by combining dimension data
-     * and section facts related to the respondent.
-     *
-     * @param respondentId the unique identifier of the respondent for which the fact section
-     *                     table will be populated.
-     * @return a combined string summarizing the results of populating the dimension tables
-     * and saving the section facts for the specified respondent.
-     */
-    public String populateFactSectionTable(Integer respondentId) {
-        String dim = populateDimensionTables(respondentId);
-        String facts = saveSectionFacts(respondentId);
-        return facts + System.lineSeparator() + dim + System.lineSeparator();
-    }
-
-    /**
-     * Populates the dimension tables with values associated with the specified respondent ID.
-     * Queries for dimension values using the provided respondent ID, processes the results,
-     * and inserts them into the appropriate dimension tables.
-     *
-     * @param respondentId the ID of the respondent whose dimension values are to be populated
-     * @return a message indicating the number of dimension tables populated
-     */
-    @Transactional
-    public String populateDimensionTables(Integer respondentId) {
-        return DatabaseRetryUtil.executeWithRetry(() -> {
-            Query query = entityManager.createNativeQuery(Sql.FIND_DIMENSTION_VALUES_SQL);
-            query.setParameter("respondentId", respondentId);
-            @SuppressWarnings("unchecked")
-            List<Object[]> results = query.getResultList();
-            for (Object[] result : results) {
-                String dimension = (String) result[0];
-                String value = (String) result[1];
-                insertDimensionValue(dimension, value);
-            }
-            return "Populated Dimesions tables = " + results.size();
-        }, "populating dimension tables for respondent " + respondentId);
-    }
-
-    /**
-     * Saves the section facts for a given respondent by adding them to the fact_sections table.
-     * It associates the provided respondent identifier with specific fact sections and
-     * returns a confirmation message including the number of keys processed.
-     *
-     * @param respondentId the ID of the respondent for whom the section facts are saved
-     * @return a string message indicating that the respondent has been added to the fact_sections table and
-     * showing the number of keys associated with the respondent
-     */
-    private String saveSectionFacts(Integer respondentId) {
-        return "Addeded respondent " + respondentId + " to fact_sections:" + System.lineSeparator() +
-                respondentId + ": " + addRespondentFactSections(respondentId) + " keys";
-    }
-
-    /**
-     * Inserts a value into a specified dimension table in the database.
-     * Constructs a SQL statement using the provided dimension and value,
-     * executes the query, and returns the number of records updated.
-     *
-     * @param dim   the name of the dimension table where the value will be inserted
-     * @param value the value to be inserted into the dimension table
-     * @return the number of rows affected by the insert operation
-     */
-    private int insertDimensionValue(String dim, String value) {
-        String sql = Sql.INSERT_INTO_DIMENSION.replaceAll("<DIM>", dim).replaceAll("<VAL>", value.replaceAll("'", "''"));
-        Query query = entityManager.createNativeQuery(sql);
-        return query.executeUpdate();
-    }
-
-
-    /**
-     * Adds fact sections for the specified respondent, initializing them with missing fact section data
-     * and updating their dimensions and values based on predefined SQL queries.
-     *
-     * @param respondent_id the unique identifier of the respondent for whom fact sections are being added
-     * @return the total count of fact section updates made as a String
-     */
-    @Transactional
-    public String addRespondentFactSections(Integer respondent_id) {
-
-        //Add the base fact rows without the dimensional data
-        Query factSectionQuery = entityManager.createNativeQuery(Sql.INSERT_MISSING_FACT_SECTION_SQL);
-        factSectionQuery.setParameter("respondent_id", respondent_id);
-        factSectionQuery.executeUpdate();
-
-        Query query = entityManager.createNativeQuery(Sql.FIND_MISSING_FACT_SECTION_DIMENSIONS_SQL);
-        query.setParameter("respondent_id", respondent_id);
-        @SuppressWarnings("unchecked")
-        List<Object[]> queryResults = query.getResultList();
-
-        Query updateFactQuery;
-        int item = 1;
-        String key;
-        String dim;
-        String val;
-        Integer fact_id;
-        for (Object[] result : queryResults) {
-            key = (String) result[0];
-            dim = (String) result[1];
-            val = (String) result[2];
-            fact_id = (Integer) result[3];
-
-            String sql = Sql.UPDATE_FACT_SECTION_DIMENSION_VALUE_SQL;
-            sql = sql.replace("<KEY>", key);
-            sql = sql.replaceAll("<DIM>", dim);
-            sql = sql.replaceAll("<VAL>", val);
-            sql = sql.replaceAll("<FACT_ID>", String.valueOf(fact_id));
-            sql = sql.replaceAll("<RESPONDENT_ID>", String.valueOf(respondent_id));
-            updateFactQuery = entityManager.createNativeQuery(sql);
-            updateFactQuery.executeUpdate();
-            item++;
-        }
-        return String.valueOf(item);
-    }
-
     /**
      * Builds the fact section table by identifying and adding necessary dimension columns.
      * Executes a native SQL query to retrieve dimensions to add to the fact sections table.
@@ -341,10 +208,12 @@ public class ETLService {
      * of the generated SQL statements.
      * <p>
      * The method performs the following steps:
-     * 1. Drops the existing view if it exists.
+     * 1. Drops the existing view if it exists, whether it is materialized or not.
      * 2. Constructs a SELECT and FROM clause based on database content.
      * 3. Iterates through result columns to dynamically generate SQL join clauses.
-     * 4. Executes the constructed SQL to create the view and apply necessary grants.
+     * 4. Executes the constructed SQL to create the view and apply necessary grants. With
+     *    {@code survey.etl.materialized-view} the view is materialized, with the unique index
+     *    {@link #refreshFactSectionView()} needs.
      * 5. Handles errors related to possible dependencies by logging relevant information.
      *
      * @return A string representation of the SQL query used to create the fact section view.
@@ -354,9 +223,11 @@ public class ETLService {
     public String buildFactSectionView() {
 
         try {
-            Query dropQuery = entityManager.createNativeQuery(Sql.DROP_SECTION_VIEW_SQL);
+            Query dropQuery = entityManager.createNativeQuery(isFactSectionViewMaterialized()
+                    ? Sql.DROP_SECTION_MATERIALIZED_VIEW_SQL : Sql.DROP_SECTION_VIEW_SQL);
             dropQuery.executeUpdate();
-            StringBuilder selectSQL = new StringBuilder(Sql.FACT_SECTION_VIEW_SELECT_SQL);
+            StringBuilder selectSQL = new StringBuilder(materializedView
+                    ? Sql.FACT_SECTION_MATERIALIZED_VIEW_SELECT_SQL : Sql.FACT_SECTION_VIEW_SELECT_SQL);
             StringBuilder fromSQL = new StringBuilder(Sql.FACT_SECTION_VIEW_FROM_SQL);
 
             Query query = entityManager.createNativeQuery(Sql.FIND_FACT_SECTION_JOIN_COLUMNS);
@@ -374,6 +245,9 @@ public class ETLService {
             String grantReportUser = Sql.FACT_SECTIONS_VIEW_GRANT_CLAUSE_SQL.replace("<REPORT_USER>", REPORT_USER);
             String grantSurveyUser = Sql.FACT_SECTIONS_VIEW_GRANT_CLAUSE_SQL.replace("<REPORT_USER>", SURVEY_USER);
             createSQL = createSQL + fromSQL + "); " + grantReportUser + grantSurveyUser;
+            if (materializedView) {
+                createSQL = createSQL + Sql.FACT_SECTION_MATERIALIZED_VIEW_INDEX_SQL + Sql.RECORD_SECTION_VIEW_REFRESH_SQL;
+            }
             Query query2 = entityManager.createNativeQuery(createSQL);
             query2.executeUpdate();
 
@@ -385,6 +259,35 @@ public class ETLService {
         }
     }
 
+    /**
+     * @return true if fact_sections_view is currently a materialized view
+     */
+    public boolean isFactSectionViewMaterialized() {
+        Query query = entityManager.createNativeQuery(Sql.FIND_SECTION_MATERIALIZED_VIEW_SQL);
+        return ((Number) query.getSingleResult()).longValue() > 0;
+    }
+
+    /**
+     * Refreshes the materialized fact_sections_view without blocking its readers and records the
+     * refresh in {@code surveyreport.fact_sections_view_refresh}. Its {@code complete_dt} is the
+     * earliest finalized time of the respondents still waiting in the {@link ETLQueue}, or the
+     * refresh time when none are, so every respondent finalized before it is in the view. When
+     * another node is refreshing the view already, this one does not wait for it.
+     *
+     * @return true if the view was refreshed, false if another refresh was running
+     */
+    @Transactional
+    public boolean refreshFactSectionView() {
+        Query lock = entityManager.createNativeQuery(Sql.TRY_LOCK_SECTION_VIEW_REFRESH_SQL);
+        if (!(Boolean) lock.getSingleResult()) {
+            return false;
+        }
+        // Recorded before the refresh, so complete_dt never claims more than the refresh sees.
+        entityManager.createNativeQuery(Sql.RECORD_SECTION_VIEW_REFRESH_SQL).executeUpdate();
+        entityManager.createNativeQuery(Sql.REFRESH_SECTION_VIEW_SQL).executeUpdate();
+        return true;
+    }
+
     /**
      * Builds the `fact_respondents_view` database view by executing a SQL script
      * that replaces a placeholder for the report user. The SQL script is defined
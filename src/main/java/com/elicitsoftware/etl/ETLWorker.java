@@ -0,0 +1,353 @@
+package com.elicitsoftware.etl;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads the respondents queued in the {@link ETLQueue} into the reporting tables in the
+ * background, so finalizing a respondent does not wait for the ETL.
+ * <p>
+ * One virtual thread polls the queue every {@code survey.etl.poll-interval}, or right away after
+ * {@link #wakeUp()}, and claims up to {@code survey.etl.batch-size} due respondents. The batch is
+ * split into chunks of {@code survey.etl.chunk-size} respondents that are loaded in one transaction
+ * each, on virtual threads, at most {@code survey.etl.workers} at a time, which has to stay below
+ * the size of the owner datasource pool. When a chunk fails its respondents are loaded one by one,
+ * and a respondent that still fails stays queued with its error and is tried again after
+ * {@code survey.etl.retry-delay}, until it failed {@code survey.etl.max-tries} times. It then
+ * stays in the queue as FAILED, out of the ETL lag, until it is finalized again.
+ * <p>
+ * The worker is started by {@link ETLService} once the reporting tables exist. Its first poll
+ * queues the respondents finalized without facts, e.g. after the reporting tables were rebuilt,
+ * so this backfill drains through the same path without holding up startup, and resumes from the
+ * queue after a restart. Backfill progress is logged after every batch.
+ * <p>
+ * Every chunk is timed as {@code survey.etl.load}, tagged with the outcome, and the respondents
+ * loaded are counted as {@code survey.etl.respondents}. The queue is published as
+ * {@code survey.etl.queue.size} and the age of its oldest respondent, the ETL lag, as
+ * {@code survey.etl.lag} in seconds, and the failed respondents as
+ * {@code survey.etl.queue.failed}. Respondents queued by the backfill are counted as
+ * {@code survey.etl.backfill.queued}.
+ * <p>
+ * With {@code survey.etl.materialized-view} the worker also refreshes the materialized
+ * fact_sections_view, once {@code survey.etl.view-refresh-after} respondents were loaded or
+ * {@code survey.etl.view-refresh-interval} passed since the last refresh with respondents loaded
+ * in between. Refreshes are timed as {@code survey.etl.view.refresh}, and
+ * {@code survey.etl.view.staleness} is the age in seconds of the oldest load the view does not
+ * show yet, 0 when it is up to date.
+ */
+@ApplicationScoped
+public class ETLWorker {
+
+    @ConfigProperty(name = "survey.etl.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "survey.etl.workers", defaultValue = "4")
+    int workers;
+
+    @ConfigProperty(name = "survey.etl.batch-size", defaultValue = "50")
+    int batchSize;
+
+    @ConfigProperty(name = "survey.etl.chunk-size", defaultValue = "10")
+    int chunkSize;
+
+    @ConfigProperty(name = "survey.etl.poll-interval", defaultValue = "5s")
+    Duration pollInterval;
+
+    @ConfigProperty(name = "survey.etl.lease", defaultValue = "10m")
+    Duration lease;
+
+    @ConfigProperty(name = "survey.etl.retry-delay", defaultValue = "1m")
+    Duration retryDelay;
+
+    @ConfigProperty(name = "survey.etl.max-tries", defaultValue = "10")
+    int maxTries;
+
+    @ConfigProperty(name = "survey.etl.materialized-view", defaultValue = "false")
+    boolean materializedView;
+
+    @ConfigProperty(name = "survey.etl.view-refresh-interval", defaultValue = "15m")
+    Duration viewRefreshInterval;
+
+    @ConfigProperty(name = "survey.etl.view-refresh-after", defaultValue = "500")
+    int viewRefreshAfter;
+
+    @Inject
+    ETLQueue queue;
+
+    @Inject
+    ETLRespondentService etlRespondentService;
+
+    @Inject
+    ETLService etlService;
+
+    private final BlockingQueue<Boolean> wakeUps = new ArrayBlockingQueue<>(1);
+    private final AtomicLong queueSize = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong loadedSinceRefresh = new AtomicLong();
+    private final AtomicLong staleSinceMillis = new AtomicLong();
+    private long lastRefreshMillis;
+    private boolean backlogQueued;
+    private long backfillTotal;
+    private long backfillRemaining;
+    private Semaphore freeWorkers;
+    private ExecutorService executor;
+    private Thread poller;
+    private volatile boolean running;
+
+    /**
+     * Starts polling the queue, unless the worker is disabled or already running.
+     */
+    synchronized void start() {
+        if (!enabled) {
+            Log.info("ETL worker is disabled");
+            return;
+        }
+        if (running) {
+            return;
+        }
+        Gauge.builder("survey.etl.queue.size", queueSize, AtomicLong::get)
+                .description("Finalized respondents waiting for the ETL")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("survey.etl.lag", lagMillis, millis -> millis.get() / 1000.0)
+                .description("Seconds the oldest queued respondent has waited for the ETL")
+                .baseUnit("seconds")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("survey.etl.queue.failed", failed, AtomicLong::get)
+                .description("Queued respondents the ETL gave up on after the maximum number of tries")
+                .register(Metrics.globalRegistry);
+        if (materializedView) {
+            Gauge.builder("survey.etl.view.staleness", staleSinceMillis,
+                            since -> since.get() == 0 ? 0 : (System.currentTimeMillis() - since.get()) / 1000.0)
+                    .description("Seconds the oldest load not yet in the materialized fact_sections_view has waited")
+                    .baseUnit("seconds")
+                    .register(Metrics.globalRegistry);
+        }
+        lastRefreshMillis = System.currentTimeMillis();
+        freeWorkers = new Semaphore(workers);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        running = true;
+        poller = Thread.ofVirtual().name("etl-worker").start(this::poll);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.interrupt();
+        executor.shutdown();
+        try {
+            // Unfinished loads keep their lease and are claimed again after a restart.
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Makes the worker look for queued respondents now, e.g. after a respondent was finalized.
+     */
+    public void wakeUp() {
+        wakeUps.offer(Boolean.TRUE);
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                if (!backlogQueued) {
+                    queueBacklog();
+                }
+                refreshStatus();
+                int loaded = loadBatch();
+                refreshViewIfDue();
+                if (loaded == 0) {
+                    wakeUps.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                Log.error("ETL worker could not read the queue: " + e.getMessage(), e);
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the finalized respondents that have no facts yet. Respondents still queued from
+     * before a restart count towards the backfill as well.
+     */
+    private void queueBacklog() {
+        int queued = queue.enqueueBacklog();
+        backlogQueued = true;
+        if (queued > 0) {
+            Metrics.globalRegistry.counter("survey.etl.backfill.queued").increment(queued);
+            Log.info("ETL backfill queued " + queued + " finalized respondents missing from fact_sections");
+        }
+        backfillTotal = queue.status().size();
+        backfillRemaining = backfillTotal;
+    }
+
+    private void refreshStatus() {
+        ETLQueue.Status status = queue.status();
+        queueSize.set(status.size());
+        lagMillis.set(Math.round(status.lagSeconds() * 1000));
+        failed.set(status.failed());
+        if (backfillTotal > 0 && status.size() != backfillRemaining) {
+            backfillRemaining = status.size();
+            if (backfillRemaining == 0) {
+                Log.info("ETL backfill of " + backfillTotal + " respondents finished");
+                backfillTotal = 0;
+            } else {
+                Log.info("ETL backfill progress: " + backfillRemaining + " of " + backfillTotal + " respondents remaining");
+            }
+        }
+    }
+
+    /**
+     * Refreshes the materialized fact_sections_view when enough respondents were loaded since
+     * the last refresh, or the last refresh is old enough and respondents were loaded since.
+     */
+    private void refreshViewIfDue() {
+        long loaded = loadedSinceRefresh.get();
+        if (!materializedView || loaded == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (loaded < viewRefreshAfter && now - lastRefreshMillis < viewRefreshInterval.toMillis()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        if (etlService.refreshFactSectionView()) {
+            sample.stop(Timer.builder("survey.etl.view.refresh")
+                    .description("Time to refresh the materialized fact_sections_view")
+                    .register(Metrics.globalRegistry));
+            // The batch is done, so no load on this node is missing from the refresh.
+            lastRefreshMillis = now;
+            loadedSinceRefresh.set(0);
+            staleSinceMillis.set(0);
+            Log.debug("Refreshed fact_sections_view after " + loaded + " loaded respondents");
+        }
+    }
+
+    /**
+     * Claims a batch of due respondents and loads them in chunks, waiting until the whole batch
+     * is done.
+     *
+     * @return the number of respondents claimed
+     * @throws InterruptedException if the worker is stopped during the batch
+     */
+    int loadBatch() throws InterruptedException {
+        List<ETLQueue.Claim> claims = queue.claim(batchSize, lease);
+        List<Future<?>> loads = new ArrayList<>();
+        for (int i = 0; i < claims.size(); i += chunkSize) {
+            List<ETLQueue.Claim> chunk = claims.subList(i, Math.min(i + chunkSize, claims.size()));
+            freeWorkers.acquire();
+            loads.add(executor.submit(() -> {
+                try {
+                    loadChunk(chunk);
+                } finally {
+                    freeWorkers.release();
+                }
+            }));
+        }
+        for (Future<?> load : loads) {
+            try {
+                load.get();
+            } catch (ExecutionException e) {
+                Log.error("ETL load failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        if (!claims.isEmpty()) {
+            Log.debug("ETL loaded a batch of " + claims.size() + " respondents");
+        }
+        return claims.size();
+    }
+
+    /**
+     * Loads a chunk of respondents in one transaction and removes them from the queue. A failed
+     * chunk is loaded again one respondent at a time, so only the failing respondents stay queued.
+     */
+    private void loadChunk(List<ETLQueue.Claim> chunk) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            List<Integer> respondentIds = new ArrayList<>(chunk.size());
+            for (ETLQueue.Claim claim : chunk) {
+                respondentIds.add(claim.respondentId());
+            }
+            String etl = etlRespondentService.populateFactSectionTables(respondentIds);
+            queue.complete(chunk);
+            Metrics.globalRegistry.counter("survey.etl.respondents", "outcome", outcome).increment(chunk.size());
+            if (materializedView) {
+                staleSinceMillis.compareAndSet(0, System.currentTimeMillis());
+                loadedSinceRefresh.addAndGet(chunk.size());
+            }
+            Log.debug(System.lineSeparator() + etl);
+        } catch (Exception e) {
+            outcome = "failure";
+            if (chunk.size() > 1) {
+                Log.warn("ETL failed for a chunk of " + chunk.size() + " respondents, loading them one by one: " + e.getMessage());
+                for (ETLQueue.Claim claim : chunk) {
+                    loadChunk(List.of(claim));
+                }
+            } else {
+                ETLQueue.Claim claim = chunk.getFirst();
+                Metrics.globalRegistry.counter("survey.etl.respondents", "outcome", outcome).increment();
+                if (claim.tries() >= maxTries) {
+                    queue.fail(claim, e.getMessage());
+                    Log.error("ETL failed for respondent " + claim.respondentId() + " after " + claim.tries()
+                            + " tries, giving up until it is finalized again: " + e.getMessage());
+                } else {
+                    queue.retry(claim, e.getMessage(), retryDelay);
+                    Log.warn("ETL failed for respondent " + claim.respondentId() + " on try " + claim.tries()
+                            + ", trying again in " + retryDelay.toSeconds() + "s: " + e.getMessage());
+                }
+            }
+        } finally {
+            Timer.builder("survey.etl.load")
+                    .description("Time to load a chunk of finalized respondents into the reporting tables")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(Metrics.globalRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
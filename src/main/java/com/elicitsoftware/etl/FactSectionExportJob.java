@@ -0,0 +1,100 @@
+package com.elicitsoftware.etl;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Runs the {@link FactSectionExporter} every {@code survey.export.interval} on the owner
+ * datasource, when {@code survey.export.directory} is set.
+ * <p>
+ * Every export is timed as {@code survey.etl.export}, tagged with the outcome, and the rows
+ * written are counted as {@code survey.etl.export.rows}.
+ */
+@ApplicationScoped
+public class FactSectionExportJob {
+
+    @ConfigProperty(name = "survey.export.directory")
+    Optional<String> directory;
+
+    @ConfigProperty(name = "survey.export.interval", defaultValue = "1h")
+    Duration interval;
+
+    @ConfigProperty(name = "survey.export.batch-rows", defaultValue = "10000")
+    int batchRows;
+
+    @Inject
+    @DataSource("owner")
+    AgroalDataSource dataSource;
+
+    private Thread runner;
+
+    void onStart(@Observes StartupEvent event) {
+        if (directory.isEmpty()) {
+            return;
+        }
+        FactSectionExporter exporter = new FactSectionExporter(Path.of(directory.get()), batchRows);
+        runner = Thread.ofVirtual().name("fact-section-export").start(() -> run(exporter));
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (runner != null) {
+            runner.interrupt();
+        }
+    }
+
+    private void run(FactSectionExporter exporter) {
+        while (!Thread.currentThread().isInterrupted()) {
+            export(exporter);
+            try {
+                Thread.sleep(interval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void export(FactSectionExporter exporter) {
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        String outcome = "success";
+        try (Connection connection = dataSource.getConnection()) {
+            FactSectionExporter.Result result = exporter.export(connection);
+            Metrics.globalRegistry.counter("survey.etl.export.rows").increment(result.rows());
+            if (result.file() != null) {
+                Log.info("Exported " + result.rows() + " fact_sections rows to " + result.file());
+            }
+        } catch (Exception e) {
+            outcome = "failure";
+            Log.error("fact_sections export failed: " + e.getMessage(), e);
+        } finally {
+            sample.stop(Timer.builder("survey.etl.export")
+                    .description("Time to export the respondents finalized since the last export")
+                    .tag("outcome", outcome)
+                    .register(Metrics.globalRegistry));
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.elicitsoftware.etl;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Exports {@code surveyreport.fact_sections_view}, the section facts joined with their dimension
+ * tables, to Arrow IPC files on local disk, so analysts can read the facts without querying the
+ * database.
+ * <p>
+ * Every export writes the respondents finalized since the previous one to a new file
+ * {@code fact_sections-<watermark>.arrow} and then moves the watermark, kept in
+ * {@code fact_sections.watermark} next to the files; a file holds the respondents finalized at or
+ * after the previous watermark and before its own. A respondent that is finalized again is
+ * exported again, so readers should keep the rows of the latest file per respondent.
+ * <p>
+ * The watermark is a finalized time. It stops at the earliest finalized time of the respondents
+ * still waiting in the {@link ETLQueue}, and at the {@code complete_dt} of the last refresh when
+ * the view is materialized, so no respondent is exported before its facts are in the view.
+ * Respondents that FAILED in the queue do not hold it back and are not exported until they are
+ * loaded. Respondents queued by a backfill after the watermark passed their finalized time, e.g.
+ * after the reporting tables were rebuilt, are only exported by a full export, started by
+ * deleting the watermark file.
+ * <p>
+ * The rows are read with a server-side cursor and written in record batches of a fixed size, so
+ * memory stays constant however many respondents are exported. Columns keep their database types
+ * where Arrow has one, everything else is exported as text.
+ * <p>
+ * The export runs on a schedule inside the application (see {@link FactSectionExportJob}) or from
+ * the command line with {@link #main(String[])}. Arrow needs
+ * {@code --add-opens=java.base/java.nio=ALL-UNNAMED} on the JVM.
+ */
+public class FactSectionExporter {
+
+    static final String WATERMARK_FILE = "fact_sections.watermark";
+
+    /**
+     * How long a respondent finalized just now may take to reach the {@link ETLQueue}.
+     */
+    static final Duration SETTLE_TIME = Duration.ofMinutes(1);
+
+    /**
+     * The finalized time the export may go up to, exclusive.
+     */
+    static final String UP_TO_SQL = """
+            SELECT LEAST(CURRENT_TIMESTAMP - make_interval(secs => ?),
+                         (SELECT min(r.finalized_dt) FROM survey.etl_queue q
+                          JOIN survey.respondents r ON r.id = q.respondent_id
+                          WHERE q.status = 'PENDING'),
+                         (SELECT r.complete_dt FROM surveyreport.fact_sections_view_refresh r
+                          WHERE EXISTS (SELECT 1 FROM pg_matviews m
+                                        WHERE m.schemaname = 'surveyreport' AND m.matviewname = 'fact_sections_view')))
+            """;
+
+    static final String EXPORT_SQL = """
+            SELECT v.*, r.finalized_dt
+            FROM surveyreport.fact_sections_view v
+            JOIN survey.respondents r ON r.id = v.respondent_id
+            WHERE r.finalized_dt >= ? AND r.finalized_dt < ?
+            """;
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final int batchRows;
+
+    /**
+     * The outcome of an export.
+     *
+     * @param file      the file written, or null when no respondent was finalized since the last export
+     * @param rows      the rows written
+     * @param watermark the new watermark
+     */
+    public record Result(Path file, long rows, Instant watermark) {
+    }
+
+    /**
+     * @param directory the directory of the files and the watermark
+     * @param batchRows the rows per record batch
+     */
+    public FactSectionExporter(Path directory, int batchRows) {
+        this.directory = directory;
+        this.batchRows = batchRows;
+    }
+
+    /**
+     * Exports the respondents finalized since the last export.
+     *
+     * @param connection a connection that can read the view, the respondents and the ETL queue;
+     *                   it is used in one read-only transaction
+     * @return the outcome
+     * @throws SQLException if the facts cannot be read
+     * @throws IOException  if the file or the watermark cannot be written
+     */
+    public Result export(Connection connection) throws SQLException, IOException {
+        Files.createDirectories(directory);
+        Instant from = readWatermark();
+        boolean autoCommit = connection.getAutoCommit();
+        // The driver only streams with a cursor inside a transaction.
+        connection.setAutoCommit(false);
+        connection.setReadOnly(true);
+        try {
+            Instant upTo = upTo(connection);
+            if (!upTo.isAfter(from)) {
+                // Ends the transaction the query started, so the connection can be reset below.
+                connection.commit();
+                return new Result(null, 0, from);
+            }
+            Path file = directory.resolve("fact_sections-" + FILE_TIME.format(upTo) + ".arrow");
+            Path temporary = directory.resolve(file.getFileName() + ".tmp");
+            long rows;
+            try (PreparedStatement ps = connection.prepareStatement(EXPORT_SQL)) {
+                ps.setFetchSize(batchRows);
+                ps.setTimestamp(1, Timestamp.from(from));
+                ps.setTimestamp(2, Timestamp.from(upTo));
+                try (ResultSet rs = ps.executeQuery()) {
+                    rows = write(rs, temporary);
+                }
+            }
+            connection.commit();
+            if (rows > 0) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.deleteIfExists(temporary);
+                file = null;
+            }
+            writeWatermark(upTo);
+            return new Result(file, rows, upTo);
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setReadOnly(false);
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static Instant upTo(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(UP_TO_SQL)) {
+            ps.setDouble(1, SETTLE_TIME.toSeconds());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getTimestamp(1).toInstant();
+            }
+        }
+    }
+
+    /**
+     * Writes the rows to an Arrow IPC file, one record batch of {@code batchRows} rows at a time.
+     *
+     * @return the rows written
+     */
+    private long write(ResultSet rs, Path file) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        List<Field> fields = new ArrayList<>(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            fields.add(Field.nullable(metaData.getColumnLabel(i), arrowType(metaData.getColumnType(i))));
+        }
+        long rows = 0;
+        try (BufferAllocator allocator = new RootAllocator();
+             VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields), allocator);
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING);
+             ArrowFileWriter writer = new ArrowFileWriter(root, null, channel)) {
+            List<Column> columns = new ArrayList<>(fields.size());
+            for (int i = 0; i < fields.size(); i++) {
+                columns.add(column(root.getVector(i), i + 1));
+            }
+            writer.start();
+            root.allocateNew();
+            int batch = 0;
+            while (rs.next()) {
+                for (Column column : columns) {
+                    column.set(rs, batch);
+                }
+                if (++batch == batchRows) {
+                    root.setRowCount(batch);
+                    writer.writeBatch();
+                    rows += batch;
+                    batch = 0;
+                    root.allocateNew();
+                }
+            }
+            if (batch > 0) {
+                root.setRowCount(batch);
+                writer.writeBatch();
+                rows += batch;
+            }
+            writer.end();
+        }
+        return rows;
+    }
+
+    /**
+     * Copies one column of the current row of a result set into a vector.
+     */
+    private interface Column {
+        void set(ResultSet rs, int row) throws SQLException;
+    }
+
+    /**
+     * @return the Arrow type a column of the given JDBC type is exported as
+     */
+    static ArrowType arrowType(int sqlType) {
+        return switch (sqlType) {
+            case Types.SMALLINT, Types.INTEGER -> new ArrowType.Int(32, true);
+            case Types.BIGINT -> new ArrowType.Int(64, true);
+            case Types.REAL, Types.FLOAT, Types.DOUBLE, Types.NUMERIC, Types.DECIMAL ->
+                    new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+            case Types.BOOLEAN, Types.BIT -> ArrowType.Bool.INSTANCE;
+            case Types.DATE -> new ArrowType.Date(DateUnit.DAY);
+            case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC");
+            default -> ArrowType.Utf8.INSTANCE;
+        };
+    }
+
+    private static Column column(FieldVector vector, int index) {
+        return switch (vector) {
+            case IntVector v -> (rs, row) -> {
+                int value = rs.getInt(index);
+                if (rs.wasNull()) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value);
+                }
+            };
+            case BigIntVector v -> (rs, row) -> {
+                long value = rs.getLong(index);
+                if (rs.wasNull()) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value);
+                }
+            };
+            case Float8Vector v -> (rs, row) -> {
+                double value = rs.getDouble(index);
+                if (rs.wasNull()) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value);
+                }
+            };
+            case BitVector v -> (rs, row) -> {
+                boolean value = rs.getBoolean(index);
+                if (rs.wasNull()) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value ? 1 : 0);
+                }
+            };
+            case DateDayVector v -> (rs, row) -> {
+                Date value = rs.getDate(index);
+                if (value == null) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, Math.toIntExact(value.toLocalDate().toEpochDay()));
+                }
+            };
+            case TimeStampMicroTZVector v -> (rs, row) -> {
+                Timestamp value = rs.getTimestamp(index);
+                if (value == null) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, micros(value.toInstant()));
+                }
+            };
+            case VarCharVector v -> (rs, row) -> {
+                String value = rs.getString(index);
+                if (value == null) {
+                    v.setNull(row);
+                } else {
+                    v.setSafe(row, value.getBytes(StandardCharsets.UTF_8));
+                }
+            };
+            default -> throw new IllegalArgumentException("No export for " + vector.getField());
+        };
+    }
+
+    static long micros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    /**
+     * @return the finalized time before which every respondent was exported, or the epoch before
+     * the first export
+     */
+    Instant readWatermark() throws IOException {
+        Path file = directory.resolve(WATERMARK_FILE);
+        if (!Files.exists(file)) {
+            return Instant.EPOCH;
+        }
+        return Instant.parse(Files.readString(file).trim());
+    }
+
+    void writeWatermark(Instant watermark) throws IOException {
+        Path temporary = directory.resolve(WATERMARK_FILE + ".tmp");
+        Files.writeString(temporary, watermark.toString());
+        Files.move(temporary, directory.resolve(WATERMARK_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Runs one export from the command line:
+     * <pre>
+     * java --add-opens=java.base/java.nio=ALL-UNNAMED \
+     *      -cp "quarkus-app/lib/main/*:quarkus-app/app/*" com.elicitsoftware.etl.FactSectionExporter \
+     *      jdbc:postgresql://host:5432/survey /data/exports [batch-rows]
+     * </pre>
+     * The user and password are taken from {@code PGUSER} and {@code PGPASSWORD} when set.
+     *
+     * @param args the JDBC URL, the export directory and optionally the rows per record batch
+     * @throws Exception if the export fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: FactSectionExporter <jdbc-url> <directory> [batch-rows]");
+            System.exit(2);
+        }
+        Properties properties = new Properties();
+        if (System.getenv("PGUSER") != null) {
+            properties.setProperty("user", System.getenv("PGUSER"));
+        }
+        if (System.getenv("PGPASSWORD") != null) {
+            properties.setProperty("password", System.getenv("PGPASSWORD"));
+        }
+        int batchRows = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        try (Connection connection = DriverManager.getConnection(args[0], properties)) {
+            Result result = new FactSectionExporter(Path.of(args[1]), batchRows).export(connection);
+            System.out.println(result.file() == null
+                    ? "No respondents finalized since " + result.watermark()
+                    : "Exported " + result.rows() + " rows to " + result.file());
+        }
+    }
+}
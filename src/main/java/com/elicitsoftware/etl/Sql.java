@@ -25,7 +25,7 @@ package com.elicitsoftware.etl;
  * - FIND_NEW_DIMENSION_TABLES_SQL: SQL query to find new dimension tables.
  * - CREATE_NEW_DIMENSION_TABLE_SQL: SQL statement to create new dimension tables.
  * - FIND_DIMENSTION_VALUES_SQL: SQL query for finding dimension values.
- * - INSERT_INTO_DIMENSION: SQL query to insert values into a dimension table.
+ * - INSERT_INTO_DIMENSION: SQL query to insert an array of values into a dimension table.
  * - ADD_DIM_COLUMN_TO_FACT_ANSWER_TABLE: SQL query to add a dimension column to a fact answer table.
  * - FACT_VIEW_JOIN_CLAUSE_SQL: SQL fragment representing a join clause in a fact view.
  * - FACT_SECTIONS_VIEW_GRANT_CLAUSE_SQL: SQL query to grant permissions on fact sections views.
@@ -37,12 +37,20 @@ package com.elicitsoftware.etl;
  * - ADD_DIM_COLUMN_TO_FACT_SECTIONS_TABLE: SQL query to add a dimension column to the fact sections table.
  * - DROP_SECTION_VIEW_SQL: SQL query to drop a section view.
  * - FACT_SECTION_VIEW_SELECT_SQL: SQL fragment representing the "SELECT" portion of a fact section view.
+ * - FACT_SECTION_MATERIALIZED_VIEW_SELECT_SQL: the "SELECT" portion of the fact section view built as a materialized view.
+ * - FACT_SECTION_MATERIALIZED_VIEW_INDEX_SQL: SQL statement creating the unique index a concurrent refresh needs.
+ * - FIND_SECTION_MATERIALIZED_VIEW_SQL: SQL query counting the fact section views that are materialized.
+ * - DROP_SECTION_MATERIALIZED_VIEW_SQL: SQL query to drop a materialized section view.
+ * - TRY_LOCK_SECTION_VIEW_REFRESH_SQL: SQL query taking the lock that keeps refreshes of several nodes apart.
+ * - REFRESH_SECTION_VIEW_SQL: SQL statement refreshing the materialized section view without blocking readers.
+ * - RECORD_SECTION_VIEW_REFRESH_SQL: SQL statement recording when the materialized section view was refreshed.
  * - FACT_SECTION_VIEW_FROM_SQL: SQL fragment representing the "FROM" portion of a fact section view.
  * - FIND_FACT_SECTION_JOIN_COLUMNS: SQL query to identify join columns in fact sections.
  * - FACT_SECTIONS_KEYS: SQL statement representing keys used in fact sections.
  * - NEW_FIND_MISSING_FACT_SECTION_DIMENSIONS_SQL: SQL query to identify missing fact section dimensions in a new context.
  * - FIND_MISSING_FACT_SECTION_DIMENSIONS_SQL: SQL query to find missing fact section dimensions.
- * - UPDATE_FACT_SECTION_DIMENSION_VALUE_SQL: SQL query to update dimension values in a fact section.
+ * - UPDATE_FACT_SECTION_DIMENSION_VALUE_SQL: SQL query to set one dimension column of many fact sections,
+ *   from arrays of fact ids and dimension values.
  * - FIND_MISSING_FACT_SECTION_RESPONDENTS: SQL query to find respondents missing in fact sections.
  */
 public final class Sql {
@@ -134,7 +142,7 @@ public final class Sql {
                      --Question Tags from Dimension table
                              SELECT DISTINCT 'dim_' || LOWER(d1.name) as dim,
                                  case
-                                     WHEN m1.value IS NULL THEN LOWER(TRIM(REPLACE(a1.text_value,'''', '''''')))
+                                     WHEN m1.value IS NULL THEN LOWER(TRIM(a1.text_value))
                                      else lower(trim(m1.value))
                                  end AS val,
                                 a1.respondent_id
@@ -147,7 +155,7 @@ public final class Sql {
                     UNION
                             SELECT DISTINCT 'dim_' || LOWER(REPLACE(o2.tag,' ','_')) as dim,
                                  case
-                                     WHEN m2.value IS NULL THEN LOWER(TRIM(REPLACE(a2.text_value,'''', '''''')))
+                                     WHEN m2.value IS NULL THEN LOWER(TRIM(a2.text_value))
                                      else lower(trim(m2.value))
                                  end AS val,
                                 a2.respondent_id
@@ -160,7 +168,7 @@ public final class Sql {
                      UNION
                              SELECT DISTINCT 'dim_' || LOWER(d3.name) as dim,
                                  case
-                                    WHEN m3.value IS NULL THEN LOWER(TRIM(REPLACE(a3.text_value,'''', '''''')))
+                                    WHEN m3.value IS NULL THEN LOWER(TRIM(a3.text_value))
                                      else lower(trim(m3.value))
                                  end AS val,
                                 a3.respondent_id
@@ -174,7 +182,7 @@ public final class Sql {
                      UNION
                              SELECT DISTINCT 'dim_' || LOWER(REPLACE(o4.tag,' ','_')) as dim,
                                  case
-                                    WHEN m4.value IS NULL THEN LOWER(TRIM(REPLACE(a4.text_value,'''', '''''')))
+                                    WHEN m4.value IS NULL THEN LOWER(TRIM(a4.text_value))
                                      else lower(trim(m4.value))
                                  end AS val,
                                 a4.respondent_id
@@ -188,7 +196,7 @@ public final class Sql {
                      UNION
                              SELECT DISTINCT 'dim_' || LOWER(d5.name) as dim,
                                  case
-                                     WHEN m5.value IS NULL THEN LOWER(TRIM(REPLACE(a5.text_value,'''', '''''')))
+                                     WHEN m5.value IS NULL THEN LOWER(TRIM(a5.text_value))
                                      else lower(trim(m5.value))
                                  end AS val,
                                 a5.respondent_id
@@ -201,7 +209,7 @@ public final class Sql {
                      UNION
                              SELECT DISTINCT 'dim_' || LOWER(REPLACE(o6.tag,' ','_')) as dim,
                                  case
-                                     WHEN m6.value IS NULL THEN LOWER(TRIM(REPLACE(a6.text_value,'''', '''''')))
+                                     WHEN m6.value IS NULL THEN LOWER(TRIM(a6.text_value))
                                      else lower(trim(m6.value))
                                  end AS val,
                                 a6.respondent_id
@@ -218,10 +226,8 @@ public final class Sql {
 
     public static final String INSERT_INTO_DIMENSION = """
             INSERT INTO surveyreport.<DIM>(value)
-            SELECT '<VAL>'
-            WHERE NOT EXISTS (
-                SELECT d.value FROM surveyreport.<DIM> d WHERE value = '<VAL>'
-            );
+            SELECT DISTINCT v.value FROM unnest(?::varchar[]) AS v(value)
+            ON CONFLICT (value) DO NOTHING
             """;
 
     public static final String ADD_DIM_COLUMN_TO_FACT_ANSWER_TABLE = """
@@ -364,6 +370,43 @@ public final class Sql {
             SELECT f.id, f.survey_id, f.respondent_id, f.step_key, f.name, f.step_instance, f.section_key, f.section_instance, 
             """;
 
+    public static final String FACT_SECTION_MATERIALIZED_VIEW_SELECT_SQL = """
+            CREATE MATERIALIZED VIEW surveyreport.fact_sections_view AS (
+            SELECT f.id, f.survey_id, f.respondent_id, f.step_key, f.name, f.step_instance, f.section_key, f.section_instance, 
+            """;
+
+    public static final String FACT_SECTION_MATERIALIZED_VIEW_INDEX_SQL = """
+            
+            CREATE UNIQUE INDEX fact_sections_view_id_idx ON surveyreport.fact_sections_view (id);
+            """;
+
+    public static final String FIND_SECTION_MATERIALIZED_VIEW_SQL = """
+            SELECT COUNT(*) FROM pg_matviews m
+            WHERE m.schemaname = 'surveyreport' AND m.matviewname = 'fact_sections_view'
+            """;
+
+    public static final String DROP_SECTION_MATERIALIZED_VIEW_SQL = """
+            DROP MATERIALIZED VIEW IF EXISTS surveyreport.fact_sections_view CASCADE;
+            """;
+
+    public static final String TRY_LOCK_SECTION_VIEW_REFRESH_SQL = """
+            SELECT pg_try_advisory_xact_lock(hashtext('surveyreport.fact_sections_view'))
+            """;
+
+    public static final String REFRESH_SECTION_VIEW_SQL = """
+            REFRESH MATERIALIZED VIEW CONCURRENTLY surveyreport.fact_sections_view;
+            """;
+
+    public static final String RECORD_SECTION_VIEW_REFRESH_SQL = """
+            
+            INSERT INTO surveyreport.fact_sections_view_refresh (id, refreshed_dt, complete_dt)
+            VALUES (1, CURRENT_TIMESTAMP, LEAST(CURRENT_TIMESTAMP, (SELECT min(r.finalized_dt) FROM survey.etl_queue q
+                                                                   JOIN survey.respondents r ON r.id = q.respondent_id
+                                                                   WHERE q.status = 'PENDING')))
+            ON CONFLICT (id) DO UPDATE
+            SET refreshed_dt = EXCLUDED.refreshed_dt, complete_dt = EXCLUDED.complete_dt;
+            """;
+
     public static final String FACT_SECTION_VIEW_FROM_SQL = """
             
             FROM surveyreport.fact_sections f
@@ -477,7 +520,7 @@ public final class Sql {
             --Question Tags from Dimensions table
                    SELECT f1.id, a1.respondent_id, LOWER(REPLACE(REPLACE(o1.tag,' ','_'),'-','') || '_key') AS key, 'dim_' || LOWER(d1.name) AS dim,
                         CASE
-                            WHEN m1.value IS NULL THEN LOWER(TRIM(REPLACE(a1.text_value,'''', '''''')))
+                            WHEN m1.value IS NULL THEN LOWER(TRIM(a1.text_value))
                             ELSE LOWER(TRIM(m1.value))
                         END AS val
                        FROM survey.answers a1
@@ -496,7 +539,7 @@ public final class Sql {
             UNION
                    SELECT f2.id, a2.respondent_id, LOWER(REPLACE(REPLACE(o2.tag,' ','_'),'-','') || '_key') AS key, 'dim_' || LOWER(REPLACE(o2.tag,' ','_')) AS dim,
                         CASE
-                            WHEN m2.value IS NULL THEN LOWER(TRIM(REPLACE(a2.text_value,'''', '''''')))
+                            WHEN m2.value IS NULL THEN LOWER(TRIM(a2.text_value))
                             ELSE LOWER(TRIM(m2.value))
                         END AS val
                        FROM survey.answers a2
@@ -515,7 +558,7 @@ public final class Sql {
             UNION
                    SELECT f3.id, a3.respondent_id, LOWER(REPLACE(REPLACE(o3.tag,' ','_'),'-','') || '_key') AS key, 'dim_' || LOWER(d3.name) AS dim,
                         CASE
-                            WHEN m3.value IS NULL THEN LOWER(TRIM(REPLACE(a3.text_value,'''', '''''')))
+                            WHEN m3.value IS NULL THEN LOWER(TRIM(a3.text_value))
                             ELSE LOWER(TRIM(m3.value))
                         END AS val
                        FROM survey.answers a3
@@ -535,7 +578,7 @@ public final class Sql {
             UNION
                    SELECT f4.id, a4.respondent_id, LOWER(REPLACE(REPLACE(o4.tag,' ','_'),'-','') || '_key') AS key, 'dim_' || LOWER(REPLACE(o4.tag,' ','_')) AS dim,
                         CASE
-                            WHEN m4.value IS NULL THEN LOWER(TRIM(REPLACE(a4.text_value,'''', '''''')))
+                            WHEN m4.value IS NULL THEN LOWER(TRIM(a4.text_value))
                             ELSE LOWER(TRIM(m4.value))
                         END AS val
                        FROM survey.answers a4
@@ -555,7 +598,7 @@ public final class Sql {
             UNION
                    SELECT f5.id, a5.respondent_id, LOWER(REPLACE(REPLACE(o5.tag,' ','_'),'-','') || '_key') AS key, 'dim_' || LOWER(d5.name) AS dim,
                         CASE
-                            WHEN m5.value IS NULL THEN LOWER(TRIM(REPLACE(a5.text_value,'''', '''''')))
+                            WHEN m5.value IS NULL THEN LOWER(TRIM(a5.text_value))
                             ELSE LOWER(TRIM(m5.value))
                         END AS val
                        FROM survey.answers a5
@@ -574,7 +617,7 @@ public final class Sql {
             UNION
                    SELECT f6.id, a6.respondent_id, LOWER(REPLACE(REPLACE(o6.tag,' ','_'),'-','') || '_key') AS key, 'dim_' || LOWER(REPLACE(o6.tag,' ','_')) AS dim,
                         CASE
-                            WHEN m6.value IS NULL THEN LOWER(TRIM(REPLACE(a6.text_value,'''', '''''')))
+                            WHEN m6.value IS NULL THEN LOWER(TRIM(a6.text_value))
                             ELSE LOWER(TRIM(m6.value))
                         END AS val
                        FROM survey.answers a6
@@ -597,10 +640,11 @@ public final class Sql {
 
     public static final String UPDATE_FACT_SECTION_DIMENSION_VALUE_SQL = """
             UPDATE surveyreport.fact_sections a
-            SET <KEY> = x.id
-            FROM (SELECT d.id FROM surveyreport.<DIM> d WHERE d.value = '<VAL>') x
-            WHERE a.id=<FACT_ID>
-            AND a.respondent_id=<RESPONDENT_ID>;
+            SET <KEY> = d.id
+            FROM unnest(?::integer[], ?::varchar[]) AS v(fact_id, value)
+            JOIN surveyreport.<DIM> d ON d.value = v.value
+            WHERE a.id = v.fact_id
+            AND a.respondent_id = ?
             """;
 
 
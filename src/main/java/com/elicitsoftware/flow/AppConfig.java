@@ -13,6 +13,7 @@ package com.elicitsoftware.flow;
 
 import com.vaadin.flow.component.page.AppShellConfigurator;
 import com.vaadin.flow.component.page.Inline;
+import com.vaadin.flow.component.page.Push;
 import com.vaadin.flow.server.AppShellSettings;
 import com.vaadin.flow.component.dependency.StyleSheet;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -37,6 +38,8 @@ import java.nio.file.Paths;
  * - Brand Integration: Configures favicon and CSS links based on mounted brand directories
  * - Fallback System: Implements three-tier brand fallback (external → local → default)
  * - Meta Tags: Adds brand identification information for debugging
+ * - Server Push: Lets views update the browser from background threads, e.g. report cards
+ *   that arrive one by one and PDFs that finish rendering
  * <p>
  * Brand Directory Precedence:
  * 1. External brand mount (/brand) - Docker volume mounts for runtime branding
@@ -44,6 +47,7 @@ import java.nio.file.Paths;
  * 3. Application defaults (icons/) - Fallback when no brand is available
  */
 @StyleSheet("context://styles.css")
+@Push
 @ApplicationScoped
 @Startup
 public class AppConfig implements AppShellConfigurator {
@@ -11,25 +11,36 @@ package com.elicitsoftware.flow;
  * ***LICENSE_END***
  */
 
-import java.net.URI;
 import java.util.ArrayList;
-
-import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import com.elicitsoftware.UISessionDataService;
 import com.elicitsoftware.model.ReportDefinition;
 import com.elicitsoftware.model.Respondent;
+import com.elicitsoftware.report.PDFRenderPool;
 import com.elicitsoftware.report.PDFService;
+import com.elicitsoftware.report.ReportCache;
+import com.elicitsoftware.report.ReportClients;
 import com.elicitsoftware.report.ReportRequest;
 import com.elicitsoftware.report.ReportResponse;
 import com.elicitsoftware.report.ReportService;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.html.Anchor;
+import com.vaadin.flow.component.html.AnchorTarget;
 import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.Command;
+import com.vaadin.flow.server.VaadinServletRequest;
 import com.vaadin.quarkus.annotation.NormalUIScoped;
 
+import io.quarkus.logging.Log;
 import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 
@@ -58,13 +69,21 @@ public class ReportView extends VerticalLayout {
     Respondent respondent;
 
     @Inject
-    PDFService pdfService;
+    PDFRenderPool pdfRenderPool;
+
+    @Inject
+    ReportClients reportClients;
+
+    @Inject
+    ReportCache reportCache;
 
     @Inject
     UISessionDataService sessionDataService;
 
     ArrayList<ReportResponse> reportResponses = new ArrayList<>();
 
+    private int reportsLoaded;
+
     public ReportView() {
         super();
     }
@@ -79,8 +98,10 @@ public class ReportView extends VerticalLayout {
      * - Retrieves the associated survey using the session service.
      * - Retrieves the respondent object from the session service.
      * - Iterates through the list of reports associated with the survey.
-     * - For each report, creates a ReportCard with the report name and content, and
-     * adds it to the layout.
+     * - For each report, adds a placeholder card and calls the report service on a virtual
+     * thread; all reports are called at once, and each placeholder is replaced with the
+     * ReportCard through server push as soon as its report arrives.
+     * - Enables the PDF button once every report has arrived.
      * <p>
      * Preconditions:
      * - The session service must contain valid survey ID and respondent data.
@@ -92,35 +113,43 @@ public class ReportView extends VerticalLayout {
 //        Survey survey = Survey.findById(sessionDataService.getSurveyId());
         respondent = sessionDataService.getRespondent();
 
-        Button pdfButton = new Button("Generate PDF", event -> {
-            try {
-                // Generate the PDF using the pdfService
-                byte[] pdfContent = pdfService.generatePDF(this.reportResponses);
-
-                // Cache the PDF and get a key
-                String pdfKey = com.elicitsoftware.report.PDFDownloadResource.cachePDF(pdfContent);
+        Anchor pdfLink = new Anchor();
+        pdfLink.setText("Open PDF");
+        pdfLink.setTarget(AnchorTarget.BLANK);
+        pdfLink.setVisible(false);
 
-                // Create URL for the PDF download endpoint
-                String pdfUrl = "/api/pdf/download?key=" + pdfKey;
+        Button pdfButton = new Button("Generate PDF");
+        pdfButton.setDisableOnClick(true);
+        pdfButton.addClickListener(event -> generatePDF(pdfButton, pdfLink));
 
-                // Open the PDF in a new browser tab
-                UI.getCurrent().getPage().executeJs("window.open($0, '_blank')", pdfUrl);
-            } catch (Exception e) {
-                e.printStackTrace();
-                Notification.show("Failed to generate PDF: " + e.getMessage(), 3000, Notification.Position.MIDDLE);
-            }
-        });
-
-        this.add(pdfButton);
+        this.add(pdfButton, pdfLink);
 
         //Make sure this is empty
         this.reportResponses.clear();
-        ReportResponse reportResponse;
-        for (ReportDefinition rpt : this.respondent.survey.reports) {
-            reportResponse = callReport(rpt);
-            reportResponses.add(reportResponse);
-            ReportCard reportCard = new ReportCard(rpt.name, reportResponse);
-            this.add(reportCard);
+        this.reportsLoaded = 0;
+        List<ReportDefinition> reports = new ArrayList<>(this.respondent.survey.reports);
+        pdfButton.setEnabled(reports.isEmpty());
+        UI currentUI = UI.getCurrent();
+        for (int i = 0; i < reports.size(); i++) {
+            ReportDefinition rpt = reports.get(i);
+            int index = i;
+            reportResponses.add(null);
+            ReportCard placeholder = new ReportCard(rpt.name, new ReportResponse(rpt.name, "<p><em>Loading report...</em></p>", null));
+            this.add(placeholder);
+            reportClients.supplyAsync(() -> callReport(rpt))
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        return errorResponse(rpt, cause instanceof TimeoutException
+                                ? "The report service did not answer within " + reportClients.timeout().toSeconds() + " seconds."
+                                : cause.getMessage());
+                    })
+                    .thenAccept(reportResponse -> access(currentUI, () -> {
+                        reportResponses.set(index, reportResponse);
+                        replace(placeholder, new ReportCard(rpt.name, reportResponse));
+                        if (++reportsLoaded == reports.size()) {
+                            pdfButton.setEnabled(true);
+                        }
+                    }));
         }
 
 
@@ -132,6 +161,50 @@ public class ReportView extends VerticalLayout {
         }
     }
 
+    /**
+     * Queues the reports with the shared {@link PDFRenderPool} and, once the PDF is rendered,
+     * pushes the link to open it in a new browser tab.
+     */
+    private void generatePDF(Button pdfButton, Anchor pdfLink) {
+        UI ui = UI.getCurrent();
+        pdfLink.setVisible(false);
+        String baseUrl = PDFService.baseUrl(VaadinServletRequest.getCurrent().getHttpServletRequest());
+        try {
+            pdfRenderPool.submit(respondent.id, this.reportResponses, baseUrl).whenComplete((pdfKey, error) -> access(ui, () -> {
+                pdfButton.setEnabled(true);
+                if (error != null) {
+                    Log.error("Failed to generate PDF", error);
+                    Notification.show("Failed to generate PDF: " + error.getMessage(), 3000, Notification.Position.MIDDLE);
+                    return;
+                }
+                pdfLink.setHref("/api/pdf/download?key=" + pdfKey);
+                pdfLink.setVisible(true);
+            }));
+        } catch (RejectedExecutionException e) {
+            pdfButton.setEnabled(true);
+            Notification.show("Too many PDFs are being generated, please try again in a moment.", 3000, Notification.Position.MIDDLE);
+        }
+    }
+
+    /**
+     * Updates the UI from a background thread; the change is pushed to the browser.
+     */
+    private static void access(UI ui, Command command) {
+        try {
+            ui.access(command);
+        } catch (UIDetachedException e) {
+            // The user left the page in the meantime.
+        }
+    }
+
+    private void cacheReport(ReportDefinition rpt, ReportResponse reportResponse) {
+        try {
+            reportCache.saveResponse(respondent.id, rpt.id, reportResponse);
+        } catch (RuntimeException e) {
+            Log.warn("Could not cache the report " + rpt.name + ": " + e.getMessage());
+        }
+    }
+
     private ArrayList<ReportCard> getCards() {
         ArrayList<ReportCard> cards = new ArrayList<>();
 
@@ -147,7 +220,8 @@ public class ReportView extends VerticalLayout {
      * Calls the report generation service using the provided report definition and returns the result.
      * <p>
      * This method sends a POST request to the report service with the respondent ID and retrieves
-     * the generated report content. It includes comprehensive error handling to provide meaningful
+     * the generated report content, unless the {@link ReportCache} already holds the report of the
+     * finalized respondent. Successful responses are cached for the next visit. It includes comprehensive error handling to provide meaningful
      * feedback when service calls fail.
      * <p>
      * Error handling includes:
@@ -161,12 +235,19 @@ public class ReportView extends VerticalLayout {
      * @return the ReportResponse containing report data if successful, or error information if failed
      */
     private ReportResponse callReport(ReportDefinition rpt) {
+        try {
+            Optional<ReportResponse> cached = reportCache.findResponse(respondent.id, rpt.id);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        } catch (RuntimeException e) {
+            Log.warn("Could not read the cached report " + rpt.name + ": " + e.getMessage());
+        }
         try {
             ReportRequest request = new ReportRequest(respondent.id);
-            ReportService reportService = RestClientBuilder.newBuilder()
-                    .baseUri(new URI(rpt.url))
-                    .build(ReportService.class);
+            ReportService reportService = reportClients.client(rpt.url);
             ReportResponse reportResponse = reportService.callReport(request);
+            cacheReport(rpt, reportResponse);
             return reportResponse;
         } catch (jakarta.ws.rs.WebApplicationException e) {
             // Handle license validation errors and other HTTP errors specifically
@@ -219,14 +300,18 @@ public class ReportView extends VerticalLayout {
             return reportResponse;
         } catch (Exception e) {
             // Handle other exceptions (network issues, URI parsing, etc.)
-            ReportResponse reportResponse = new ReportResponse();
-            reportResponse.title = "Error - " + rpt.name;
-            reportResponse.innerHTML = "<div style='color: red; padding: 20px; border: 1px solid red; background-color: #ffe6e6;'>" +
-                    "<h3>Report Generation Error</h3>" +
-                    "<p><strong>Service:</strong> " + rpt.name + "</p>" +
-                    "<p><strong>Error:</strong> " + e.getMessage() + "</p>" +
-                    "</div>";
-            return reportResponse;
+            return errorResponse(rpt, e.getMessage());
         }
     }
+
+    private static ReportResponse errorResponse(ReportDefinition rpt, String errorMessage) {
+        ReportResponse reportResponse = new ReportResponse();
+        reportResponse.title = "Error - " + rpt.name;
+        reportResponse.innerHTML = "<div style='color: red; padding: 20px; border: 1px solid red; background-color: #ffe6e6;'>" +
+                "<h3>Report Generation Error</h3>" +
+                "<p><strong>Service:</strong> " + rpt.name + "</p>" +
+                "<p><strong>Error:</strong> " + errorMessage + "</p>" +
+                "</div>";
+        return reportResponse;
+    }
 }
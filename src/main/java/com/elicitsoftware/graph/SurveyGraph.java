@@ -0,0 +1,421 @@
+package com.elicitsoftware.graph;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Relationship;
+import com.elicitsoftware.model.SectionsQuestion;
+import com.elicitsoftware.model.StepsSections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An immutable, in-memory compilation of a single survey definition.
+ * <p>
+ * The survey definition (relationships, steps/sections and section questions) does not change
+ * while respondents are answering, yet {@code QuestionManager} used to re-read it with native SQL
+ * on every saved answer. A {@code SurveyGraph} is built once per survey by {@link SurveyGraphService}
+ * and answers the same questions from hash indexes, so only respondent answers need the database.
+ * <p>
+ * Indexes:
+ * - relationships by id and by upstream section question id
+ * - non-TEXT relationships by downstream section question, downstream section and downstream step
+ * - step-only relationships and TEXT step relationships by downstream step id
+ * - step id to step display order and steps_sections id to section display order
+ * - steps_sections ordered by display key, for exact and prefix lookups
+ * - the initial (relationship free) questions of each step and section
+ * <p>
+ * Every lookup reproduces the filtering and ordering of the query it replaces, including the
+ * places where those queries compare a display order against an id. The entities held here are
+ * detached and shared between threads, so callers must treat them as read only.
+ */
+public final class SurveyGraph {
+
+    private static final int TEXT_ACTION_ID = 3;
+    private static final String TEXT_ACTION = "TEXT";
+
+    private final int surveyId;
+    private final String fingerprint;
+
+    private final Map<Integer, Relationship> relationshipsById = new HashMap<>();
+    private final Map<Integer, List<Relationship>> relationshipsByUpstreamQuestion = new HashMap<>();
+    private final Map<Integer, List<Relationship>> conditionsByDownstreamQuestion = new HashMap<>();
+    private final Map<Integer, List<Relationship>> conditionsByDownstreamSection = new HashMap<>();
+    private final Map<Integer, List<Relationship>> conditionsByDownstreamStep = new HashMap<>();
+    private final Map<Integer, List<Relationship>> stepRelationshipsByDownstreamStep = new HashMap<>();
+    private final Map<Integer, List<Relationship>> textRelationshipsByDownstreamStep = new HashMap<>();
+
+    private final Map<Integer, Integer> stepDisplayOrders = new HashMap<>();
+    private final Map<Integer, Integer> sectionDisplayOrders = new HashMap<>();
+
+    private final NavigableMap<String, StepsSections> stepsSectionsByKey = new TreeMap<>();
+    private final Map<Integer, List<SectionsQuestion>> questionsBySection = new HashMap<>();
+
+    // Pre-computed exclusion sets used to find the initial questions of a step or section.
+    private final Set<Integer> downstreamQuestionIds = new HashSet<>();
+    private final Set<Integer> sectionsOfDownstreamSections = new HashSet<>();
+    private final Set<Integer> downstreamStepIds = new HashSet<>();
+    private final Set<Integer> sectionsOfDownstreamSteps = new HashSet<>();
+    private final Set<Integer> stepsSectionsShownByStepRelationship = new HashSet<>();
+    private final Map<Integer, Set<Integer>> sectionQuestionsShownFromStep = new HashMap<>();
+    private final Set<Integer> questionsShownWithoutSection = new HashSet<>();
+
+    /**
+     * Compiles the graph for a survey.
+     *
+     * @param surveyId          the survey the definition belongs to
+     * @param fingerprint       a digest of the definition rows, used to detect a republished survey
+     * @param relationships     all relationships of the survey
+     * @param stepsSections     all steps_sections rows of the survey
+     * @param sectionsQuestions all sections_questions rows of the survey
+     */
+    public SurveyGraph(int surveyId, String fingerprint, List<Relationship> relationships,
+                       List<StepsSections> stepsSections, List<SectionsQuestion> sectionsQuestions) {
+        this.surveyId = surveyId;
+        this.fingerprint = fingerprint;
+
+        TreeMap<Integer, Set<Integer>> stepOrders = new TreeMap<>();
+        for (StepsSections ss : stepsSections) {
+            stepsSectionsByKey.put(ss.displaykey, ss);
+            sectionDisplayOrders.put(ss.id, ss.sectionDisplayOrder);
+            stepOrders.computeIfAbsent(ss.step.id, k -> new TreeSet<>()).add(ss.stepDisplayOrder);
+        }
+        // The original query used getSingleResult() on the distinct display orders,
+        // so a step that is missing or listed with two orders resolves to -1.
+        for (Map.Entry<Integer, Set<Integer>> entry : stepOrders.entrySet()) {
+            stepDisplayOrders.put(entry.getKey(), entry.getValue().size() == 1 ? entry.getValue().iterator().next() : -1);
+        }
+
+        for (SectionsQuestion sq : sectionsQuestions) {
+            questionsBySection.computeIfAbsent(sq.sectionId, k -> new ArrayList<>()).add(sq);
+        }
+        for (List<SectionsQuestion> questions : questionsBySection.values()) {
+            questions.sort(Comparator.comparing(sq -> sq.displayOrder));
+        }
+
+        List<Relationship> ordered = new ArrayList<>(relationships);
+        ordered.sort(Comparator.comparing(r -> r.id));
+        for (Relationship r : ordered) {
+            index(r);
+        }
+        for (StepsSections ss : stepsSections) {
+            if (downstreamStepIds.contains(ss.step.id)) {
+                sectionsOfDownstreamSteps.add(ss.section.id);
+            }
+        }
+    }
+
+    /**
+     * Adds a relationship to every index it participates in.
+     *
+     * @param r the relationship to index
+     */
+    private void index(Relationship r) {
+        relationshipsById.put(r.id, r);
+        boolean text = TEXT_ACTION.equals(r.actionType.name);
+        boolean textId = r.actionType.id != null && r.actionType.id == TEXT_ACTION_ID;
+
+        if (r.upstreamQuestion != null) {
+            add(relationshipsByUpstreamQuestion, r.upstreamQuestion.id, r);
+        }
+
+        if (!text) {
+            if (r.downstreamQuestion != null) {
+                add(conditionsByDownstreamQuestion, r.downstreamQuestion.id, r);
+            }
+            if (r.downstreamSection != null) {
+                add(conditionsByDownstreamSection, r.downstreamSection.id, r);
+            }
+            if (r.downstreamStep != null && r.downstreamSection == null && r.downstreamQuestion == null) {
+                add(conditionsByDownstreamStep, r.downstreamStep.id, r);
+            }
+        }
+
+        if (r.downstreamStep != null && r.downstreamSection == null && r.downstreamQuestion == null) {
+            add(stepRelationshipsByDownstreamStep, r.downstreamStep.id, r);
+        }
+        if (textId && r.downstreamStep != null && r.downstreamQuestion == null) {
+            add(textRelationshipsByDownstreamStep, r.downstreamStep.id, r);
+        }
+
+        // Exclusions for the initial questions of a step.
+        if (r.downstreamQuestion != null) {
+            downstreamQuestionIds.add(r.downstreamQuestion.id);
+        }
+        if (r.downstreamSection != null) {
+            sectionsOfDownstreamSections.add(r.downstreamSection.section.id);
+        }
+        if (r.downstreamStep != null) {
+            downstreamStepIds.add(r.downstreamStep.id);
+        }
+
+        // Exclusions for the initial questions of a section.
+        if (!textId) {
+            if (r.downstreamSection != null && r.downstreamQuestion == null && r.downstreamStep != null
+                    && r.downstreamStep.id.equals(r.downstreamSection.step.id)) {
+                stepsSectionsShownByStepRelationship.add(r.downstreamSection.id);
+            }
+            if (r.downstreamSection != null && r.downstreamQuestion != null && r.upstreamStep != null) {
+                sectionQuestionsShownFromStep.computeIfAbsent(r.upstreamStep.id, k -> new HashSet<>())
+                        .add(r.downstreamQuestion.id);
+            }
+            if (r.downstreamSection == null && r.downstreamQuestion != null) {
+                questionsShownWithoutSection.add(r.downstreamQuestion.id);
+            }
+        }
+    }
+
+    private static void add(Map<Integer, List<Relationship>> index, Integer key, Relationship r) {
+        index.computeIfAbsent(key, k -> new ArrayList<>()).add(r);
+    }
+
+    /**
+     * @return the id of the survey this graph was compiled from
+     */
+    public int getSurveyId() {
+        return surveyId;
+    }
+
+    /**
+     * @return the digest of the definition rows the graph was built from
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @param id the relationship id
+     * @return the relationship, or null if it is not part of this survey
+     */
+    public Relationship getRelationship(int id) {
+        return relationshipsById.get(id);
+    }
+
+    /**
+     * Relationships whose upstream question is the given section question and whose upstream step
+     * is either unset or equal to {@code upstreamStep}, ordered by id.
+     *
+     * @param sectionQuestionId the upstream section question id, may be null
+     * @param upstreamStep      the step value taken from the upstream answer's display key
+     * @return the matching relationships
+     */
+    public List<Relationship> getRelationshipsByUpstreamQuestion(Integer sectionQuestionId, int upstreamStep) {
+        if (sectionQuestionId == null) {
+            return Collections.emptyList();
+        }
+        List<Relationship> candidates = relationshipsByUpstreamQuestion.get(sectionQuestionId);
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        List<Relationship> relationships = new ArrayList<>(candidates.size());
+        for (Relationship r : candidates) {
+            if (r.upstreamStep == null || r.upstreamStep.id == upstreamStep) {
+                relationships.add(r);
+            }
+        }
+        return relationships;
+    }
+
+    /**
+     * Non-TEXT relationships that show or repeat the given section question, ordered by id.
+     *
+     * @param sectionQuestionId the downstream section question id
+     * @return the matching relationships
+     */
+    public List<Relationship> getConditionsByDownstreamQuestion(int sectionQuestionId) {
+        return conditionsByDownstreamQuestion.getOrDefault(sectionQuestionId, Collections.emptyList());
+    }
+
+    /**
+     * Non-TEXT relationships that show or repeat the given steps_sections row and whose upstream
+     * step is {@code upstreamStepId}, ordered by id.
+     *
+     * @param stepsSectionsId the downstream steps_sections id
+     * @param upstreamStepId  the upstream step id
+     * @return the matching relationships
+     */
+    public List<Relationship> getConditionsByDownstreamSection(int stepsSectionsId, int upstreamStepId) {
+        return filterByUpstreamStep(conditionsByDownstreamSection.get(stepsSectionsId), upstreamStepId);
+    }
+
+    /**
+     * Non-TEXT relationships that target a whole step and whose upstream step is
+     * {@code upstreamStepId}, ordered by id.
+     *
+     * @param stepId         the downstream step id
+     * @param upstreamStepId the upstream step id
+     * @return the matching relationships
+     */
+    public List<Relationship> getConditionsByDownstreamStep(int stepId, int upstreamStepId) {
+        return filterByUpstreamStep(conditionsByDownstreamStep.get(stepId), upstreamStepId);
+    }
+
+    private static List<Relationship> filterByUpstreamStep(List<Relationship> candidates, int upstreamStepId) {
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        List<Relationship> relationships = new ArrayList<>(candidates.size());
+        for (Relationship r : candidates) {
+            if (r.upstreamStep != null && r.upstreamStep.id == upstreamStepId) {
+                relationships.add(r);
+            }
+        }
+        return relationships;
+    }
+
+    /**
+     * Relationships of any action type that target a whole step, ordered by id.
+     *
+     * @param stepId the downstream step id
+     * @return the matching relationships
+     */
+    public List<Relationship> getStepRelationships(int stepId) {
+        return stepRelationshipsByDownstreamStep.getOrDefault(stepId, Collections.emptyList());
+    }
+
+    /**
+     * TEXT relationships that alter the headers of the given step, ordered by id.
+     *
+     * @param stepId the downstream step id
+     * @return the matching relationships
+     */
+    public List<Relationship> getTextRelationshipsByDownstreamStep(int stepId) {
+        return textRelationshipsByDownstreamStep.getOrDefault(stepId, Collections.emptyList());
+    }
+
+    /**
+     * @param stepId the step id
+     * @return the step display order, or -1 if the step is not used exactly once in the survey
+     */
+    public int getStepDisplayOrder(int stepId) {
+        return stepDisplayOrders.getOrDefault(stepId, -1);
+    }
+
+    /**
+     * @param stepsSectionsId the steps_sections id
+     * @return the section display order, or -1 if the row is not part of this survey
+     */
+    public int getSectionDisplayOrder(int stepsSectionsId) {
+        return sectionDisplayOrders.getOrDefault(stepsSectionsId, -1);
+    }
+
+    /**
+     * @return every steps_sections row of the survey ordered by display key
+     */
+    public List<StepsSections> getStepsSections() {
+        return new ArrayList<>(stepsSectionsByKey.values());
+    }
+
+    /**
+     * @param displayKey the exact display key
+     * @return the steps_sections row, or null if none matches
+     */
+    public StepsSections getStepsSections(String displayKey) {
+        return stepsSectionsByKey.get(displayKey);
+    }
+
+    /**
+     * Equivalent of a {@code display_key LIKE query} lookup where the query is one of the
+     * {@code DisplayKey.get*QueryString()} values ending in {@code %}.
+     *
+     * @param query the like pattern
+     * @return the matching rows ordered by display key
+     */
+    public List<StepsSections> findStepsSections(String query) {
+        String prefix = toPrefix(query);
+        return new ArrayList<>(stepsSectionsByKey.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values());
+    }
+
+    /**
+     * @param query the like pattern
+     * @return the first row matching the pattern in display key order, or null
+     */
+    public StepsSections findFirstStepsSections(String query) {
+        String prefix = toPrefix(query);
+        Map.Entry<String, StepsSections> entry = stepsSectionsByKey.ceilingEntry(prefix);
+        if (entry != null && entry.getKey().startsWith(prefix)) {
+            return entry.getValue();
+        }
+        return null;
+    }
+
+    private static String toPrefix(String query) {
+        return query.endsWith("%") ? query.substring(0, query.length() - 1) : query;
+    }
+
+    /**
+     * The questions shown when a step is first entered, before the respondent's own answers are
+     * taken into account: every question in a section of the step that is not the target of a
+     * relationship, is not in a section shown by a relationship and is not in a step shown by one.
+     *
+     * @param stepDisplayOrder the step display order
+     * @return the candidate section questions ordered by display order
+     */
+    public List<SectionsQuestion> getInitialStepQuestions(int stepDisplayOrder) {
+        List<SectionsQuestion> questions = new ArrayList<>();
+        for (StepsSections ss : stepsSectionsByKey.values()) {
+            if (ss.stepDisplayOrder != stepDisplayOrder) {
+                continue;
+            }
+            for (SectionsQuestion sq : questionsBySection.getOrDefault(ss.section.id, Collections.emptyList())) {
+                if (!downstreamQuestionIds.contains(sq.id)
+                        && !sectionsOfDownstreamSections.contains(sq.sectionId)
+                        && !sectionsOfDownstreamSteps.contains(sq.sectionId)) {
+                    questions.add(sq);
+                }
+            }
+        }
+        questions.sort(Comparator.comparing(sq -> sq.displayOrder));
+        return questions;
+    }
+
+    /**
+     * The questions created when a section is shown or repeated by a relationship.
+     *
+     * @param stepId                the value compared against steps_sections.step_id
+     * @param sectionDisplayOrder   the section display order
+     * @param loadStep              true when the whole step is being shown, false for a single section
+     * @return the section questions ordered by display order
+     */
+    public List<SectionsQuestion> getInitialSectionQuestions(int stepId, int sectionDisplayOrder, boolean loadStep) {
+        List<SectionsQuestion> questions = new ArrayList<>();
+        for (StepsSections ss : stepsSectionsByKey.values()) {
+            if (ss.step.id != stepId || ss.sectionDisplayOrder != sectionDisplayOrder) {
+                continue;
+            }
+            if (loadStep && stepsSectionsShownByStepRelationship.contains(ss.id)) {
+                continue;
+            }
+            Set<Integer> shownFromStep = sectionQuestionsShownFromStep.getOrDefault(ss.step.id, Collections.emptySet());
+            for (SectionsQuestion sq : questionsBySection.getOrDefault(ss.section.id, Collections.emptyList())) {
+                if (shownFromStep.contains(sq.id)) {
+                    continue;
+                }
+                if (!loadStep && questionsShownWithoutSection.contains(sq.id)) {
+                    continue;
+                }
+                questions.add(sq);
+            }
+        }
+        questions.sort(Comparator.comparing(sq -> sq.displayOrder));
+        return questions;
+    }
+}
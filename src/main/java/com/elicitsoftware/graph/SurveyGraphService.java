@@ -0,0 +1,143 @@
+package com.elicitsoftware.graph;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Relationship;
+import com.elicitsoftware.model.SectionsQuestion;
+import com.elicitsoftware.model.StepsSections;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one compiled {@link SurveyGraph} per survey.
+ * <p>
+ * Graphs are built lazily the first time a survey is used, inside the caller's transaction.
+ * Survey definitions are published by the authoring tool straight into the database, so there
+ * is no in-process publish event to listen to. Instead every graph remembers a fingerprint of the
+ * definition rows it was built from and, at most once per {@code survey.graph.check-interval},
+ * compares it with the database. A changed fingerprint means the survey was republished and the
+ * graph is rebuilt. {@link #invalidate(int)} and {@link #invalidateAll()} drop graphs immediately.
+ */
+@ApplicationScoped
+public class SurveyGraphService {
+
+    static final String FINGERPRINT_SQL = """
+            SELECT md5(concat_ws('|',
+                (SELECT string_agg(r::text, ',' ORDER BY r.id) FROM survey.relationships r WHERE r.survey_id = :surveyId),
+                (SELECT string_agg(ss::text, ',' ORDER BY ss.id) FROM survey.steps_sections ss WHERE ss.survey_id = :surveyId),
+                (SELECT string_agg(sq::text, ',' ORDER BY sq.id) FROM survey.sections_questions sq WHERE sq.survey_id = :surveyId),
+                (SELECT string_agg(q::text, ',' ORDER BY q.id) FROM survey.questions q WHERE q.survey_id = :surveyId),
+                (SELECT string_agg(s::text, ',' ORDER BY s.id) FROM survey.sections s WHERE s.survey_id = :surveyId),
+                (SELECT string_agg(st::text, ',' ORDER BY st.id) FROM survey.steps st WHERE st.survey_id = :surveyId),
+                (SELECT string_agg(si::text, ',' ORDER BY si.id) FROM survey.select_items si WHERE si.survey_id = :surveyId)))
+            """;
+
+    @Inject
+    EntityManager entityManager;
+
+    @ConfigProperty(name = "survey.graph.check-interval", defaultValue = "60s")
+    Duration checkInterval;
+
+    private final ConcurrentHashMap<Integer, Entry> graphs = new ConcurrentHashMap<>();
+
+    /**
+     * A compiled graph and the last time its fingerprint was confirmed against the database.
+     */
+    private static final class Entry {
+        final SurveyGraph graph;
+        volatile long checkedAt;
+
+        Entry(SurveyGraph graph, long checkedAt) {
+            this.graph = graph;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    /**
+     * Returns the compiled graph for a survey, building or rebuilding it when needed.
+     *
+     * @param surveyId the survey id
+     * @return the compiled graph
+     */
+    public SurveyGraph get(int surveyId) {
+        long now = System.nanoTime();
+        Entry entry = graphs.get(surveyId);
+        if (entry == null) {
+            return load(surveyId, fingerprint(surveyId), now);
+        }
+        if (now - entry.checkedAt > checkInterval.toNanos()) {
+            String fingerprint = fingerprint(surveyId);
+            if (!fingerprint.equals(entry.graph.getFingerprint())) {
+                Log.info("Survey " + surveyId + " definition changed, rebuilding its survey graph");
+                return load(surveyId, fingerprint, now);
+            }
+            entry.checkedAt = now;
+        }
+        return entry.graph;
+    }
+
+    /**
+     * Drops the compiled graph of a survey, e.g. after it has been republished.
+     *
+     * @param surveyId the survey id
+     */
+    public void invalidate(int surveyId) {
+        graphs.remove(surveyId);
+    }
+
+    /**
+     * Drops every compiled graph.
+     */
+    public void invalidateAll() {
+        graphs.clear();
+    }
+
+    /**
+     * Loads the definition rows of a survey and compiles them into a graph.
+     *
+     * @param surveyId    the survey id
+     * @param fingerprint the fingerprint of the rows being loaded
+     * @param now         the current {@link System#nanoTime()}
+     * @return the new graph
+     */
+    private SurveyGraph load(int surveyId, String fingerprint, long now) {
+        List<StepsSections> stepsSections = StepsSections.findBySurveyIdWithJoins(surveyId);
+        List<SectionsQuestion> sectionsQuestions = SectionsQuestion.findBySurveyIdWithJoins(surveyId);
+        List<Relationship> relationships = Relationship.findBySurveyIdWithJoins(surveyId);
+
+        SurveyGraph graph = new SurveyGraph(surveyId, fingerprint, relationships, stepsSections, sectionsQuestions);
+        graphs.put(surveyId, new Entry(graph, now));
+        Log.info("Compiled survey graph for survey " + surveyId + ": " + relationships.size() + " relationships, "
+                + stepsSections.size() + " steps/sections, " + sectionsQuestions.size() + " questions");
+        return graph;
+    }
+
+    /**
+     * Computes a digest of every definition row of a survey.
+     *
+     * @param surveyId the survey id
+     * @return the md5 digest, or an empty string for a survey without definition rows
+     */
+    private String fingerprint(int surveyId) {
+        Object result = entityManager.createNativeQuery(FINGERPRINT_SQL)
+                .setParameter("surveyId", surveyId)
+                .getSingleResult();
+        return result == null ? "" : result.toString();
+    }
+}
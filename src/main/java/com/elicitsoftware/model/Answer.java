@@ -70,7 +70,14 @@ import java.util.*;
         @NamedQuery(name = "Answer.findByAnswerQueryString", query = "SELECT a FROM Answer a WHERE a.deleted = false and a.displayKey Like :answerQuery and a.respondentId = :respondentId order by a.displayKey"),
         @NamedQuery(name = "Answer.findBySectionInstancesQueryString", query = "SELECT a FROM Answer a WHERE a.deleted = false and a.question is null and a.displayKey Like :sectionQuery and a.respondentId = :respondentId order by a.displayKey"),
         @NamedQuery(name = "Answer.findBySectionDisplaykey", query = "SELECT DISTINCT a FROM Answer a WHERE a.deleted = false and a.respondentId = :respondentId AND a.surveyId = :surveyId and a.stepId = :stepId and a.stepInstance = :stepInstance and a.sectionId = :sectionId and a.sectionInstance = :sectionInstance order by a.displayKey"),
-        @NamedQuery(name = "Answer.findUpstreamAnswerByRelationshipId", query = "SELECT a FROM Answer a inner JOIN Relationship r ON a.stepId = r.upstreamStep.id AND a.section_question_id = r.upstreamQuestion.id WHERE a.respondentId = :respondentId and r.id = :relationshipID order by a.displayKey")})
+        @NamedQuery(name = "Answer.findUpstreamAnswerByRelationshipId", query = "SELECT a FROM Answer a inner JOIN Relationship r ON a.stepId = r.upstreamStep.id AND a.section_question_id = r.upstreamQuestion.id WHERE a.respondentId = :respondentId and r.id = :relationshipID order by a.displayKey"),
+        @NamedQuery(name = "Answer.findLastByStepAndSectionQuestion", query = "SELECT a FROM Answer a WHERE a.respondentId = :respondentId and a.stepId = :stepId and a.section_question_id = :sectionQuestionId order by a.displayKey desc"),
+        @NamedQuery(name = "Answer.findLastActiveByQuestionInSection", query = "SELECT a FROM Answer a WHERE a.deleted = false and a.respondentId = :respondentId and a.question.id = :questionId and a.stepId = :stepId and a.stepInstance = :stepInstance and a.sectionId = :sectionId and a.sectionInstance = :sectionInstance order by a.displayKey desc"),
+        @NamedQuery(name = "Answer.findActiveByStepAndSection", query = "SELECT a FROM Answer a WHERE a.deleted = false and a.respondentId = :respondentId and a.surveyId = :surveyId and a.stepId = :stepId and a.sectionId = :sectionId order by a.displayKey"),
+        @NamedQuery(name = "Answer.findActiveBySectionQuestion", query = "SELECT a FROM Answer a WHERE a.deleted = false and a.respondentId = :respondentId and a.section_question_id = :sectionQuestionId order by a.displayKey"),
+        @NamedQuery(name = "Answer.findAnsweredSectionQuestionIds", query = "SELECT DISTINCT a.section_question_id FROM Answer a WHERE a.respondentId = :respondentId and a.section_question_id in :sectionQuestionIds"),
+        @NamedQuery(name = "Answer.findAllAnsweredSectionQuestionIds", query = "SELECT DISTINCT a.section_question_id FROM Answer a WHERE a.respondentId = :respondentId and a.section_question_id is not null"),
+        @NamedQuery(name = "Answer.findDisplayKeysByQueryString", query = "SELECT a.displayKey FROM Answer a WHERE a.respondentId = :respondentId and a.displayKey Like :query")})
 public class Answer extends PanacheEntityBase {
 
     /**
@@ -79,7 +86,8 @@ public class Answer extends PanacheEntityBase {
      * This field is annotated with JPA annotations to configure it as the primary key
      * of the Answer table. It is generated using a sequence generator named
      * "ANSWERS_ID_GENERATOR" with sequences configured in the "survey" schema.
-     * The generator ensures unique, sequential values for each Answer entity.
+     * The generator ensures unique values for each Answer entity; ids are reserved in blocks
+     * of the sequence increment (pooled-lo), so they are not strictly sequential.
      * <p>
      * Attributes:
      * - Marked with @Id to define it as the primary key.
@@ -89,7 +97,7 @@ public class Answer extends PanacheEntityBase {
      * - Annotated with @Column to enforce uniqueness, non-nullability, and specify precision.
      */
     @Id
-    @SequenceGenerator(name = "ANSWERS_ID_GENERATOR", schema = "survey", sequenceName = "ANSWERS_SEQ", allocationSize = 1)
+    @SequenceGenerator(name = "ANSWERS_ID_GENERATOR", schema = "survey", sequenceName = "ANSWERS_SEQ", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ANSWERS_ID_GENERATOR")
     @Column(unique = true, nullable = false, precision = 20)
     public Integer id;
@@ -464,6 +472,111 @@ public class Answer extends PanacheEntityBase {
         return find("#Answer.findUpstreamAnswerByRelationshipId", Parameters.with("respondentId", respondentId).and("relationshipID", relationshipID)).firstResult();
     }
 
+    /**
+     * Finds the last answer, in display key order, of a respondent for the given step value and
+     * section question, including deleted answers.
+     *
+     * @param respondentId      the unique identifier of the respondent
+     * @param stepId            the step value stored on the answer
+     * @param sectionQuestionId the section question identifier
+     * @return the matching answer, or null if none is found
+     */
+    public static Answer findLastByStepAndSectionQuestion(int respondentId, int stepId, int sectionQuestionId) {
+        return find("#Answer.findLastByStepAndSectionQuestion", Parameters.with("respondentId", respondentId)
+                .and("stepId", stepId).and("sectionQuestionId", sectionQuestionId)).firstResult();
+    }
+
+    /**
+     * Finds the last active answer, in display key order, to a question within the same step and
+     * section instance as the given answer.
+     *
+     * @param questionId the question identifier
+     * @param answer     the answer providing the respondent, step and section coordinates
+     * @return the matching answer, or null if none is found
+     */
+    public static Answer findLastActiveByQuestionInSection(int questionId, Answer answer) {
+        return find("#Answer.findLastActiveByQuestionInSection", Parameters.with("respondentId", answer.respondentId)
+                .and("questionId", questionId)
+                .and("stepId", answer.stepId)
+                .and("stepInstance", answer.stepInstance)
+                .and("sectionId", answer.sectionId)
+                .and("sectionInstance", answer.sectionInstance)).firstResult();
+    }
+
+    /**
+     * Finds the active answers of a respondent for every instance of a step and section.
+     *
+     * @param respondentId the unique identifier of the respondent
+     * @param surveyId     the survey identifier
+     * @param stepId       the step value stored on the answers
+     * @param sectionId    the section value stored on the answers
+     * @return the matching answers ordered by display key
+     */
+    public static List<Answer> findActiveByStepAndSection(int respondentId, int surveyId, int stepId, int sectionId) {
+        return find("#Answer.findActiveByStepAndSection", Parameters.with("respondentId", respondentId)
+                .and("surveyId", surveyId).and("stepId", stepId).and("sectionId", sectionId)).list();
+    }
+
+    /**
+     * Finds the active answers of a respondent to a section question, across all instances.
+     *
+     * @param respondentId      the unique identifier of the respondent
+     * @param sectionQuestionId the section question identifier
+     * @return the matching answers ordered by display key
+     */
+    public static List<Answer> findActiveBySectionQuestion(int respondentId, int sectionQuestionId) {
+        return find("#Answer.findActiveBySectionQuestion", Parameters.with("respondentId", respondentId)
+                .and("sectionQuestionId", sectionQuestionId)).list();
+    }
+
+    /**
+     * Returns which of the given section questions already have an answer, deleted or not,
+     * for the respondent.
+     *
+     * @param respondentId       the unique identifier of the respondent
+     * @param sectionQuestionIds the section question identifiers to check
+     * @return the subset of identifiers that have an answer
+     */
+    public static Set<Integer> findAnsweredSectionQuestionIds(int respondentId, Collection<Integer> sectionQuestionIds) {
+        if (sectionQuestionIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(getEntityManager()
+                .createNamedQuery("Answer.findAnsweredSectionQuestionIds", Integer.class)
+                .setParameter("respondentId", respondentId)
+                .setParameter("sectionQuestionIds", sectionQuestionIds)
+                .getResultList());
+    }
+
+    /**
+     * Returns every section question the respondent has an answer for, deleted or not.
+     *
+     * @param respondentId the unique identifier of the respondent
+     * @return the section question identifiers
+     */
+    public static Set<Integer> findAllAnsweredSectionQuestionIds(int respondentId) {
+        return new HashSet<>(getEntityManager()
+                .createNamedQuery("Answer.findAllAnsweredSectionQuestionIds", Integer.class)
+                .setParameter("respondentId", respondentId)
+                .getResultList());
+    }
+
+    /**
+     * Returns the display keys, deleted or not, of the respondent's answers matching a display key
+     * query string.
+     *
+     * @param respondentId the unique identifier of the respondent
+     * @param query        the display key query string, e.g. {@link DisplayKey#getSectionQueryString()}
+     * @return the matching display keys
+     */
+    public static Set<String> findDisplayKeysByQueryString(int respondentId, String query) {
+        return new HashSet<>(getEntityManager()
+                .createNamedQuery("Answer.findDisplayKeysByQueryString", String.class)
+                .setParameter("respondentId", respondentId)
+                .setParameter("query", query)
+                .getResultList());
+    }
+
     /**
      * Purges the deleted answers associated with the specified respondent ID.
      *
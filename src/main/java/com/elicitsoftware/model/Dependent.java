@@ -40,7 +40,7 @@ public class Dependent extends PanacheEntityBase {
 
     /** The unique identifier for this dependent record. */
     @Id
-    @SequenceGenerator(name = "DEPENDENTS_ID_GENERATOR", schema = "survey", sequenceName = "dependents_seq", allocationSize = 1)
+    @SequenceGenerator(name = "DEPENDENTS_ID_GENERATOR", schema = "survey", sequenceName = "dependents_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "DEPENDENTS_ID_GENERATOR")
     @Column(unique = true, nullable = false, precision = 20)
     public Integer id;
@@ -15,9 +15,6 @@ import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import io.quarkus.panache.common.Parameters;
 import jakarta.persistence.*;
 
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -62,8 +59,9 @@ import java.util.List;
  * against the given answer, returning true or false based on the operator's
  * logic and the provided answer's details.
  * <p>
- * The class leverages JPA for database interactions and includes transient fields
- * for internal utility purposes (e.g., date formatting during operator evaluation).
+ * The class leverages JPA for database interactions. Instances are shared between threads
+ * by the compiled survey graph; the operator is compiled once into a thread safe
+ * {@link RelationshipPredicate}.
  */
 @Entity
 @Table(name = "RELATIONSHIPS", schema = "survey")
@@ -77,8 +75,10 @@ import java.util.List;
         @NamedQuery(name = "Relationship.findRelationshipsByUpstreamQuestion", query = "SELECT r FROM Relationship r WHERE r.upstreamQuestion.id = :upstream_sq_id and r.surveyId = :surveyId and (r.upstreamStep.id = :upstream_step_id or r.upstreamStep.id is null)  order by r.id")})
 public class Relationship extends PanacheEntityBase {
 
+    // The compiled operator. Relationships are shared between threads through the
+    // compiled survey graph; compiling twice is harmless.
     @Transient
-    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+    private transient volatile RelationshipPredicate predicate;
 
     @Id
     @SequenceGenerator(name = "RELATIONSHIPS_ID_GENERATOR", schema = "survey", sequenceName = "RELATIONSHIPS_SEQ", allocationSize = 1)
@@ -209,12 +209,37 @@ public class Relationship extends PanacheEntityBase {
         return find("#Relationship.findRelationshipsByDownstreamAnswer", Parameters.with("respondentId", respondentId).and("answerId", answerId)).list();
     }
 
+    /**
+     * Fetches every relationship of a survey with its types, steps, sections and questions
+     * in a single query. Used to compile the in-memory survey graph.
+     *
+     * @param surveyId the identifier of the survey
+     * @return the relationships of the survey ordered by id
+     */
+    public static List<Relationship> findBySurveyIdWithJoins(int surveyId) {
+        return find("SELECT DISTINCT r FROM Relationship r " +
+                    "LEFT JOIN FETCH r.actionType " +
+                    "LEFT JOIN FETCH r.operatorType " +
+                    "LEFT JOIN FETCH r.upstreamStep " +
+                    "LEFT JOIN FETCH r.upstreamQuestion " +
+                    "LEFT JOIN FETCH r.downstreamStep " +
+                    "LEFT JOIN FETCH r.downstreamSection " +
+                    "LEFT JOIN FETCH r.downstreamQuestion " +
+                    "WHERE r.surveyId = :surveyId " +
+                    "ORDER BY r.id",
+                    Parameters.with("surveyId", surveyId))
+                .list();
+    }
+
     /**
      * Evaluates the result of applying an operator to an answer, based on the operator type
      * and reference values configured in the {@link Relationship} object. This method handles
      * various operator types such as BOOLEAN, LESS THAN, GREATER THAN, EQUAL, NOT_EQUAL,
      * FIELD_EXIST, and CONTAINS, performing appropriate comparisons or validations based on
      * the input and configuration.
+     * <p>
+     * The operator is compiled into a {@link RelationshipPredicate} on first use, so the
+     * reference value is only parsed once.
      *
      * @param answer the {@link Answer} object containing the input data to evaluate against
      *               the operator and reference value(s)
@@ -223,87 +248,17 @@ public class Relationship extends PanacheEntityBase {
      */
     @Transient
     public boolean evaluateOperator(Answer answer) {
-        boolean returnValue = false;
-
+        RelationshipPredicate p = predicate;
+        if (p == null) {
+            p = RelationshipPredicate.compile(this);
+            predicate = p;
+        }
         // Catch any errors from trying to transform data types.
         try {
-            switch (operatorType.name) {
-                case "BOOLEAN":
-                    returnValue = Boolean.parseBoolean(answer.getTextValue());
-                    break;
-                case "LESS THAN":
-                    if (this.upstreamQuestion.question.questionType.name.equals("DATE")) {
-                        Date dateValue = sdf.parse(answer.getTextValue());
-                        Date dateRef;
-                        try {
-                            dateRef = sdf.parse(this.referenceValue);
-                        } catch (Exception e) {
-                            // this is not a date in the date format
-                            dateRef = new Date();
-                        }
-                        returnValue = dateValue.compareTo(dateRef) < 0;
-
-                    } else {
-                        Double dValue = Double.valueOf(answer.getTextValue());
-                        if (this.referenceValue != null) {
-                            Double rVal = Double.valueOf(this.referenceValue);
-                            returnValue = dValue >= rVal;
-                        } else {
-                            // the default is false.
-                        }
-                    }
-                    break;
-                case "GREATER THAN":
-                    if (this.upstreamQuestion.question.questionType.name.equals("DATE")) {
-                        Date dateValue = sdf.parse(answer.getTextValue());
-                        Date dateRef;
-                        try {
-                            dateRef = sdf.parse(this.referenceValue);
-                        } catch (Exception e) {
-                            // this is not a date in the date format
-                            dateRef = new Date();
-                        }
-                        returnValue = dateValue.compareTo(dateRef) > -1;
-
-                    } else {
-                        double dValue = Double.parseDouble(answer.getTextValue());
-                        if (this.referenceValue != null) {
-                            double rVal = Double.parseDouble(this.referenceValue);
-                            returnValue = dValue >= rVal;
-                        } else {
-                            // the default is false.
-                        }
-                    }
-                    break;
-                case "EQUAL":
-                    if (this.referenceValue != null) {
-                        returnValue = answer.getTextValue().equalsIgnoreCase(this.referenceValue);
-                    }
-                    break;
-                case "NOT_EQUAL":
-                    if (answer.getTextValue() != null) {
-                        returnValue = !answer.getTextValue().equalsIgnoreCase(this.referenceValue);
-                    }
-                    break;
-                case "FIELD_EXIST":
-                    // If there is an answer then it does exists ( or was presented
-                    // )
-                    returnValue = true;
-                    break;
-                case "CONTAINS":
-                    // If the array contains the value then true
-                    String[] values = answer.getTextValue().split(",");
-                    if (Arrays.asList(values).contains(this.referenceValue)) {
-                        returnValue = true;
-                    }
-                    break;
-                default:
-                    break;
-            }
+            return p.test(answer);
         } catch (Exception e) {
-            // TODO log exception
             // return default value
+            return false;
         }
-        return returnValue;
     }
 }
@@ -0,0 +1,318 @@
+package com.elicitsoftware.model;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+/**
+ * The operator of a {@link Relationship}, compiled once with its reference value already parsed.
+ * <p>
+ * Every predicate gives exactly the result the original string switch of
+ * {@link Relationship#evaluateOperator(Answer)} gave, including its quirks: LESS THAN on numbers
+ * is true when the answer is greater than or equal to the reference, a date reference that
+ * cannot be parsed means now, and invalid input evaluates to false. The caller still turns any
+ * exception into false, so predicates may throw on input the original code threw on.
+ * <p>
+ * Answers in the usual formats, plain integers and {@code yyyy-MM-dd} dates, are evaluated
+ * without allocating; anything else is parsed the way the original code did.
+ */
+abstract class RelationshipPredicate {
+
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+
+    /**
+     * Dates before the Gregorian cutover are handled by the Julian calendar of
+     * {@link SimpleDateFormat}, so only later years take the fast path.
+     */
+    private static final int FIRST_FAST_YEAR = 1600;
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat(DATE_PATTERN));
+
+    static final RelationshipPredicate FALSE = new RelationshipPredicate() {
+        @Override
+        boolean test(Answer answer) {
+            return false;
+        }
+    };
+
+    static final RelationshipPredicate TRUE = new RelationshipPredicate() {
+        @Override
+        boolean test(Answer answer) {
+            return true;
+        }
+    };
+
+    /**
+     * Evaluates the operator against an answer.
+     *
+     * @param answer the upstream answer
+     * @return true if the condition of the relationship is met
+     * @throws ParseException if a date answer cannot be parsed
+     */
+    abstract boolean test(Answer answer) throws ParseException;
+
+    /**
+     * Compiles the operator of a relationship.
+     *
+     * @param relationship the relationship, with its operator type and upstream question loaded
+     * @return the predicate
+     */
+    static RelationshipPredicate compile(Relationship relationship) {
+        if (relationship.operatorType == null || relationship.operatorType.name == null) {
+            return FALSE;
+        }
+        String reference = relationship.referenceValue;
+        return switch (relationship.operatorType.name) {
+            case "BOOLEAN" -> new IsTrue();
+            case "LESS THAN" -> compare(relationship, true);
+            case "GREATER THAN" -> compare(relationship, false);
+            case "EQUAL" -> reference == null ? FALSE : new Equal(reference);
+            case "NOT_EQUAL" -> new NotEqual(reference);
+            case "FIELD_EXIST" -> TRUE;
+            case "CONTAINS" -> reference == null ? FALSE : new Contains(reference);
+            default -> FALSE;
+        };
+    }
+
+    private static RelationshipPredicate compare(Relationship relationship, boolean less) {
+        SectionsQuestion upstream = relationship.upstreamQuestion;
+        if (upstream == null || upstream.question == null || upstream.question.questionType == null
+                || upstream.question.questionType.name == null) {
+            return FALSE;
+        }
+        if (upstream.question.questionType.name.equals("DATE")) {
+            return new DateCompare(relationship.referenceValue, less);
+        }
+        // Numbers are compared with >= by both operators.
+        if (relationship.referenceValue == null) {
+            return FALSE;
+        }
+        try {
+            return new AtLeast(Double.parseDouble(relationship.referenceValue));
+        } catch (NumberFormatException e) {
+            return FALSE;
+        }
+    }
+
+    private static final class IsTrue extends RelationshipPredicate {
+        @Override
+        boolean test(Answer answer) {
+            return Boolean.parseBoolean(answer.getTextValue());
+        }
+    }
+
+    private static final class AtLeast extends RelationshipPredicate {
+        private final double reference;
+
+        AtLeast(double reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        boolean test(Answer answer) {
+            return parseNumber(answer.getTextValue()) >= reference;
+        }
+    }
+
+    private static final class DateCompare extends RelationshipPredicate {
+        private final boolean less;
+
+        /**
+         * True when the reference is not a date and the answer is compared with the current time.
+         */
+        private final boolean now;
+        private final long referenceMillis;
+
+        /**
+         * The reference as {@code yyyyMMdd}, or 0 when it needs the slow path.
+         */
+        private final int referenceDay;
+
+        DateCompare(String reference, boolean less) {
+            this.less = less;
+            long millis = 0;
+            boolean parsed;
+            try {
+                millis = DATE_FORMAT.get().parse(reference).getTime();
+                parsed = true;
+            } catch (Exception e) {
+                // this is not a date in the date format
+                parsed = false;
+            }
+            this.now = !parsed;
+            this.referenceMillis = millis;
+            this.referenceDay = parsed ? parseDay(reference) : 0;
+        }
+
+        @Override
+        boolean test(Answer answer) throws ParseException {
+            String text = answer.getTextValue();
+            int day = referenceDay == 0 ? 0 : parseDay(text);
+            if (day != 0) {
+                return less ? day < referenceDay : day >= referenceDay;
+            }
+            long value = DATE_FORMAT.get().parse(text).getTime();
+            long reference = now ? System.currentTimeMillis() : referenceMillis;
+            return less ? value < reference : value >= reference;
+        }
+    }
+
+    private static final class Equal extends RelationshipPredicate {
+        private final String reference;
+
+        Equal(String reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        boolean test(Answer answer) {
+            return answer.getTextValue().equalsIgnoreCase(reference);
+        }
+    }
+
+    private static final class NotEqual extends RelationshipPredicate {
+        private final String reference;
+
+        NotEqual(String reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        boolean test(Answer answer) {
+            String text = answer.getTextValue();
+            return text != null && !text.equalsIgnoreCase(reference);
+        }
+    }
+
+    /**
+     * True if the reference is one of the comma separated values of the answer, with the
+     * values {@code String.split(",")} would return.
+     */
+    private static final class Contains extends RelationshipPredicate {
+        private final String reference;
+
+        Contains(String reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        boolean test(Answer answer) {
+            String text = answer.getTextValue();
+            int length = text.length();
+            if (length == 0) {
+                // split returns the empty text itself.
+                return reference.isEmpty();
+            }
+            if (reference.isEmpty()) {
+                // split drops trailing empty values, so an empty value must come before a non-empty one.
+                boolean empty = false;
+                int start = 0;
+                while (start <= length) {
+                    int end = text.indexOf(',', start);
+                    if (end < 0) {
+                        end = length;
+                    }
+                    if (end == start) {
+                        empty = true;
+                    } else if (empty) {
+                        return true;
+                    }
+                    start = end + 1;
+                }
+                return false;
+            }
+            int referenceLength = reference.length();
+            int start = 0;
+            while (start < length) {
+                int end = text.indexOf(',', start);
+                if (end < 0) {
+                    end = length;
+                }
+                if (end - start == referenceLength && text.startsWith(reference, start)) {
+                    return true;
+                }
+                start = end + 1;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Parses a number like {@link Double#parseDouble(String)}, without allocating for plain integers.
+     */
+    static double parseNumber(String text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i = 1;
+        }
+        // Up to 15 digits are exact in a double.
+        if (i == length || length - i > 15) {
+            return Double.parseDouble(text);
+        }
+        long value = 0;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return Double.parseDouble(text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (negative) {
+            return value == 0 ? -0.0 : -value;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a date in exactly the {@code yyyy-MM-dd} form as the number {@code yyyyMMdd}, which
+     * orders like the dates themselves.
+     *
+     * @return the day number, or 0 when the text needs {@link SimpleDateFormat}
+     */
+    static int parseDay(String text) {
+        if (text == null || text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return 0;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        if (year < FIRST_FAST_YEAR || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return 0;
+        }
+        return year * 10000 + month * 100 + day;
+    }
+
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+}
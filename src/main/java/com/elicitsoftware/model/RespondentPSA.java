@@ -77,4 +77,7 @@ public class RespondentPSA extends PanacheEntityBase {
     @Column(name = "uploaded_dt")
     public OffsetDateTime uploadedDt;
 
+    @Column(name = "next_attempt_dt")
+    public OffsetDateTime nextAttemptDt = OffsetDateTime.now();
+
 }
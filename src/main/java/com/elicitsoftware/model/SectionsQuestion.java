@@ -12,8 +12,11 @@ package com.elicitsoftware.model;
  */
 
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import io.quarkus.panache.common.Parameters;
 import jakarta.persistence.*;
 
+import java.util.List;
+
 /**
  * Represents a mapping between sections and questions in the "sections_questions" table
  * within the "survey" schema. This entity is used to associate a question with a specific
@@ -51,4 +54,20 @@ public class SectionsQuestion extends PanacheEntityBase {
     @Column(name = "survey_id", nullable = false, precision = 20)
     public Integer surveyId;
 
+
+    /**
+     * Fetches every section question of a survey together with its question and question type
+     * in a single query.
+     *
+     * @param surveyId the ID of the survey
+     * @return the section questions of the survey
+     */
+    public static List<SectionsQuestion> findBySurveyIdWithJoins(int surveyId) {
+        return find("SELECT DISTINCT sq FROM SectionsQuestion sq " +
+                    "JOIN FETCH sq.question q " +
+                    "LEFT JOIN FETCH q.questionType " +
+                    "WHERE sq.surveyId = :surveyId",
+                    Parameters.with("surveyId", surveyId))
+                .list();
+    }
 }
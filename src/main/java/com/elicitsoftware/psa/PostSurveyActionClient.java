@@ -0,0 +1,177 @@
+package com.elicitsoftware.psa;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+
+/**
+ * Calls post-survey action endpoints over one shared {@link HttpClient}, so connections to the
+ * same service are pooled and reused instead of being opened for every respondent.
+ * <p>
+ * A call is an HTTP POST of {@code {"id":<respondentId>}} to the action URL. Any status outside
+ * 2xx, a timeout or a network error is an exception whose message explains the failure; it is
+ * stored with the action by {@link PostSurveyActionDispatcher}. Failures that trying again cannot
+ * fix, a missing or invalid URL and statuses other than 5xx, 408 and 429, are a
+ * {@link PermanentFailure}.
+ */
+@ApplicationScoped
+public class PostSurveyActionClient {
+
+    @ConfigProperty(name = "survey.post-survey-actions.connect-timeout", defaultValue = "10s")
+    Duration connectTimeout;
+
+    @ConfigProperty(name = "survey.post-survey-actions.request-timeout", defaultValue = "60s")
+    Duration requestTimeout;
+
+    private HttpClient client;
+
+    /**
+     * A failed call that fails the same way when it is tried again.
+     */
+    public static class PermanentFailure extends Exception {
+
+        PermanentFailure(String message) {
+            super(message);
+        }
+
+        PermanentFailure(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        client = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    @PreDestroy
+    void close() {
+        client.close();
+    }
+
+    /**
+     * Executes a post-survey action by calling its URL with the respondent ID.
+     * <p>
+     * Error handling includes:
+     * - URL validation to ensure the action URL is properly configured
+     * - HTTP status code validation with specific error messages
+     * - Network, timeout and communication error handling
+     * - Detailed error message extraction from response bodies
+     * - License validation error detection for service-specific failures
+     *
+     * @param name         the name of the action, used in error messages
+     * @param url          the URL of the action
+     * @param respondentId the ID of the respondent for whom the action is being executed
+     * @return the response body from the post-survey action service
+     * @throws PermanentFailure if the action is misconfigured or the service rejects the request
+     * @throws Exception        if the action fails due to network or service errors
+     */
+    public String call(String name, String url, int respondentId) throws Exception {
+        if (url == null || url.trim().isEmpty()) {
+            throw new PermanentFailure("Post Survey Action '" + name + "' Error: URL is null or empty - please check the action configuration");
+        }
+
+        if (respondentId <= 0) {
+            throw new PermanentFailure("Post Survey Action '" + name + "' Error: Invalid respondent ID (" + respondentId + ") - ID must be a positive number");
+        }
+
+        try {
+            // Create the JSON payload
+            String jsonPayload = "{\"id\":" + respondentId + "}";
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(jsonPayload))
+                    .build();
+
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            // Check if the response was successful (2xx status codes)
+            if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                return response.body();
+            }
+            String message = errorMessage(name, url, respondentId, response.statusCode(), response.body());
+            if (isRetryable(response.statusCode())) {
+                throw new Exception(message);
+            }
+            throw new PermanentFailure(message);
+
+        } catch (IllegalArgumentException e) {
+            throw new PermanentFailure("Post Survey Action '" + name + "' Error: Invalid URL format '" + url + "' - " + e.getMessage(), e);
+        } catch (HttpTimeoutException e) {
+            throw new Exception("Post Survey Action '" + name + "' Error: No response from " + url + " within " + requestTimeout.toSeconds() + " seconds", e);
+        } catch (IOException e) {
+            throw new Exception("Post Survey Action '" + name + "' Error: Network communication failed when calling " + url + " - " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restore interrupted status
+            throw new Exception("Post Survey Action '" + name + "' Error: Request was interrupted - " + e.getMessage(), e);
+        } catch (Exception e) {
+            // Re-throw our own exceptions, wrap others
+            if (e.getMessage() != null && e.getMessage().startsWith("Post Survey Action")) {
+                throw e;
+            } else {
+                throw new Exception("Post Survey Action '" + name + "' Error: Unexpected error - " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @return true if a response with the status may succeed when the call is tried again: a
+     * server error, a request timeout or too many requests
+     */
+    static boolean isRetryable(int statusCode) {
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+
+    /**
+     * Builds the message of an unsuccessful response, from the response body when there is one.
+     */
+    static String errorMessage(String name, String url, int respondentId, int statusCode, String responseBody) {
+        if (responseBody != null && !responseBody.trim().isEmpty()) {
+            // Check for license-related errors
+            if (statusCode == 403 || responseBody.toLowerCase().contains("license")) {
+                String errorMessage = "Post Survey Action '" + name + "' Error: License validation failed - " + responseBody;
+                if (!errorMessage.toLowerCase().contains("premm5") && url.toLowerCase().contains("premm5")) {
+                    errorMessage += " - Please ensure your PREMM5 license is valid and properly configured.";
+                }
+                return errorMessage;
+            }
+            return "Post Survey Action '" + name + "' Error: HTTP " + statusCode + " - " + responseBody;
+        }
+        // No response body, provide status-based error message
+        return switch (statusCode) {
+            case 400 -> "Post Survey Action '" + name + "' Error: Bad Request (400) - Invalid request data for respondent ID " + respondentId;
+            case 401 -> "Post Survey Action '" + name + "' Error: Unauthorized (401) - Authentication required";
+            case 403 -> "Post Survey Action '" + name + "' Error: Forbidden (403) - License validation may have failed. Please check your license configuration.";
+            case 404 -> "Post Survey Action '" + name + "' Error: Not Found (404) - Service endpoint not available at " + url;
+            case 500 -> "Post Survey Action '" + name + "' Error: Internal Server Error (500) - The service encountered an internal error";
+            case 502 -> "Post Survey Action '" + name + "' Error: Bad Gateway (502) - Service is temporarily unavailable";
+            case 503 -> "Post Survey Action '" + name + "' Error: Service Unavailable (503) - Service is temporarily down for maintenance";
+            default -> "Post Survey Action '" + name + "' Error: HTTP " + statusCode + " - Service returned an error status";
+        };
+    }
+}
@@ -0,0 +1,207 @@
+package com.elicitsoftware.psa;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls the post-survey actions queued in the {@link PostSurveyActionOutbox} in the background,
+ * so finalizing a respondent never waits for an action service.
+ * <p>
+ * One virtual thread polls the outbox every {@code survey.post-survey-actions.poll-interval}, or
+ * right away after {@link #wakeUp()}, and claims as many due calls as there are free workers.
+ * Every call runs on its own virtual thread, at most {@code survey.post-survey-actions.workers}
+ * at a time. A failed call is tried again after an exponential backoff, from
+ * {@code survey.post-survey-actions.initial-backoff} up to
+ * {@code survey.post-survey-actions.max-backoff}, and is marked FAILED after
+ * {@code survey.post-survey-actions.max-tries} tries. Only network errors and 5xx, 408 and 429
+ * responses are tried again; a {@link PostSurveyActionClient.PermanentFailure}, like a missing URL
+ * or another 4xx response, is marked FAILED right away.
+ * <p>
+ * Every call is timed as {@code survey.post.action}, tagged with the action and the outcome, and
+ * calls given up on are counted as {@code survey.post.action.failed}.
+ */
+@ApplicationScoped
+public class PostSurveyActionDispatcher {
+
+    @ConfigProperty(name = "survey.post-survey-actions.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "survey.post-survey-actions.workers", defaultValue = "8")
+    int workers;
+
+    @ConfigProperty(name = "survey.post-survey-actions.poll-interval", defaultValue = "5s")
+    Duration pollInterval;
+
+    @ConfigProperty(name = "survey.post-survey-actions.max-tries", defaultValue = "8")
+    int maxTries;
+
+    @ConfigProperty(name = "survey.post-survey-actions.initial-backoff", defaultValue = "30s")
+    Duration initialBackoff;
+
+    @ConfigProperty(name = "survey.post-survey-actions.max-backoff", defaultValue = "1h")
+    Duration maxBackoff;
+
+    @ConfigProperty(name = "survey.post-survey-actions.lease", defaultValue = "5m")
+    Duration lease;
+
+    @Inject
+    PostSurveyActionOutbox outbox;
+
+    @Inject
+    PostSurveyActionClient client;
+
+    private final BlockingQueue<Boolean> wakeUps = new ArrayBlockingQueue<>(1);
+    private Semaphore freeWorkers;
+    private ExecutorService executor;
+    private Thread poller;
+    private volatile boolean running;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            Log.info("Post-survey action dispatcher is disabled");
+            return;
+        }
+        freeWorkers = new Semaphore(workers);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        running = true;
+        poller = Thread.ofVirtual().name("post-survey-actions").start(this::poll);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.interrupt();
+        executor.shutdown();
+        try {
+            // Unfinished calls keep their lease and are claimed again after a restart.
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Makes the dispatcher look for due calls now, e.g. after a respondent was finalized.
+     */
+    public void wakeUp() {
+        wakeUps.offer(Boolean.TRUE);
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                if (dispatchDue() == 0) {
+                    wakeUps.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                Log.error("Post-survey action dispatcher could not read the outbox: " + e.getMessage(), e);
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a free worker, claims due calls for the free workers and starts them.
+     *
+     * @return the number of calls started
+     * @throws InterruptedException if the dispatcher is stopped while waiting for a worker
+     */
+    int dispatchDue() throws InterruptedException {
+        freeWorkers.acquire();
+        int permits = 1 + freeWorkers.drainPermits();
+        List<PostSurveyActionOutbox.Claim> claims;
+        try {
+            claims = outbox.claim(permits, lease);
+        } catch (RuntimeException e) {
+            freeWorkers.release(permits);
+            throw e;
+        }
+        freeWorkers.release(permits - claims.size());
+        for (PostSurveyActionOutbox.Claim claim : claims) {
+            executor.submit(() -> {
+                try {
+                    call(claim);
+                } finally {
+                    freeWorkers.release();
+                }
+            });
+        }
+        return claims.size();
+    }
+
+    /**
+     * Calls one action and records the outcome in the outbox.
+     */
+    private void call(PostSurveyActionOutbox.Claim claim) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            client.call(claim.name(), claim.url(), claim.respondentId());
+            outbox.complete(claim);
+            Log.debug("Post survey action " + claim.name() + " completed successfully for respondent " + claim.respondentId());
+        } catch (Exception e) {
+            outcome = "failure";
+            if (e instanceof PostSurveyActionClient.PermanentFailure) {
+                outbox.fail(claim, e.getMessage());
+                Metrics.globalRegistry.counter("survey.post.action.failed", "action", claim.name()).increment();
+                Log.error("Post survey action " + claim.name() + " failed for respondent " + claim.respondentId()
+                        + " and is not tried again: " + e.getMessage());
+            } else if (claim.tries() >= maxTries) {
+                outbox.fail(claim, e.getMessage());
+                Metrics.globalRegistry.counter("survey.post.action.failed", "action", claim.name()).increment();
+                Log.error("Post survey action " + claim.name() + " failed for respondent " + claim.respondentId()
+                        + " after " + claim.tries() + " tries: " + e.getMessage(), e);
+            } else {
+                Duration delay = PostSurveyActionOutbox.backoff(claim.tries(), initialBackoff, maxBackoff);
+                outbox.retry(claim, e.getMessage(), delay);
+                Log.warn("Post survey action " + claim.name() + " failed for respondent " + claim.respondentId()
+                        + " on try " + claim.tries() + ", trying again in " + delay.toSeconds() + "s: " + e.getMessage());
+            }
+        } finally {
+            Timer.builder("survey.post.action")
+                    .description("Time to call a post-survey action")
+                    .tag("action", claim.name())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(Metrics.globalRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
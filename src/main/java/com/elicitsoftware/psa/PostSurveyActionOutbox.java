@@ -0,0 +1,205 @@
+package com.elicitsoftware.psa;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code survey.respondent_psa} table used as an outbox of post-survey action calls.
+ * <p>
+ * A row is due while it is PENDING or RESENDING, has no {@code uploaded_dt} and its
+ * {@code next_attempt_dt} has passed. Claiming a row counts a try and pushes
+ * {@code next_attempt_dt} out by a lease, in a short transaction of its own, so the call itself
+ * runs without holding a lock or a connection. Claims use {@code FOR UPDATE SKIP LOCKED}, so
+ * several nodes can dispatch from the same table without waiting on each other or claiming the
+ * same row.
+ */
+@ApplicationScoped
+public class PostSurveyActionOutbox {
+
+    public static final String PENDING = "PENDING";
+    public static final String RESENDING = "RESENDING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    /**
+     * The length of {@code respondent_psa.error_msg}.
+     */
+    static final int MAX_ERROR_LENGTH = 255;
+
+    static final String ENQUEUE_SQL = """
+            INSERT INTO survey.respondent_psa (id, respondent_id, post_survey_action_id, tries, status, next_attempt_dt)
+            SELECT nextval('survey.post_survey_actions_seq'), r.id, p.id, 0, 'PENDING', CURRENT_TIMESTAMP
+            FROM survey.respondents r
+            JOIN survey.post_survey_actions p ON p.survey_id = r.survey_id
+            WHERE r.id = :respondentId
+            ON CONFLICT (respondent_id, post_survey_action_id) DO UPDATE
+            SET status = 'RESENDING', tries = 0, error_msg = NULL, uploaded_dt = NULL, next_attempt_dt = CURRENT_TIMESTAMP
+            """;
+
+    static final String CLAIM_SQL = """
+            UPDATE survey.respondent_psa r
+            SET tries = r.tries + 1, next_attempt_dt = CURRENT_TIMESTAMP + make_interval(secs => :leaseSeconds)
+            FROM survey.post_survey_actions p
+            WHERE p.id = r.post_survey_action_id
+            AND r.id IN (SELECT d.id FROM survey.respondent_psa d
+                         WHERE d.uploaded_dt IS NULL AND d.status IN ('PENDING', 'RESENDING')
+                         AND d.next_attempt_dt <= CURRENT_TIMESTAMP
+                         ORDER BY d.next_attempt_dt
+                         LIMIT :limit
+                         FOR UPDATE SKIP LOCKED)
+            RETURNING r.id, r.respondent_id, r.tries, p.name, p.url
+            """;
+
+    static final String COMPLETE_SQL = """
+            UPDATE survey.respondent_psa
+            SET status = 'COMPLETED', uploaded_dt = CURRENT_TIMESTAMP, error_msg = NULL
+            WHERE id = :id
+            """;
+
+    static final String RETRY_SQL = """
+            UPDATE survey.respondent_psa
+            SET error_msg = :error, next_attempt_dt = CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds)
+            WHERE id = :id
+            """;
+
+    static final String FAIL_SQL = """
+            UPDATE survey.respondent_psa
+            SET status = 'FAILED', error_msg = :error
+            WHERE id = :id
+            """;
+
+    @Inject
+    EntityManager entityManager;
+
+    /**
+     * A claimed call.
+     *
+     * @param id           the respondent_psa id
+     * @param respondentId the respondent
+     * @param tries        the tries including this one
+     * @param name         the action name
+     * @param url          the action URL
+     */
+    public record Claim(int id, int respondentId, int tries, String name, String url) {
+    }
+
+    /**
+     * Queues every post-survey action of the respondent's survey. Actions that were queued
+     * before are queued again as RESENDING with their tries reset.
+     *
+     * @param respondentId the finalized respondent
+     * @return the number of actions queued
+     */
+    @Transactional
+    public int enqueue(int respondentId) {
+        return entityManager.createNativeQuery(ENQUEUE_SQL)
+                .setParameter("respondentId", respondentId)
+                .executeUpdate();
+    }
+
+    /**
+     * Claims due calls in a transaction of its own.
+     *
+     * @param limit the most calls to claim
+     * @param lease how long a claimed call stays hidden from other dispatchers
+     * @return the claimed calls
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public List<Claim> claim(int limit, Duration lease) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(CLAIM_SQL)
+                .setParameter("leaseSeconds", (double) lease.toSeconds())
+                .setParameter("limit", limit)
+                .getResultList();
+        List<Claim> claims = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            claims.add(new Claim(((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+                    ((Number) row[2]).intValue(), (String) row[3], (String) row[4]));
+        }
+        return claims;
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @param claim the call
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void complete(Claim claim) {
+        entityManager.createNativeQuery(COMPLETE_SQL)
+                .setParameter("id", claim.id())
+                .executeUpdate();
+    }
+
+    /**
+     * Records a failed call, which is tried again after the delay.
+     *
+     * @param claim the call
+     * @param error the failure
+     * @param delay the time until the next try
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void retry(Claim claim, String error, Duration delay) {
+        entityManager.createNativeQuery(RETRY_SQL)
+                .setParameter("id", claim.id())
+                .setParameter("error", truncate(error))
+                .setParameter("delaySeconds", delay.toMillis() / 1000.0)
+                .executeUpdate();
+    }
+
+    /**
+     * Records a failed call that is not tried again.
+     *
+     * @param claim the call
+     * @param error the failure
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void fail(Claim claim, String error) {
+        entityManager.createNativeQuery(FAIL_SQL)
+                .setParameter("id", claim.id())
+                .setParameter("error", truncate(error))
+                .executeUpdate();
+    }
+
+    /**
+     * Returns the delay before the next try: the initial backoff doubled for every try after the
+     * first, at most the maximum backoff.
+     *
+     * @param tries      the tries made so far, at least 1
+     * @param initial    the delay after the first try
+     * @param maximum    the longest delay
+     * @return the delay
+     */
+    static Duration backoff(int tries, Duration initial, Duration maximum) {
+        int doublings = Math.min(Math.max(tries - 1, 0), 30);
+        long millis = initial.toMillis() << doublings;
+        if (millis < 0 || millis > maximum.toMillis()) {
+            return maximum;
+        }
+        return Duration.ofMillis(millis);
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
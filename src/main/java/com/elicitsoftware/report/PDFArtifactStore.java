@@ -0,0 +1,318 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps rendered PDFs for {@code survey.pdf.expiry} under a random key.
+ * <p>
+ * Every PDF is written to {@code survey.pdf.store.directory}, or a temporary directory when it is
+ * not set. With a directory on a shared volume PDFs survive a restart and can be downloaded from
+ * any replica. The most recently used PDFs are also kept in memory, up to
+ * {@code survey.pdf.store.memory-size} in total. A sweeper deletes expired PDFs every
+ * {@code survey.pdf.store.sweep-interval} and then the oldest ones beyond
+ * {@code survey.pdf.store.max-size}.
+ * <p>
+ * {@code survey.pdf.store.size} and {@code survey.pdf.store.entries} are tagged with the tier,
+ * and {@code survey.pdf.store.evictions} is tagged with the tier and the reason.
+ */
+@ApplicationScoped
+public class PDFArtifactStore {
+
+    private static final String SUFFIX = ".pdf";
+
+    /**
+     * Writes the content of a new PDF.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * A stored PDF; {@code content} is null unless it is held in memory.
+     */
+    public record Artifact(String key, long size, long createdMillis, byte[] content, Path file) {
+
+        /**
+         * @return a strong entity tag; the content of a key never changes
+         */
+        public String etag() {
+            return "\"" + key + "-" + size + "\"";
+        }
+    }
+
+    private record Cached(byte[] content, long createdMillis) {
+    }
+
+    @ConfigProperty(name = "survey.pdf.store.directory")
+    Optional<String> configuredDirectory;
+
+    @ConfigProperty(name = "survey.pdf.expiry", defaultValue = "10m")
+    Duration expiry;
+
+    @ConfigProperty(name = "survey.pdf.store.max-size", defaultValue = "1G")
+    MemorySize maxSize;
+
+    @ConfigProperty(name = "survey.pdf.store.memory-size", defaultValue = "32M")
+    MemorySize memorySize;
+
+    @ConfigProperty(name = "survey.pdf.store.sweep-interval", defaultValue = "1m")
+    Duration sweepInterval;
+
+    // Access ordered, so iteration starts at the least recently used PDF.
+    private final LinkedHashMap<String, Cached> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong memoryBytes = new AtomicLong();
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final AtomicLong diskEntries = new AtomicLong();
+    private Path directory;
+    private boolean temporary;
+    private Thread sweeper;
+
+    void onStart(@Observes StartupEvent event) throws IOException {
+        if (configuredDirectory.isPresent()) {
+            open(Files.createDirectories(Path.of(configuredDirectory.get())), false);
+        } else {
+            open(Files.createTempDirectory("survey-pdf"), true);
+        }
+        Gauge.builder("survey.pdf.store.size", memoryBytes, AtomicLong::get)
+                .description("Bytes of PDFs held in memory")
+                .baseUnit("bytes")
+                .tag("tier", "memory")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("survey.pdf.store.size", diskBytes, AtomicLong::get)
+                .description("Bytes of PDFs stored on disk")
+                .baseUnit("bytes")
+                .tag("tier", "disk")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("survey.pdf.store.entries", this, store -> store.memoryEntries())
+                .description("PDFs held in memory")
+                .tag("tier", "memory")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("survey.pdf.store.entries", diskEntries, AtomicLong::get)
+                .description("PDFs stored on disk")
+                .tag("tier", "disk")
+                .register(Metrics.globalRegistry);
+        sweeper = Thread.ofVirtual().name("pdf-store-sweeper").start(this::sweepPeriodically);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (sweeper != null) {
+            sweeper.interrupt();
+        }
+        if (temporary && directory != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                files.forEach(PDFArtifactStore::delete);
+            } catch (IOException e) {
+                Log.warn("Could not list " + directory + ": " + e.getMessage());
+            }
+            delete(directory);
+        }
+    }
+
+    /**
+     * Uses the directory and counts the PDFs already in it.
+     *
+     * @param temporary whether the directory is deleted on shutdown
+     */
+    void open(Path directory, boolean temporary) throws IOException {
+        this.directory = directory;
+        this.temporary = temporary;
+        sweep();
+    }
+
+    /**
+     * Stores a new PDF; it becomes visible under its key once it is completely written.
+     *
+     * @return the key to find the PDF by
+     */
+    public String store(ContentWriter writer) throws IOException {
+        String key = UUID.randomUUID().toString();
+        Path file = directory.resolve(key + SUFFIX);
+        Path partial = directory.resolve(key + SUFFIX + ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                writer.write(out);
+            }
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            delete(partial);
+        }
+        long size = Files.size(file);
+        diskBytes.addAndGet(size);
+        diskEntries.incrementAndGet();
+        if (size <= memorySize.asLongValue()) {
+            cache(key, new Cached(Files.readAllBytes(file), System.currentTimeMillis()));
+        }
+        return key;
+    }
+
+    /**
+     * @return the PDF stored under the key, unless it is unknown or expired
+     */
+    public Optional<Artifact> find(String key) throws IOException {
+        if (!isKey(key)) {
+            return Optional.empty();
+        }
+        long cutoff = System.currentTimeMillis() - expiry.toMillis();
+        Path file = directory.resolve(key + SUFFIX);
+        Cached cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached != null && cached.createdMillis() >= cutoff) {
+            return Optional.of(new Artifact(key, cached.content().length, cached.createdMillis(), cached.content(), file));
+        }
+        // Not in memory: written by another replica or before a restart, or evicted.
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        long createdMillis = Files.getLastModifiedTime(file).toMillis();
+        if (createdMillis < cutoff) {
+            return Optional.empty();
+        }
+        return Optional.of(new Artifact(key, Files.size(file), createdMillis, null, file));
+    }
+
+    /**
+     * Deletes expired PDFs, then the oldest ones until the directory fits in
+     * {@code survey.pdf.store.max-size}, and drops expired PDFs from memory.
+     */
+    void sweep() throws IOException {
+        long cutoff = System.currentTimeMillis() - expiry.toMillis();
+        synchronized (memory) {
+            Iterator<Map.Entry<String, Cached>> entries = memory.entrySet().iterator();
+            while (entries.hasNext()) {
+                Cached cached = entries.next().getValue();
+                if (cached.createdMillis() < cutoff) {
+                    entries.remove();
+                    memoryBytes.addAndGet(-cached.content().length);
+                    evicted("memory", "expired");
+                }
+            }
+        }
+
+        record StoredFile(Path path, long size, long modifiedMillis) {
+        }
+        List<StoredFile> files = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SUFFIX + "*")) {
+            for (Path path : paths) {
+                try {
+                    files.add(new StoredFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                } catch (IOException e) {
+                    // Deleted meanwhile, e.g. by the sweeper of another replica.
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong(StoredFile::modifiedMillis));
+        long total = files.stream().mapToLong(StoredFile::size).sum();
+        long count = files.size();
+        for (StoredFile file : files) {
+            String reason;
+            if (file.modifiedMillis() < cutoff) {
+                reason = "expired";
+            } else if (total > maxSize.asLongValue() && file.path().toString().endsWith(SUFFIX)) {
+                reason = "size";
+            } else {
+                continue;
+            }
+            delete(file.path());
+            total -= file.size();
+            count--;
+            evicted("disk", reason);
+        }
+        diskBytes.set(total);
+        diskEntries.set(count);
+    }
+
+    private void sweepPeriodically() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(sweepInterval.toMillis());
+                sweep();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                Log.error("Could not sweep the PDF store: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void cache(String key, Cached cached) {
+        synchronized (memory) {
+            memory.put(key, cached);
+            long bytes = memoryBytes.addAndGet(cached.content().length);
+            Iterator<Cached> lru = memory.values().iterator();
+            while (bytes > memorySize.asLongValue() && lru.hasNext()) {
+                Cached evicted = lru.next();
+                lru.remove();
+                bytes = memoryBytes.addAndGet(-evicted.content().length);
+                evicted("memory", "size");
+            }
+        }
+    }
+
+    private int memoryEntries() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    private static void evicted(String tier, String reason) {
+        Metrics.globalRegistry.counter("survey.pdf.store.evictions", "tier", tier, "reason", reason).increment();
+    }
+
+    /**
+     * Keys are UUIDs; anything else, like a path, is never looked up.
+     */
+    static boolean isKey(String key) {
+        try {
+            return key != null && UUID.fromString(key).toString().equals(key);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Log.warn("Could not delete " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -11,81 +11,163 @@ package com.elicitsoftware.report;
  * ***LICENSE_END***
  */
 
-import java.util.concurrent.ConcurrentHashMap;
-
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
 
 /**
  * REST resource for handling PDF downloads.
  * This endpoint provides PDF download functionality without using deprecated StreamResource.
- * It retrieves PDF data from an in-memory cache and streams it directly to the client.
+ * It streams PDFs from the {@link PDFArtifactStore}, from memory or straight from their files,
+ * so large PDFs never have to be read onto the heap.
+ * <p>
+ * Responses carry an ETag and honour {@code If-None-Match}, and a single byte range may be
+ * requested with {@code Range}, optionally guarded by {@code If-Range}, to resume a download.
  */
 @Path("/api/pdf/download")
 public class PDFDownloadResource {
-    
-    // Thread-safe cache for PDF data with timestamps
-    private static final ConcurrentHashMap<String, PDFCacheEntry> PDF_CACHE = new ConcurrentHashMap<>();
-    private static final long CACHE_EXPIRY_MS = 10 * 60 * 1000; // 10 minutes
-
-    /**
-     * Inner class to store PDF content with timestamp for expiry
-     */
-    private static class PDFCacheEntry {
-        byte[] content;
-        long timestamp;
-
-        PDFCacheEntry(byte[] content) {
-            this.content = content;
-            this.timestamp = System.currentTimeMillis();
-        }
 
-        boolean isExpired() {
-            return System.currentTimeMillis() - timestamp > CACHE_EXPIRY_MS;
-        }
-    }
+    @Inject
+    PDFArtifactStore store;
 
     /**
-     * Store PDF content in the cache
+     * An inclusive byte range of the PDF.
      */
-    public static String cachePDF(byte[] pdfContent) {
-        String key = "pdf_" + System.currentTimeMillis() + "_" + System.nanoTime();
-        PDF_CACHE.put(key, new PDFCacheEntry(pdfContent));
-        return key;
+    record ByteRange(long first, long last) {
+        long length() {
+            return last - first + 1;
+        }
     }
 
     @GET
     @Produces("application/pdf")
-    public Response downloadPDF(@QueryParam("key") String key) {
+    public Response downloadPDF(@QueryParam("key") String key,
+                                @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                                @HeaderParam("Range") String range,
+                                @HeaderParam("If-Range") String ifRange) throws IOException {
         if (key == null || key.isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity("Missing key parameter")
                     .build();
         }
 
-        PDFCacheEntry entry = PDF_CACHE.get(key);
-        if (entry == null || entry.isExpired()) {
-            // Clean up expired entry
-            PDF_CACHE.remove(key);
+        Optional<PDFArtifactStore.Artifact> found = store.find(key);
+        if (found.isEmpty()) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity("PDF not found or expired")
                     .build();
         }
+        PDFArtifactStore.Artifact pdf = found.get();
+        // Note: Keep the PDF for retries - the store deletes it once it expires
+
+        if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(pdf.etag()))) {
+            return headers(Response.notModified(), pdf).build();
+        }
 
-        byte[] pdfContent = entry.content;
-        // Note: Keep the cache entry alive for retries - don't remove it immediately
-        // It will expire naturally after CACHE_EXPIRY_MS
+        ByteRange byteRange = null;
+        if (range != null && (ifRange == null || ifRange.trim().equals(pdf.etag()))) {
+            byteRange = parseRange(range, pdf.size()).orElse(null);
+        }
 
         // Return the PDF content with appropriate headers
-        return Response.ok(pdfContent)
+        if (byteRange == null) {
+            return headers(Response.ok(content(pdf, new ByteRange(0, pdf.size() - 1))), pdf)
+                    .header("Content-Length", pdf.size())
+                    .build();
+        }
+        return headers(Response.status(Response.Status.PARTIAL_CONTENT).entity(content(pdf, byteRange)), pdf)
+                .header("Content-Range", "bytes " + byteRange.first() + "-" + byteRange.last() + "/" + pdf.size())
+                .header("Content-Length", byteRange.length())
+                .build();
+    }
+
+    private static Response.ResponseBuilder headers(Response.ResponseBuilder builder, PDFArtifactStore.Artifact pdf) {
+        return builder
                 .header("Content-Type", "application/pdf")
                 .header("Content-Disposition", "inline; filename=\"family_history_report.pdf\"")
+                .header("ETag", pdf.etag())
+                .header("Accept-Ranges", "bytes")
                 .header("Cache-Control", "no-cache, no-store, must-revalidate")
                 .header("Pragma", "no-cache")
-                .header("Expires", "0")
-                .build();
+                .header("Expires", "0");
+    }
+
+    private static StreamingOutput content(PDFArtifactStore.Artifact pdf, ByteRange range) {
+        if (pdf.content() != null) {
+            return out -> out.write(pdf.content(), (int) range.first(), (int) range.length());
+        }
+        return out -> {
+            try (FileChannel file = FileChannel.open(pdf.file(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = range.first();
+                long remaining = range.length();
+                while (remaining > 0) {
+                    long sent = file.transferTo(position, remaining, target);
+                    if (sent <= 0) {
+                        break;
+                    }
+                    position += sent;
+                    remaining -= sent;
+                }
+            }
+        };
+    }
+
+    /**
+     * Parses a {@code Range} header with a single byte range.
+     *
+     * @return the range, or empty to send the whole PDF for several ranges or another unit
+     * @throws WebApplicationException with status 416 if the range is not satisfiable
+     */
+    static Optional<ByteRange> parseRange(String header, long size) {
+        String value = header.trim();
+        if (!value.startsWith("bytes=") || value.contains(",")) {
+            return Optional.empty();
+        }
+        String spec = value.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            throw notSatisfiable(size);
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Suffix range: the last n bytes.
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    throw notSatisfiable(size);
+                }
+                return Optional.of(new ByteRange(Math.max(0, size - suffix), size - 1));
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size || end < start) {
+                throw notSatisfiable(size);
+            }
+            return Optional.of(new ByteRange(start, end));
+        } catch (NumberFormatException e) {
+            throw notSatisfiable(size);
+        }
+    }
+
+    private static WebApplicationException notSatisfiable(long size) {
+        return new WebApplicationException(Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header("Content-Range", "bytes */" + size)
+                .build());
     }
 }
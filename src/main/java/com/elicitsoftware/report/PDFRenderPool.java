@@ -0,0 +1,160 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders report PDFs off the UI thread, on {@code survey.pdf.workers} threads shared by all
+ * sessions. Up to {@code survey.pdf.queue-capacity} further requests wait for a free worker;
+ * beyond that {@link #submit} rejects the request instead of queueing without bound.
+ * <p>
+ * Every PDF is written straight into the {@link PDFArtifactStore}, under the key that
+ * {@link PDFDownloadResource} serves it by. A PDF of a finalized respondent is rendered once and
+ * kept in the {@link ReportCache}; later requests copy it into the store instead of rendering.
+ * <p>
+ * {@code survey.pdf.queue.depth} and {@code survey.pdf.active} are the requests waiting and
+ * rendering, renders are timed as {@code survey.pdf.render}, tagged with the outcome, and
+ * rejected requests are counted as {@code survey.pdf.rejected}.
+ */
+@ApplicationScoped
+public class PDFRenderPool {
+
+    @ConfigProperty(name = "survey.pdf.workers", defaultValue = "2")
+    int workers;
+
+    @ConfigProperty(name = "survey.pdf.queue-capacity", defaultValue = "32")
+    int queueCapacity;
+
+    @Inject
+    Instance<PDFService> renderers;
+
+    @Inject
+    PDFArtifactStore store;
+
+    @Inject
+    ReportCache reportCache;
+
+    private ThreadPoolExecutor executor;
+
+    void onStart(@Observes StartupEvent event) {
+        // Rendering is CPU bound, so a few platform threads rather than a virtual thread per request.
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("pdf-render-", 0).daemon().factory());
+        Gauge.builder("survey.pdf.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("PDF requests waiting for a render worker")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("survey.pdf.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("PDFs being rendered")
+                .register(Metrics.globalRegistry);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues the responses for rendering.
+     *
+     * @param respondentId    the respondent the reports are for
+     * @param reportResponses the reports to render, in order
+     * @param baseUrl         the application URL printed in the page footers
+     * @return completes with the key to download the PDF by, or exceptionally if it failed
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<String> submit(int respondentId, List<ReportResponse> reportResponses, String baseUrl) {
+        List<ReportResponse> responses = new ArrayList<>(reportResponses);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(render(respondentId, responses, baseUrl));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Metrics.globalRegistry.counter("survey.pdf.rejected").increment();
+            throw e;
+        }
+        return result;
+    }
+
+    private String render(int respondentId, List<ReportResponse> responses, String baseUrl) throws IOException {
+        Optional<String> contentHash = reportCache.contentHash(responses, baseUrl);
+        if (contentHash.isPresent()) {
+            Optional<byte[]> cached = Optional.empty();
+            try {
+                cached = reportCache.findPDF(respondentId, contentHash.get());
+            } catch (RuntimeException e) {
+                Log.warn("Could not read the cached PDF of respondent " + respondentId + ": " + e.getMessage());
+            }
+            if (cached.isPresent()) {
+                byte[] pdf = cached.get();
+                return store.store(out -> out.write(pdf));
+            }
+        }
+        String key = render(responses, baseUrl);
+        if (contentHash.isPresent()) {
+            try {
+                PDFArtifactStore.Artifact pdf = store.find(key).orElseThrow();
+                reportCache.savePDF(respondentId, contentHash.get(),
+                        pdf.content() != null ? pdf.content() : Files.readAllBytes(pdf.file()));
+            } catch (RuntimeException e) {
+                Log.warn("Could not cache the PDF of respondent " + respondentId + ": " + e.getMessage());
+            }
+        }
+        return key;
+    }
+
+    private String render(List<ReportResponse> responses, String baseUrl) throws IOException {
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        String outcome = "failure";
+        PDFService renderer = renderers.get();
+        try {
+            String key = store.store(out -> renderer.generatePDF(responses, baseUrl, out));
+            outcome = "success";
+            return key;
+        } finally {
+            renderers.destroy(renderer);
+            sample.stop(Timer.builder("survey.pdf.render")
+                    .description("Time to render a report PDF")
+                    .tag("outcome", outcome)
+                    .register(Metrics.globalRegistry));
+        }
+    }
+}
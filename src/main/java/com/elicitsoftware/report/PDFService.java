@@ -17,15 +17,11 @@ import com.elicitsoftware.report.pdfbox.Table;
 import com.elicitsoftware.report.pdfbox.TableBuilder;
 import de.rototor.pdfbox.graphics2d.PdfBoxGraphics2D;
 import de.rototor.pdfbox.graphics2d.PdfBoxGraphics2DFontTextDrawer;
-import jakarta.enterprise.context.RequestScoped;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.Dependent;
 import jakarta.inject.Inject;
 import jakarta.servlet.http.HttpServletRequest;
-import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
-import org.apache.batik.bridge.BridgeContext;
-import org.apache.batik.bridge.GVTBuilder;
-import org.apache.batik.bridge.UserAgentAdapter;
-import org.apache.batik.gvt.GraphicsNode;
-import org.apache.batik.util.XMLResourceDescriptor;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -33,19 +29,21 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.util.Matrix;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
-import org.w3c.dom.svg.SVGDocument;
 
 import java.awt.*;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for generating PDF documents and reports.
@@ -53,8 +51,10 @@ import java.util.List;
  * It uses Apache PDFBox for PDF generation and supports various content types including
  * formatted text, tables with custom styling, and embedded SVG graphics.
  *
- * <p>The service is request-scoped, meaning a new instance is created for each HTTP request,
- * ensuring thread safety and preventing state leakage between requests.
+ * <p>The service is dependent-scoped and holds the state of one document while it is built, so
+ * every render needs its own instance; {@link PDFRenderPool} obtains one per PDF. Document
+ * resources beyond {@code survey.pdf.max-main-memory} are buffered in scratch files rather than
+ * on the heap, and the finished document is written straight to the caller's stream.
  *
  * <p>Key features:
  * <ul>
@@ -65,7 +65,7 @@ import java.util.List;
  *   <li>Stream resource generation for web download</li>
  * </ul>
  */
-@RequestScoped
+@Dependent
 public class PDFService {
 
     static final float HEADER_MARGIN = 20f;
@@ -87,9 +87,14 @@ public class PDFService {
     float yPosition;
     float pageHeight;
     float pageWidth;
+    String baseUrl;
+    private final Map<String, PDFormXObject> svgForms = new HashMap<>();
 
     @Inject
-    HttpServletRequest request;
+    SVGGraphicsCache svgCache;
+
+    @ConfigProperty(name = "survey.pdf.max-main-memory", defaultValue = "16M")
+    MemorySize maxMainMemory;
 
     private static Table createContent(Content content) {
 
@@ -105,13 +110,14 @@ public class PDFService {
                 float maxWidth = 0;
                 try {
                     // Check header width
-                    float headerWidth = TEXT_FONT.getStringWidth(header) / 1000 * FONT_SIZE + (CELL_MARGIN * 2);
+                    TextMetrics metrics = TextMetrics.of(TEXT_FONT);
+                    float headerWidth = metrics.width(header, FONT_SIZE) + (CELL_MARGIN * 2);
                     maxWidth = Math.max(maxWidth, headerWidth);
 
                     // Check all data in this column
                     for (String[] row : content.table.body) {
                         if (row.length > i && row[i] != null) {
-                            float cellWidth = TEXT_FONT.getStringWidth(row[i]) / 1000 * FONT_SIZE + (CELL_MARGIN * 2);
+                            float cellWidth = metrics.width(row[i], FONT_SIZE) + (CELL_MARGIN * 2);
                             maxWidth = Math.max(maxWidth, cellWidth);
                         }
                     }
@@ -148,36 +154,35 @@ public class PDFService {
         return table;
     }
 
+    /**
+     * Breaks text into lines no wider than maxWidth, hyphenating words wider than a line.
+     * Words are measured once, with the glyph advances of {@link TextMetrics}.
+     */
     public static List<String> wrapText(String text, PDFont font, float fontSize, float maxWidth) throws IOException {
-        List<String> lines = new ArrayList<>();
-        String[] words = new String[0];
-        if (text != null && text.length() > 0) {
-            words = text.split(" ");
-        }
-        StringBuilder currentLine = new StringBuilder();
-
-        for (String word : words) {
-            String lineWithWord = currentLine.length() == 0 ? word : currentLine + " " + word;
-            float size = font.getStringWidth(lineWithWord) / 1000 * fontSize;
-            if (size <= maxWidth) {
-                currentLine.append(currentLine.length() == 0 ? word : " " + word);
-            } else {
-                lines.add(currentLine.toString());
-                currentLine = new StringBuilder(word);
-            }
-        }
-
-        if (currentLine.length() > 0) {
-            lines.add(currentLine.toString());
-        }
+        return TextMetrics.of(font).wrap(text, fontSize, maxWidth);
+    }
 
-        return lines;
+    /**
+     * @return the application URL of the request, as printed in the page footers
+     */
+    public static String baseUrl(HttpServletRequest request) {
+        return request.getScheme() + "://" + request.getServerName() +
+                (request.getServerPort() != 80 && request.getServerPort() != 443 ?
+                        ":" + request.getServerPort() : "") + request.getContextPath();
     }
 
-    public byte[] generatePDF(ArrayList<ReportResponse> reportResponses) {
+    /**
+     * Renders the responses into one PDF and writes it to the stream.
+     *
+     * @param reportResponses the reports to render, in order
+     * @param baseUrl         the application URL printed in the page footers
+     * @param outputStream    receives the PDF, left open
+     */
+    public void generatePDF(List<ReportResponse> reportResponses, String baseUrl, OutputStream outputStream) {
+        this.baseUrl = baseUrl;
         try {
-            // Create a new document
-            document = new PDDocument();
+            // Create a new document, buffering beyond maxMainMemory in scratch files
+            document = new PDDocument(MemoryUsageSetting.setupMixed(maxMainMemory.asLongValue()).streamCache);
             page = new PDPage(PDRectangle.LETTER);
             document.addPage(page);
             contentStream = new PDPageContentStream(document, page);
@@ -260,12 +265,21 @@ public class PDFService {
                 contentStream.close();
             }
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             document.save(outputStream);
-            document.close();
-            return outputStream.toByteArray();
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            closeDocument();
+        }
+    }
+
+    private void closeDocument() {
+        if (document != null) {
+            try {
+                document.close();
+            } catch (IOException e) {
+                LOG.warn("PDFService.generatePDF - Could not close the document: " + e.getMessage());
+            }
         }
     }
 
@@ -342,52 +356,14 @@ public class PDFService {
         float pageHeight = landscape.getHeight();
 
         try {
-            PdfBoxGraphics2D graphics2D = new PdfBoxGraphics2D(document, (int) pageWidth, (int) pageHeight);
-            graphics2D.setFontTextDrawer(new PdfBoxGraphics2DFontTextDrawer());
-
-            // Parse the SVG
-            String parser = XMLResourceDescriptor.getXMLParserClassName();
-            SAXSVGDocumentFactory factory = new SAXSVGDocumentFactory(parser);
-            SVGDocument svgDocument = factory.createSVGDocument(null, new StringReader(content.svg));
-
-            // Build GVT
-            GVTBuilder builder = new GVTBuilder();
-            BridgeContext ctx = new BridgeContext(new UserAgentAdapter());
-            GraphicsNode graphicsNode = builder.build(ctx, svgDocument);
-
-            // Use actual computed bounds that include all rendered content
-            Rectangle bounds = graphicsNode.getBounds().getBounds();
-            Rectangle primitiveBounds = graphicsNode.getPrimitiveBounds().getBounds();
-            Rectangle actualBounds = bounds.union(primitiveBounds);
-
-            // Add explicit padding to ensure content that extends beyond computed bounds is captured
-            int padding = 30; // Add 30 pixels padding on all sides
-            Rectangle expandedBounds = new Rectangle(
-                    actualBounds.x - padding,
-                    actualBounds.y - padding,
-                    actualBounds.width + (2 * padding),
-                    actualBounds.height + (2 * padding)
-            );
-
-            // Calculate scale to fit using expanded bounds with margins
-            double availableWidth = pageWidth - (2 * TEXT_MARGIN);
-            double availableHeight = pageHeight - (2 * TEXT_MARGIN);
-
-            double scaleX = availableWidth / expandedBounds.getWidth();
-            double scaleY = availableHeight / expandedBounds.getHeight();
-            double scale = Math.min(scaleX, scaleY); // Preserve aspect ratio
-
-            graphics2D.scale(scale, scale);
-
-            // Center the image using expanded bounds within available space
-            double translateX = (availableWidth / scale - expandedBounds.getWidth()) / 2.0 + TEXT_MARGIN / scale;
-            double translateY = (availableHeight / scale - expandedBounds.getHeight()) / 2.0 + TEXT_MARGIN / scale;
-            graphics2D.translate(translateX - expandedBounds.getX(), translateY - expandedBounds.getY());
-
-            graphicsNode.paint(graphics2D);
-            graphics2D.dispose();
-
-            contentStream.drawForm(graphics2D.getXFormObject());
+            // The same chart twice in one document is drawn once and its form reused
+            String svgHash = ReportCache.sha256(content.svg);
+            PDFormXObject form = svgForms.get(svgHash);
+            if (form == null) {
+                form = drawSVG(svgCache.get(content.svg), pageWidth, pageHeight);
+                svgForms.put(svgHash, form);
+            }
+            contentStream.drawForm(form);
 
             // Reset color to black for subsequent content
             contentStream.setNonStrokingColor(0f, 0f, 0f);
@@ -402,6 +378,45 @@ public class PDFService {
         }
     }
 
+    /**
+     * Draws a chart scaled to fit and centered on a page of the given size.
+     *
+     * @return the form XObject of the chart
+     */
+    private PDFormXObject drawSVG(SVGGraphicsCache.Graphics graphics, float pageWidth, float pageHeight) throws IOException {
+        PdfBoxGraphics2D graphics2D = new PdfBoxGraphics2D(document, (int) pageWidth, (int) pageHeight);
+        graphics2D.setFontTextDrawer(new PdfBoxGraphics2DFontTextDrawer());
+        Rectangle actualBounds = graphics.bounds();
+
+        // Add explicit padding to ensure content that extends beyond computed bounds is captured
+        int padding = 30; // Add 30 pixels padding on all sides
+        Rectangle expandedBounds = new Rectangle(
+                actualBounds.x - padding,
+                actualBounds.y - padding,
+                actualBounds.width + (2 * padding),
+                actualBounds.height + (2 * padding)
+        );
+
+        // Calculate scale to fit using expanded bounds with margins
+        double availableWidth = pageWidth - (2 * TEXT_MARGIN);
+        double availableHeight = pageHeight - (2 * TEXT_MARGIN);
+
+        double scaleX = availableWidth / expandedBounds.getWidth();
+        double scaleY = availableHeight / expandedBounds.getHeight();
+        double scale = Math.min(scaleX, scaleY); // Preserve aspect ratio
+
+        graphics2D.scale(scale, scale);
+
+        // Center the image using expanded bounds within available space
+        double translateX = (availableWidth / scale - expandedBounds.getWidth()) / 2.0 + TEXT_MARGIN / scale;
+        double translateY = (availableHeight / scale - expandedBounds.getHeight()) / 2.0 + TEXT_MARGIN / scale;
+        graphics2D.translate(translateX - expandedBounds.getX(), translateY - expandedBounds.getY());
+
+        graphics.paint(graphics2D);
+        graphics2D.dispose();
+        return graphics2D.getXFormObject();
+    }
+
     void addHeadersAndFooters() {
         // Step 2: Add header and footer to each page
         int totalPages = document.getNumberOfPages();
@@ -443,10 +458,7 @@ public class PDFService {
                 contentStream.showText(currentDate);
                 contentStream.endText();
 
-                // Base URL (center) - constructed from request
-                String baseUrl = request.getScheme() + "://" + request.getServerName() +
-                        (request.getServerPort() != 80 && request.getServerPort() != 443 ?
-                                ":" + request.getServerPort() : "") + request.getContextPath();
+                // Base URL (center) - constructed from the request that asked for the PDF
                 float baseUrlWidth = TEXT_FONT.getStringWidth(baseUrl) / 1000 * 10;
                 float centerX = (mediaBox.getWidth() - baseUrlWidth) / 2;
                 contentStream.beginText();
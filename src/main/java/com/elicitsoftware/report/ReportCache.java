@@ -0,0 +1,180 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.micrometer.core.instrument.Metrics;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@code survey.report_cache} and {@code survey.report_pdf_cache} tables of the reports of
+ * finalized respondents.
+ * <p>
+ * The report services are called once per respondent and report definition, and the PDF is
+ * rendered once per respondent and content hash of its responses. Every query checks that the
+ * respondent is still inactive, and a trigger deletes the rows when a respondent is
+ * reactivated, so nothing else ever invalidates them.
+ * <p>
+ * Only responses with PDF content are cached; error responses are fetched again next time.
+ * Lookups are counted as {@code survey.report.cache}, tagged with the kind and the result.
+ */
+@ApplicationScoped
+public class ReportCache {
+
+    static final String FIND_RESPONSE_SQL = """
+            SELECT c.response
+            FROM survey.report_cache c
+            JOIN survey.respondents r ON r.id = c.respondent_id
+            WHERE c.respondent_id = :respondentId AND c.report_id = :reportId AND NOT r.active
+            """;
+
+    static final String SAVE_RESPONSE_SQL = """
+            INSERT INTO survey.report_cache (respondent_id, report_id, content_hash, response)
+            SELECT r.id, :reportId, :contentHash, :response
+            FROM survey.respondents r
+            WHERE r.id = :respondentId AND NOT r.active
+            ON CONFLICT (respondent_id, report_id) DO UPDATE
+            SET content_hash = EXCLUDED.content_hash, response = EXCLUDED.response, created_dt = CURRENT_TIMESTAMP
+            """;
+
+    static final String FIND_PDF_SQL = """
+            SELECT p.pdf
+            FROM survey.report_pdf_cache p
+            JOIN survey.respondents r ON r.id = p.respondent_id
+            WHERE p.respondent_id = :respondentId AND p.content_hash = :contentHash AND NOT r.active
+            """;
+
+    static final String SAVE_PDF_SQL = """
+            INSERT INTO survey.report_pdf_cache (respondent_id, content_hash, pdf)
+            SELECT r.id, :contentHash, :pdf
+            FROM survey.respondents r
+            WHERE r.id = :respondentId AND NOT r.active
+            ON CONFLICT (respondent_id, content_hash) DO NOTHING
+            """;
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    @ConfigProperty(name = "survey.report.cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    EntityManager entityManager;
+
+    /**
+     * @return the cached response of the report for the finalized respondent
+     */
+    @Transactional
+    public Optional<ReportResponse> findResponse(int respondentId, int reportId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        @SuppressWarnings("unchecked")
+        List<String> rows = entityManager.createNativeQuery(FIND_RESPONSE_SQL)
+                .setParameter("respondentId", respondentId)
+                .setParameter("reportId", reportId)
+                .getResultList();
+        counted("response", !rows.isEmpty());
+        return rows.stream().findFirst().map(json -> JSONB.fromJson(json, ReportResponse.class));
+    }
+
+    /**
+     * Caches the response of the report, if the respondent is finalized and the response has
+     * PDF content.
+     */
+    @Transactional
+    public void saveResponse(int respondentId, int reportId, ReportResponse response) {
+        if (!enabled || !isCacheable(response)) {
+            return;
+        }
+        String json = JSONB.toJson(response);
+        entityManager.createNativeQuery(SAVE_RESPONSE_SQL)
+                .setParameter("respondentId", respondentId)
+                .setParameter("reportId", reportId)
+                .setParameter("contentHash", sha256(json))
+                .setParameter("response", json)
+                .executeUpdate();
+    }
+
+    /**
+     * @return the cached PDF of the responses with the content hash for the finalized respondent
+     */
+    @Transactional
+    public Optional<byte[]> findPDF(int respondentId, String contentHash) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        @SuppressWarnings("unchecked")
+        List<byte[]> rows = entityManager.createNativeQuery(FIND_PDF_SQL)
+                .setParameter("respondentId", respondentId)
+                .setParameter("contentHash", contentHash)
+                .getResultList();
+        counted("pdf", !rows.isEmpty());
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Caches the PDF of the responses with the content hash, if the respondent is finalized.
+     */
+    @Transactional
+    public void savePDF(int respondentId, String contentHash, byte[] pdf) {
+        if (!enabled) {
+            return;
+        }
+        entityManager.createNativeQuery(SAVE_PDF_SQL)
+                .setParameter("respondentId", respondentId)
+                .setParameter("contentHash", contentHash)
+                .setParameter("pdf", pdf)
+                .executeUpdate();
+    }
+
+    /**
+     * @param responses the responses rendered into the PDF
+     * @param baseUrl   the application URL printed in the page footers
+     * @return the content hash of a PDF, or empty if it must not be cached because one of the
+     * responses has no PDF content
+     */
+    public Optional<String> contentHash(List<ReportResponse> responses, String baseUrl) {
+        if (!enabled || !responses.stream().allMatch(ReportCache::isCacheable)) {
+            return Optional.empty();
+        }
+        return Optional.of(sha256(baseUrl + "\n" + JSONB.toJson(responses)));
+    }
+
+    static boolean isCacheable(ReportResponse response) {
+        return response != null && response.pdf != null;
+    }
+
+    static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void counted(String kind, boolean hit) {
+        Metrics.globalRegistry.counter("survey.report.cache", "kind", kind, "result", hit ? "hit" : "miss").increment();
+    }
+}
@@ -0,0 +1,94 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The {@link ReportService} clients of the report definitions, one per URL, shared by all
+ * sessions instead of building a client for every call.
+ * <p>
+ * Report calls run concurrently on virtual threads through {@link #supplyAsync}, so a page with
+ * several reports waits for the slowest one rather than for all of them in turn. A call gets
+ * {@code survey.report.timeout} to answer, after connecting within
+ * {@code survey.report.connect-timeout}.
+ */
+@ApplicationScoped
+public class ReportClients {
+
+    @ConfigProperty(name = "survey.report.timeout", defaultValue = "30s")
+    Duration timeout;
+
+    @ConfigProperty(name = "survey.report.connect-timeout", defaultValue = "5s")
+    Duration connectTimeout;
+
+    private final ConcurrentHashMap<String, ReportService> clients = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    void onStop(@Observes ShutdownEvent event) {
+        executor.shutdownNow();
+        clients.values().forEach(client -> {
+            if (client instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    Log.debug("Could not close a report client", e);
+                }
+            }
+        });
+        clients.clear();
+    }
+
+    /**
+     * @param url the report service URL of a report definition
+     * @return the client of the URL
+     */
+    public ReportService client(String url) {
+        return clients.computeIfAbsent(url, u -> RestClientBuilder.newBuilder()
+                .baseUri(URI.create(u))
+                .connectTimeout(connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .build(ReportService.class));
+    }
+
+    /**
+     * Runs a report call on a virtual thread.
+     *
+     * @return completes with the result, or with a {@link java.util.concurrent.TimeoutException}
+     * if the call takes longer than {@code survey.report.timeout}
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor)
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the time a report call gets to answer
+     */
+    public Duration timeout() {
+        return timeout;
+    }
+}
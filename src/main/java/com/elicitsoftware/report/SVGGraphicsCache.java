@@ -0,0 +1,148 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgentAdapter;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.util.XMLResourceDescriptor;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+/**
+ * Keeps the parsed and built GVT trees of the SVG charts in the reports, keyed by the SHA-256 of
+ * the SVG text, so a chart that is rendered again is only drawn, not parsed and built again.
+ * <p>
+ * Entries expire after {@code survey.pdf.svg-cache.idle-timeout} without use, and the least used
+ * ones are evicted when the estimated size of all entries exceeds
+ * {@code survey.pdf.svg-cache.max-bytes}. Hits, misses and evictions are published as
+ * {@code survey.pdf.svg.cache} metrics, and the parse, build and draw stages are timed as
+ * {@code survey.pdf.svg}, tagged with the stage.
+ */
+@ApplicationScoped
+public class SVGGraphicsCache {
+
+    /**
+     * A rough factor from the length of the SVG text to the heap its DOM and GVT tree take.
+     */
+    private static final int BYTES_PER_CHAR = 16;
+
+    @ConfigProperty(name = "survey.pdf.svg-cache.idle-timeout", defaultValue = "30m")
+    Duration idleTimeout;
+
+    @ConfigProperty(name = "survey.pdf.svg-cache.max-bytes", defaultValue = "67108864")
+    long maxBytes;
+
+    private Cache<String, Graphics> cache;
+
+    /**
+     * A built SVG chart. GVT trees cache state while they are painted, so painting is serialized.
+     */
+    public static final class Graphics {
+        private final GraphicsNode node;
+        private final Rectangle bounds;
+        private final int weight;
+
+        Graphics(GraphicsNode node, int weight) {
+            this.node = node;
+            // Use actual computed bounds that include all rendered content
+            this.bounds = node.getBounds().getBounds().union(node.getPrimitiveBounds().getBounds());
+            this.weight = weight;
+        }
+
+        /**
+         * @return the bounds of everything the chart draws
+         */
+        public Rectangle bounds() {
+            return new Rectangle(bounds);
+        }
+
+        /**
+         * Paints the chart and times it as the draw stage.
+         */
+        public void paint(Graphics2D graphics) {
+            Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+            synchronized (this) {
+                node.paint(graphics);
+            }
+            sample.stop(stageTimer("draw"));
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumWeight(maxBytes)
+                .weigher((String hash, Graphics graphics) -> graphics.weight)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, "survey.pdf.svg.cache");
+    }
+
+    /**
+     * @param svg the SVG text of a chart
+     * @return the chart, parsed and built on a miss
+     */
+    public Graphics get(String svg) {
+        return cache.get(ReportCache.sha256(svg), hash -> build(svg));
+    }
+
+    private static Graphics build(String svg) {
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        SVGDocument svgDocument;
+        try {
+            // Parse the SVG
+            String parser = XMLResourceDescriptor.getXMLParserClassName();
+            SAXSVGDocumentFactory factory = new SAXSVGDocumentFactory(parser);
+            svgDocument = factory.createSVGDocument(null, new StringReader(svg));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            sample.stop(stageTimer("parse"));
+        }
+
+        // Build GVT
+        sample = Timer.start(Metrics.globalRegistry);
+        try {
+            GVTBuilder builder = new GVTBuilder();
+            BridgeContext ctx = new BridgeContext(new UserAgentAdapter());
+            GraphicsNode graphicsNode = builder.build(ctx, svgDocument);
+            return new Graphics(graphicsNode, (int) Math.min(Integer.MAX_VALUE, (long) BYTES_PER_CHAR * svg.length()));
+        } finally {
+            sample.stop(stageTimer("build"));
+        }
+    }
+
+    private static Timer stageTimer(String stage) {
+        return Timer.builder("survey.pdf.svg")
+                .description("Time to parse, build and draw an SVG chart")
+                .tag("stage", stage)
+                .register(Metrics.globalRegistry);
+    }
+}
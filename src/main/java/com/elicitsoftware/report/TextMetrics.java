@@ -0,0 +1,172 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures text in a font from a table of glyph advances, measured once per font.
+ * <p>
+ * {@link PDFont#getStringWidth} encodes the string and looks up every glyph again on each call,
+ * and PDFBox applies no kerning, so the width of a string is the sum of the advances of its
+ * characters. Advances are kept in 1/1000 text space units and scaled by the font size, so one
+ * table serves every size. Characters outside Latin-1 are measured on first use.
+ * <p>
+ * Instances are shared and thread-safe, and kept for the life of the application, so they are
+ * meant for the fonts shared by all documents, like the standard 14 fonts.
+ */
+final class TextMetrics {
+
+    private static final Map<PDFont, TextMetrics> METRICS = new ConcurrentHashMap<>();
+    private static final int TABLE_SIZE = 256;
+
+    private final PDFont font;
+    // NaN marks a character the font cannot encode; measuring it rethrows the font's error.
+    private final float[] advances = new float[TABLE_SIZE];
+    private final Map<Integer, Float> otherAdvances = new ConcurrentHashMap<>();
+
+    private TextMetrics(PDFont font) {
+        this.font = font;
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            try {
+                advances[c] = font.getStringWidth(String.valueOf((char) c));
+            } catch (IOException | IllegalArgumentException e) {
+                advances[c] = Float.NaN;
+            }
+        }
+    }
+
+    /**
+     * @return the metrics of the font, measured on first use
+     */
+    static TextMetrics of(PDFont font) {
+        return METRICS.computeIfAbsent(font, TextMetrics::new);
+    }
+
+    /**
+     * @return the width of the text in points, as {@code font.getStringWidth(text) / 1000 * fontSize}
+     * @throws IllegalArgumentException if the font cannot encode a character
+     */
+    float width(String text, float fontSize) throws IOException {
+        return units(text) / 1000 * fontSize;
+    }
+
+    /**
+     * @return the width of the text in 1/1000 text space units
+     */
+    float units(String text) throws IOException {
+        float units = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            units += advance(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return units;
+    }
+
+    private float advance(int codePoint) throws IOException {
+        if (codePoint < TABLE_SIZE) {
+            float advance = advances[codePoint];
+            if (!Float.isNaN(advance)) {
+                return advance;
+            }
+            return font.getStringWidth(String.valueOf((char) codePoint));
+        }
+        Float advance = otherAdvances.get(codePoint);
+        if (advance == null) {
+            advance = font.getStringWidth(new String(Character.toChars(codePoint)));
+            otherAdvances.put(codePoint, advance);
+        }
+        return advance;
+    }
+
+    /**
+     * Breaks text into lines no wider than maxWidth at the spaces, measuring every word once.
+     * A word wider than a line is hyphenated across as many lines as it needs.
+     *
+     * @return the lines, without the spaces they were broken at
+     */
+    List<String> wrap(String text, float fontSize, float maxWidth) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String[] words = new String[0];
+        if (text != null && text.length() > 0) {
+            words = text.split(" ");
+        }
+        float spaceUnits = units(" ");
+        StringBuilder currentLine = new StringBuilder();
+        float lineUnits = 0;
+
+        for (String word : words) {
+            float wordUnits = units(word);
+            float withWord = currentLine.length() == 0 ? wordUnits : lineUnits + spaceUnits + wordUnits;
+            if (withWord / 1000 * fontSize <= maxWidth) {
+                currentLine.append(currentLine.length() == 0 ? word : " " + word);
+                lineUnits = withWord;
+                continue;
+            }
+            if (currentLine.length() > 0) {
+                lines.add(currentLine.toString());
+            }
+            currentLine = new StringBuilder();
+            if (wordUnits / 1000 * fontSize > maxWidth) {
+                word = hyphenate(word, wordUnits, maxWidth * 1000 / fontSize, lines);
+                wordUnits = units(word);
+            }
+            currentLine.append(word);
+            lineUnits = wordUnits;
+        }
+
+        if (currentLine.length() > 0) {
+            lines.add(currentLine.toString());
+        }
+
+        return lines;
+    }
+
+    /**
+     * Adds the leading parts of the word that fill whole lines, each ending in a hyphen.
+     *
+     * @return the rest of the word, which fits on a line
+     */
+    private String hyphenate(String word, float wordUnits, float maxUnits, List<String> lines) throws IOException {
+        float hyphenUnits = units("-");
+        float restUnits = wordUnits;
+        int start = 0;
+        while (restUnits > maxUnits && start < word.length()) {
+            float partUnits = hyphenUnits;
+            int end = start;
+            while (end < word.length()) {
+                int codePoint = word.codePointAt(end);
+                float advance = advance(codePoint);
+                if (partUnits + advance > maxUnits) {
+                    break;
+                }
+                partUnits += advance;
+                end += Character.charCount(codePoint);
+            }
+            // A line narrower than one character still takes one, so the text always advances.
+            if (end == start) {
+                end += Character.charCount(word.codePointAt(start));
+            }
+            restUnits -= units(word.substring(start, end));
+            lines.add(word.substring(start, end) + "-");
+            start = end;
+        }
+        return word.substring(start);
+    }
+}
@@ -29,7 +29,8 @@ public class NavResponse {
     private final Step step;
     private final NavigationItem currentNavItem;
     private final List<Answer> answers;
-    private final NavigationItem[] navItems;
+    private final NavigationList navigation;
+    private final List<NavigationList.Change> navChanges;
 
     /**
      * Constructs a new NavResponse object.
@@ -37,14 +38,17 @@ public class NavResponse {
      * @param step           The current step in the navigation process.
      * @param currentNavItem The current navigation item being processed.
      * @param answers2       A list of answers associated with the current step.
-     * @param navItems       An array of all navigation items available.
+     * @param navigation     All navigation items available.
+     * @param navChanges     The navigation items added, renamed or removed by this request.
      */
-    public NavResponse(Step step, NavigationItem currentNavItem, List<Answer> answers2, NavigationItem[] navItems) {
+    public NavResponse(Step step, NavigationItem currentNavItem, List<Answer> answers2, NavigationList navigation,
+                       List<NavigationList.Change> navChanges) {
         super();
         this.step = step;
         this.currentNavItem = currentNavItem;
         this.answers = answers2;
-        this.navItems = navItems;
+        this.navigation = navigation;
+        this.navChanges = navChanges;
     }
 
     /**
@@ -65,6 +69,26 @@ public class NavResponse {
         return currentNavItem;
     }
 
+    /**
+     * Retrieves all navigation items. The array is shared with the cached navigation of the
+     * respondent and must not be modified.
+     *
+     * @return the navigation items in display key order.
+     */
+    public NavigationItem[] getNavItems() {
+        return navigation.getItems();
+    }
+
+    /**
+     * Retrieves the navigation items added, renamed or removed by this request, for a caller
+     * that already holds the items of the previous response.
+     *
+     * @return the changed navigation items, empty if the navigation did not change.
+     */
+    public List<NavigationList.Change> getNavChanges() {
+        return navChanges;
+    }
+
     /**
      * Retrieves the list of answers associated with this response.
      *
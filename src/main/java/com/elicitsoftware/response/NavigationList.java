@@ -0,0 +1,204 @@
+package com.elicitsoftware.response;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The navigation items of a respondent: the active section headers, in display key order.
+ * <p>
+ * A list is immutable, so one instance can be cached and shared by every page turn of the
+ * respondent. When headers are created, deleted or renamed, {@link #apply(Collection, List)}
+ * splices them into a copy at their sorted position instead of reading every header again, and
+ * reports what changed so a client that already holds the items only needs the delta.
+ */
+public final class NavigationList {
+
+    private static final NavigationList EMPTY = new NavigationList(new Entry[0]);
+
+    /**
+     * A navigation item as stored in the list.
+     *
+     * @param name the display text of the header
+     * @param path the display key of the header
+     */
+    public record Entry(String name, String path) {
+    }
+
+    /**
+     * A navigation item that was added, renamed or removed.
+     *
+     * @param name    the display text of the header, or null if it was removed
+     * @param path    the display key of the header
+     * @param removed true if the item was removed
+     */
+    public record Change(String name, String path, boolean removed) {
+    }
+
+    /**
+     * The entries, sorted by path.
+     */
+    private final Entry[] entries;
+
+    /**
+     * The navigation items, built on first use.
+     */
+    private NavigationItem[] items;
+
+    private NavigationList(Entry[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Creates a list from the given entries.
+     *
+     * @param entries the entries, in any order
+     * @return the navigation list
+     */
+    public static NavigationList of(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return EMPTY;
+        }
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, Comparator.comparing(Entry::path));
+        return new NavigationList(sorted);
+    }
+
+    /**
+     * Tells whether an answer is a navigation item: an active header of a section other than
+     * the first, like the query that loads the list selects them.
+     *
+     * @param answer the answer
+     * @return true if the answer belongs in the navigation list
+     */
+    public static boolean isNavigationItem(Answer answer) {
+        return answer.question == null && !Boolean.TRUE.equals(answer.deleted)
+                && answer.sectionId != null && answer.sectionId != 0;
+    }
+
+    /**
+     * Applies header answers that were created, deleted or renamed. Every answer is inserted,
+     * renamed or removed according to its current state, so applying the same answers again
+     * changes nothing.
+     *
+     * @param headers the changed header answers
+     * @param changes receives the items that actually changed, may be null
+     * @return the updated list, or this list if nothing changed
+     */
+    public NavigationList apply(Collection<Answer> headers, List<Change> changes) {
+        ArrayList<Entry> list = null;
+        for (Answer header : headers) {
+            if (header.question != null) {
+                continue;
+            }
+            String path = header.getDisplayKey();
+            int index = list == null ? indexOf(entries, path) : indexOf(list, path);
+            Change change = null;
+            if (isNavigationItem(header)) {
+                Entry entry = new Entry(header.displayText, path);
+                if (index < 0) {
+                    list = list == null ? new ArrayList<>(Arrays.asList(entries)) : list;
+                    list.add(-index - 1, entry);
+                    change = new Change(entry.name(), path, false);
+                } else if (!entry.equals(list == null ? entries[index] : list.get(index))) {
+                    list = list == null ? new ArrayList<>(Arrays.asList(entries)) : list;
+                    list.set(index, entry);
+                    change = new Change(entry.name(), path, false);
+                }
+            } else if (index >= 0) {
+                list = list == null ? new ArrayList<>(Arrays.asList(entries)) : list;
+                list.remove(index);
+                change = new Change(null, path, true);
+            }
+            if (change != null && changes != null) {
+                changes.add(change);
+            }
+        }
+        return list == null ? this : new NavigationList(list.toArray(new Entry[0]));
+    }
+
+    /**
+     * @return the number of navigation items
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * @return the entries in display key order
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    /**
+     * Returns the navigation item with the given path, linked to its neighbours.
+     *
+     * @param path the display key of the header
+     * @return the navigation item, or null if there is none with that path
+     */
+    public NavigationItem getItem(String path) {
+        int index = indexOf(entries, path);
+        if (index < 0) {
+            return null;
+        }
+        return getItems()[index];
+    }
+
+    /**
+     * Returns all navigation items, each linked to the previous and next one. The array is built
+     * once per list and shared; callers must not modify it.
+     *
+     * @return the navigation items in display key order
+     */
+    public NavigationItem[] getItems() {
+        NavigationItem[] result = items;
+        if (result == null) {
+            result = new NavigationItem[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                String previous = i == 0 ? null : entries[i - 1].path();
+                String next = i == entries.length - 1 ? null : entries[i + 1].path();
+                result[i] = new NavigationItem(entries[i].name(), false, entries[i].path(), next, previous);
+            }
+            items = result;
+        }
+        return result;
+    }
+
+    private static int indexOf(Entry[] entries, String path) {
+        int low = 0;
+        int high = entries.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = entries[mid].path().compareTo(path);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int indexOf(List<Entry> entries, String path) {
+        return Collections.binarySearch(entries, new Entry(null, path), Comparator.comparing(Entry::path));
+    }
+}
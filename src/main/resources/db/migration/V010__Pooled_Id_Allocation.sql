@@ -0,0 +1,19 @@
+---
+-- ***LICENSE_START***
+-- Elicit Survey
+-- %%
+-- Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+-- %%
+-- PolyForm Noncommercial License 1.0.0
+-- <https://polyformproject.org/licenses/noncommercial/1.0.0>
+-- ***LICENSE_END***
+---
+
+-- Hand out ids in blocks for the insert heavy tables.
+-- Each nextval reserves ${id_allocation_size} ids for the caller (Hibernate pooled-lo), so several
+-- application nodes never hand out the same id. Writers that use one nextval per row stay safe.
+-- Hibernate reads the increment back at startup, so a different value can be set later with
+-- ALTER SEQUENCE without changing the entity mappings.
+ALTER SEQUENCE survey.answers_seq INCREMENT BY ${id_allocation_size};
+ALTER SEQUENCE survey.dependents_seq INCREMENT BY ${id_allocation_size};
+ALTER SEQUENCE survey.respondents_seq INCREMENT BY ${id_allocation_size};
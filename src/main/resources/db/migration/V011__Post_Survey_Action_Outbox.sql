@@ -0,0 +1,31 @@
+---
+-- ***LICENSE_START***
+-- Elicit Survey
+-- %%
+-- Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+-- %%
+-- PolyForm Noncommercial License 1.0.0
+-- <https://polyformproject.org/licenses/noncommercial/1.0.0>
+-- ***LICENSE_END***
+---
+
+-- respondent_psa becomes the outbox of post-survey actions. Finalizing a respondent only queues
+-- PENDING rows; a background dispatcher claims the due rows, calls the actions and retries
+-- failures with exponential backoff until the maximum number of tries.
+-- next_attempt_dt is when a row is due. A claimed row is pushed out by a lease, so a node that
+-- dies during a call leaves the row to be picked up again once the lease expires.
+ALTER TABLE survey.respondent_psa
+    ADD COLUMN IF NOT EXISTS next_attempt_dt timestamp with time zone NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+-- The rows were only saved after the call, so PENDING and RESENDING rows without an error were
+-- sent successfully. Mark them completed so the dispatcher does not send them again.
+UPDATE survey.respondent_psa
+SET status = 'COMPLETED', uploaded_dt = created_dt
+WHERE status IN ('PENDING', 'RESENDING') AND uploaded_dt IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_respondent_psa_due
+ON survey.respondent_psa(next_attempt_dt)
+WHERE uploaded_dt IS NULL AND status IN ('PENDING', 'RESENDING');
+
+COMMENT ON INDEX survey.idx_respondent_psa_due IS
+'Finds the post-survey actions the dispatcher has to call next';
@@ -0,0 +1,27 @@
+---
+-- ***LICENSE_START***
+-- Elicit Survey
+-- %%
+-- Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+-- %%
+-- PolyForm Noncommercial License 1.0.0
+-- <https://polyformproject.org/licenses/noncommercial/1.0.0>
+-- ***LICENSE_END***
+---
+
+-- A queued respondent whose load still fails after survey.etl.max-tries becomes FAILED and keeps
+-- its error. The worker no longer claims it, and it no longer counts towards the ETL lag.
+-- Finalizing the respondent again queues it as PENDING with its tries reset; after fixing the
+-- cause, failed respondents can be queued again with
+--   UPDATE survey.etl_queue SET status = 'PENDING', tries = 0, next_attempt_dt = CURRENT_TIMESTAMP
+--   WHERE status = 'FAILED';
+ALTER TABLE survey.etl_queue
+    ADD COLUMN IF NOT EXISTS status character varying(10) NOT NULL DEFAULT 'PENDING';
+
+DROP INDEX IF EXISTS survey.idx_etl_queue_due;
+CREATE INDEX IF NOT EXISTS idx_etl_queue_due
+ON survey.etl_queue(next_attempt_dt)
+WHERE status = 'PENDING';
+
+COMMENT ON INDEX survey.idx_etl_queue_due IS
+'Finds the queued respondents the ETL worker has to load next';
@@ -0,0 +1,32 @@
+---
+-- ***LICENSE_START***
+-- Elicit Survey
+-- %%
+-- Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+-- %%
+-- PolyForm Noncommercial License 1.0.0
+-- <https://polyformproject.org/licenses/noncommercial/1.0.0>
+-- ***LICENSE_END***
+---
+
+-- Finalized respondents waiting for the ETL worker to load them into surveyreport.fact_sections.
+-- Finalizing only queues the respondent; the worker claims the due rows in batches and deletes
+-- them once the facts are written. Finalizing again while a respondent is queued or being loaded
+-- moves queued_dt, so the respondent is loaded once more with the latest answers.
+-- next_attempt_dt is when a row is due: claiming pushes it out by a lease, so the rows of a node
+-- that stops during a batch are picked up again, and a failed load is retried after a delay.
+CREATE TABLE IF NOT EXISTS survey.etl_queue
+(
+    respondent_id   integer                  NOT NULL,
+    queued_dt       timestamp with time zone NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    next_attempt_dt timestamp with time zone NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    tries           integer                  NOT NULL DEFAULT 0,
+    error_msg       character varying(255),
+    CONSTRAINT etl_queue_pk PRIMARY KEY (respondent_id),
+    CONSTRAINT etl_queue_respondent_fk FOREIGN KEY (respondent_id)
+        REFERENCES survey.respondents (id) MATCH SIMPLE
+        ON UPDATE NO ACTION
+        ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_etl_queue_due ON survey.etl_queue USING btree (next_attempt_dt ASC NULLS LAST);
+GRANT DELETE, INSERT, SELECT, UPDATE ON TABLE survey.etl_queue TO ${survey_user};
@@ -0,0 +1,26 @@
+---
+-- ***LICENSE_START***
+-- Elicit Survey
+-- %%
+-- Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+-- %%
+-- PolyForm Noncommercial License 1.0.0
+-- <https://polyformproject.org/licenses/noncommercial/1.0.0>
+-- ***LICENSE_END***
+---
+
+-- When surveyreport.fact_sections_view is built as a materialized view (survey.etl.materialized-view)
+-- the ETL worker refreshes it and records the refresh here. complete_dt is the finalized time up
+-- to which the view holds every respondent: the refresh time, or earlier while respondents were
+-- still waiting in survey.etl_queue. Readers of the view, such as the fact_sections export, must
+-- not assume respondents finalized after complete_dt are in it.
+CREATE TABLE IF NOT EXISTS surveyreport.fact_sections_view_refresh
+(
+    id           smallint                 NOT NULL DEFAULT 1,
+    refreshed_dt timestamp with time zone NOT NULL,
+    complete_dt  timestamp with time zone NOT NULL,
+    CONSTRAINT fact_sections_view_refresh_pk PRIMARY KEY (id),
+    CONSTRAINT fact_sections_view_refresh_single_row CHECK (id = 1)
+);
+GRANT SELECT ON surveyreport.fact_sections_view_refresh TO ${survey_user};
+GRANT SELECT ON surveyreport.fact_sections_view_refresh TO ${surveyreport_user};
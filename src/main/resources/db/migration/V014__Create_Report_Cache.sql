@@ -0,0 +1,64 @@
+---
+-- ***LICENSE_START***
+-- Elicit Survey
+-- %%
+-- Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+-- %%
+-- PolyForm Noncommercial License 1.0.0
+-- <https://polyformproject.org/licenses/noncommercial/1.0.0>
+-- ***LICENSE_END***
+---
+
+-- The reports of finalized respondents never change, so the report services are called and the
+-- PDF is rendered once. report_cache holds the response of every report definition, and
+-- report_pdf_cache the PDF rendered from the responses with the given content_hash.
+-- Rows are only written and read while the respondent is inactive, and are deleted when the
+-- respondent is reactivated.
+CREATE TABLE IF NOT EXISTS survey.report_cache
+(
+    respondent_id integer                  NOT NULL,
+    report_id     integer                  NOT NULL,
+    content_hash  character varying(64)    NOT NULL,
+    response      text                     NOT NULL,
+    created_dt    timestamp with time zone NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT report_cache_pk PRIMARY KEY (respondent_id, report_id),
+    CONSTRAINT report_cache_respondent_fk FOREIGN KEY (respondent_id)
+        REFERENCES survey.respondents (id) MATCH SIMPLE
+        ON UPDATE NO ACTION
+        ON DELETE CASCADE,
+    CONSTRAINT report_cache_report_fk FOREIGN KEY (report_id)
+        REFERENCES survey.reports (id) MATCH SIMPLE
+        ON UPDATE NO ACTION
+        ON DELETE CASCADE
+);
+GRANT DELETE, INSERT, SELECT, UPDATE ON TABLE survey.report_cache TO ${survey_user};
+
+CREATE TABLE IF NOT EXISTS survey.report_pdf_cache
+(
+    respondent_id integer                  NOT NULL,
+    content_hash  character varying(64)    NOT NULL,
+    pdf           bytea                    NOT NULL,
+    created_dt    timestamp with time zone NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT report_pdf_cache_pk PRIMARY KEY (respondent_id, content_hash),
+    CONSTRAINT report_pdf_cache_respondent_fk FOREIGN KEY (respondent_id)
+        REFERENCES survey.respondents (id) MATCH SIMPLE
+        ON UPDATE NO ACTION
+        ON DELETE CASCADE
+);
+GRANT DELETE, INSERT, SELECT, UPDATE ON TABLE survey.report_pdf_cache TO ${survey_user};
+
+--------------------------------
+-- Drop the cached reports of a respondent that is reactivated, whichever application does it.
+CREATE OR REPLACE FUNCTION survey.clear_report_cache() RETURNS TRIGGER AS $clear_report_cache$
+BEGIN
+    DELETE FROM survey.report_cache WHERE respondent_id = new.id;
+    DELETE FROM survey.report_pdf_cache WHERE respondent_id = new.id;
+    RETURN NULL;
+END;
+$clear_report_cache$ LANGUAGE plpgsql;
+
+CREATE TRIGGER report_cache_reactivate
+    AFTER UPDATE OF active ON survey.respondents
+    FOR EACH ROW
+    WHEN (new.active AND NOT old.active)
+    EXECUTE FUNCTION survey.clear_report_cache();
@@ -0,0 +1,71 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DisplayKeyTest {
+
+    @Test
+    void given_key_when_getValue_then_sameAsStoredColumn() {
+        DisplayKey key = new DisplayKey("0001-0002-0003-0004-0005-0006-0007");
+        assertEquals("0001-0002-0003-0004-0005-0006-0007", key.getValue());
+        assertEquals(1, key.getSurvey());
+        assertEquals(7, key.getQuestionInstance());
+        assertEquals("0001-0002-0003-0004-0005-0006.%", key.getAnswerQueryString());
+        assertEquals("0001-0002-0003-0004-%", key.getSectionQueryString());
+        assertEquals("0001-0002-0003-0004-0000-0000-0000", key.getSectionString());
+        assertEquals("0001-0002-0003-0000-0000-0000-0000", key.getStepString());
+        assertEquals("0001-0002-%", key.getStepQueryString());
+    }
+
+    @Test
+    void given_nonCanonicalKey_when_parsed_then_formattedLikeStringFormat() {
+        DisplayKey key = new DisplayKey("1-2-3-4-5-12345-7");
+        assertEquals("0001-0002-0003-0004-0005-12345-0007", key.getValue());
+        assertEquals("-001", key.leftPad(-1));
+        assertThrows(NumberFormatException.class, () -> new DisplayKey("0001-0002-0003-0004-0005-0006-00x7"));
+    }
+
+    @Test
+    void given_setter_when_getValue_then_cachedValueRefreshed() {
+        DisplayKey key = new DisplayKey("0001-0002-0003-0004-0005-0006-0007");
+        key.setQuestion(0);
+        key.setQuestionInstance(0);
+        assertEquals("0001-0002-0003-0004-0005-0000-0000", key.getValue());
+    }
+
+    @Test
+    void given_randomKeys_when_compareTo_then_sameOrderAsValues() {
+        Random random = new Random(7);
+        List<DisplayKey> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int bound = i % 10 == 0 ? 20000 : 12;
+            keys.add(new DisplayKey(random.nextInt(3) + "-" + random.nextInt(bound) + "-" + random.nextInt(bound) + "-"
+                    + random.nextInt(bound) + "-" + random.nextInt(bound) + "-" + random.nextInt(bound) + "-"
+                    + random.nextInt(bound)));
+        }
+        for (DisplayKey a : keys) {
+            for (DisplayKey b : keys) {
+                assertEquals(Integer.signum(a.getValue().compareTo(b.getValue())), Integer.signum(a.compareTo(b)),
+                        a + " vs " + b);
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@ package com.elicitsoftware;
  */
 
 import com.elicitsoftware.model.Answer;
+import com.elicitsoftware.model.Dependent;
 import com.elicitsoftware.model.Respondent;
 import com.elicitsoftware.model.Survey;
 import com.elicitsoftware.response.NavResponse;
@@ -209,6 +210,27 @@ class QuestionManagerTest {
         assertEquals(0, patronAfter, "Patron answers must be deleted when terms=FALSE");
     }
 
+    @Test
+    @TestTransaction
+    void given_termsTruePatronVisible_when_termsFalse_then_patronDependentsDeleted() {
+        // The set based delete marks the dependents of every deleted answer
+        Respondent r = createFreshRespondent();
+        questionManager.init(r.id.intValue(), WELCOME_SECTION);
+
+        Answer termsAnswer = Answer.findByDisplayKeyActive(r.id.intValue(), TERMS_DK);
+        saveAnswer(termsAnswer, "TRUE");
+        long dependentsBefore = Dependent.count(
+            "respondentId = ?1 and downstream.displayKey like '0001-0002%' and deleted = false", r.id);
+        assertTrue(dependentsBefore > 0);
+
+        termsAnswer = Answer.findByDisplayKeyActive(r.id.intValue(), TERMS_DK);
+        saveAnswer(termsAnswer, "FALSE");
+
+        long dependentsAfter = Dependent.count(
+            "respondentId = ?1 and downstream.displayKey like '0001-0002%' and deleted = false", r.id);
+        assertEquals(0, dependentsAfter, "Dependents of deleted patron answers must be deleted");
+    }
+
     @Test
     @TestTransaction
     void given_termsFalse_when_termsTrue_then_patronRestored() {
@@ -389,6 +411,58 @@ class QuestionManagerTest {
         assertEquals(0, instance2, "Checkout instance 2 must be deleted when qty decreases to 1");
     }
 
+    @Test
+    @TestTransaction
+    void given_freshRespondent_when_checkoutQty12_then_everyInstanceHasHeaderAndDependents() {
+        // Matrix row 9: REPEAT — large counts are written as one batch
+        Respondent r = createFreshRespondent();
+        questionManager.init(r.id.intValue(), WELCOME_SECTION);
+
+        Answer termsAnswer = Answer.findByDisplayKeyActive(r.id.intValue(), TERMS_DK);
+        saveAnswer(termsAnswer, "TRUE");
+        questionManager.navigate(r.id.intValue(), COLLPREFS_SECTION);
+
+        Answer checkoutQty = Answer.findByDisplayKeyActive(r.id.intValue(), CHECKOUT_QTY_DK);
+        saveAnswer(checkoutQty, "12");
+
+        for (int i = 1; i <= 12; i++) {
+            String header = String.format("0001-0004-0000-0006-%04d-0000-0000", i);
+            Answer section = Answer.findByDisplayKeyActive(r.id.intValue(), header);
+            assertNotNull(section, "Checkout instance " + i + " must have a section answer");
+            assertNotNull(section.displayText, "Section answer must have display text");
+            assertFalse(Dependent.findByDownstream(r.id.intValue(), section.id).isEmpty(),
+                    "Section answer " + i + " must depend on the checkout quantity");
+        }
+    }
+
+    @Test
+    @TestTransaction
+    void given_deletedInstances_when_qtyIncreasedAgain_then_restoredNotDuplicated() {
+        // EC-08 for REPEAT: existing instances are undeleted, only new ones are inserted
+        Respondent r = createFreshRespondent();
+        questionManager.init(r.id.intValue(), WELCOME_SECTION);
+
+        Answer termsAnswer = Answer.findByDisplayKeyActive(r.id.intValue(), TERMS_DK);
+        saveAnswer(termsAnswer, "TRUE");
+        questionManager.navigate(r.id.intValue(), COLLPREFS_SECTION);
+
+        Answer checkoutQty = Answer.findByDisplayKeyActive(r.id.intValue(), CHECKOUT_QTY_DK);
+        saveAnswer(checkoutQty, "2");
+        checkoutQty = Answer.findByDisplayKeyActive(r.id.intValue(), CHECKOUT_QTY_DK);
+        saveAnswer(checkoutQty, "1");
+        checkoutQty = Answer.findByDisplayKeyActive(r.id.intValue(), CHECKOUT_QTY_DK);
+        saveAnswer(checkoutQty, "3");
+
+        long instance2 = Answer.count(
+            "respondentId = ?1 and displayKey like '0001-0004-0000-0006-0002%'", r.id);
+        long instance3 = Answer.count(
+            "respondentId = ?1 and displayKey like '0001-0004-0000-0006-0003%'", r.id);
+        assertEquals(instance3, instance2, "Restored instance must not be duplicated");
+        assertEquals(0, Answer.count(
+            "respondentId = ?1 and displayKey like '0001-0004-0000-0006-0002%' and deleted = true", r.id),
+            "Instance 2 must be restored");
+    }
+
     // ── US-8 FIELD_EXIST + 3-level nested chain ─────────────────────────────
 
     @Test
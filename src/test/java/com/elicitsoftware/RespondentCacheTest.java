@@ -0,0 +1,133 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Answer;
+import com.elicitsoftware.response.NavigationList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RespondentCacheTest {
+
+    private static final String FAMILY = "0001-0001-0000-0001-0000-0000-0000";
+    private static final String MOTHER = "0001-0001-0000-0002-0001-0000-0000";
+    private static final String FATHER = "0001-0001-0000-0003-0001-0000-0000";
+
+    private RespondentCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RespondentCache();
+        cache.idleTimeout = Duration.ofMinutes(30);
+        cache.maxBytes = 1 << 20;
+        cache.init();
+    }
+
+    @Test
+    void given_loadedEntry_when_readAgain_then_loaderNotCalled() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.getAnsweredSectionQuestionIds(1, () -> {
+            loads.incrementAndGet();
+            return Set.of(10, 11);
+        });
+        Set<Integer> answered = cache.getAnsweredSectionQuestionIds(1, () -> {
+            loads.incrementAndGet();
+            return Set.of();
+        });
+        assertEquals(1, loads.get());
+        assertEquals(Set.of(10, 11), answered);
+    }
+
+    @Test
+    void given_commit_when_answersAdded_then_answeredUpdatedAndReviewDropped() {
+        cache.getAnsweredSectionQuestionIds(1, () -> Set.of(10));
+        cache.getNavigation(1, () -> NavigationList.of(List.of(new NavigationList.Entry("Family", FAMILY))));
+        AtomicInteger navLoads = new AtomicInteger();
+
+        cache.committed(1, Set.of(12), List.of());
+
+        assertEquals(Set.of(10, 12), cache.getAnsweredSectionQuestionIds(1, Set::of));
+        assertEquals(1, cache.getNavigation(1, () -> {
+            navLoads.incrementAndGet();
+            return NavigationList.of(List.of());
+        }).size());
+        assertEquals(0, navLoads.get());
+    }
+
+    @Test
+    void given_commit_when_headersChanged_then_navigationSplicedWithoutReload() {
+        cache.getNavigation(1, () -> NavigationList.of(List.of(
+                new NavigationList.Entry("Family", FAMILY), new NavigationList.Entry("Father", FATHER))));
+        Answer mother = header(MOTHER, "Mother");
+        Answer father = header(FATHER, "Father");
+        father.deleted = true;
+
+        cache.committed(1, Set.of(), List.of(mother, father));
+
+        NavigationList navigation = cache.getNavigation(1, () -> NavigationList.of(List.of()));
+        assertEquals(List.of(new NavigationList.Entry("Family", FAMILY), new NavigationList.Entry("Mother", MOTHER)),
+                navigation.getEntries());
+        assertEquals(FAMILY, navigation.getItem(MOTHER).getPrevious());
+        assertNull(navigation.getItem(MOTHER).getNext());
+    }
+
+    @Test
+    void given_headers_when_applied_then_changesReportedOnce() {
+        NavigationList navigation = NavigationList.of(List.of(new NavigationList.Entry("Family", FAMILY)));
+        Answer mother = header(MOTHER, "Mother");
+        Answer family = header(FAMILY, "Your family");
+        List<NavigationList.Change> changes = new ArrayList<>();
+
+        NavigationList updated = navigation.apply(List.of(mother, family), changes);
+
+        assertEquals(List.of(new NavigationList.Change("Mother", MOTHER, false),
+                new NavigationList.Change("Your family", FAMILY, false)), changes);
+        assertEquals(MOTHER, updated.getItem(FAMILY).getNext());
+        assertEquals(1, navigation.size());
+        assertSame(updated, updated.apply(List.of(mother, family), null));
+    }
+
+    @Test
+    void given_invalidate_when_readAgain_then_reloaded() {
+        cache.getAnsweredSectionQuestionIds(1, () -> Set.of(10));
+
+        cache.invalidate(1);
+
+        assertEquals(Set.of(), cache.getAnsweredSectionQuestionIds(1, Set::of));
+    }
+
+    @Test
+    void given_commitDuringLoad_when_loaded_then_staleValueNotCached() {
+        Set<Integer> loaded = cache.getAnsweredSectionQuestionIds(1, () -> {
+            // Another transaction commits while this one reads the database.
+            cache.committed(1, Set.of(12), List.of());
+            return Set.of(10);
+        });
+
+        assertEquals(Set.of(10), loaded);
+        assertEquals(Set.of(10, 12), cache.getAnsweredSectionQuestionIds(1, () -> Set.of(10, 12)));
+    }
+
+    private static Answer header(String displayKey, String name) {
+        return new Answer(new DisplayKey(displayKey), null, name, 1);
+    }
+}
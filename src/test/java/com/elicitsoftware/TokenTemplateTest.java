@@ -0,0 +1,146 @@
+package com.elicitsoftware;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TokenTemplateTest {
+
+    // Regression corpus: the parsed template must render exactly like the legacy replaceTokens.
+
+    private static final List<String> TEXTS = List.of(
+            "Hello {NAME|friend}",
+            "Hello {NAME|friend}, how are you?",
+            "Email: {EMAIL|none} Phone: {PHONE|none}",
+            "Does {NAME|your relative} have {PRONOUN|their} own doctor?",
+            "How old was {NAME|this person} when {PRONOUN|they} were diagnosed?",
+            "{NAME|Your relative}'s date of birth",
+            "Is {NAME|this person} still living?",
+            "What is {NAME|your} relationship to {RELATIVE|this person}?",
+            "Dennis's card",
+            "What is her's name?",
+            "Is this his's car ",
+            "Your's truly",
+            "Children {S#} of {NAME|you}",
+            "Relative {Q#} of {NAME|you}, step {S#}",
+            "{Q#|first} and {Q#}",
+            "No tokens at all",
+            "",
+            "{NAME}",
+            "Hello {NAME}",
+            "{NAME|a|b}",
+            "{|empty name}",
+            "Before } after",
+            "Unclosed {NAME|friend",
+            "{NAME|friend}{NAME|again}",
+            "{A|x}{AB|y}",
+            "NAME is {NAME|x}",
+            "A{AA|x}",
+            "Line one {NAME|x}\nline two",
+            "Pipe | before {NAME|x}",
+            "{OUTER|{INNER|x}}",
+            "{FIRST_NAME|first} {LAST_NAME|last}");
+
+    private static final List<TreeMap<String, String>> VALUES = List.of(
+            values(),
+            values("NAME", "Alice"),
+            values("NAME", "Chris"),
+            values("NAME", "Alice", "PRONOUN", "she", "RELATIVE", "your mother"),
+            values("EMAIL", "a@b.org"),
+            values("A", "1", "AB", "2"),
+            values("AA", "z"),
+            values("NAME", "$1"),
+            values("NAME", "back\\slash"),
+            values("NAME", "NAME"),
+            values("NAME", "x", "x", "y"),
+            values("FIRST_NAME", "Ann", "NAME", "nope"),
+            values("OUTER", "o", "INNER", "i"),
+            values("S", "s"),
+            values("Q#", "2", "S#", "3"),
+            values("Q#", "12", "S#", "1", "NAME", "Alice"));
+
+    @Test
+    void given_corpus_when_render_then_sameAsLegacy() {
+        for (String text : TEXTS) {
+            for (TreeMap<String, String> values : VALUES) {
+                assertEquals(render(() -> TokenTemplate.renderLegacy(text, values)),
+                        render(() -> TokenTemplate.of(text).render(values)),
+                        "text [" + text + "] values " + values);
+            }
+        }
+    }
+
+    @Test
+    void given_randomTexts_when_render_then_sameAsLegacy() {
+        String[] pieces = {"{", "}", "|", "A", "B", "AB", "NAME", "s", "'s", " ", "her's ", "x", "$", "\n",
+                "{NAME|friend}", "{A|b}", "{AB}", "Dennis"};
+        String[] keys = {"A", "B", "AB", "NAME", "N", "s", "x", "A|", "{"};
+        String[] values = {"v", "Alice", "A", "B", "$1", "a b", "s", "Chris", "NAME", "", "w{"};
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = random.nextInt(8); j > 0; j--) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            TreeMap<String, String> map = new TreeMap<>();
+            for (int j = random.nextInt(4); j > 0; j--) {
+                map.put(keys[random.nextInt(keys.length)], values[random.nextInt(values.length)]);
+            }
+            assertEquals(render(() -> TokenTemplate.renderLegacy(text.toString(), map)),
+                    render(() -> TokenTemplate.of(text.toString()).render(map)),
+                    "text [" + text + "] values " + map);
+        }
+    }
+
+    @Test
+    void given_instanceTokens_when_render_then_sameAsSubstitutingThemFirst() {
+        TreeMap<String, String> values = values("NAME", "Alice");
+        TreeMap<String, String> withInstances = values("NAME", "Alice", "Q#", "2", "S#", "3");
+        for (String text : List.of("Relative {Q#} of {NAME|you}, step {S#}", "Children {S#} of {NAME|you}",
+                "{NAME|Your relative}'s child {Q#}")) {
+            assertEquals(TokenTemplate.of(text.replace("{Q#}", "2").replace("{S#}", "3")).render(values),
+                    TokenTemplate.of(text).render(withInstances), text);
+        }
+    }
+
+    @Test
+    void given_sameText_when_of_then_parsedOnce() {
+        assertSame(TokenTemplate.of("Hello {NAME|friend}"), TokenTemplate.of(new String("Hello {NAME|friend}")));
+    }
+
+    /**
+     * Some inputs make the legacy implementation throw; both must then throw.
+     */
+    private static String render(Supplier<String> render) {
+        try {
+            return render.get();
+        } catch (RuntimeException e) {
+            return "exception";
+        }
+    }
+
+    private static TreeMap<String, String> values(String... pairs) {
+        TreeMap<String, String> map = new TreeMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,165 @@
+package com.elicitsoftware.etl;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class FactSectionExporterTest {
+
+    @TempDir
+    Path directory;
+
+    @Inject
+    @DataSource("owner")
+    AgroalDataSource dataSource;
+
+    private Integer respondentId;
+
+    @AfterEach
+    void deleteRespondent() throws SQLException {
+        if (respondentId == null) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement facts = connection.prepareStatement("DELETE FROM surveyreport.fact_respondents WHERE id = ?");
+             PreparedStatement respondent = connection.prepareStatement("DELETE FROM survey.respondents WHERE id = ?")) {
+            facts.setInt(1, respondentId);
+            facts.executeUpdate();
+            respondent.setInt(1, respondentId);
+            respondent.executeUpdate();
+        }
+        respondentId = null;
+    }
+
+    @Test
+    void given_noWatermark_when_read_then_epoch() throws Exception {
+        assertEquals(Instant.EPOCH, new FactSectionExporter(directory, 100).readWatermark());
+    }
+
+    @Test
+    void given_writtenWatermark_when_read_then_sameInstant() throws Exception {
+        FactSectionExporter exporter = new FactSectionExporter(directory, 100);
+        Instant watermark = Instant.parse("2025-03-04T05:06:07.123456Z");
+        exporter.writeWatermark(watermark);
+        assertEquals(watermark, exporter.readWatermark());
+    }
+
+    @Test
+    void given_jdbcTypes_when_arrowType_then_typedOrText() {
+        assertEquals(new ArrowType.Int(32, true), FactSectionExporter.arrowType(Types.INTEGER));
+        assertEquals(new ArrowType.Int(64, true), FactSectionExporter.arrowType(Types.BIGINT));
+        assertInstanceOf(ArrowType.Timestamp.class, FactSectionExporter.arrowType(Types.TIMESTAMP_WITH_TIMEZONE));
+        assertEquals(ArrowType.Utf8.INSTANCE, FactSectionExporter.arrowType(Types.VARCHAR));
+        assertEquals(ArrowType.Utf8.INSTANCE, FactSectionExporter.arrowType(Types.OTHER));
+    }
+
+    @Test
+    void given_instant_when_micros_then_microsecondsSinceEpoch() {
+        assertEquals(1_500_001L, FactSectionExporter.micros(Instant.ofEpochSecond(1, 500_001_999)));
+    }
+
+    @Test
+    void given_respondentQueuedAfterFinalizing_when_export_then_watermarkStopsBeforeIt() throws Exception {
+        Instant finalized = queueFinalizedRespondent("PENDING");
+        try (Connection connection = dataSource.getConnection()) {
+            FactSectionExporter.Result result = new FactSectionExporter(directory, 100).export(connection);
+            assertFalse(result.watermark().isAfter(finalized));
+            assertTrue(connection.getAutoCommit());
+            assertFalse(connection.isReadOnly());
+        }
+    }
+
+    @Test
+    void given_nothingToExport_when_export_then_noFileAndConnectionRestored() throws Exception {
+        Instant finalized = queueFinalizedRespondent("PENDING");
+        FactSectionExporter exporter = new FactSectionExporter(directory, 100);
+        exporter.writeWatermark(finalized);
+        try (Connection connection = dataSource.getConnection()) {
+            FactSectionExporter.Result result = exporter.export(connection);
+            assertNull(result.file());
+            assertEquals(0, result.rows());
+            assertEquals(finalized, result.watermark());
+            assertTrue(connection.getAutoCommit());
+            assertFalse(connection.isReadOnly());
+        }
+        assertEquals(finalized, exporter.readWatermark());
+    }
+
+    @Test
+    void given_failedRespondent_when_export_then_watermarkPassesIt() throws Exception {
+        Instant finalized = queueFinalizedRespondent("FAILED");
+        FactSectionExporter exporter = new FactSectionExporter(directory, 100);
+        exporter.writeWatermark(finalized);
+        try (Connection connection = dataSource.getConnection()) {
+            assertTrue(exporter.export(connection).watermark().isAfter(finalized));
+        }
+    }
+
+    /**
+     * Adds a respondent finalized a day ago and queued now, the way a backfill queues it. The
+     * queue row is not due, so the ETL worker leaves it alone.
+     *
+     * @return the finalized time of the respondent
+     */
+    private Instant queueFinalizedRespondent(String status) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement respondent = connection.prepareStatement("""
+                    INSERT INTO survey.respondents (id, survey_id, token, active, first_access_dt, finalized_dt)
+                    VALUES (nextval('survey.respondents_seq'), 1, ?, false,
+                            CURRENT_TIMESTAMP - interval '1 day', CURRENT_TIMESTAMP - interval '1 day')
+                    RETURNING id, finalized_dt
+                    """);
+                 PreparedStatement queue = connection.prepareStatement("""
+                         INSERT INTO survey.etl_queue (respondent_id, next_attempt_dt, status)
+                         VALUES (?, CURRENT_TIMESTAMP + interval '1 day', ?)
+                         """)) {
+                respondent.setString(1, "export-" + UUID.randomUUID());
+                Instant finalized;
+                try (ResultSet rs = respondent.executeQuery()) {
+                    rs.next();
+                    respondentId = rs.getInt(1);
+                    finalized = rs.getTimestamp(2).toInstant();
+                }
+                queue.setInt(1, respondentId);
+                queue.setString(2, status);
+                queue.executeUpdate();
+                connection.commit();
+                return finalized;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.elicitsoftware.graph;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.model.Relationship;
+import com.elicitsoftware.model.StepsSections;
+import io.quarkus.test.TestTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class SurveyGraphTest {
+
+    static final int SURVEY_ID = 1;
+
+    @Inject
+    SurveyGraphService surveyGraphs;
+
+    @Test
+    @TestTransaction
+    void given_survey_when_graphBuilt_then_stepsSectionsMatchDatabase() {
+        SurveyGraph graph = surveyGraphs.get(SURVEY_ID);
+
+        List<StepsSections> expected = StepsSections.findBySurveyIdWithJoins(SURVEY_ID);
+        List<StepsSections> actual = graph.getStepsSections();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).displaykey, actual.get(i).displaykey, "Steps/sections must be in display key order");
+        }
+        assertFalse(graph.getFingerprint().isEmpty(), "A seeded survey must have a fingerprint");
+    }
+
+    @Test
+    @TestTransaction
+    void given_survey_when_conditionsLookedUp_then_matchNamedQuery() {
+        SurveyGraph graph = surveyGraphs.get(SURVEY_ID);
+
+        List<Relationship> relationships = Relationship.findBySurveyIdWithJoins(SURVEY_ID);
+        for (Relationship r : relationships) {
+            assertEquals(r.id, graph.getRelationship(r.id).id);
+            if (r.downstreamQuestion != null && r.actionType.id != 3) {
+                List<Integer> expected = Relationship.findByDownstream_SQ_ID(SURVEY_ID, r.downstreamQuestion.id)
+                        .stream().map(x -> x.id).sorted().toList();
+                List<Integer> actual = graph.getConditionsByDownstreamQuestion(r.downstreamQuestion.id)
+                        .stream().map(x -> x.id).sorted().toList();
+                assertEquals(expected, actual, "Conditions for downstream question " + r.downstreamQuestion.id);
+            }
+        }
+    }
+
+    @Test
+    @TestTransaction
+    void given_graph_when_invalidated_then_rebuilt() {
+        SurveyGraph first = surveyGraphs.get(SURVEY_ID);
+        assertSame(first, surveyGraphs.get(SURVEY_ID), "Graph must be reused while the survey is unchanged");
+
+        surveyGraphs.invalidate(SURVEY_ID);
+        SurveyGraph second = surveyGraphs.get(SURVEY_ID);
+        assertNotSame(first, second);
+        assertEquals(first.getFingerprint(), second.getFingerprint());
+    }
+}
@@ -0,0 +1,241 @@
+package com.elicitsoftware.load;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.StatementCounter;
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.AgroalDataSourceMetrics;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.logging.Log;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Drives simulated respondents through the services in-process, with no UI or outside service
+ * involved, and reports per operation how fast the node answers. The class name is not picked
+ * up by surefire, so it only runs when asked for:
+ * <pre>
+ * mvn test -Dtest=LoadDriver -Dload.users=10,50,100 -Dload.duration=60
+ * </pre>
+ * Every respondent is a virtual thread that logs in with a new token, walks the survey with
+ * {@link RespondentGenerator} and finalizes it, then starts over as a new respondent until the
+ * stage ends. {@code load.users} lists the concurrent respondents of each stage, so one run shows
+ * where the latencies start to climb. Each stage runs {@code load.warmup} seconds (10) before it
+ * measures for {@code load.duration} seconds (60).
+ * <p>
+ * For every operation the report has the throughput, the latency percentiles and the JDBC
+ * statements per call counted by {@link StatementCounter}. The wait for a pool connection comes
+ * from the Agroal metrics of the default datasource, which are kept per pool, not per operation.
+ * The report is logged and written as JSON to {@code load.result}
+ * ({@code target/load-result.json}) to compare runs over time.
+ * <p>
+ * The survey is {@code load.surveyId}, or one generated from the {@code synthetic.*} properties
+ * of {@link SyntheticSurvey.Spec#fromSystemProperties()}. {@code load.answerRate} (0.9) is the
+ * share of questions answered.
+ */
+@QuarkusTest
+@TestProfile(LoadTestProfile.class)
+class LoadDriver {
+
+    static final String[] OPERATIONS = {"token", "login", "init", "save", "review", "finalize"};
+
+    @Inject
+    SurveyGenerator surveyGenerator;
+
+    @Inject
+    RespondentGenerator respondentGenerator;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    /**
+     * The results of one stage.
+     */
+    record Stage(int users, double seconds, int respondents, Map<String, OperationStats> operations,
+                 AgroalDataSourceMetrics pool) {
+    }
+
+    @Test
+    void run() throws Exception {
+        SyntheticSurvey.Spec spec = SyntheticSurvey.Spec.fromSystemProperties();
+        Integer surveyId = Integer.getInteger("load.surveyId");
+        if (surveyId == null) {
+            surveyId = surveyGenerator.generate(SyntheticSurvey.plan(spec));
+        }
+        long warmup = Long.getLong("load.warmup", 10L) * 1_000_000_000L;
+        long duration = Long.getLong("load.duration", 60L) * 1_000_000_000L;
+        double answerRate = Double.parseDouble(System.getProperty("load.answerRate", "0.9"));
+
+        StringBuilder json = new StringBuilder("{\"surveyId\":").append(surveyId).append(",\"stages\":[");
+        for (String users : System.getProperty("load.users", "10,50").split(",")) {
+            Stage stage = stage(surveyId, Integer.parseInt(users.trim()), spec, answerRate, warmup, duration);
+            log(stage);
+            if (json.charAt(json.length() - 1) != '[') {
+                json.append(',');
+            }
+            json(stage, json);
+        }
+        json.append("]}");
+
+        Path result = Path.of(System.getProperty("load.result", "target/load-result.json"));
+        if (result.getParent() != null) {
+            Files.createDirectories(result.getParent());
+        }
+        Files.writeString(result, json);
+        Log.info("Load test results written to " + result.toAbsolutePath());
+    }
+
+    /**
+     * Runs one stage. Respondents started during the warmup are only measured for the calls
+     * they make after it.
+     */
+    private Stage stage(int surveyId, int users, SyntheticSurvey.Spec spec, double answerRate, long warmup,
+                        long duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup;
+        long end = measureFrom + duration;
+        Map<String, OperationStats> totals = newOperations();
+        AtomicInteger respondents = new AtomicInteger();
+        AtomicInteger seeds = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        Map<String, OperationStats> operations = newOperations();
+                        Random random = new Random(spec.seed() * 1_000_003 + seeds.incrementAndGet());
+                        ManagedContext requestContext = Arc.container().requestContext();
+                        requestContext.activate();
+                        try {
+                            respondentGenerator.walk(surveyId, spec.repeatFanOut(), answerRate, true, random,
+                                    new Probe(operations, measureFrom));
+                            if (System.nanoTime() >= measureFrom) {
+                                respondents.incrementAndGet();
+                            }
+                        } catch (RuntimeException e) {
+                            Log.warn("Respondent walk failed", e);
+                        } finally {
+                            requestContext.terminate();
+                        }
+                        synchronized (totals) {
+                            for (String operation : OPERATIONS) {
+                                totals.get(operation).merge(operations.get(operation));
+                            }
+                        }
+                    }
+                });
+            }
+            Thread.sleep(Math.max(0, (measureFrom - System.nanoTime()) / 1_000_000));
+            dataSource.getMetrics().reset();
+        }
+        double seconds = (System.nanoTime() - measureFrom) / 1e9;
+        return new Stage(users, seconds, respondents.get(), totals, dataSource.getMetrics());
+    }
+
+    private static Map<String, OperationStats> newOperations() {
+        Map<String, OperationStats> operations = new LinkedHashMap<>();
+        for (String operation : OPERATIONS) {
+            operations.put(operation, new OperationStats());
+        }
+        return operations;
+    }
+
+    /**
+     * Times the calls of one respondent and counts their statements. Calls before the end of
+     * the warmup are made but not recorded.
+     */
+    private static final class Probe implements RespondentGenerator.Probe {
+        private final Map<String, OperationStats> operations;
+        private final long measureFrom;
+
+        Probe(Map<String, OperationStats> operations, long measureFrom) {
+            this.operations = operations;
+            this.measureFrom = measureFrom;
+        }
+
+        @Override
+        public <T> T call(String operation, Supplier<T> call) {
+            int[] previous = StatementCounter.start();
+            long start = System.nanoTime();
+            boolean done = false;
+            try {
+                T result = call.get();
+                done = true;
+                return result;
+            } finally {
+                long nanos = System.nanoTime() - start;
+                int statements = StatementCounter.stop(previous);
+                if (start >= measureFrom) {
+                    if (done) {
+                        operations.get(operation).record(nanos, statements);
+                    } else {
+                        operations.get(operation).error();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void log(Stage stage) {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "%n%d users, %d respondents in %.1f s%n%-9s %8s %8s %9s %9s %9s %9s %9s %7s %6s%n",
+                stage.users(), stage.respondents(), stage.seconds(), "operation", "calls", "per s", "mean ms",
+                "p50 ms", "p90 ms", "p99 ms", "max ms", "stmts", "errors"));
+        for (Map.Entry<String, OperationStats> entry : stage.operations().entrySet()) {
+            OperationStats s = entry.getValue();
+            sb.append(String.format(Locale.ROOT, "%-9s %8d %8.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7.1f %6d%n",
+                    entry.getKey(), s.count(), s.count() / stage.seconds(), s.mean() / 1e6, s.percentile(50) / 1e6,
+                    s.percentile(90) / 1e6, s.percentile(99) / 1e6, s.percentile(100) / 1e6,
+                    s.statementsPerCall(), s.errors()));
+        }
+        AgroalDataSourceMetrics pool = stage.pool();
+        sb.append(String.format(Locale.ROOT, "pool: %d acquired, wait total %d ms, mean %d ms, max %d ms, "
+                        + "%d connections used at most", pool.acquireCount(), pool.blockingTimeTotal().toMillis(),
+                pool.blockingTimeAverage().toMillis(), pool.blockingTimeMax().toMillis(), pool.maxUsedCount()));
+        Log.info(sb);
+    }
+
+    private static void json(Stage stage, StringBuilder json) {
+        json.append(String.format(Locale.ROOT, "{\"users\":%d,\"seconds\":%.3f,\"respondents\":%d,\"operations\":{",
+                stage.users(), stage.seconds(), stage.respondents()));
+        List<String> operations = new ArrayList<>();
+        for (Map.Entry<String, OperationStats> entry : stage.operations().entrySet()) {
+            OperationStats s = entry.getValue();
+            operations.add(String.format(Locale.ROOT, "\"%s\":{\"calls\":%d,\"perSecond\":%.3f,\"meanMs\":%.3f,"
+                            + "\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f,\"statementsPerCall\":%.2f,"
+                            + "\"errors\":%d}", entry.getKey(), s.count(), s.count() / stage.seconds(), s.mean() / 1e6,
+                    s.percentile(50) / 1e6, s.percentile(90) / 1e6, s.percentile(99) / 1e6,
+                    s.percentile(100) / 1e6, s.statementsPerCall(), s.errors()));
+        }
+        json.append(String.join(",", operations));
+        AgroalDataSourceMetrics pool = stage.pool();
+        json.append(String.format(Locale.ROOT, "},\"pool\":{\"acquired\":%d,\"waitTotalMs\":%d,\"waitMeanMs\":%d,"
+                        + "\"waitMaxMs\":%d,\"maxUsed\":%d}}", pool.acquireCount(), pool.blockingTimeTotal().toMillis(),
+                pool.blockingTimeAverage().toMillis(), pool.blockingTimeMax().toMillis(), pool.maxUsedCount()));
+    }
+}
@@ -0,0 +1,40 @@
+package com.elicitsoftware.load;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+import java.util.Map;
+
+/**
+ * Points the test profile at a separate database for generated data, so the small fixtures of
+ * {@code db/test} stay untouched. Only the production migrations are applied, which leaves the
+ * step ids free for {@link SurveyGenerator}. The pool metrics of Agroal are collected for
+ * {@link LoadDriver}.
+ * <p>
+ * The database is {@code jdbc:postgresql://localhost:5452/survey_load} unless the
+ * {@code load.jdbc.url} system property names another one.
+ */
+public class LoadTestProfile implements QuarkusTestProfile {
+
+    static final String DEFAULT_URL = "jdbc:postgresql://localhost:5452/survey_load";
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        String url = System.getProperty("load.jdbc.url", DEFAULT_URL);
+        return Map.of(
+                "quarkus.datasource.jdbc.url", url,
+                "quarkus.datasource.owner.jdbc.url", url,
+                "quarkus.flyway.owner.locations", "db/migration",
+                "quarkus.datasource.jdbc.enable-metrics", "true");
+    }
+}
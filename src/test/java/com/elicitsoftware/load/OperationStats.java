@@ -0,0 +1,110 @@
+package com.elicitsoftware.load;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import java.util.Arrays;
+
+/**
+ * The latencies and statement counts of one operation. Every simulated respondent records into
+ * its own instance, which is merged into the totals when the respondent is done, so recording
+ * needs no locking.
+ */
+final class OperationStats {
+
+    private long[] latencies = new long[64];
+    private int count;
+    private long statements;
+    private int errors;
+    private boolean sorted;
+
+    /**
+     * Records a successful call.
+     *
+     * @param nanos      the latency
+     * @param statements the JDBC statements of the call
+     */
+    void record(long nanos, int statements) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        this.statements += statements;
+        sorted = false;
+    }
+
+    /**
+     * Records a failed call, which is left out of the latencies.
+     */
+    void error() {
+        errors++;
+    }
+
+    /**
+     * Adds the calls of another instance to this one.
+     *
+     * @param other the calls to add
+     */
+    void merge(OperationStats other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        statements += other.statements;
+        errors += other.errors;
+        sorted = false;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int errors() {
+        return errors;
+    }
+
+    /**
+     * @return the mean number of JDBC statements per call
+     */
+    double statementsPerCall() {
+        return count == 0 ? 0 : (double) statements / count;
+    }
+
+    /**
+     * @return the mean latency in nanoseconds
+     */
+    double mean() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += latencies[i];
+        }
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns a latency percentile with the nearest-rank method.
+     *
+     * @param percentile the percentile, above 0 and at most 100
+     * @return the latency in nanoseconds, or 0 without calls
+     */
+    long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(latencies, 0, count);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return latencies[Math.min(count, Math.max(rank, 1)) - 1];
+    }
+}
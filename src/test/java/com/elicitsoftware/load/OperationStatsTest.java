@@ -0,0 +1,59 @@
+package com.elicitsoftware.load;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationStatsTest {
+
+    @Test
+    void given_noCalls_when_reported_then_zero() {
+        OperationStats stats = new OperationStats();
+        assertEquals(0, stats.percentile(99));
+        assertEquals(0, stats.mean());
+        assertEquals(0, stats.statementsPerCall());
+    }
+
+    @Test
+    void given_hundredCalls_when_percentiles_then_nearestRank() {
+        OperationStats stats = new OperationStats();
+        for (int i = 100; i >= 1; i--) {
+            stats.record(i, 2);
+        }
+        assertEquals(50, stats.percentile(50));
+        assertEquals(99, stats.percentile(99));
+        assertEquals(100, stats.percentile(100));
+        assertEquals(1, stats.percentile(0.1));
+        assertEquals(50.5, stats.mean());
+        assertEquals(2, stats.statementsPerCall());
+    }
+
+    @Test
+    void given_respondents_when_merged_then_callsAndErrorsAdded() {
+        OperationStats total = new OperationStats();
+        for (int r = 0; r < 3; r++) {
+            OperationStats respondent = new OperationStats();
+            for (int i = 1; i <= 100; i++) {
+                respondent.record(r * 100 + i, r);
+            }
+            respondent.error();
+            total.merge(respondent);
+        }
+        assertEquals(300, total.count());
+        assertEquals(3, total.errors());
+        assertEquals(1, total.statementsPerCall());
+        assertEquals(150, total.percentile(50));
+        assertEquals(300, total.percentile(100));
+    }
+}
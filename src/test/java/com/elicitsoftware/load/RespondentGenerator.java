@@ -0,0 +1,221 @@
+package com.elicitsoftware.load;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.QuestionService;
+import com.elicitsoftware.TokenService;
+import com.elicitsoftware.model.Answer;
+import com.elicitsoftware.model.SelectItem;
+import com.elicitsoftware.model.Survey;
+import com.elicitsoftware.response.AddResponse;
+import com.elicitsoftware.response.NavResponse;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/**
+ * Walks new respondents through a survey the way the survey UI does: the respondent logs in with
+ * a new token, every section is opened with {@link QuestionService#init(int, String)} using the
+ * next key of the navigation, and every answer goes through
+ * {@link QuestionService#saveAnswer(Answer)}.
+ * <p>
+ * The answers are random but reproducible from the seed, so the same seed gives the same paths
+ * through the same survey. CHECKBOX questions are mostly checked, which walks the SHOW chains,
+ * and INTEGER questions repeat their sections up to the fan-out of the survey spec.
+ * <p>
+ * TokenService is request scoped, so callers on their own threads have to activate a request
+ * context.
+ */
+@ApplicationScoped
+public class RespondentGenerator {
+
+    /**
+     * Stops a walk that keeps getting new sections, which would mean the survey loops.
+     */
+    static final int MAX_SECTIONS = 100_000;
+
+    private static final String[] WORDS = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf",
+            "hotel", "india", "juliet"};
+
+    @Inject
+    QuestionService questionService;
+
+    @Inject
+    TokenService tokenService;
+
+    /**
+     * Wraps every service call of a walk, so a load test can measure them.
+     */
+    public interface Probe {
+
+        /**
+         * A probe that only makes the call.
+         */
+        Probe NONE = new Probe() {
+            @Override
+            public <T> T call(String operation, Supplier<T> call) {
+                return call.get();
+            }
+        };
+
+        /**
+         * Makes one service call.
+         *
+         * @param operation the name of the call: token, login, init, save, review or finalize
+         * @param call      the call
+         * @param <T>       the result type
+         * @return the result of the call
+         */
+        <T> T call(String operation, Supplier<T> call);
+    }
+
+    /**
+     * The result of one walk.
+     *
+     * @param respondentId the new respondent
+     * @param sections     the number of sections opened
+     * @param answers      the number of answers saved
+     */
+    public record Walk(int respondentId, int sections, int answers) {
+    }
+
+    /**
+     * Creates a respondent and answers the survey.
+     *
+     * @param surveyId     the survey
+     * @param repeatFanOut the largest value entered in INTEGER questions
+     * @param answerRate   the share of questions answered, the rest is skipped
+     * @param finalize     true to review and finalize the respondent at the end
+     * @param random       the source of the answers
+     * @return the walk
+     */
+    public Walk walk(int surveyId, int repeatFanOut, double answerRate, boolean finalize, Random random) {
+        return walk(surveyId, repeatFanOut, answerRate, finalize, random, Probe.NONE);
+    }
+
+    /**
+     * Creates a respondent and answers the survey, making every service call through a probe.
+     *
+     * @param surveyId     the survey
+     * @param repeatFanOut the largest value entered in INTEGER questions
+     * @param answerRate   the share of questions answered, the rest is skipped
+     * @param finalize     true to review and finalize the respondent at the end
+     * @param random       the source of the answers
+     * @param probe        the probe the service calls go through
+     * @return the walk
+     */
+    public Walk walk(int surveyId, int repeatFanOut, double answerRate, boolean finalize, Random random, Probe probe) {
+        AddResponse token = probe.call("token", () -> tokenService.putToken(surveyId));
+        if (token.getError() != null) {
+            throw new IllegalStateException("Could not create a respondent for survey " + surveyId + ": "
+                    + token.getError());
+        }
+        int respondentId = token.getRespondentId();
+        if (probe.call("login", () -> tokenService.login(surveyId, token.getToken())) == null) {
+            throw new IllegalStateException("Respondent " + respondentId + " could not log in");
+        }
+        Survey survey = Survey.findById(surveyId);
+
+        int sections = 0;
+        int answers = 0;
+        String key = survey.initialDisplayKey;
+        while (key != null) {
+            if (++sections > MAX_SECTIONS) {
+                throw new IllegalStateException("Respondent " + respondentId + " opened more than "
+                        + MAX_SECTIONS + " sections, does the survey loop?");
+            }
+            String sectionKey = key;
+            NavResponse nav = probe.call("init", () -> questionService.init(respondentId, sectionKey));
+            Set<Integer> seen = new HashSet<>();
+            Answer answer;
+            while ((answer = nextQuestion(nav.getAnswers(), seen)) != null) {
+                seen.add(answer.id);
+                if (random.nextDouble() >= answerRate) {
+                    continue;
+                }
+                answer.setTextValue(value(answer, repeatFanOut, random));
+                Answer changed = answer;
+                nav = probe.call("save", () -> questionService.saveAnswer(changed));
+                answers++;
+            }
+            key = nav.getCurrentNavItem() == null ? null : nav.getCurrentNavItem().getNext();
+        }
+
+        if (finalize) {
+            probe.call("review", () -> questionService.review(respondentId));
+            probe.call("finalize", () -> {
+                questionService.finalize(respondentId);
+                return null;
+            });
+        }
+        return new Walk(respondentId, sections, answers);
+    }
+
+    /**
+     * @return the first question of the section that was not answered or skipped yet, or null
+     */
+    private static Answer nextQuestion(List<Answer> answers, Set<Integer> seen) {
+        for (Answer answer : answers) {
+            if (answer.question != null && !seen.contains(answer.id) && answer.getTextValue() == null
+                    && !"HTML".equals(answer.question.questionType.name)) {
+                return answer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a random value in the format the UI saves for the question type
+     */
+    static String value(Answer answer, int repeatFanOut, Random random) {
+        return switch (answer.question.questionType.name) {
+            case "CHECKBOX" -> random.nextInt(3) < 2 ? "true" : "false";
+            case "INTEGER" -> String.valueOf(random.nextInt(repeatFanOut + 1));
+            case "DOUBLE" -> String.valueOf(Math.round(random.nextDouble() * 10_000) / 100.0);
+            case "DATE_PICKER" -> LocalDate.of(1940, 1, 1).plusDays(random.nextInt(30_000)).toString();
+            case "RADIO", "COMBOBOX" -> choice(answer, random);
+            case "CHECKBOX_GROUP", "MULTI_SELECT" -> choices(answer, random);
+            case "EMAIL" -> words(1, random) + random.nextInt(1000) + "@example.org";
+            default -> words(1 + random.nextInt(4), random);
+        };
+    }
+
+    private static String choice(Answer answer, Random random) {
+        List<SelectItem> items = answer.question.selectGroup.selectItems;
+        return items.get(random.nextInt(items.size())).codedValue;
+    }
+
+    private static String choices(Answer answer, Random random) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (SelectItem item : answer.question.selectGroup.selectItems) {
+            if (random.nextBoolean()) {
+                joiner.add(item.codedValue);
+            }
+        }
+        return joiner.length() == 0 ? choice(answer, random) : joiner.toString();
+    }
+
+    private static String words(int count, Random random) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (int i = 0; i < count; i++) {
+            joiner.add(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,382 @@
+package com.elicitsoftware.load;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link SyntheticSurvey} as {@code survey.*} definition rows, with JDBC batch inserts
+ * on the connection of the current transaction.
+ * <p>
+ * The engine still matches step ids with step display orders in a few places (the "ID will
+ * not work" notes in {@code QuestionManager}), so the steps are inserted with ids 1 to n and the
+ * survey has to go into a database without other steps, such as the load-test database of
+ * {@link LoadTestProfile}.
+ */
+@ApplicationScoped
+public class SurveyGenerator {
+
+    static final String NEXT_IDS_SQL = "SELECT nextval(?::regclass) FROM generate_series(1, ?)";
+
+    static final String TYPES_SQL = "SELECT name, id FROM survey.question_types UNION ALL "
+            + "SELECT 'operator:' || name, id FROM survey.operator_types UNION ALL "
+            + "SELECT 'action:' || name, id FROM survey.action_types";
+
+    static final String USED_STEPS_SQL = "SELECT count(*) FROM survey.steps WHERE id BETWEEN 1 AND ?";
+
+    static final String STEPS_SEQUENCE_SQL = "SELECT setval('survey.steps_seq', GREATEST(?, "
+            + "(SELECT last_value FROM survey.steps_seq)))";
+
+    static final String INSERT_SURVEY_SQL = "INSERT INTO survey.surveys (id, display_order, name, title, description, "
+            + "initial_display_key) VALUES (?, (SELECT COALESCE(MAX(display_order), 0) + 1 FROM survey.surveys), ?, ?, ?, ?)";
+
+    static final String INSERT_SELECT_GROUP_SQL = "INSERT INTO survey.select_groups (id, survey_id, name, description, "
+            + "data_type) VALUES (?, ?, 'Choices', 'Generated choices', 'Text')";
+
+    static final String INSERT_SELECT_ITEM_SQL = "INSERT INTO survey.select_items (id, survey_id, group_id, display_text, "
+            + "display_order, coded_value) VALUES (?, ?, ?, ?, ?, ?)";
+
+    static final String INSERT_STEP_SQL = "INSERT INTO survey.steps (id, survey_id, display_order, name, dimension_name, "
+            + "description) VALUES (?, ?, ?, ?, 'Synthetic', 'Generated step')";
+
+    static final String INSERT_SECTION_SQL = "INSERT INTO survey.sections (id, survey_id, display_order, name, "
+            + "dimension_name, description) VALUES (?, ?, ?, ?, 'Synthetic', 'Generated section')";
+
+    static final String INSERT_STEPS_SECTION_SQL = "INSERT INTO survey.steps_sections (id, survey_id, step_id, "
+            + "step_display_order, section_id, section_display_order, display_key) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static final String INSERT_QUESTION_SQL = "INSERT INTO survey.questions (id, survey_id, type_id, text, short_text, "
+            + "required, select_group_id) VALUES (?, ?, ?, ?, ?, false, ?)";
+
+    static final String INSERT_SECTIONS_QUESTION_SQL = "INSERT INTO survey.sections_questions (id, survey_id, "
+            + "question_id, section_id, display_order) VALUES (?, ?, ?, ?, ?)";
+
+    static final String INSERT_RELATIONSHIP_SQL = "INSERT INTO survey.relationships (id, survey_id, upstream_step_id, "
+            + "upstream_sq_id, downstream_step_id, downstream_sq_id, downstream_s_id, operator_id, action_id, token, "
+            + "description, reference_value, default_upstream_value) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, '')";
+
+    static final String INSERT_DIMENSION_SQL = "INSERT INTO survey.dimensions (name) VALUES (?) RETURNING id";
+
+    static final String INSERT_ONTOLOGY_SQL = "INSERT INTO survey.ontology (id, survey_id, name, tag, dimension) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    static final String INSERT_METADATA_SQL = "INSERT INTO survey.metadata (id, survey_id, section_question_id, "
+            + "ontology_id) VALUES (?, ?, ?, ?)";
+
+    @Inject
+    EntityManager entityManager;
+
+    /**
+     * Writes the definition rows of a planned survey.
+     *
+     * @param plan the planned survey
+     * @return the id of the new survey
+     */
+    @Transactional
+    public int generate(SyntheticSurvey plan) {
+        Session session = entityManager.unwrap(Session.class);
+        int surveyId = session.doReturningWork(connection -> new Writer(connection, plan).write());
+        Log.info("Generated survey " + surveyId + " with " + plan.getSections().size() + " sections, "
+                + plan.getQuestionCount() + " questions and " + plan.getLinks().size() + " relationships");
+        return surveyId;
+    }
+
+    /**
+     * Writes one survey. The ids of the rows are reserved per table up front, so every table is
+     * written with a single batch.
+     */
+    private static final class Writer {
+        private final Connection connection;
+        private final SyntheticSurvey plan;
+        private final Map<String, Integer> types = new HashMap<>();
+        private final Map<Integer, Integer> sectionIds = new HashMap<>();
+        private final Map<Integer, Integer> stepsSectionIds = new HashMap<>();
+        private final Map<SyntheticSurvey.Question, Integer> sectionsQuestionIds = new HashMap<>();
+        private int surveyId;
+        private int selectGroupId;
+
+        Writer(Connection connection, SyntheticSurvey plan) {
+            this.connection = connection;
+            this.plan = plan;
+        }
+
+        int write() throws SQLException {
+            readTypes();
+            int steps = plan.getSpec().steps();
+            try (PreparedStatement ps = connection.prepareStatement(USED_STEPS_SQL)) {
+                ps.setInt(1, steps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    if (rs.getLong(1) > 0) {
+                        throw new IllegalStateException("Steps with ids 1 to " + steps + " exist already. The engine "
+                                + "matches step ids with display orders, generate into a database without other surveys.");
+                    }
+                }
+            }
+
+            surveyId = nextIds("survey.surveys_seq", 1).get(0);
+            SyntheticSurvey.Spec spec = plan.getSpec();
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SURVEY_SQL)) {
+                ps.setInt(1, surveyId);
+                ps.setString(2, spec.name());
+                ps.setString(3, spec.name() + " generated survey");
+                ps.setString(4, "Generated from " + spec);
+                ps.setString(5, plan.getSections().get(0).displayKey(surveyId));
+                ps.executeUpdate();
+            }
+            writeChoices();
+            writeSteps(steps);
+            writeSections();
+            writeQuestions();
+            writeLinks();
+            writeTags();
+            return surveyId;
+        }
+
+        private void readTypes() throws SQLException {
+            try (PreparedStatement ps = connection.prepareStatement(TYPES_SQL);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    types.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        }
+
+        private int type(String name) {
+            Integer id = types.get(name);
+            if (id == null) {
+                throw new IllegalStateException("Type " + name + " is not in the database, is V003 applied?");
+            }
+            return id;
+        }
+
+        private void writeChoices() throws SQLException {
+            selectGroupId = nextIds("survey.select_groups_seq", 1).get(0);
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SELECT_GROUP_SQL)) {
+                ps.setInt(1, selectGroupId);
+                ps.setInt(2, surveyId);
+                ps.executeUpdate();
+            }
+            List<Integer> ids = nextIds("survey.select_items_seq", SyntheticSurvey.CHOICES);
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SELECT_ITEM_SQL)) {
+                for (int i = 0; i < SyntheticSurvey.CHOICES; i++) {
+                    ps.setInt(1, ids.get(i));
+                    ps.setInt(2, surveyId);
+                    ps.setInt(3, selectGroupId);
+                    ps.setString(4, "Choice " + (i + 1));
+                    ps.setInt(5, i + 1);
+                    ps.setString(6, SyntheticSurvey.CHOICE_PREFIX + (i + 1));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        private void writeSteps(int steps) throws SQLException {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_STEP_SQL)) {
+                for (int step = 1; step <= steps; step++) {
+                    ps.setInt(1, step);
+                    ps.setInt(2, surveyId);
+                    ps.setInt(3, step);
+                    ps.setString(4, "Step " + step);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(STEPS_SEQUENCE_SQL)) {
+                ps.setInt(1, steps);
+                ps.executeQuery().close();
+            }
+        }
+
+        private void writeSections() throws SQLException {
+            List<SyntheticSurvey.Section> sections = plan.getSections();
+            List<Integer> ids = nextIds("survey.sections_seq", sections.size());
+            List<Integer> ssIds = nextIds("survey.steps_sections_seq", sections.size());
+            try (PreparedStatement section = connection.prepareStatement(INSERT_SECTION_SQL);
+                 PreparedStatement stepsSection = connection.prepareStatement(INSERT_STEPS_SECTION_SQL)) {
+                for (int i = 0; i < sections.size(); i++) {
+                    SyntheticSurvey.Section s = sections.get(i);
+                    section.setInt(1, ids.get(i));
+                    section.setInt(2, surveyId);
+                    section.setInt(3, s.order());
+                    section.setString(4, s.name());
+                    section.addBatch();
+
+                    stepsSection.setInt(1, ssIds.get(i));
+                    stepsSection.setInt(2, surveyId);
+                    stepsSection.setInt(3, s.step());
+                    stepsSection.setInt(4, s.step());
+                    stepsSection.setInt(5, ids.get(i));
+                    stepsSection.setInt(6, s.order());
+                    stepsSection.setString(7, s.displayKey(surveyId));
+                    stepsSection.addBatch();
+                    sectionIds.put(s.order(), ids.get(i));
+                    stepsSectionIds.put(s.order(), ssIds.get(i));
+                }
+                section.executeBatch();
+                stepsSection.executeBatch();
+            }
+        }
+
+        private void writeQuestions() throws SQLException {
+            int count = plan.getQuestionCount();
+            List<Integer> questionIds = nextIds("survey.questions_seq", count);
+            List<Integer> sqIds = nextIds("survey.sections_questions_seq", count);
+            int i = 0;
+            try (PreparedStatement question = connection.prepareStatement(INSERT_QUESTION_SQL);
+                 PreparedStatement sectionsQuestion = connection.prepareStatement(INSERT_SECTIONS_QUESTION_SQL)) {
+                for (SyntheticSurvey.Section s : plan.getSections()) {
+                    for (SyntheticSurvey.Question q : s.questions()) {
+                        question.setInt(1, questionIds.get(i));
+                        question.setInt(2, surveyId);
+                        question.setInt(3, type(q.type()));
+                        question.setString(4, q.text());
+                        question.setString(5, q.type() + " " + q.section() + "." + q.order());
+                        if (q.hasChoices()) {
+                            question.setInt(6, selectGroupId);
+                        } else {
+                            question.setNull(6, Types.INTEGER);
+                        }
+                        question.addBatch();
+
+                        sectionsQuestion.setInt(1, sqIds.get(i));
+                        sectionsQuestion.setInt(2, surveyId);
+                        sectionsQuestion.setInt(3, questionIds.get(i));
+                        sectionsQuestion.setInt(4, sectionIds.get(s.order()));
+                        sectionsQuestion.setInt(5, q.order());
+                        sectionsQuestion.addBatch();
+                        sectionsQuestionIds.put(q, sqIds.get(i));
+                        i++;
+                    }
+                }
+                question.executeBatch();
+                sectionsQuestion.executeBatch();
+            }
+        }
+
+        private void writeLinks() throws SQLException {
+            List<SyntheticSurvey.Link> links = plan.getLinks();
+            List<Integer> ids = nextIds("survey.relationships_seq", links.size());
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_RELATIONSHIP_SQL)) {
+                for (int i = 0; i < links.size(); i++) {
+                    SyntheticSurvey.Link link = links.get(i);
+                    ps.setInt(1, ids.get(i));
+                    ps.setInt(2, surveyId);
+                    ps.setInt(3, link.upstream().step());
+                    ps.setInt(4, sectionsQuestionIds.get(link.upstream()));
+                    // A repeated section names its step so the instances are kept out of the step's initial answers.
+                    if ("REPEAT".equals(link.action())) {
+                        ps.setInt(5, link.downstreamSection().step());
+                    } else {
+                        ps.setNull(5, Types.INTEGER);
+                    }
+                    if (link.downstreamQuestion() != null) {
+                        ps.setInt(6, sectionsQuestionIds.get(link.downstreamQuestion()));
+                        ps.setNull(7, Types.INTEGER);
+                    } else {
+                        ps.setNull(6, Types.INTEGER);
+                        ps.setInt(7, stepsSectionIds.get(link.downstreamSection().order()));
+                    }
+                    ps.setInt(8, type("operator:" + link.operator()));
+                    ps.setInt(9, type("action:" + link.action()));
+                    ps.setString(10, link.token());
+                    ps.setString(11, "Generated " + link.action());
+                    ps.setString(12, link.reference());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        /**
+         * Maps the first questions of the survey to one reporting dimension, so the ETL has
+         * columns to fill.
+         */
+        private void writeTags() throws SQLException {
+            int tagged = plan.getSpec().taggedQuestions();
+            if (tagged == 0) {
+                return;
+            }
+            List<SyntheticSurvey.Question> questions = new ArrayList<>();
+            for (SyntheticSurvey.Section s : plan.getSections()) {
+                for (SyntheticSurvey.Question q : s.questions()) {
+                    if (questions.size() < tagged) {
+                        questions.add(q);
+                    }
+                }
+            }
+            int dimensionId;
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_DIMENSION_SQL)) {
+                ps.setString(1, "synthetic_" + surveyId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    dimensionId = rs.getInt(1);
+                }
+            }
+            List<Integer> ontologyIds = nextIds("survey.ontology_seq", questions.size());
+            List<Integer> metadataIds = nextIds("survey.metadata_seq", questions.size());
+            try (PreparedStatement ontology = connection.prepareStatement(INSERT_ONTOLOGY_SQL);
+                 PreparedStatement metadata = connection.prepareStatement(INSERT_METADATA_SQL)) {
+                for (int i = 0; i < questions.size(); i++) {
+                    SyntheticSurvey.Question q = questions.get(i);
+                    ontology.setInt(1, ontologyIds.get(i));
+                    ontology.setInt(2, surveyId);
+                    ontology.setString(3, "Synthetic " + surveyId + " question " + q.section() + "." + q.order());
+                    ontology.setString(4, "syn" + surveyId + "_" + q.section() + "_" + q.order());
+                    ontology.setInt(5, dimensionId);
+                    ontology.addBatch();
+
+                    metadata.setInt(1, metadataIds.get(i));
+                    metadata.setInt(2, surveyId);
+                    metadata.setInt(3, sectionsQuestionIds.get(q));
+                    metadata.setInt(4, ontologyIds.get(i));
+                    metadata.addBatch();
+                }
+                ontology.executeBatch();
+                metadata.executeBatch();
+            }
+        }
+
+        private List<Integer> nextIds(String sequence, int count) throws SQLException {
+            List<Integer> ids = new ArrayList<>(count);
+            if (count == 0) {
+                return ids;
+            }
+            try (PreparedStatement ps = connection.prepareStatement(NEXT_IDS_SQL)) {
+                ps.setString(1, sequence);
+                ps.setInt(2, count);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+            return ids;
+        }
+    }
+}
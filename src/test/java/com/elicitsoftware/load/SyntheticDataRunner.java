@@ -0,0 +1,94 @@
+package com.elicitsoftware.load;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.logging.Log;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Seeds the load-test database with a generated survey and respondents. The class name is not
+ * picked up by surefire, so it only runs when asked for:
+ * <pre>
+ * mvn test -Dtest=SyntheticDataRunner -Dsynthetic.steps=20 -Dsynthetic.respondents=10000
+ * </pre>
+ * The survey is described by the {@code synthetic.*} properties of
+ * {@link SyntheticSurvey.Spec#fromSystemProperties()}. {@code synthetic.surveyId} adds
+ * respondents to a survey generated before instead. The respondents are controlled by
+ * {@code synthetic.respondents} (100), {@code synthetic.threads} (4), {@code synthetic.answerRate}
+ * (0.9) and {@code synthetic.finalize} (true).
+ */
+@QuarkusTest
+@TestProfile(LoadTestProfile.class)
+class SyntheticDataRunner {
+
+    @Inject
+    SurveyGenerator surveyGenerator;
+
+    @Inject
+    RespondentGenerator respondentGenerator;
+
+    @Test
+    void generate() throws Exception {
+        SyntheticSurvey.Spec spec = SyntheticSurvey.Spec.fromSystemProperties();
+        Integer surveyId = Integer.getInteger("synthetic.surveyId");
+        if (surveyId == null) {
+            surveyId = surveyGenerator.generate(SyntheticSurvey.plan(spec));
+        }
+
+        int respondents = Integer.getInteger("synthetic.respondents", 100);
+        int threads = Integer.getInteger("synthetic.threads", 4);
+        double answerRate = Double.parseDouble(System.getProperty("synthetic.answerRate", "0.9"));
+        boolean finalize = Boolean.parseBoolean(System.getProperty("synthetic.finalize", "true"));
+
+        int id = surveyId;
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<RespondentGenerator.Walk>> walks = new ArrayList<>(respondents);
+            for (int i = 0; i < respondents; i++) {
+                // Every respondent has its own seed, so the paths do not depend on the thread count.
+                Random random = new Random(spec.seed() * 1_000_003 + i);
+                walks.add(executor.submit(() -> {
+                    ManagedContext requestContext = Arc.container().requestContext();
+                    requestContext.activate();
+                    try {
+                        return respondentGenerator.walk(id, spec.repeatFanOut(), answerRate, finalize, random);
+                    } finally {
+                        requestContext.terminate();
+                    }
+                }));
+            }
+            long sections = 0;
+            long answers = 0;
+            for (Future<RespondentGenerator.Walk> walk : walks) {
+                sections += walk.get().sections();
+                answers += walk.get().answers();
+            }
+            Log.info("Generated " + respondents + " respondents for survey " + id + " with " + sections
+                    + " sections and " + answers + " answers in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.elicitsoftware.load;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.DisplayKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The layout of a generated survey, planned in memory before any row is written.
+ * <p>
+ * Every step has the same shape. Its first sections are created when the survey starts; the
+ * last {@code repeatDepth} sections are repeated, each one by an INTEGER question in the section
+ * before it, like the checkout and renewal sections of the library test survey. Every section
+ * starts with a TEXT question, followed by a chain of {@code showDepth} CHECKBOX questions where
+ * each one shows the next, and is filled up with questions of the other types.
+ * <p>
+ * The engine hides the targets of TEXT relationships until another relationship shows them, so
+ * only repeated sections carry tokens: each of their questions mentions {@code {T<n>}} with
+ * probability {@code tokenDensity}, and the token is replaced with the TEXT question of the
+ * section that repeats them.
+ */
+public final class SyntheticSurvey {
+
+    /**
+     * Display keys have four digits for every part.
+     */
+    static final int MAX_DISPLAY_ORDER = 9999;
+
+    static final String CHOICE_PREFIX = "c";
+    static final int CHOICES = 5;
+
+    /**
+     * The question types used after the TEXT question and the CHECKBOX chain.
+     */
+    static final String[] FILLER_TYPES = {"RADIO", "CHECKBOX_GROUP", "DATE_PICKER", "DOUBLE", "TEXTAREA",
+            "COMBOBOX", "MULTI_SELECT", "EMAIL"};
+
+    /**
+     * The size and shape of a generated survey.
+     *
+     * @param name                the unique survey name
+     * @param steps               the number of steps
+     * @param sectionsPerStep     the number of sections in every step, repeated ones included
+     * @param questionsPerSection the number of questions in every section
+     * @param showDepth           the length of the chain of CHECKBOX questions shown by the one before
+     * @param repeatDepth         the number of repeated sections nested in every step
+     * @param repeatFanOut        the largest repeat count respondents enter
+     * @param tokenDensity        the share of questions in repeated sections that carry a TEXT token
+     * @param taggedQuestions     the number of questions mapped to the reporting ontology
+     * @param seed                the seed of the random choices
+     */
+    public record Spec(String name, int steps, int sectionsPerStep, int questionsPerSection, int showDepth,
+                       int repeatDepth, int repeatFanOut, double tokenDensity, int taggedQuestions, long seed) {
+
+        public Spec {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("The survey needs a name");
+            }
+            if (steps < 1 || sectionsPerStep < 1 || questionsPerSection < 1) {
+                throw new IllegalArgumentException("Steps, sections and questions must be positive");
+            }
+            if (showDepth < 0 || repeatDepth < 0 || repeatFanOut < 0 || taggedQuestions < 0) {
+                throw new IllegalArgumentException("Depths, fan-out and tagged questions cannot be negative");
+            }
+            if (repeatDepth >= sectionsPerStep) {
+                throw new IllegalArgumentException("Every step needs a section that is not repeated");
+            }
+            if (questionsPerSection < showDepth + 3 || questionsPerSection > MAX_DISPLAY_ORDER) {
+                throw new IllegalArgumentException("A section needs between " + (showDepth + 3) + " and "
+                        + MAX_DISPLAY_ORDER + " questions");
+            }
+            if ((long) steps * sectionsPerStep > MAX_DISPLAY_ORDER) {
+                throw new IllegalArgumentException("A survey has at most " + MAX_DISPLAY_ORDER + " sections");
+            }
+            if (tokenDensity < 0 || tokenDensity > 1) {
+                throw new IllegalArgumentException("The token density is a share between 0 and 1");
+            }
+        }
+
+        /**
+         * Reads the spec from {@code synthetic.*} system properties, with defaults for a survey of
+         * a hundred sections.
+         *
+         * @return the spec
+         */
+        public static Spec fromSystemProperties() {
+            return new Spec(System.getProperty("synthetic.name", "Synthetic"),
+                    Integer.getInteger("synthetic.steps", 10),
+                    Integer.getInteger("synthetic.sectionsPerStep", 10),
+                    Integer.getInteger("synthetic.questionsPerSection", 12),
+                    Integer.getInteger("synthetic.showDepth", 3),
+                    Integer.getInteger("synthetic.repeatDepth", 2),
+                    Integer.getInteger("synthetic.repeatFanOut", 4),
+                    Double.parseDouble(System.getProperty("synthetic.tokenDensity", "0.25")),
+                    Integer.getInteger("synthetic.taggedQuestions", 20),
+                    Long.getLong("synthetic.seed", 1L));
+        }
+    }
+
+    /**
+     * A planned question, which becomes one questions row and one sections_questions row.
+     *
+     * @param step    the step display order
+     * @param section the section display order
+     * @param order   the display order within the section
+     * @param type    the question type name
+     * @param text    the question text, with its token if it has one
+     */
+    public record Question(int step, int section, int order, String type, String text) {
+
+        /**
+         * @return true if the answer is one of the select items
+         */
+        public boolean hasChoices() {
+            return switch (type) {
+                case "RADIO", "COMBOBOX", "CHECKBOX_GROUP", "MULTI_SELECT" -> true;
+                default -> false;
+            };
+        }
+    }
+
+    /**
+     * A planned section, which becomes one sections row and one steps_sections row.
+     *
+     * @param step      the step display order
+     * @param order     the section display order, unique in the survey
+     * @param level     0 for a section created when the survey starts, n for the n-th nested repeat
+     * @param name      the section name
+     * @param questions the questions in display order
+     */
+    public record Section(int step, int order, int level, String name, List<Question> questions) {
+
+        /**
+         * @param surveyId the survey id
+         * @return the display key of the section
+         */
+        public String displayKey(int surveyId) {
+            DisplayKey key = new DisplayKey("0000-0000-0000-0000-0000-0000-0000");
+            key.setSurvey(surveyId);
+            key.setStep(step);
+            key.setSection(order);
+            return key.getValue();
+        }
+    }
+
+    /**
+     * A planned relationship. Exactly one of {@code downstreamQuestion} and
+     * {@code downstreamSection} is set.
+     *
+     * @param upstream           the upstream question
+     * @param downstreamQuestion the question shown, or null
+     * @param downstreamSection  the section repeated or receiving the token, or null
+     * @param operator           the operator type name
+     * @param action             the action type name
+     * @param reference          the reference value
+     * @param token              the TEXT token, or null
+     */
+    public record Link(Question upstream, Question downstreamQuestion, Section downstreamSection, String operator,
+                       String action, String reference, String token) {
+    }
+
+    private final Spec spec;
+    private final List<Section> sections = new ArrayList<>();
+    private final List<Link> links = new ArrayList<>();
+
+    private SyntheticSurvey(Spec spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * Plans a survey. The same spec always gives the same plan.
+     *
+     * @param spec the size and shape of the survey
+     * @return the plan
+     */
+    public static SyntheticSurvey plan(Spec spec) {
+        SyntheticSurvey survey = new SyntheticSurvey(spec);
+        Random random = new Random(spec.seed());
+        int sectionOrder = 0;
+        for (int step = 1; step <= spec.steps(); step++) {
+            int plain = spec.sectionsPerStep() - spec.repeatDepth();
+            Section parent = null;
+            for (int s = 1; s <= spec.sectionsPerStep(); s++) {
+                int level = Math.max(0, s - plain);
+                // The last plain section and every repeated one but the innermost repeat the next.
+                boolean repeats = s >= plain && s < spec.sectionsPerStep();
+                Section section = survey.planSection(step, ++sectionOrder, level, repeats, parent, random);
+                if (level > 0) {
+                    Question count = parent.questions().get(spec.showDepth() + 2);
+                    survey.links.add(new Link(count, null, section, "GREATER THAN", "REPEAT", "0", null));
+                }
+                parent = section;
+            }
+        }
+        return survey;
+    }
+
+    private Section planSection(int step, int order, int level, boolean repeats, Section parent, Random random) {
+        String token = level > 0 ? "T" + order : null;
+        boolean tokenUsed = false;
+        List<Question> questions = new ArrayList<>(spec.questionsPerSection());
+        int slot = 0;
+
+        questions.add(new Question(step, order, ++slot, "TEXT", "Name for section " + order));
+        Question previous = null;
+        for (int i = 0; i <= spec.showDepth(); i++) {
+            Question checkbox = new Question(step, order, ++slot, "CHECKBOX",
+                    i == 0 ? "Continue in section " + order + "?" : "Go deeper, level " + i + "?");
+            questions.add(checkbox);
+            if (previous != null) {
+                links.add(new Link(previous, checkbox, null, "BOOLEAN", "SHOW", "", null));
+            }
+            previous = checkbox;
+        }
+        if (repeats) {
+            questions.add(new Question(step, order, ++slot, "INTEGER", "How many times should section "
+                    + (order + 1) + " repeat?"));
+        }
+        for (int i = 0; slot < spec.questionsPerSection(); i++) {
+            String text = "Question " + (slot + 1) + " of section " + order;
+            if (token != null && random.nextDouble() < spec.tokenDensity()) {
+                text += " for {" + token + "}";
+                tokenUsed = true;
+            }
+            questions.add(new Question(step, order, ++slot, FILLER_TYPES[(order + i) % FILLER_TYPES.length], text));
+        }
+
+        String name = level > 0 ? "Section " + order + " {S#}" : "Section " + order;
+        Section section = new Section(step, order, level, name, Collections.unmodifiableList(questions));
+        sections.add(section);
+        if (tokenUsed) {
+            links.add(new Link(parent.questions().get(0), null, section, "FIELD_EXIST", "TEXT", "", token));
+        }
+        return section;
+    }
+
+    /**
+     * @return the spec the survey was planned from
+     */
+    public Spec getSpec() {
+        return spec;
+    }
+
+    /**
+     * @return the sections in display order
+     */
+    public List<Section> getSections() {
+        return Collections.unmodifiableList(sections);
+    }
+
+    /**
+     * @return the relationships
+     */
+    public List<Link> getLinks() {
+        return Collections.unmodifiableList(links);
+    }
+
+    /**
+     * @return the number of questions
+     */
+    public int getQuestionCount() {
+        return sections.size() * spec.questionsPerSection();
+    }
+}
@@ -0,0 +1,91 @@
+package com.elicitsoftware.load;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticSurveyTest {
+
+    static SyntheticSurvey.Spec spec(double tokenDensity, long seed) {
+        return new SyntheticSurvey.Spec("Test", 3, 5, 10, 2, 2, 3, tokenDensity, 5, seed);
+    }
+
+    @Test
+    void given_sameSpec_when_planned_then_samePlan() {
+        SyntheticSurvey first = SyntheticSurvey.plan(spec(0.5, 7));
+        SyntheticSurvey second = SyntheticSurvey.plan(spec(0.5, 7));
+        assertEquals(first.getSections(), second.getSections());
+        assertEquals(first.getLinks(), second.getLinks());
+    }
+
+    @Test
+    void given_spec_when_planned_then_sizesMatch() {
+        SyntheticSurvey survey = SyntheticSurvey.plan(spec(0.5, 1));
+        assertEquals(15, survey.getSections().size());
+        assertEquals(150, survey.getQuestionCount());
+        Set<String> keys = new HashSet<>();
+        for (SyntheticSurvey.Section section : survey.getSections()) {
+            assertEquals(10, section.questions().size());
+            assertTrue(keys.add(section.displayKey(1)), "Display keys must be unique");
+        }
+        // Two repeated sections per step, each by the section before it.
+        assertEquals(6, survey.getLinks().stream().filter(l -> l.action().equals("REPEAT")).count());
+        // Every section has a chain of three checkboxes, linked twice.
+        assertEquals(30, survey.getLinks().stream().filter(l -> l.action().equals("SHOW")).count());
+    }
+
+    @Test
+    void given_plan_when_repeated_then_countedByIntegerInSectionBefore() {
+        SyntheticSurvey survey = SyntheticSurvey.plan(spec(0.5, 1));
+        for (SyntheticSurvey.Link link : survey.getLinks()) {
+            if (link.action().equals("REPEAT")) {
+                assertEquals("INTEGER", link.upstream().type());
+                assertEquals(link.downstreamSection().order() - 1, link.upstream().section());
+                assertTrue(link.downstreamSection().level() > 0);
+            }
+        }
+    }
+
+    @Test
+    void given_tokens_when_planned_then_upstreamOutsideTargetAndTargetRepeated() {
+        SyntheticSurvey survey = SyntheticSurvey.plan(spec(1, 1));
+        List<SyntheticSurvey.Link> texts = survey.getLinks().stream().filter(l -> l.action().equals("TEXT")).toList();
+        assertEquals(6, texts.size());
+        for (SyntheticSurvey.Link link : texts) {
+            SyntheticSurvey.Section target = link.downstreamSection();
+            assertNotEquals(target.order(), link.upstream().section(), "A TEXT upstream inside its target loops");
+            assertTrue(survey.getLinks().stream().anyMatch(l -> l.action().equals("REPEAT") && l.downstreamSection() == target),
+                    "TEXT targets are hidden until another relationship creates them");
+            assertTrue(target.questions().stream().anyMatch(q -> q.text().contains("{" + link.token() + "}")));
+        }
+    }
+
+    @Test
+    void given_noDensity_when_planned_then_noTokens() {
+        SyntheticSurvey survey = SyntheticSurvey.plan(spec(0, 1));
+        assertTrue(survey.getLinks().stream().noneMatch(l -> l.action().equals("TEXT")));
+    }
+
+    @Test
+    void given_invalidSpec_when_created_then_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SyntheticSurvey.Spec("Test", 1, 2, 10, 2, 2, 3, 0, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SyntheticSurvey.Spec("Test", 1, 5, 4, 2, 2, 3, 0, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SyntheticSurvey.Spec("Test", 1, 5, 10, 2, 2, 3, 1.5, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SyntheticSurvey.Spec("", 1, 5, 10, 2, 2, 3, 0, 0, 1));
+    }
+}
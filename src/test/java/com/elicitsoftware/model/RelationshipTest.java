@@ -0,0 +1,155 @@
+package com.elicitsoftware.model;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RelationshipTest {
+
+    // Golden results of the original string switch. LESS THAN on numbers is true when the
+    // answer is greater than or equal to the reference, and a date reference that is not a
+    // date means now; both are kept on purpose.
+
+    private static final String[][] COMPARISONS = {
+            {"LESS THAN", "INTEGER", "5", "3", "false"},
+            {"LESS THAN", "INTEGER", "5", "5", "true"},
+            {"LESS THAN", "INTEGER", "5", "7", "true"},
+            {"LESS THAN", "INTEGER", "5", "5.0", "true"},
+            {"LESS THAN", "INTEGER", "5", " 7", "true"},
+            {"LESS THAN", "INTEGER", "5", "abc", "false"},
+            {"LESS THAN", "INTEGER", "5", "", "false"},
+            {"LESS THAN", "INTEGER", "5", null, "false"},
+            {"LESS THAN", "INTEGER", null, "7", "false"},
+            {"LESS THAN", "INTEGER", "x", "7", "false"},
+            {"LESS THAN", "INTEGER", "-2", "-3", "false"},
+            {"LESS THAN", "INTEGER", "2.5", "2.5", "true"},
+            {"GREATER THAN", "INTEGER", "5", "3", "false"},
+            {"GREATER THAN", "INTEGER", "5", "5", "true"},
+            {"GREATER THAN", "INTEGER", "5", "7", "true"},
+            {"GREATER THAN", "INTEGER", "5", "1e1", "true"},
+            {"GREATER THAN", "INTEGER", "0", "-0", "true"},
+            {"GREATER THAN", "INTEGER", "5", "NaN", "false"},
+            {"GREATER THAN", "INTEGER", null, "7", "false"},
+            {"GREATER THAN", "INTEGER", "5", "+6", "true"},
+            {"LESS THAN", "DATE", "2020-01-05", "2020-01-04", "true"},
+            {"LESS THAN", "DATE", "2020-01-05", "2020-01-05", "false"},
+            {"LESS THAN", "DATE", "2020-01-05", "2020-01-06", "false"},
+            {"LESS THAN", "DATE", "2020-01-05", "2020-1-4", "true"},
+            {"LESS THAN", "DATE", "2020-01-05", "2019-12-32", "true"},
+            {"LESS THAN", "DATE", "2020-01-05", "2020-01-05T10", "false"},
+            {"LESS THAN", "DATE", "2020-01-05", "not a date", "false"},
+            {"LESS THAN", "DATE", "2020-01-05", null, "false"},
+            {"LESS THAN", "DATE", "today", "2000-01-01", "true"},
+            {"LESS THAN", "DATE", null, "2999-01-01", "false"},
+            {"GREATER THAN", "DATE", "2020-01-05", "2020-01-04", "false"},
+            {"GREATER THAN", "DATE", "2020-01-05", "2020-01-05", "true"},
+            {"GREATER THAN", "DATE", "2020-01-05", "2020-01-06", "true"},
+            {"GREATER THAN", "DATE", "2020-01-05", "2020-02-30", "true"},
+            {"GREATER THAN", "DATE", "2020-13-01", "2021-01-01", "true"},
+            {"GREATER THAN", "DATE", "1582-10-15", "1582-10-10", "true"},
+            {"GREATER THAN", "DATE", "today", "2999-01-01", "true"},
+            {"GREATER THAN", "DATE", "today", "2000-01-01", "false"}
+    };
+
+    private static final String[][] OTHERS = {
+            {"BOOLEAN", null, "true", "true"},
+            {"BOOLEAN", null, "TRUE", "true"},
+            {"BOOLEAN", null, "yes", "false"},
+            {"BOOLEAN", null, null, "false"},
+            {"EQUAL", "Yes", "yes", "true"},
+            {"EQUAL", "Yes", "no", "false"},
+            {"EQUAL", "Yes", null, "false"},
+            {"EQUAL", null, "yes", "false"},
+            {"NOT_EQUAL", "Yes", "YES", "false"},
+            {"NOT_EQUAL", "Yes", "no", "true"},
+            {"NOT_EQUAL", "Yes", null, "false"},
+            {"NOT_EQUAL", null, "no", "true"},
+            {"FIELD_EXIST", null, null, "true"},
+            {"CONTAINS", "dvd", "book,dvd", "true"},
+            {"CONTAINS", "dvd", "book,DVD", "false"},
+            {"CONTAINS", "dvd", "book,dvds", "false"},
+            {"CONTAINS", "dvd", "dvd", "true"},
+            {"CONTAINS", "dvd", null, "false"},
+            {"CONTAINS", "", "", "true"},
+            {"CONTAINS", "", ",a", "true"},
+            {"CONTAINS", "", "a,,b", "true"},
+            {"CONTAINS", "", "a,", "false"},
+            {"CONTAINS", "", ",", "false"},
+            {"CONTAINS", null, "a", "false"},
+            {"UNKNOWN", "a", "a", "false"}
+    };
+
+    @Test
+    void given_comparisons_when_evaluate_then_goldenResults() {
+        for (String[] c : COMPARISONS) {
+            Relationship relationship = relationship(c[0], c[2]);
+            relationship.upstreamQuestion = upstream(c[1]);
+            assertEquals(Boolean.parseBoolean(c[4]), relationship.evaluateOperator(answer(c[3])),
+                    c[0] + " " + c[1] + " reference [" + c[2] + "] value [" + c[3] + "]");
+        }
+    }
+
+    @Test
+    void given_otherOperators_when_evaluate_then_goldenResults() {
+        for (String[] c : OTHERS) {
+            Relationship relationship = relationship(c[0], c[1]);
+            assertEquals(Boolean.parseBoolean(c[3]), relationship.evaluateOperator(answer(c[2])),
+                    c[0] + " reference [" + c[1] + "] value [" + c[2] + "]");
+        }
+    }
+
+    @Test
+    void given_missingTypes_when_evaluate_then_false() {
+        assertFalse(relationship(null, "a").evaluateOperator(answer("a")));
+        assertFalse(relationship("LESS THAN", "5").evaluateOperator(answer("7")));
+        assertFalse(relationship("BOOLEAN", null).evaluateOperator(null));
+        assertTrue(relationship("FIELD_EXIST", null).evaluateOperator(null));
+    }
+
+    @Test
+    void given_compiledRelationship_when_evaluatedRepeatedly_then_sameResult() {
+        Relationship relationship = relationship("GREATER THAN", "2020-01-05");
+        relationship.upstreamQuestion = upstream("DATE");
+        for (int i = 0; i < 3; i++) {
+            assertTrue(relationship.evaluateOperator(answer("2020-01-05")));
+            assertFalse(relationship.evaluateOperator(answer("2020-01-04")));
+        }
+    }
+
+    private static Relationship relationship(String operator, String reference) {
+        Relationship relationship = new Relationship();
+        if (operator != null) {
+            relationship.operatorType = new OperatorType();
+            relationship.operatorType.name = operator;
+        }
+        relationship.referenceValue = reference;
+        return relationship;
+    }
+
+    private static SectionsQuestion upstream(String type) {
+        SectionsQuestion sectionsQuestion = new SectionsQuestion();
+        sectionsQuestion.question = new Question();
+        sectionsQuestion.question.questionType = new QuestionType();
+        sectionsQuestion.question.questionType.name = type;
+        return sectionsQuestion;
+    }
+
+    private static Answer answer(String value) {
+        Answer answer = new Answer();
+        answer.setTextValue(value);
+        return answer;
+    }
+}
@@ -0,0 +1,64 @@
+package com.elicitsoftware.psa;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostSurveyActionTest {
+
+    static final Duration INITIAL = Duration.ofSeconds(30);
+    static final Duration MAX = Duration.ofHours(1);
+
+    @Test
+    void given_tries_when_backoff_then_doublesFromInitial() {
+        assertEquals(Duration.ofSeconds(30), PostSurveyActionOutbox.backoff(1, INITIAL, MAX));
+        assertEquals(Duration.ofSeconds(60), PostSurveyActionOutbox.backoff(2, INITIAL, MAX));
+        assertEquals(Duration.ofSeconds(240), PostSurveyActionOutbox.backoff(4, INITIAL, MAX));
+    }
+
+    @Test
+    void given_manyTries_when_backoff_then_capped() {
+        assertEquals(MAX, PostSurveyActionOutbox.backoff(8, INITIAL, MAX));
+        assertEquals(MAX, PostSurveyActionOutbox.backoff(1000, INITIAL, MAX));
+    }
+
+    @Test
+    void given_errorStatus_when_noBody_then_statusMessage() {
+        String message = PostSurveyActionClient.errorMessage("PREMM5", "http://premm5/run", 7, 503, "");
+        assertTrue(message.contains("Service Unavailable (503)"));
+        message = PostSurveyActionClient.errorMessage("Risk model", "http://premm5/run", 7, 403, "license expired");
+        assertTrue(message.contains("License validation failed - license expired"));
+        assertTrue(message.endsWith("PREMM5 license is valid and properly configured."));
+    }
+
+    @Test
+    void given_status_when_isRetryable_then_onlyServerErrorsTimeoutsAndThrottling() {
+        assertTrue(PostSurveyActionClient.isRetryable(500));
+        assertTrue(PostSurveyActionClient.isRetryable(503));
+        assertTrue(PostSurveyActionClient.isRetryable(408));
+        assertTrue(PostSurveyActionClient.isRetryable(429));
+        assertFalse(PostSurveyActionClient.isRetryable(400));
+        assertFalse(PostSurveyActionClient.isRetryable(403));
+        assertFalse(PostSurveyActionClient.isRetryable(404));
+    }
+
+    @Test
+    void given_missingUrl_when_call_then_permanentFailure() {
+        PostSurveyActionClient client = new PostSurveyActionClient();
+        assertThrows(PostSurveyActionClient.PermanentFailure.class, () -> client.call("PREMM5", null, 7));
+        assertThrows(PostSurveyActionClient.PermanentFailure.class, () -> client.call("PREMM5", " ", 7));
+    }
+}
@@ -0,0 +1,91 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import io.quarkus.runtime.configuration.MemorySize;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PDFArtifactStoreTest {
+
+    @TempDir
+    Path directory;
+
+    PDFArtifactStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new PDFArtifactStore();
+        store.expiry = Duration.ofMinutes(10);
+        store.maxSize = new MemorySize(BigInteger.valueOf(1000));
+        store.memorySize = new MemorySize(BigInteger.valueOf(100));
+        store.open(directory, false);
+    }
+
+    @Test
+    void given_storedPdf_when_find_then_servedFromMemory() throws Exception {
+        String key = store.store(out -> out.write(new byte[60]));
+        PDFArtifactStore.Artifact pdf = store.find(key).orElseThrow();
+        assertEquals(60, pdf.size());
+        assertNotNull(pdf.content());
+    }
+
+    @Test
+    void given_memoryTierFull_when_store_then_leastRecentlyUsedServedFromDisk() throws Exception {
+        String first = store.store(out -> out.write(new byte[60]));
+        String second = store.store(out -> out.write(new byte[60]));
+        assertNull(store.find(first).orElseThrow().content());
+        assertNotNull(store.find(second).orElseThrow().content());
+    }
+
+    @Test
+    void given_pdfFromAnotherReplica_when_find_then_servedFromDisk() throws Exception {
+        String key = "3f1c2a3e-1d2b-4c5d-8e9f-0a1b2c3d4e5f";
+        Files.write(directory.resolve(key + ".pdf"), new byte[10]);
+        assertEquals(10, store.find(key).orElseThrow().size());
+    }
+
+    @Test
+    void given_expiredPdf_when_sweep_then_deleted() throws Exception {
+        String key = store.store(out -> out.write(new byte[200]));
+        Path file = directory.resolve(key + ".pdf");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        assertTrue(store.find(key).isEmpty());
+        store.sweep();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void given_directoryOverMaxSize_when_sweep_then_oldestDeleted() throws Exception {
+        String oldest = store.store(out -> out.write(new byte[600]));
+        Files.setLastModifiedTime(directory.resolve(oldest + ".pdf"), FileTime.from(Instant.now().minusSeconds(60)));
+        String newest = store.store(out -> out.write(new byte[600]));
+        store.sweep();
+        assertFalse(Files.exists(directory.resolve(oldest + ".pdf")));
+        assertTrue(Files.exists(directory.resolve(newest + ".pdf")));
+    }
+
+    @Test
+    void given_pathAsKey_when_find_then_empty() throws Exception {
+        assertTrue(store.find("../../etc/passwd").isEmpty());
+    }
+}
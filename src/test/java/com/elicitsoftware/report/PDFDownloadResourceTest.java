@@ -0,0 +1,59 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PDFDownloadResourceTest {
+
+    @Test
+    void given_closedRange_when_parseRange_then_inclusiveBounds() {
+        assertEquals(Optional.of(new PDFDownloadResource.ByteRange(10, 19)),
+                PDFDownloadResource.parseRange("bytes=10-19", 100));
+    }
+
+    @Test
+    void given_openOrOversizedRange_when_parseRange_then_endsAtLastByte() {
+        assertEquals(Optional.of(new PDFDownloadResource.ByteRange(90, 99)),
+                PDFDownloadResource.parseRange("bytes=90-", 100));
+        assertEquals(Optional.of(new PDFDownloadResource.ByteRange(90, 99)),
+                PDFDownloadResource.parseRange("bytes=90-500", 100));
+    }
+
+    @Test
+    void given_suffixRange_when_parseRange_then_lastBytes() {
+        assertEquals(Optional.of(new PDFDownloadResource.ByteRange(75, 99)),
+                PDFDownloadResource.parseRange("bytes=-25", 100));
+        assertEquals(Optional.of(new PDFDownloadResource.ByteRange(0, 99)),
+                PDFDownloadResource.parseRange("bytes=-500", 100));
+    }
+
+    @Test
+    void given_severalRangesOrOtherUnit_when_parseRange_then_wholePdf() {
+        assertEquals(Optional.empty(), PDFDownloadResource.parseRange("bytes=0-9,20-29", 100));
+        assertEquals(Optional.empty(), PDFDownloadResource.parseRange("pages=1-2", 100));
+    }
+
+    @Test
+    void given_unsatisfiableRange_when_parseRange_then_416() {
+        WebApplicationException e = assertThrows(WebApplicationException.class,
+                () -> PDFDownloadResource.parseRange("bytes=100-", 100));
+        assertEquals(416, e.getResponse().getStatus());
+        assertThrows(WebApplicationException.class, () -> PDFDownloadResource.parseRange("bytes=20-10", 100));
+        assertThrows(WebApplicationException.class, () -> PDFDownloadResource.parseRange("bytes=x-y", 100));
+    }
+}
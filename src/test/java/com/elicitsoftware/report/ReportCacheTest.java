@@ -0,0 +1,56 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import com.elicitsoftware.report.pdf.PDFDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportCacheTest {
+
+    ReportCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ReportCache();
+        cache.enabled = true;
+    }
+
+    private static ReportResponse response(String title) {
+        PDFDocument pdf = new PDFDocument();
+        pdf.title = title;
+        return new ReportResponse(title, "<p>" + title + "</p>", pdf);
+    }
+
+    @Test
+    void given_equalResponses_when_contentHash_then_sameHash() {
+        assertEquals(cache.contentHash(List.of(response("A"), response("B")), "https://survey"),
+                cache.contentHash(List.of(response("A"), response("B")), "https://survey"));
+    }
+
+    @Test
+    void given_otherContentOrBaseUrl_when_contentHash_then_otherHash() {
+        String hash = cache.contentHash(List.of(response("A")), "https://survey").orElseThrow();
+        assertNotEquals(hash, cache.contentHash(List.of(response("B")), "https://survey").orElseThrow());
+        assertNotEquals(hash, cache.contentHash(List.of(response("A")), "https://other").orElseThrow());
+    }
+
+    @Test
+    void given_errorResponse_when_contentHash_then_notCached() {
+        ReportResponse error = new ReportResponse("Error - A", "<p>failed</p>", null);
+        assertTrue(cache.contentHash(List.of(response("A"), error), "https://survey").isEmpty());
+    }
+}
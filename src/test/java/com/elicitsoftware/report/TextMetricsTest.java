@@ -0,0 +1,62 @@
+package com.elicitsoftware.report;
+
+/*-
+ * ***LICENSE_START***
+ * Elicit Survey
+ * %%
+ * Copyright (C) 2025 The Regents of the University of Michigan - Rogel Cancer Center
+ * %%
+ * PolyForm Noncommercial License 1.0.0
+ * <https://polyformproject.org/licenses/noncommercial/1.0.0>
+ * ***LICENSE_END***
+ */
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextMetricsTest {
+
+    private static final PDFont FONT = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    private static final TextMetrics METRICS = TextMetrics.of(FONT);
+
+    @Test
+    void given_text_when_width_then_sameAsStringWidth() throws Exception {
+        for (String text : List.of("", "Mother", "Maternal Grandmother (deceased)", "Breast cancer, age 45", "€ — “quoted”")) {
+            assertEquals(FONT.getStringWidth(text) / 1000 * 10, METRICS.width(text, 10), 0.0001f, text);
+        }
+    }
+
+    @Test
+    void given_unencodableCharacter_when_width_then_throwsLikeFont() {
+        assertThrows(IllegalArgumentException.class, () -> METRICS.width("line\nbreak", 10));
+    }
+
+    @Test
+    void given_longText_when_wrap_then_linesFitAndKeepWords() throws Exception {
+        String text = "The family history lists every first and second degree relative with their cancers and the age at diagnosis";
+        List<String> lines = METRICS.wrap(text, 10, 150);
+        assertTrue(lines.size() > 1);
+        for (String line : lines) {
+            assertTrue(FONT.getStringWidth(line) / 1000 * 10 <= 150, line);
+        }
+        assertEquals(text, String.join(" ", lines));
+    }
+
+    @Test
+    void given_wordWiderThanLine_when_wrap_then_hyphenated() throws Exception {
+        List<String> lines = METRICS.wrap("see Pneumonoultramicroscopicsilicovolcanoconiosis now", 10, 60);
+        assertEquals("see", lines.getFirst());
+        for (String line : lines) {
+            assertTrue(FONT.getStringWidth(line) / 1000 * 10 <= 60, line);
+        }
+        String joined = String.join("|", lines);
+        assertEquals("see Pneumonoultramicroscopicsilicovolcanoconiosis now",
+                joined.replace("-|", "").replace("|", " "));
+    }
+}